@@ -0,0 +1,291 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.ecs.metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.rrd4j.core.RrdDb;
+import org.rrd4j.core.RrdSafeFileBackendFactory;
+import org.rrd4j.graph.RrdGraph;
+import org.rrd4j.graph.RrdGraphDef;
+
+/**
+ * Converts the rrd files of containers and renders their graphs on a bounded pool of worker threads,
+ * so the time spent depends on the slowest graph rather than on the number of containers.
+ * The build waits at most {@link #RENDER_TIMEOUT_MILLIS} for the graphs, graphs that don't fit in the pool's
+ * queue are skipped rather than rendered on the build thread. Conversion and render times are accumulated
+ * in {@link RenderStats}.
+ */
+class MetricsRenderPipeline {
+    static final int RENDER_THREADS = 4;
+    static final int RENDER_QUEUE_SIZE = 100;
+    static final long RENDER_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    @FunctionalInterface
+    interface Converter {
+        void convert(File source, File target) throws IOException;
+    }
+
+    static final Converter RRDTOOL = (File source, File target) -> {
+        // rrd4j has it's own format, we need to convert from rrd first
+        RrdDb rrd = new RrdDb(
+                target.getAbsolutePath(), "rrdtool:/" + source.getAbsolutePath(), new RrdSafeFileBackendFactory());
+        rrd.close();
+    };
+
+    private static final MetricsRenderPipeline INSTANCE =
+            new MetricsRenderPipeline(RRDTOOL, createExecutor(), RENDER_TIMEOUT_MILLIS);
+
+    private final Converter converter;
+    private final ExecutorService executor;
+    private final long timeoutMillis;
+    private final RenderStats stats = new RenderStats();
+
+    MetricsRenderPipeline(Converter converter, ExecutorService executor, long timeoutMillis) {
+        this.converter = converter;
+        this.executor = executor;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    static MetricsRenderPipeline getInstance() {
+        return INSTANCE;
+    }
+
+    static ExecutorService createExecutor() {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                RENDER_THREADS,
+                RENDER_THREADS,
+                60L,
+                TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(RENDER_QUEUE_SIZE),
+                (Runnable r) -> {
+                    Thread thread = new Thread(r, "pbc-metrics-render-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Renders all graphs of the given containers into targetDir and waits for them to finish,
+     * at most the timeout given to the pipeline. Graphs not finished by then are cancelled.
+     */
+    Outcome render(List<Container> containers, File targetDir) {
+        long start = System.currentTimeMillis();
+        Outcome outcome = new Outcome();
+        List<String> names = new ArrayList<>();
+        List<Future<String>> futures = new ArrayList<>();
+        for (Container container : containers) {
+            for (ContainerGraph graph : ContainerGraph.values()) {
+                String name = graph.artifactName(container.getName());
+                try {
+                    futures.add(executor.submit(() -> renderGraph(container, graph, targetDir)));
+                    names.add(name);
+                } catch (RejectedExecutionException ex) {
+                    // the pool is saturated, don't render on the build thread.
+                    fail(outcome, name, ex);
+                }
+            }
+        }
+        long deadline = start + timeoutMillis;
+        for (int i = 0; i < futures.size(); i++) {
+            Future<String> future = futures.get(i);
+            try {
+                outcome.rendered.add(
+                        future.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS));
+            } catch (ExecutionException ex) {
+                fail(outcome, names.get(i), ex.getCause());
+            } catch (TimeoutException | CancellationException ex) {
+                future.cancel(true);
+                fail(outcome, names.get(i), ex);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                futures.forEach((Future<String> f) -> f.cancel(true));
+                fail(outcome, names.get(i), ex);
+                break;
+            }
+        }
+        outcome.elapsedMillis = System.currentTimeMillis() - start;
+        return outcome;
+    }
+
+    // the only place failures are counted, a cancelled graph must not count again when its task gives up.
+    private void fail(Outcome outcome, String graphName, Throwable cause) {
+        stats.failures.incrementAndGet();
+        outcome.failures.add(new Failure(graphName, cause));
+    }
+
+    private String renderGraph(Container container, ContainerGraph graph, File targetDir) throws IOException {
+        File folder = container.getFolder();
+        long convertStart = System.currentTimeMillis();
+        converter.convert(graph.rrdFile(folder), graph.rrd4jFile(folder));
+        stats.recordConversion(System.currentTimeMillis() - convertStart);
+        long renderStart = System.currentTimeMillis();
+        RrdGraphDef gDef =
+                graph.createGraphDef(container.getName(), container.getStartTime(), container.getEndTime(), targetDir);
+        graph.define(gDef, graph.rrd4jFile(folder).getAbsolutePath());
+        new RrdGraph(gDef);
+        stats.recordRender(System.currentTimeMillis() - renderStart);
+        return graph.artifactName(container.getName());
+    }
+
+    RenderStats getStats() {
+        return stats;
+    }
+
+    /**
+     * A container folder with the metrics provider's rrd files and the time range to render.
+     */
+    static final class Container {
+        private final String name;
+        private final File folder;
+        private final long startTime;
+        private final long endTime;
+
+        Container(File folder, long startTime, long endTime) {
+            this.name = folder.getName();
+            this.folder = folder;
+            this.startTime = startTime;
+            this.endTime = endTime;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        File getFolder() {
+            return folder;
+        }
+
+        long getStartTime() {
+            return startTime;
+        }
+
+        long getEndTime() {
+            return endTime;
+        }
+    }
+
+    static final class Failure {
+        private final String graphName;
+        private final Throwable cause;
+
+        Failure(String graphName, Throwable cause) {
+            this.graphName = graphName;
+            this.cause = cause;
+        }
+
+        String getGraphName() {
+            return graphName;
+        }
+
+        Throwable getCause() {
+            return cause;
+        }
+    }
+
+    /**
+     * Result of a single {@link #render(List, File)} call, rendered graphs keep the order of submission.
+     */
+    static final class Outcome {
+        private final List<String> rendered = new ArrayList<>();
+        private final List<Failure> failures = new ArrayList<>();
+        private long elapsedMillis;
+
+        List<String> getRendered() {
+            return Collections.unmodifiableList(rendered);
+        }
+
+        List<Failure> getFailures() {
+            return Collections.unmodifiableList(failures);
+        }
+
+        long getElapsedMillis() {
+            return elapsedMillis;
+        }
+    }
+
+    /**
+     * Conversion and render counters accumulated over the lifetime of the agent.
+     */
+    static final class RenderStats {
+        private final AtomicLong conversions = new AtomicLong();
+        private final AtomicLong conversionMillis = new AtomicLong();
+        private final AtomicLong renders = new AtomicLong();
+        private final AtomicLong renderMillis = new AtomicLong();
+        private final AtomicLong maxRenderMillis = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+
+        void recordConversion(long millis) {
+            conversions.incrementAndGet();
+            conversionMillis.addAndGet(millis);
+        }
+
+        void recordRender(long millis) {
+            renders.incrementAndGet();
+            renderMillis.addAndGet(millis);
+            maxRenderMillis.accumulateAndGet(millis, Math::max);
+        }
+
+        long getConversions() {
+            return conversions.get();
+        }
+
+        long getConversionMillis() {
+            return conversionMillis.get();
+        }
+
+        long getRenders() {
+            return renders.get();
+        }
+
+        long getRenderMillis() {
+            return renderMillis.get();
+        }
+
+        long getMaxRenderMillis() {
+            return maxRenderMillis.get();
+        }
+
+        long getFailures() {
+            return failures.get();
+        }
+
+        @Override
+        public String toString() {
+            return "conversions=" + getConversions() + " (" + getConversionMillis() + "ms), renders=" + getRenders()
+                    + " (" + getRenderMillis() + "ms, max " + getMaxRenderMillis() + "ms), failures=" + getFailures();
+        }
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.ecs.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.rrd4j.ConsolFun;
+import org.rrd4j.DsType;
+import org.rrd4j.core.RrdDb;
+import org.rrd4j.core.RrdDef;
+import org.rrd4j.core.Sample;
+
+public class MetricsRenderPipelineTest {
+    private static final long START = 1_700_000_000L;
+    private static final long END = START + 600;
+
+    @TempDir
+    Path tempDir;
+
+    private ExecutorService executor;
+    private final AtomicInteger conversions = new AtomicInteger();
+
+    @BeforeEach
+    public void setUp() {
+        executor = MetricsRenderPipeline.createExecutor();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void rendersAllGraphsOfAllContainers() throws IOException {
+        MetricsRenderPipeline pipeline = new MetricsRenderPipeline(
+                this::fixtureConverter, executor, MetricsRenderPipeline.RENDER_TIMEOUT_MILLIS);
+        File target = tempDir.resolve("target").toFile();
+        target.mkdirs();
+
+        MetricsRenderPipeline.Outcome outcome =
+                pipeline.render(containers("bamboo-agent", "postgres", "redis"), target);
+
+        assertTrue(outcome.getFailures().isEmpty());
+        assertEquals(
+                Arrays.asList(
+                        "bamboo-agent-cpu",
+                        "bamboo-agent-memory",
+                        "postgres-cpu",
+                        "postgres-memory",
+                        "redis-cpu",
+                        "redis-memory"),
+                outcome.getRendered());
+        for (String name : outcome.getRendered()) {
+            File png = new File(target, name + ".png");
+            assertTrue(png.length() > 0, name);
+        }
+        assertEquals(6, pipeline.getStats().getRenders());
+    }
+
+    @Test
+    public void timedOutGraphIsCountedAsFailureOnce() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        MetricsRenderPipeline.Converter stuckMemory = (File source, File converted) -> {
+            if (source.getName().startsWith("memory")) {
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    throw new IOException("cancelled", ex);
+                }
+            }
+            fixtureConverter(source, converted);
+        };
+        MetricsRenderPipeline pipeline = new MetricsRenderPipeline(stuckMemory, executor, 2000);
+        File target = tempDir.resolve("target").toFile();
+        target.mkdirs();
+
+        MetricsRenderPipeline.Outcome outcome = pipeline.render(containers("bamboo-agent"), target);
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertEquals(Arrays.asList("bamboo-agent-cpu"), outcome.getRendered());
+        assertEquals(1, outcome.getFailures().size());
+        assertTrue(outcome.getFailures().get(0).getCause() instanceof TimeoutException);
+        assertEquals(1, pipeline.getStats().getFailures());
+    }
+
+    @Test
+    public void saturatedPoolSkipsGraphsInsteadOfBlocking() throws IOException {
+        ExecutorService saturated = MetricsRenderPipeline.createExecutor();
+        saturated.shutdown();
+        MetricsRenderPipeline pipeline = new MetricsRenderPipeline(
+                this::fixtureConverter, saturated, MetricsRenderPipeline.RENDER_TIMEOUT_MILLIS);
+        File target = tempDir.resolve("target").toFile();
+        target.mkdirs();
+
+        MetricsRenderPipeline.Outcome outcome = pipeline.render(containers("bamboo-agent"), target);
+
+        assertTrue(outcome.getRendered().isEmpty());
+        assertEquals(2, outcome.getFailures().size());
+        assertTrue(outcome.getFailures().get(0).getCause() instanceof RejectedExecutionException);
+        assertEquals(0, conversions.get());
+    }
+
+    @Test
+    public void failedGraphDoesNotAffectOthers() throws IOException {
+        MetricsRenderPipeline.Converter failingMemory = (File source, File converted) -> {
+            if (source.getName().startsWith("memory")) {
+                throw new IOException("corrupted " + source.getName());
+            }
+            fixtureConverter(source, converted);
+        };
+        MetricsRenderPipeline pipeline =
+                new MetricsRenderPipeline(failingMemory, executor, MetricsRenderPipeline.RENDER_TIMEOUT_MILLIS);
+        File target = tempDir.resolve("target").toFile();
+        target.mkdirs();
+
+        MetricsRenderPipeline.Outcome outcome = pipeline.render(containers("bamboo-agent", "postgres"), target);
+
+        assertEquals(Arrays.asList("bamboo-agent-cpu", "postgres-cpu"), outcome.getRendered());
+        assertEquals(
+                Arrays.asList("bamboo-agent-memory", "postgres-memory"),
+                outcome.getFailures().stream()
+                        .map(MetricsRenderPipeline.Failure::getGraphName)
+                        .collect(Collectors.toList()));
+        assertTrue(outcome.getFailures().get(0).getCause() instanceof IOException);
+        assertEquals(2, pipeline.getStats().getFailures());
+    }
+
+    private List<MetricsRenderPipeline.Container> containers(String... names) throws IOException {
+        List<MetricsRenderPipeline.Container> result = new ArrayList<>();
+        for (String name : names) {
+            File folder = tempDir.resolve("tasks").resolve(name).toFile();
+            folder.mkdirs();
+            for (ContainerGraph graph : ContainerGraph.values()) {
+                // stands in for the rrdtool file, the fixture converter only looks at its name.
+                Files.write(graph.rrdFile(folder).toPath(), name.getBytes(StandardCharsets.UTF_8));
+            }
+            result.add(new MetricsRenderPipeline.Container(folder, START, END));
+        }
+        return result;
+    }
+
+    /**
+     * Writes an rrd4j database with the datasources the graphs expect and ten minutes of samples.
+     */
+    private void fixtureConverter(File source, File converted) throws IOException {
+        conversions.incrementAndGet();
+        List<String> datasources = source.getName().startsWith("cpu")
+                ? Arrays.asList("user", "system", "throttled")
+                : Arrays.asList("cache", "rss", "swap", "total", "limit");
+        RrdDef def = new RrdDef(converted.getAbsolutePath(), START - 1, 10);
+        for (String ds : datasources) {
+            def.addDatasource(ds, DsType.GAUGE, 20, 0, Double.NaN);
+        }
+        def.addArchive(ConsolFun.AVERAGE, 0.5, 1, 120);
+        RrdDb db = new RrdDb(def);
+        try {
+            for (long time = START; time <= END; time += 10) {
+                Sample sample = db.createSample(time);
+                for (int i = 0; i < datasources.size(); i++) {
+                    sample.setValue(datasources.get(i), (time - START) * (i + 1));
+                }
+                sample.update();
+            }
+        } finally {
+            db.close();
+        }
+    }
+}
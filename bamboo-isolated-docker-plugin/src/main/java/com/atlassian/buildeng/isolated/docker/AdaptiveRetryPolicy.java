@@ -0,0 +1,165 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.isolated.docker;
+
+import com.atlassian.buildeng.isolated.docker.jmx.RetryDelays;
+import com.atlassian.buildeng.spi.isolated.docker.RetryReason;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Computes agent startup retry delays from what the backends recently told us.
+ * Each {@link RetryReason} has its own base and maximum delay, the exponential backoff is then
+ * stretched when most recent backend attempts failed or many retries are already waiting and shrunk
+ * when the backend is healthy again. A random jitter spreads retries of builds that failed together.
+ */
+class AdaptiveRetryPolicy {
+    static final int OUTCOME_WINDOW = 50;
+    static final double JITTER = 0.2;
+    // number of pending retries that doubles the delay
+    static final int PENDING_RETRIES_DOUBLING = 100;
+    static final double MAX_PRESSURE_FACTOR = 3.0;
+
+    private final Map<RetryReason, Policy> policies = new EnumMap<>(RetryReason.class);
+    private final Map<RetryReason, RetryDelays> histograms = new EnumMap<>(RetryReason.class);
+    private final Random random;
+
+    // ring buffer of the most recent backend outcomes, true meaning failure.
+    private final boolean[] outcomes = new boolean[OUTCOME_WINDOW];
+    private int outcomeIndex = 0;
+    private int outcomeCount = 0;
+    private int failureCount = 0;
+
+    AdaptiveRetryPolicy(Random random) {
+        this.random = random;
+        // pod-limit quota or lack of instances frees up as running builds finish
+        policies.put(RetryReason.QUOTA, new Policy(Duration.ofSeconds(20), Duration.ofSeconds(300)));
+        // https://github.com/kubernetes/kubernetes/issues/67761 collisions clear up within seconds
+        policies.put(RetryReason.CONFLICT, new Policy(Duration.ofSeconds(5), Duration.ofSeconds(60)));
+        policies.put(RetryReason.UNREACHABLE, new Policy(Duration.ofSeconds(30), Duration.ofSeconds(300)));
+        // agent creation limits are per minute
+        policies.put(RetryReason.THROTTLED, new Policy(Duration.ofSeconds(10), Duration.ofSeconds(60)));
+        policies.put(RetryReason.LICENSE_LIMIT, new Policy(Duration.ofSeconds(60), Duration.ofSeconds(300)));
+        policies.put(RetryReason.POD_FAILED, new Policy(Duration.ofSeconds(20), Duration.ofSeconds(300)));
+        policies.put(RetryReason.UNKNOWN, new Policy(Duration.ofSeconds(20), Duration.ofSeconds(300)));
+        for (RetryReason reason : RetryReason.values()) {
+            histograms.put(reason, new RetryDelays());
+        }
+    }
+
+    /**
+     * Record successful agent startup request.
+     */
+    synchronized void recordSuccess() {
+        recordOutcome(false);
+    }
+
+    /**
+     * Record a backend failure that is going to be retried. Postponing due to our own throttling
+     * or license limits is not a backend failure and is ignored.
+     *
+     * @param reason reason of the failure
+     */
+    synchronized void recordFailure(RetryReason reason) {
+        if (reason != RetryReason.THROTTLED && reason != RetryReason.LICENSE_LIMIT) {
+            recordOutcome(true);
+        }
+    }
+
+    private void recordOutcome(boolean failure) {
+        if (outcomeCount == OUTCOME_WINDOW) {
+            if (outcomes[outcomeIndex]) {
+                failureCount--;
+            }
+        } else {
+            outcomeCount++;
+        }
+        outcomes[outcomeIndex] = failure;
+        if (failure) {
+            failureCount++;
+        }
+        outcomeIndex = (outcomeIndex + 1) % OUTCOME_WINDOW;
+    }
+
+    /**
+     * Ratio of failures among the recent backend outcomes.
+     *
+     * @return value between 0 and 1, 0 when nothing was recorded yet.
+     */
+    synchronized double getFailureRate() {
+        return outcomeCount == 0 ? 0 : (double) failureCount / outcomeCount;
+    }
+
+    /**
+     * Compute the delay for next retry and record it in the histogram for the reason.
+     *
+     * @param reason why the agent startup is retried
+     * @param retryCount number of retries so far
+     * @param pendingRetries number of retries currently waiting to be fired
+     * @return delay in seconds
+     */
+    long nextDelay(RetryReason reason, int retryCount, int pendingRetries) {
+        return nextDelay(reason, retryCount, pendingRetries, 0);
+    }
+
+    /**
+     * Compute the delay for next retry and record it in the histogram for the reason.
+     * The delay is never shorter than what the backend asked us to wait, even when that exceeds
+     * the maximum delay of the reason.
+     *
+     * @param reason why the agent startup is retried
+     * @param retryCount number of retries so far
+     * @param pendingRetries number of retries currently waiting to be fired
+     * @param retryAfterSeconds delay requested by the backend, 0 if none
+     * @return delay in seconds
+     */
+    long nextDelay(RetryReason reason, int retryCount, int pendingRetries, int retryAfterSeconds) {
+        Policy policy = policies.get(reason);
+        double delay = policy.backoff(retryCount);
+        // healthy backend (0% failures) halves the delay, failing backend doubles it.
+        delay *= 0.5 + 1.5 * getFailureRate();
+        delay *= Math.min(MAX_PRESSURE_FACTOR, 1.0 + (double) pendingRetries / PENDING_RETRIES_DOUBLING);
+        delay *= 1.0 + JITTER * (2 * random.nextDouble() - 1);
+        long toRet = Math.max(1, Math.min(policy.max.getSeconds(), Math.round(delay)));
+        toRet = Math.max(toRet, retryAfterSeconds);
+        histograms.get(reason).record(toRet);
+        return toRet;
+    }
+
+    Map<RetryReason, RetryDelays> getHistograms() {
+        return Collections.unmodifiableMap(histograms);
+    }
+
+    private static final class Policy {
+        private final Duration base;
+        private final Duration max;
+
+        private Policy(Duration base, Duration max) {
+            this.base = base;
+            this.max = max;
+        }
+
+        private double backoff(int retryCount) {
+            // cap the exponent, we are way past max delay by then anyway
+            int exponent = Math.min(Math.max(retryCount - 1, 0), 10);
+            return Math.min(max.getSeconds(), base.getSeconds() * (double) (1L << exponent));
+        }
+    }
+}
@@ -24,20 +24,29 @@ import com.atlassian.bamboo.v2.build.CommonContext;
 import com.atlassian.bamboo.v2.build.events.BuildQueuedEvent;
 import com.atlassian.bamboo.v2.build.queue.BuildQueueManager;
 import com.atlassian.bamboo.v2.build.queue.QueueManagerView;
+import com.atlassian.buildeng.isolated.docker.jmx.MBeanRegistrations;
+import com.atlassian.buildeng.isolated.docker.jmx.RetryDelays;
 import com.atlassian.buildeng.spi.isolated.docker.AccessConfiguration;
 import com.atlassian.buildeng.spi.isolated.docker.AgentCreationRescheduler;
 import com.atlassian.buildeng.spi.isolated.docker.Configuration;
 import com.atlassian.buildeng.spi.isolated.docker.DockerAgentBuildQueue;
 import com.atlassian.buildeng.spi.isolated.docker.RetryAgentStartupEvent;
+import com.atlassian.buildeng.spi.isolated.docker.RetryReason;
+import com.atlassian.buildeng.spi.isolated.docker.StartupPhase;
+import com.atlassian.buildeng.spi.isolated.docker.StartupTrace;
 import com.atlassian.event.api.EventPublisher;
 import com.atlassian.fugue.Iterables;
 import com.atlassian.plugin.spring.scanner.annotation.component.BambooComponent;
 import com.atlassian.plugin.spring.scanner.annotation.export.ExportAsService;
 import com.atlassian.sal.api.lifecycle.LifecycleAware;
-import java.time.Duration;
+import java.util.HashSet;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Random;
+import java.util.Set;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.inject.Inject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -48,17 +57,24 @@ public class AgentCreationReschedulerImpl implements LifecycleAware, AgentCreati
     private final Logger logger = LoggerFactory.getLogger(AgentCreationReschedulerImpl.class);
     private final EventPublisher eventPublisher;
     private final BuildQueueManager buildQueueManager;
+    private final AgentStartupJournal journal;
     private final ScheduledExecutorService executor =
             NamedExecutors.newScheduledThreadPool(1, "Docker Agent Retry Pool");
     private static final int MAX_RETRY_COUNT = 10;
-    private static final Duration INITIAL_RETRY_DELAY = Duration.ofSeconds(20);
-    private static final Duration MAX_RETRY_DELAY = Duration.ofSeconds(300);
     private static final String KEY = "custom.isolated.docker.waiting";
+    private final AdaptiveRetryPolicy retryPolicy = new AdaptiveRetryPolicy(new Random());
+    private final AtomicInteger pendingRetries = new AtomicInteger(0);
+    private final MBeanRegistrations mbeans = new MBeanRegistrations();
+
+    private volatile long lastRecoveryDuration = -1;
+    private volatile int lastRecoveryOrphaned = 0;
 
     @Inject
-    public AgentCreationReschedulerImpl(EventPublisher eventPublisher, BuildQueueManager buildQueueManager) {
+    public AgentCreationReschedulerImpl(
+            EventPublisher eventPublisher, BuildQueueManager buildQueueManager, AgentStartupJournal journal) {
         this.eventPublisher = eventPublisher;
         this.buildQueueManager = buildQueueManager;
+        this.journal = journal;
     }
 
     public boolean reschedule(RetryAgentStartupEvent event) {
@@ -66,31 +82,83 @@ public class AgentCreationReschedulerImpl implements LifecycleAware, AgentCreati
         if (retryCount > MAX_RETRY_COUNT) {
             return false;
         }
-        logger.info("Rescheduling {} for the {} time", event.getContext().getResultKey(), retryCount);
+        RetryReason reason = event.getRetryReason();
+        retryPolicy.recordFailure(reason);
+        long delay = retryPolicy.nextDelay(reason, retryCount, pendingRetries.get(), event.getRetryAfterSeconds());
+        logger.info(
+                "Rescheduling {} for the {} time in {}s, reason: {}",
+                event.getContext().getResultKey(),
+                retryCount,
+                delay,
+                reason);
         event.getContext().getCurrentResult().getCustomBuildData().put(KEY, "true");
+        if (reason != RetryReason.THROTTLED) {
+            // the caller traces the delay of throttled requests as THROTTLED, not WAITING.
+            StartupTrace.begin(
+                    event.getContext().getCurrentResult().getCustomBuildData(),
+                    StartupPhase.WAITING,
+                    System.currentTimeMillis());
+            // throttled requests never reached the backend since the last record, re-postponing them
+            // on every throttle tick would only force the journal to disk over and over.
+            journal.waiting(event);
+        }
+        pendingRetries.incrementAndGet();
         executor.schedule(
                 () -> {
+                    pendingRetries.decrementAndGet();
                     logger.info(
                             "Publishing {} for the {} time", event.getContext().getResultKey(), retryCount);
                     eventPublisher.publish(event);
                     event.getContext().getCurrentResult().getCustomBuildData().remove(KEY);
                 },
-                getDelay(retryCount),
+                delay,
                 TimeUnit.SECONDS);
         return true;
     }
 
+    /**
+     * Let the rescheduler know that the backend accepted an agent startup request.
+     * Used to shorten retry delays when the backend recovers.
+     */
+    public void agentStartupSucceeded() {
+        retryPolicy.recordSuccess();
+    }
+
     @Override
     public void onStart() {
+        registerMBeans();
         logger.info("Checking what jobs are queued on plugin restart.");
+        long recoveryStart = System.currentTimeMillis();
+        Set<String> queuedResultKeys = new HashSet<>();
+        AtomicInteger orphaned = new AtomicInteger(0);
         QueueManagerView<CommonContext, CommonContext> queue = QueueManagerView.newView(
                 buildQueueManager, (BuildQueueManager.QueueItemView<CommonContext> input) -> input);
         queue.getQueueView(Iterables.emptyIterable()).forEach((BuildQueueManager.QueueItemView<CommonContext> t) -> {
             Map<String, String> bd = t.getView().getCurrentResult().getCustomBuildData();
             Configuration c = AccessConfiguration.forContext(t.getView());
             if (c.isEnabled()) {
+                queuedResultKeys.add(t.getView().getResultKey().getKey());
+                AgentStartupJournal.Entry entry = journal.find(
+                        t.getView().getResultKey().getKey(),
+                        t.getView().getBuildKey().getKey());
                 String wasWaiting = bd.get(KEY);
-                if (wasWaiting != null) {
+                if (entry != null && entry.getState() == AgentStartupJournal.State.STARTED) {
+                    // backend already started an agent for this one, the watchdog takes care of it if it fails.
+                    logger.info(
+                            "Agent for {} already started before plugin restart: {}",
+                            t.getView().getResultKey(),
+                            entry.getCustomResultData());
+                } else if (entry != null) {
+                    // in flight or waiting for retry when we went down, resume with the same identifier
+                    // so that backends can recognize the agent if it was actually created.
+                    logger.info(
+                            "Resuming {} agent startup of {} after plugin restart.",
+                            entry.getState(),
+                            t.getView().getResultKey());
+                    orphaned.incrementAndGet();
+                    eventPublisher.publish(new RetryAgentStartupEvent(
+                            c, t.getView(), entry.getRetryCount(), entry.getUuid(), RetryReason.UNKNOWN));
+                } else if (wasWaiting != null) {
                     // we need to restart this guy.
                     logger.info(
                             "Restarted scheduling of {} after plugin restart.",
@@ -117,10 +185,37 @@ public class AgentCreationReschedulerImpl implements LifecycleAware, AgentCreati
                 }
             }
         });
+        journal.retainOnly(queuedResultKeys);
+        lastRecoveryOrphaned = orphaned.get();
+        lastRecoveryDuration = System.currentTimeMillis() - recoveryStart;
+        logger.info(
+                "Recovered {} queued PBC jobs in {}ms, {} orphaned agent startups resumed.",
+                queuedResultKeys.size(),
+                lastRecoveryDuration,
+                lastRecoveryOrphaned);
+    }
+
+    /**
+     * Time it took to replay the agent startup journal against the build queue on last plugin start.
+     *
+     * @return duration in milliseconds or -1 when the recovery didn't run yet
+     */
+    public long getLastRecoveryDuration() {
+        return lastRecoveryDuration;
+    }
+
+    /**
+     * Number of agent startups that were in flight or waiting when the plugin went down and had to be resumed.
+     *
+     * @return number of resumed agent startups
+     */
+    public int getLastRecoveryOrphaned() {
+        return lastRecoveryOrphaned;
     }
 
     @Override
     public void onStop() {
+        mbeans.unregisterAll();
         logger.info("Destroying executor on plugin stop");
         try {
             executor.shutdown();
@@ -132,19 +227,11 @@ public class AgentCreationReschedulerImpl implements LifecycleAware, AgentCreati
         }
     }
 
-    /**
-     * Get the delay, including retries.
-     *
-     * @param numRetries Number of retries
-     * @return The delay in seconds
-     */
-    private long getDelay(int numRetries) {
-        if (numRetries == 0 || numRetries == 1) {
-            return INITIAL_RETRY_DELAY.getSeconds();
-        } else if (numRetries <= 5) {
-            return INITIAL_RETRY_DELAY.getSeconds() * 2 * (numRetries - 1);
-        } else {
-            return MAX_RETRY_DELAY.getSeconds();
+    private void registerMBeans() {
+        for (Map.Entry<RetryReason, RetryDelays> entry : retryPolicy.getHistograms().entrySet()) {
+            String reason = entry.getKey().name().toLowerCase(Locale.ENGLISH);
+            mbeans.register(
+                    entry.getValue(), "com.atlassian.buildeng.isolated.docker:type=RetryDelays,reason=" + reason);
         }
     }
 }
@@ -20,6 +20,7 @@ import com.atlassian.bamboo.buildqueue.manager.AgentManager;
 import com.atlassian.bamboo.v2.build.queue.BuildQueueManager;
 import com.atlassian.buildeng.spi.isolated.docker.DockerAgentBuildQueue;
 import com.atlassian.buildeng.spi.isolated.docker.RetryAgentStartupEvent;
+import com.atlassian.buildeng.spi.isolated.docker.RetryReason;
 import com.atlassian.plugin.spring.scanner.annotation.component.BambooComponent;
 import javax.inject.Inject;
 import org.slf4j.Logger;
@@ -59,7 +60,7 @@ public class AgentLicenseLimits {
             logger.info(
                     "Remote agent limit reached, delaying agent creation for {}",
                     event.getContext().getResultKey());
-            rescheduler.reschedule(event);
+            rescheduler.reschedule(event.withRetryReason(RetryReason.LICENSE_LIMIT));
         }
         return limitReached;
     }
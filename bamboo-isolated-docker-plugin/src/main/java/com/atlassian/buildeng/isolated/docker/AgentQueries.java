@@ -20,12 +20,14 @@ import com.atlassian.bamboo.ResultKey;
 import com.atlassian.bamboo.buildqueue.ElasticAgentDefinition;
 import com.atlassian.bamboo.buildqueue.EphemeralAgentDefinition;
 import com.atlassian.bamboo.buildqueue.LocalAgentDefinition;
+import com.atlassian.bamboo.buildqueue.PipelineDefinition;
 import com.atlassian.bamboo.buildqueue.PipelineDefinitionVisitor;
 import com.atlassian.bamboo.buildqueue.RemoteAgentDefinition;
 import com.atlassian.bamboo.v2.build.agent.BuildAgent;
 import com.atlassian.bamboo.v2.build.agent.capability.Capability;
 import com.google.common.annotations.VisibleForTesting;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 import javax.annotation.Nonnull;
 
@@ -42,6 +44,35 @@ public class AgentQueries {
         return getDockerResultCapability(agent) != null || getDockerEphemeralAgent(agent) != null;
     }
 
+    /**
+     * Same as {@link #isDockerAgent(BuildAgent)} for events that only carry the agent definition.
+     */
+    public static boolean isDockerAgent(PipelineDefinition definition) {
+        if (definition == null) {
+            return false;
+        }
+        AtomicBoolean ref = new AtomicBoolean();
+        definition.accept(new PipelineDefinitionVisitor() {
+            @Override
+            public void visitElastic(ElasticAgentDefinition pipelineDefinition) {}
+
+            @Override
+            public void visitLocal(LocalAgentDefinition pipelineDefinition) {}
+
+            @Override
+            public void visitRemote(RemoteAgentDefinition pipelineDefinition) {
+                ref.set(getCapabilityValue(pipelineDefinition, Constants.CAPABILITY_RESULT)
+                                .isPresent()
+                        || getCapabilityValue(pipelineDefinition, Constants.EPHEMERAL_CAPABILITY_RESULT)
+                                .isPresent());
+            }
+
+            @Override
+            public void visitEphemeral(EphemeralAgentDefinition pipelineDefinition) {}
+        });
+        return ref.get();
+    }
+
     public static boolean isEnabledDockerAgent(BuildAgent agent) {
         if (agent == null || !agent.isEnabled()) {
             return false;
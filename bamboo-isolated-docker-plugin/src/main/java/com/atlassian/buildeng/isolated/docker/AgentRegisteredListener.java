@@ -22,6 +22,7 @@ import com.atlassian.bamboo.buildqueue.LocalAgentDefinition;
 import com.atlassian.bamboo.buildqueue.PipelineDefinitionVisitor;
 import com.atlassian.bamboo.buildqueue.RemoteAgentDefinition;
 import com.atlassian.bamboo.event.agent.AgentRegisteredEvent;
+import com.atlassian.bamboo.v2.build.agent.capability.Capability;
 import com.atlassian.bamboo.v2.build.agent.capability.CapabilitySet;
 import com.atlassian.buildeng.isolated.docker.jmx.JMXAgentsService;
 import com.atlassian.event.api.EventListener;
@@ -30,10 +31,21 @@ public class AgentRegisteredListener {
 
     private final UnmetRequirements unmetRequirements;
     private final JMXAgentsService jmx;
+    private final AgentStartupJournal journal;
+    private final StartupTracer tracer;
+    private final QueueStatistics statistics;
 
-    public AgentRegisteredListener(UnmetRequirements unmetRequirements, JMXAgentsService jmx) {
+    public AgentRegisteredListener(
+            UnmetRequirements unmetRequirements,
+            JMXAgentsService jmx,
+            AgentStartupJournal journal,
+            StartupTracer tracer,
+            QueueStatistics statistics) {
         this.unmetRequirements = unmetRequirements;
         this.jmx = jmx;
+        this.journal = journal;
+        this.tracer = tracer;
+        this.statistics = statistics;
     }
 
     @EventListener
@@ -50,6 +62,13 @@ public class AgentRegisteredListener {
                 CapabilitySet cs = pipelineDefinition.getCapabilitySet();
                 if (cs != null && cs.getCapability(Constants.CAPABILITY_RESULT) != null) {
                     jmx.incrementActive();
+                    String resultKey = cs.getCapability(Constants.CAPABILITY_RESULT).getValue();
+                    journal.closeAll(resultKey);
+                    statistics.removed(resultKey);
+                    tracer.agentRegistered(
+                            resultKey,
+                            longCapability(cs, Constants.CAPABILITY_TRACE_CONTAINER_START),
+                            longCapability(cs, Constants.CAPABILITY_TRACE_SIDECAR_WAIT));
                 }
                 unmetRequirements.markAndStopTheBuild(pipelineDefinition);
             }
@@ -59,4 +78,16 @@ public class AgentRegisteredListener {
             public void visitEphemeral(EphemeralAgentDefinition pipelineDefinition) {}
         });
     }
+
+    private Long longCapability(CapabilitySet cs, String key) {
+        Capability capability = cs.getCapability(key);
+        if (capability == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(capability.getValue().trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
 }
@@ -20,23 +20,56 @@ import com.atlassian.bamboo.buildqueue.manager.AgentManager;
 import com.atlassian.bamboo.v2.build.agent.AgentCommandSender;
 import com.atlassian.bamboo.v2.build.agent.BuildAgent;
 import com.atlassian.bamboo.v2.build.agent.messages.StopAgentNicelyMessage;
+import com.atlassian.buildeng.isolated.docker.jmx.AgentRemovalStats;
+import com.atlassian.buildeng.isolated.docker.jmx.MBeanRegistrations;
 import com.atlassian.plugin.spring.scanner.annotation.component.BambooComponent;
+import com.atlassian.plugin.spring.scanner.annotation.export.ExportAsService;
+import com.atlassian.sal.api.lifecycle.LifecycleAware;
+import com.google.common.annotations.VisibleForTesting;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import javax.inject.Inject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Stops and removes PBC agents. Removals run in parallel on a bounded pool, a removal requested
+ * while one for the same agent is still pending is dropped. When the queue is full or the pool is
+ * shut down the removal runs on the calling thread.
+ * Removal counts and latencies are exported via JMX as com.atlassian.buildeng.isolated.docker:type=AgentRemovals.
+ */
 @BambooComponent
-public class AgentRemovals {
+@ExportAsService({AgentRemovals.class, LifecycleAware.class})
+public class AgentRemovals implements LifecycleAware {
     private static final Logger logger = LoggerFactory.getLogger(AgentRemovals.class);
+    private static final int REMOVAL_THREADS = 4;
+    private static final int REMOVAL_QUEUE_SIZE = 1000;
 
     private final AgentManager agentManager;
     private final AgentCommandSender agentCommandSender;
+    // agents with removal in progress, multiple listeners can ask to remove the same agent at the same time.
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+    private final AgentRemovalStats stats = new AgentRemovalStats();
+    private final ThreadPoolExecutor executor;
+    private final MBeanRegistrations mbeans = new MBeanRegistrations();
 
     @Inject
     public AgentRemovals(AgentManager agentManager, AgentCommandSender agentCommandSender) {
         this.agentManager = agentManager;
         this.agentCommandSender = agentCommandSender;
+        executor = new ThreadPoolExecutor(
+                REMOVAL_THREADS,
+                REMOVAL_THREADS,
+                60L,
+                TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(REMOVAL_QUEUE_SIZE),
+                // unlike CallerRunsPolicy also run inline after shutdown, remove() has to clear the pending id.
+                (Runnable task, ThreadPoolExecutor pool) -> task.run());
+        executor.allowCoreThreadTimeOut(true);
     }
 
     public void stopAgentRemotely(BuildAgent buildAgent) {
@@ -55,6 +88,9 @@ public class AgentRemovals {
         }
     }
 
+    /**
+     * Schedule removal of the agent, see {@link #removeAgent(long)}.
+     */
     public void removeAgent(BuildAgent agent) {
         if (agent != null) {
             // we intentionally call the Long paramed method here.
@@ -62,17 +98,57 @@ public class AgentRemovals {
         }
     }
 
-    // synchronized because we have different things that could step on each other's toes
-    public synchronized void removeAgent(long agentId) {
-        BuildAgent ba = agentManager.getAgent(agentId); // double check the agent still exists.
-        if (ba != null) {
-            String agentName = ba.getName();
-            try {
-                agentManager.removeAgent(agentId); // Remove agent from the UI/server side
-                logger.debug("Successfully removed agent {} (id: {})", agentName, agentId);
-            } catch (TimeoutException e) {
-                logger.error(String.format("timeout on removing agent %s (id: %s)", agentName, agentId), e);
+    /**
+     * Schedule removal of the agent, returns immediately unless the removal queue is full or shut down.
+     */
+    public void removeAgent(long agentId) {
+        if (!pending.add(agentId)) {
+            stats.deduplicated();
+            logger.debug("Removal of agent {} already pending", agentId);
+            return;
+        }
+        stats.requested();
+        long requested = System.currentTimeMillis();
+        executor.execute(() -> remove(agentId, requested));
+    }
+
+    private void remove(long agentId, long requested) {
+        boolean success = true;
+        try {
+            BuildAgent ba = agentManager.getAgent(agentId); // double check the agent still exists.
+            if (ba != null) {
+                String agentName = ba.getName();
+                try {
+                    agentManager.removeAgent(agentId); // Remove agent from the UI/server side
+                    logger.debug("Successfully removed agent {} (id: {})", agentName, agentId);
+                } catch (TimeoutException e) {
+                    success = false;
+                    logger.error(String.format("timeout on removing agent %s (id: %s)", agentName, agentId), e);
+                }
             }
+        } catch (RuntimeException e) {
+            success = false;
+            logger.error("Failed to remove agent {}", agentId, e);
+        } finally {
+            pending.remove(agentId);
+            stats.finished(System.currentTimeMillis() - requested, success);
         }
     }
+
+    @VisibleForTesting
+    AgentRemovalStats getStats() {
+        return stats;
+    }
+
+    @Override
+    public void onStart() {
+        mbeans.register(stats, "com.atlassian.buildeng.isolated.docker:type=AgentRemovals");
+    }
+
+    @Override
+    public void onStop() {
+        // already queued removals still run.
+        executor.shutdown();
+        mbeans.unregisterAll();
+    }
 }
@@ -0,0 +1,474 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.isolated.docker;
+
+import com.atlassian.bamboo.deployments.execution.DeploymentContext;
+import com.atlassian.buildeng.spi.isolated.docker.RetryAgentStartupEvent;
+import com.atlassian.plugin.spring.scanner.annotation.component.BambooComponent;
+import com.atlassian.sal.api.ApplicationProperties;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import javax.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Write-ahead journal of agent startup requests and their backend outcomes, kept in Bamboo local home.
+ * Every state change is appended and forced to disk before the backend is contacted, so that
+ * after a restart {@link AgentCreationReschedulerImpl} can tell in-flight requests from those
+ * that already produced an agent and only retry the orphaned ones.
+ * Each line is one tab separated record. A torn last line after a crash is ignored on replay.
+ * Records are written under the journal monitor but forced outside of it, one force covers all records
+ * written by concurrent callers in the meantime.
+ */
+@BambooComponent
+public class AgentStartupJournal {
+    private static final Logger logger = LoggerFactory.getLogger(AgentStartupJournal.class);
+
+    static final String JOURNAL_FILE = "pbc-agent-startup.journal";
+    // rewrite the file once it contains this many more records than open entries.
+    static final int COMPACTION_THRESHOLD = 5000;
+
+    public enum State {
+        /**
+         * request sent to the backend, no outcome yet.
+         */
+        REQUESTED,
+        /**
+         * request postponed in the rescheduler.
+         */
+        WAITING,
+        /**
+         * backend accepted the request and started the agent.
+         */
+        STARTED,
+        CLOSED
+    }
+
+    private final Path journalFile;
+    private final Map<UUID, Entry> entries = new LinkedHashMap<>();
+    // open entries by result key, a job/deployment run has one entry per startup request.
+    private final Map<String, Set<UUID>> byResultKey = new HashMap<>();
+    // result keys of deployments journaled since startup, DeploymentFinishedEvent only carries the id.
+    private final Map<Long, String> deploymentResultKeys = new HashMap<>();
+    private final Object forceLock = new Object();
+    private FileChannel channel;
+    private BufferedWriter writer;
+    private int recordCount = 0;
+    private boolean loaded = false;
+    // records written since startup, guarded by this.
+    private long written = 0;
+    // records known to be on disk, guarded by forceLock.
+    private long forced = 0;
+
+    @Inject
+    public AgentStartupJournal(ApplicationProperties applicationProperties) {
+        this(applicationProperties
+                .getLocalHomeDirectory()
+                .orElseThrow(() -> new IllegalStateException("Bamboo local home directory not available"))
+                .resolve(JOURNAL_FILE));
+    }
+
+    AgentStartupJournal(Path journalFile) {
+        this.journalFile = journalFile;
+    }
+
+    public void requested(RetryAgentStartupEvent event) {
+        force(append(State.REQUESTED, event, Collections.emptyMap()));
+    }
+
+    public void waiting(RetryAgentStartupEvent event) {
+        force(append(State.WAITING, event, Collections.emptyMap()));
+    }
+
+    public void started(RetryAgentStartupEvent event, Map<String, String> customResultData) {
+        force(append(State.STARTED, event, customResultData));
+    }
+
+    public void closed(RetryAgentStartupEvent event) {
+        force(append(State.CLOSED, event, Collections.emptyMap()));
+    }
+
+    /**
+     * Close all entries of given job/deployment, eg. when its agent registered or the job
+     * completed or was cancelled.
+     *
+     * @param resultKey result key of the context the agent was started for
+     */
+    public void closeAll(String resultKey) {
+        force(writeClosed(resultKey));
+    }
+
+    /**
+     * Close all entries of the given deployment result once the deployment finished.
+     *
+     * @param deploymentResultId id of the finished deployment result
+     */
+    public void closeDeployment(long deploymentResultId) {
+        force(writeDeploymentClosed(deploymentResultId));
+    }
+
+    private synchronized long writeDeploymentClosed(long deploymentResultId) {
+        ensureLoaded();
+        String resultKey = deploymentResultKeys.remove(deploymentResultId);
+        return resultKey != null ? writeClosed(resultKey) : 0;
+    }
+
+    private synchronized long writeClosed(String resultKey) {
+        ensureLoaded();
+        Set<UUID> uuids = byResultKey.get(resultKey);
+        if (uuids == null) {
+            return 0;
+        }
+        for (Entry e : uuids.stream().map(entries::get).collect(Collectors.toList())) {
+            write(new Entry(
+                    e.uuid,
+                    e.resultKey,
+                    e.buildKey,
+                    State.CLOSED,
+                    e.retryCount,
+                    System.currentTimeMillis(),
+                    e.customResultData));
+        }
+        return written;
+    }
+
+    /**
+     * Find the last known state of agent startup for given job/deployment run.
+     *
+     * @param resultKey result key of the queued context
+     * @param buildKey build key that is unique for each run/rerun
+     * @return entry or null when nothing is known about the run
+     */
+    public synchronized Entry find(String resultKey, String buildKey) {
+        ensureLoaded();
+        Entry found = null;
+        for (UUID uuid : byResultKey.getOrDefault(resultKey, Collections.emptySet())) {
+            Entry e = entries.get(uuid);
+            if (e.buildKey.equals(buildKey)) {
+                found = e;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Drop all entries that don't belong to the given result keys and rewrite the journal.
+     * Called after replay with the keys of jobs still in the build queue.
+     *
+     * @param queuedResultKeys result keys of all queued contexts
+     */
+    public synchronized void retainOnly(Set<String> queuedResultKeys) {
+        ensureLoaded();
+        entries.values().removeIf(e -> !queuedResultKeys.contains(e.resultKey));
+        byResultKey.keySet().retainAll(queuedResultKeys);
+        deploymentResultKeys.values().retainAll(queuedResultKeys);
+        compact();
+    }
+
+    public synchronized Collection<Entry> getOpenEntries() {
+        ensureLoaded();
+        return new ArrayList<>(entries.values());
+    }
+
+    private synchronized long append(State state, RetryAgentStartupEvent event, Map<String, String> data) {
+        ensureLoaded();
+        if (state != State.CLOSED && event.getContext() instanceof DeploymentContext) {
+            deploymentResultKeys.put(
+                    ((DeploymentContext) event.getContext()).getDeploymentResultId(),
+                    event.getContext().getResultKey().getKey());
+        }
+        write(new Entry(
+                event.getUniqueIdentifier(),
+                event.getContext().getResultKey().getKey(),
+                event.getContext().getBuildKey().getKey(),
+                state,
+                event.getRetryCount(),
+                System.currentTimeMillis(),
+                data));
+        return written;
+    }
+
+    private void write(Entry entry) {
+        apply(entry);
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.write(entry.toRecord());
+            writer.newLine();
+            writer.flush();
+            recordCount++;
+            written++;
+        } catch (IOException e) {
+            logger.error("Failed to append to agent startup journal {}, disabling it.", journalFile, e);
+            closeQuietly();
+            return;
+        }
+        if (recordCount > entries.size() + COMPACTION_THRESHOLD) {
+            compact();
+        }
+    }
+
+    /**
+     * Force the journal to disk unless a concurrent caller already forced it past the given record.
+     *
+     * @param record number of the last record the caller wrote, as returned by {@link #append}
+     */
+    private void force(long record) {
+        synchronized (forceLock) {
+            if (forced >= record) {
+                return;
+            }
+            FileChannel current;
+            long upTo;
+            synchronized (this) {
+                current = channel;
+                upTo = written;
+            }
+            if (current == null) {
+                // journal disabled
+                return;
+            }
+            try {
+                current.force(false);
+            } catch (ClosedChannelException e) {
+                // compaction replaced the file meanwhile and forced it with all records written so far.
+                logger.debug("Agent startup journal compacted while forcing it");
+            } catch (IOException e) {
+                logger.error("Failed to force agent startup journal {}, disabling it.", journalFile, e);
+                synchronized (this) {
+                    if (channel == current) {
+                        closeQuietly();
+                    }
+                }
+                return;
+            }
+            forced = upTo;
+        }
+    }
+
+    private void apply(Entry entry) {
+        if (entry.state == State.CLOSED) {
+            if (entries.remove(entry.uuid) != null) {
+                Set<UUID> uuids = byResultKey.get(entry.resultKey);
+                uuids.remove(entry.uuid);
+                if (uuids.isEmpty()) {
+                    byResultKey.remove(entry.resultKey);
+                    if (!deploymentResultKeys.isEmpty()) {
+                        deploymentResultKeys.values().remove(entry.resultKey);
+                    }
+                }
+            }
+        } else {
+            entries.put(entry.uuid, entry);
+            byResultKey.computeIfAbsent(entry.resultKey, (String t) -> new LinkedHashSet<>()).add(entry.uuid);
+        }
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        if (Files.exists(journalFile)) {
+            try {
+                String content = new String(Files.readAllBytes(journalFile), StandardCharsets.UTF_8);
+                List<String> lines = new ArrayList<>(Arrays.asList(content.split("\n", -1)));
+                // the last element is either empty or a record torn by a crash
+                lines.remove(lines.size() - 1);
+                for (String line : lines) {
+                    Entry entry = Entry.fromRecord(line);
+                    if (entry != null) {
+                        apply(entry);
+                    }
+                }
+                logger.info("Replayed {} agent startup journal records, {} open.", lines.size(), entries.size());
+            } catch (IOException e) {
+                logger.error("Failed to read agent startup journal {}", journalFile, e);
+            }
+        }
+        compact();
+    }
+
+    /**
+     * Rewrite the journal with just the open entries. The new file is written aside and atomically moved over
+     * the old one so that a crash in the middle leaves one of the two complete versions.
+     */
+    private void compact() {
+        closeQuietly();
+        Path tmp = journalFile.resolveSibling(journalFile.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(journalFile.toAbsolutePath().getParent());
+            Files.write(
+                    tmp,
+                    entries.values().stream().map(Entry::toRecord).collect(Collectors.toList()),
+                    StandardCharsets.UTF_8);
+            Files.move(tmp, journalFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            channel = FileChannel.open(journalFile, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            channel.force(false);
+            writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), -1));
+            recordCount = entries.size();
+        } catch (IOException e) {
+            logger.error("Failed to rewrite agent startup journal {}, journal disabled.", journalFile, e);
+            closeQuietly();
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            if (writer != null) {
+                writer.close();
+            }
+        } catch (IOException e) {
+            logger.debug("Failed to close journal", e);
+        }
+        writer = null;
+        channel = null;
+    }
+
+    public static final class Entry {
+        private static final String SEPARATOR = "\t";
+
+        private final UUID uuid;
+        private final String resultKey;
+        private final String buildKey;
+        private final State state;
+        private final int retryCount;
+        private final long timestamp;
+        private final Map<String, String> customResultData;
+
+        Entry(
+                UUID uuid,
+                String resultKey,
+                String buildKey,
+                State state,
+                int retryCount,
+                long timestamp,
+                Map<String, String> customResultData) {
+            this.uuid = uuid;
+            this.resultKey = resultKey;
+            this.buildKey = buildKey;
+            this.state = state;
+            this.retryCount = retryCount;
+            this.timestamp = timestamp;
+            this.customResultData = customResultData;
+        }
+
+        public UUID getUuid() {
+            return uuid;
+        }
+
+        public String getResultKey() {
+            return resultKey;
+        }
+
+        public String getBuildKey() {
+            return buildKey;
+        }
+
+        public State getState() {
+            return state;
+        }
+
+        public int getRetryCount() {
+            return retryCount;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        /**
+         * backend specific data of the started agent, eg. pod name or task ARN.
+         */
+        public Map<String, String> getCustomResultData() {
+            return customResultData;
+        }
+
+        String toRecord() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(state.name())
+                    .append(SEPARATOR)
+                    .append(uuid)
+                    .append(SEPARATOR)
+                    .append(resultKey)
+                    .append(SEPARATOR)
+                    .append(buildKey)
+                    .append(SEPARATOR)
+                    .append(retryCount)
+                    .append(SEPARATOR)
+                    .append(timestamp);
+            customResultData.forEach((key, value) -> sb.append(SEPARATOR)
+                    .append(sanitize(key))
+                    .append('=')
+                    .append(sanitize(value)));
+            return sb.toString();
+        }
+
+        static Entry fromRecord(String line) {
+            String[] parts = line.split(SEPARATOR);
+            if (parts.length < 6) {
+                return null;
+            }
+            try {
+                Map<String, String> data = new LinkedHashMap<>();
+                for (int i = 6; i < parts.length; i++) {
+                    int index = parts[i].indexOf('=');
+                    if (index > 0) {
+                        data.put(parts[i].substring(0, index), parts[i].substring(index + 1));
+                    }
+                }
+                return new Entry(
+                        UUID.fromString(parts[1]),
+                        parts[2],
+                        parts[3],
+                        State.valueOf(parts[0]),
+                        Integer.parseInt(parts[4]),
+                        Long.parseLong(parts[5]),
+                        data);
+            } catch (IllegalArgumentException e) {
+                // torn or otherwise corrupted record
+                return null;
+            }
+        }
+
+        private static String sanitize(String value) {
+            return value == null ? "" : value.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+        }
+    }
+}
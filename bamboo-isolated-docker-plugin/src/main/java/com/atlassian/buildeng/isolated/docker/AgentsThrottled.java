@@ -17,18 +17,34 @@
 package com.atlassian.buildeng.isolated.docker;
 
 import com.atlassian.plugin.spring.scanner.annotation.component.BambooComponent;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
 
 @BambooComponent
 public class AgentsThrottled {
 
+    /**
+     * Number of one minute buckets in the throttle duration histogram. Agents throttled for longer end up in
+     * the last, open ended bucket.
+     */
+    public static final int HISTOGRAM_MINUTES = 60;
+
+    private static final long MINUTE = 60 * 1000L;
+
     private final DateTime dateTime;
     // build key maps to start time that agent was throttled
-    private final HashMap<String, Long> agentsThrottled;
+    private final Map<String, Long> agentsThrottled;
+    // start time maps to the number of agents throttled at that time, oldest first
+    private final NavigableMap<Long, Integer> startTimes;
+    private Histogram histogram;
 
     public AgentsThrottled(DateTime dateTime) {
         this.dateTime = dateTime;
         agentsThrottled = new HashMap<>();
+        startTimes = new TreeMap<>();
     }
 
     /**
@@ -36,9 +52,12 @@ public class AgentsThrottled {
      *
      * @param key Build key of the event being throttled
      */
-    public void add(String key) {
+    public synchronized void add(String key) {
         if (!agentsThrottled.containsKey(key)) {
-            agentsThrottled.put(key, dateTime.getCurrentTime());
+            long now = dateTime.getCurrentTime();
+            agentsThrottled.put(key, now);
+            startTimes.merge(now, 1, Integer::sum);
+            histogram = null;
         }
     }
 
@@ -47,8 +66,12 @@ public class AgentsThrottled {
      *
      * @param key Build key of the event being throttled
      */
-    public void remove(String key) {
-        agentsThrottled.remove(key);
+    public synchronized void remove(String key) {
+        Long start = agentsThrottled.remove(key);
+        if (start != null) {
+            startTimes.computeIfPresent(start, (Long t, Integer count) -> count > 1 ? count - 1 : null);
+            histogram = null;
+        }
     }
 
     /**
@@ -56,7 +79,7 @@ public class AgentsThrottled {
      *
      * @return the number of agents currently being throttled.
      */
-    public long getTotalAgentsThrottled() {
+    public synchronized long getTotalAgentsThrottled() {
         return agentsThrottled.size();
     }
 
@@ -67,12 +90,104 @@ public class AgentsThrottled {
      * @return number of agents throttled for longer than the specified number of minutes
      */
     public long numAgentsThrottledLongerThanMinutes(int minutes) {
-        return agentsThrottled.values().stream()
-                .filter(startTimeThrottled -> throttledOverXMinutesAgo(startTimeThrottled, minutes))
-                .count();
+        return getHistogram().longerThanMinutes(minutes);
+    }
+
+    /**
+     * Get the throttle durations of all currently throttled agents, bucketed by minute. The histogram is built in
+     * a single pass over the time ordered start times and reused until the set of throttled agents changes or
+     * the clock moves on, so reading several thresholds in a row costs one pass in total.
+     *
+     * @return histogram of throttle durations as of now
+     */
+    public synchronized Histogram getHistogram() {
+        long now = dateTime.getCurrentTime();
+        Histogram current = histogram;
+        if (current == null || current.computedAt != now) {
+            current = new Histogram(now, startTimes);
+            histogram = current;
+        }
+        return current;
     }
 
-    private boolean throttledOverXMinutesAgo(long timeThrottled, int minutesAgo) {
-        return dateTime.getCurrentTime() > (timeThrottled + ((long) minutesAgo * 60 * 1000));
+    /**
+     * Immutable throttle duration histogram. Bucket {@code i} counts agents throttled for more than {@code i} and
+     * at most {@code i + 1} minutes, the last bucket counts everything throttled for more than
+     * {@link #HISTOGRAM_MINUTES} - 1 minutes.
+     */
+    public static final class Histogram {
+        private final long computedAt;
+        private final long[] buckets;
+        // cumulative[i] = number of agents throttled for more than i minutes
+        private final long[] cumulative;
+        // exact start times of agents in the open ended bucket, oldest first
+        private final long[] overflowStarts;
+
+        Histogram(long now, NavigableMap<Long, Integer> startTimes) {
+            this.computedAt = now;
+            this.buckets = new long[HISTOGRAM_MINUTES];
+            long[] overflow = new long[0];
+            int overflowSize = 0;
+            for (Map.Entry<Long, Integer> entry : startTimes.entrySet()) {
+                long duration = now - entry.getKey();
+                if (duration <= 0) {
+                    // started now or in the future, not throttled for any measurable time yet
+                    // and neither is anything after it.
+                    break;
+                }
+                // duration > i minutes <=> (duration - 1) / MINUTE >= i
+                long bucket = (duration - 1) / MINUTE;
+                if (bucket >= HISTOGRAM_MINUTES - 1) {
+                    if (overflowSize + entry.getValue() > overflow.length) {
+                        overflow = Arrays.copyOf(overflow, Math.max(16, 2 * (overflowSize + entry.getValue())));
+                    }
+                    Arrays.fill(overflow, overflowSize, overflowSize + entry.getValue(), entry.getKey());
+                    overflowSize += entry.getValue();
+                    buckets[HISTOGRAM_MINUTES - 1] += entry.getValue();
+                } else {
+                    buckets[(int) bucket] += entry.getValue();
+                }
+            }
+            this.overflowStarts = Arrays.copyOf(overflow, overflowSize);
+            this.cumulative = new long[HISTOGRAM_MINUTES];
+            long sum = 0;
+            for (int i = HISTOGRAM_MINUTES - 1; i >= 0; i--) {
+                sum += buckets[i];
+                cumulative[i] = sum;
+            }
+        }
+
+        /**
+         * Number of agents throttled for more than the given number of minutes.
+         */
+        public long longerThanMinutes(int minutes) {
+            if (minutes < 0) {
+                return cumulative[0];
+            }
+            if (minutes < HISTOGRAM_MINUTES) {
+                return cumulative[minutes];
+            }
+            // beyond the histogram range, only the oldest agents can qualify.
+            long threshold = computedAt - minutes * MINUTE;
+            long count = 0;
+            for (long start : overflowStarts) {
+                if (start >= threshold) {
+                    break;
+                }
+                count++;
+            }
+            return count;
+        }
+
+        /**
+         * Copy of the per minute bucket counts.
+         */
+        public long[] getBuckets() {
+            return buckets.clone();
+        }
+
+        public long getComputedAt() {
+            return computedAt;
+        }
     }
 }
@@ -29,6 +29,13 @@ public interface Constants {
 
     String CAPABILITY_RESULT = Capability.SYSTEM_PREFIX + ".isolated.docker.for";
     String EPHEMERAL_CAPABILITY_RESULT = Capability.SYSTEM_PREFIX + ".isolated.docker.ephemeral";
+    /**
+     * capabilities registered by the sidekick's run-agent.sh with the agent container start timestamp
+     * and the time spent waiting for extra containers, both in milliseconds.
+     */
+    String CAPABILITY_TRACE_CONTAINER_START = Capability.SYSTEM_PREFIX + ".isolated.docker.trace.start";
+
+    String CAPABILITY_TRACE_SIDECAR_WAIT = Capability.SYSTEM_PREFIX + ".isolated.docker.trace.sidecars";
     /**
      * prefix for custom data passed from the api implementation.
      * Everything starting with this can end up in the UI.
@@ -31,8 +31,12 @@ import com.atlassian.sal.api.lifecycle.LifecycleAware;
 import java.util.Collections;
 import java.util.Date;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 import javax.inject.Inject;
 import org.apache.commons.lang3.StringUtils;
@@ -73,8 +77,15 @@ public class GlobalConfiguration implements LifecycleAware {
     private final AuditLogService auditLogService;
     private final BambooAuthenticationContext authenticationContext;
 
+    // settings written by other components (eg. vendor set by backend plugins) or other nodes get picked up
+    // at the latest after this long
+    private static final long SNAPSHOT_MAX_AGE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
     private final Logger logger = LoggerFactory.getLogger(GlobalConfiguration.class);
 
+    private final List<Consumer<Snapshot>> changeListeners = new CopyOnWriteArrayList<>();
+    private volatile Snapshot snapshot;
+
     @Inject
     public GlobalConfiguration(
             BandanaManager bandanaManager,
@@ -85,10 +96,72 @@ public class GlobalConfiguration implements LifecycleAware {
         this.authenticationContext = authenticationContext;
     }
 
+    /**
+     * Current settings. Loaded from Bandana once and swapped atomically whenever they are saved, so repeated
+     * reads while serving agent requests don't go to Bandana.
+     */
+    @NotNull
+    public Snapshot getSnapshot() {
+        Snapshot current = snapshot;
+        if (isStale(current)) {
+            current = reloadIfStale();
+        }
+        return current;
+    }
+
+    private synchronized Snapshot reloadIfStale() {
+        // another thread may have reloaded while this one waited for the lock.
+        Snapshot current = snapshot;
+        return isStale(current) ? reload() : current;
+    }
+
+    private static boolean isStale(@Nullable Snapshot current) {
+        return current == null || System.nanoTime() - current.loadedAt > SNAPSHOT_MAX_AGE_NANOS;
+    }
+
+    /**
+     * Registers a callback invoked with the new settings whenever they change. Meant for components that cache
+     * values derived from the settings.
+     */
+    public void addChangeListener(Consumer<Snapshot> listener) {
+        changeListeners.add(listener);
+    }
+
+    public void removeChangeListener(Consumer<Snapshot> listener) {
+        changeListeners.remove(listener);
+    }
+
+    /**
+     * Loads the settings from Bandana again and notifies the change listeners if anything changed.
+     */
+    synchronized Snapshot reload() {
+        Snapshot old = snapshot;
+        Snapshot loaded = new Snapshot(
+                getDefaultImageRaw(),
+                getMaxAgentCreationPerMinuteRaw(),
+                getAgentCleanupTimeRaw(),
+                getAgentRemovalTimeRaw(),
+                getEnabledRaw(),
+                getArchitectureConfigAsStringRaw(),
+                getArchitectureConfigWithBandana(bandanaManager),
+                getVendorWithBandanaRaw(bandanaManager),
+                System.nanoTime());
+        snapshot = loaded;
+        if (old != null && !old.sameSettings(loaded)) {
+            for (Consumer<Snapshot> listener : changeListeners) {
+                try {
+                    listener.accept(loaded);
+                } catch (RuntimeException e) {
+                    logger.error("Failed to notify about PBC settings change", e);
+                }
+            }
+        }
+        return loaded;
+    }
+
     @NotNull
     public String getDefaultImage() {
-        String image = getDefaultImageRaw();
-        return image != null ? image : "";
+        return getSnapshot().getDefaultImage();
     }
 
     /**
@@ -105,8 +178,7 @@ public class GlobalConfiguration implements LifecycleAware {
 
     @NotNull
     public Integer getMaxAgentCreationPerMinute() {
-        Integer maxAgents = getMaxAgentCreationPerMinuteRaw();
-        return maxAgents != null ? maxAgents : 100;
+        return getSnapshot().getMaxAgentCreationPerMinute();
     }
 
     /**
@@ -123,8 +195,7 @@ public class GlobalConfiguration implements LifecycleAware {
 
     @NotNull
     public Integer getAgentCleanupTime() {
-        Integer cleanupTimeRaw = getAgentCleanupTimeRaw();
-        return cleanupTimeRaw != null ? cleanupTimeRaw : Constants.DEFAULT_AGENT_CLEANUP_DELAY;
+        return getSnapshot().getAgentCleanupTime();
     }
 
     @Nullable
@@ -134,8 +205,7 @@ public class GlobalConfiguration implements LifecycleAware {
 
     @NotNull
     public Integer getAgentRemovalTime() {
-        Integer removalTimeRaw = getAgentRemovalTimeRaw();
-        return removalTimeRaw != null ? removalTimeRaw : Constants.DEFAULT_AGENT_REMOVE_DELAY;
+        return getSnapshot().getAgentRemovalTime();
     }
 
     @Nullable
@@ -145,8 +215,7 @@ public class GlobalConfiguration implements LifecycleAware {
 
     @NotNull
     public Boolean getEnabledProperty() {
-        Boolean enabled = getEnabledRaw();
-        return enabled != null ? enabled : false;
+        return getSnapshot().isEnabled();
     }
 
     /**
@@ -162,8 +231,7 @@ public class GlobalConfiguration implements LifecycleAware {
 
     @NotNull
     public String getArchitectureConfigAsString() {
-        String architectureConfig = getArchitectureConfigAsStringRaw();
-        return architectureConfig != null ? architectureConfig : "";
+        return getSnapshot().getArchitectureConfigAsString();
     }
 
     /**
@@ -180,21 +248,18 @@ public class GlobalConfiguration implements LifecycleAware {
 
     @NotNull
     public String getVendor() {
-        return getVendorWithBandana(bandanaManager);
+        return getSnapshot().getVendor();
     }
 
     /**
      * Get the architecture config.
      *
-     * @return An unmodifiable view of the architecture config, since the reference that Bandana will provide is the
-     *         actual
-     *         map where the data is stored and can be modified! Any changes to the original map will be reflected
-     *         globally.
+     * @return An unmodifiable copy of the architecture config.
      *         Use {@code new LinkedHashMap<>(getArchitectureConfig())} if you need a mutable map.
      */
     @NotNull
     public Map<String, String> getArchitectureConfig() {
-        return getArchitectureConfigWithBandana(this.bandanaManager);
+        return getSnapshot().getArchitectureConfig();
     }
 
     /**
@@ -235,6 +300,15 @@ public class GlobalConfiguration implements LifecycleAware {
      * Saves changes to the configuration.
      */
     public void persist(Config config) {
+        try {
+            persistChanges(config);
+        } finally {
+            // some values could have been written even when the rest was rejected
+            reload();
+        }
+    }
+
+    private void persistChanges(Config config) {
         final String defaultImage = config.getDefaultImage();
         final Integer maxAgentCreationPerMinute = config.getMaxAgentCreationPerMinute();
         final String archRawString = config.getArchitectureConfig();
@@ -338,6 +412,7 @@ public class GlobalConfiguration implements LifecycleAware {
     @VisibleForTesting
     void setEnabledProperty(Boolean enabled) {
         bandanaManager.setValue(PlanAwareBandanaContext.GLOBAL_CONTEXT, BANDANA_ENABLED_PROPERTY, enabled);
+        reload();
     }
 
     private void auditLogEntry(String name, String oldValue, String newValue) {
@@ -379,4 +454,90 @@ public class GlobalConfiguration implements LifecycleAware {
     public void onStop() {
         // We don't need to do anything on stop for this class
     }
+
+    /**
+     * Immutable copy of the PBC settings stored in Bandana, with defaults applied.
+     * Kept in memory only and never stored in Bandana, so the class Javadoc warning doesn't apply.
+     */
+    public static final class Snapshot {
+        private final String defaultImage;
+        private final int maxAgentCreationPerMinute;
+        private final int agentCleanupTime;
+        private final int agentRemovalTime;
+        private final boolean enabled;
+        private final String architectureConfigAsString;
+        private final Map<String, String> architectureConfig;
+        private final String vendor;
+        private final long loadedAt;
+
+        Snapshot(
+                @Nullable String defaultImage,
+                @Nullable Integer maxAgentCreationPerMinute,
+                @Nullable Integer agentCleanupTime,
+                @Nullable Integer agentRemovalTime,
+                @Nullable Boolean enabled,
+                @Nullable String architectureConfigAsString,
+                @NotNull Map<String, String> architectureConfig,
+                @Nullable String vendor,
+                long loadedAt) {
+            this.defaultImage = defaultImage != null ? defaultImage : "";
+            this.maxAgentCreationPerMinute = maxAgentCreationPerMinute != null ? maxAgentCreationPerMinute : 100;
+            this.agentCleanupTime =
+                    agentCleanupTime != null ? agentCleanupTime : Constants.DEFAULT_AGENT_CLEANUP_DELAY;
+            this.agentRemovalTime =
+                    agentRemovalTime != null ? agentRemovalTime : Constants.DEFAULT_AGENT_REMOVE_DELAY;
+            this.enabled = enabled != null ? enabled : false;
+            this.architectureConfigAsString = architectureConfigAsString != null ? architectureConfigAsString : "";
+            this.architectureConfig = Collections.unmodifiableMap(new LinkedHashMap<>(architectureConfig));
+            this.vendor = vendor != null ? vendor : "";
+            this.loadedAt = loadedAt;
+        }
+
+        @NotNull
+        public String getDefaultImage() {
+            return defaultImage;
+        }
+
+        public int getMaxAgentCreationPerMinute() {
+            return maxAgentCreationPerMinute;
+        }
+
+        public int getAgentCleanupTime() {
+            return agentCleanupTime;
+        }
+
+        public int getAgentRemovalTime() {
+            return agentRemovalTime;
+        }
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        @NotNull
+        public String getArchitectureConfigAsString() {
+            return architectureConfigAsString;
+        }
+
+        @NotNull
+        public Map<String, String> getArchitectureConfig() {
+            return architectureConfig;
+        }
+
+        @NotNull
+        public String getVendor() {
+            return vendor;
+        }
+
+        boolean sameSettings(Snapshot other) {
+            return defaultImage.equals(other.defaultImage)
+                    && maxAgentCreationPerMinute == other.maxAgentCreationPerMinute
+                    && agentCleanupTime == other.agentCleanupTime
+                    && agentRemovalTime == other.agentRemovalTime
+                    && enabled == other.enabled
+                    && architectureConfigAsString.equals(other.architectureConfigAsString)
+                    && architectureConfig.equals(other.architectureConfig)
+                    && vendor.equals(other.vendor);
+        }
+    }
 }
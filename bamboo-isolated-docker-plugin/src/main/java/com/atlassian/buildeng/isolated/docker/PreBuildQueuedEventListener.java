@@ -47,6 +47,9 @@ import com.atlassian.buildeng.spi.isolated.docker.IsolatedDockerAgentRequest;
 import com.atlassian.buildeng.spi.isolated.docker.IsolatedDockerAgentResult;
 import com.atlassian.buildeng.spi.isolated.docker.IsolatedDockerRequestCallback;
 import com.atlassian.buildeng.spi.isolated.docker.RetryAgentStartupEvent;
+import com.atlassian.buildeng.spi.isolated.docker.RetryReason;
+import com.atlassian.buildeng.spi.isolated.docker.StartupPhase;
+import com.atlassian.buildeng.spi.isolated.docker.StartupTrace;
 import com.atlassian.event.api.EventListener;
 import com.atlassian.event.api.EventPublisher;
 import com.google.common.base.Joiner;
@@ -77,6 +80,9 @@ public class PreBuildQueuedEventListener {
     private final AgentsThrottled agentsThrottled;
     private final GlobalConfiguration globalConfiguration;
     private final AgentSecurityTokenService agentSecurityTokenService;
+    private final AgentStartupJournal journal;
+    private final StartupTracer tracer;
+    private final QueueStatistics statistics;
 
     private static final String QUEUE_TIMESTAMP = "pbcJobQueueTime";
 
@@ -97,7 +103,10 @@ public class PreBuildQueuedEventListener {
             AgentCreationLimits agentCreationLimits,
             AgentsThrottled agentsThrottled,
             GlobalConfiguration globalConfiguration,
-            AgentSecurityTokenService agentSecurityTokenService) {
+            AgentSecurityTokenService agentSecurityTokenService,
+            AgentStartupJournal journal,
+            StartupTracer tracer,
+            QueueStatistics statistics) {
         this.isolatedAgentService = isolatedAgentService;
         this.errorUpdateHandler = errorUpdateHandler;
         this.buildQueueManager = buildQueueManager;
@@ -114,6 +123,9 @@ public class PreBuildQueuedEventListener {
         this.agentsThrottled = agentsThrottled;
         this.globalConfiguration = globalConfiguration;
         this.agentSecurityTokenService = agentSecurityTokenService;
+        this.journal = journal;
+        this.tracer = tracer;
+        this.statistics = statistics;
     }
 
     @EventListener
@@ -141,7 +153,10 @@ public class PreBuildQueuedEventListener {
             logger.debug("PBC job {} got queued.", event.getResultKey());
             config.copyToResult(buildContext.getCurrentResult(), sizeDescriptor);
             jmx.incrementQueued();
+            statistics.queued(buildContext, config);
             setQueueTimestamp(buildContext);
+            StartupTrace.clear(buildContext.getCurrentResult().getCustomBuildData());
+            tracer.begin(buildContext, StartupPhase.TOTAL);
             retry(new RetryAgentStartupEvent(config, buildContext));
         } else {
             // when a rerun happens and docker agents were disabled.
@@ -167,9 +182,12 @@ public class PreBuildQueuedEventListener {
                     event.getContext().getCurrentResult().getLifeCycleState());
             // TODO cancel future reservations if any
             jmx.incrementCancelled();
+            statistics.removed(eventKey);
             agentsThrottled.remove(eventKey);
+            journal.closed(event);
             return;
         }
+        tracer.end(event.getContext(), StartupPhase.WAITING);
         synchronized (this) {
             clearResultCustomData(event.getContext());
             // done between clear and set to avoid counting the current one.
@@ -189,12 +207,16 @@ public class PreBuildQueuedEventListener {
                         "Agent creation limit reached. Rescheduling {}",
                         event.getContext().getResultKey());
                 // retry infinitely
-                rescheduler.reschedule(event);
+                rescheduler.reschedule(event.withRetryReason(RetryReason.THROTTLED));
+                tracer.begin(event.getContext(), StartupPhase.THROTTLED);
+                statistics.update(eventKey, QueueStatistics.State.THROTTLED);
                 agentsThrottled.add(eventKey);
                 jmx.recalculateThrottle(agentsThrottled);
                 return;
             }
             agentsThrottled.remove(eventKey);
+            statistics.update(eventKey, QueueStatistics.State.QUEUED);
+            tracer.end(event.getContext(), StartupPhase.THROTTLED);
             jmx.recalculateThrottle(agentsThrottled);
             agentCreationLimits.addToCreationQueue(event);
         }
@@ -219,7 +241,10 @@ public class PreBuildQueuedEventListener {
                             "Build {} was not queued but recoverable, retrying.. Error message: {}",
                             eventKey,
                             Joiner.on("\n").join(result.getErrors()));
-                    if (rescheduler.reschedule(new RetryAgentStartupEvent(event))) {
+                    RetryAgentStartupEvent retry = new RetryAgentStartupEvent(event, result.getRetryReason())
+                            .withRetryAfter(result.getRetryAfterSeconds());
+                    if (rescheduler.reschedule(retry)) {
+                        statistics.update(eventKey, QueueStatistics.State.QUEUED);
                         return;
                     }
                     jmx.incrementTimedOut();
@@ -235,6 +260,7 @@ public class PreBuildQueuedEventListener {
                 });
                 if (result.hasErrors()) {
                     String error = Joiner.on("\n").join(result.getErrors());
+                    journal.closed(event);
                     terminateBuild(error, event.getContext());
                     synchronized (this) {
                         agentCreationLimits.removeEventFromQueue(event);
@@ -242,6 +268,14 @@ public class PreBuildQueuedEventListener {
                     errorUpdateHandler.recordError(
                             event.getContext().getEntityKey(), "Build was not queued due to error:" + error);
                 } else {
+                    rescheduler.agentStartupSucceeded();
+                    journal.started(event, result.getCustomResultData());
+                    result.getPhaseDurations()
+                            .forEach((StartupPhase phase, Long millis) ->
+                                    tracer.record(event.getContext(), phase, millis));
+                    // covers image pull, side container wait and registration until split by the agent.
+                    tracer.begin(event.getContext(), StartupPhase.REGISTRATION);
+                    statistics.update(eventKey, QueueStatistics.State.SCHEDULED);
                     jmx.incrementScheduled();
                     logger.info(
                             "Scheduled {} with custom data: {}",
@@ -252,6 +286,7 @@ public class PreBuildQueuedEventListener {
 
             @Override
             public void handle(IsolatedDockerAgentException exception) {
+                journal.closed(event);
                 terminateBuild(exception.getLocalizedMessage(), event.getContext());
                 synchronized (this) {
                     agentCreationLimits.removeEventFromQueue(event);
@@ -269,6 +304,7 @@ public class PreBuildQueuedEventListener {
             return;
         }
 
+        journal.requested(event);
         isolatedAgentService.startAgent(
                 new IsolatedDockerAgentRequest(
                         event.getConfiguration(),
@@ -285,6 +321,7 @@ public class PreBuildQueuedEventListener {
     private void terminateBuild(String errorMessage, CommonContext context) {
         context.getCurrentResult().getCustomBuildData().put(Constants.RESULT_ERROR, errorMessage);
         jmx.incrementFailed();
+        statistics.removed(context.getResultKey().getKey());
         eventPublisher.publish(new DockerAgentFailEvent(errorMessage, context.getEntityKey()));
         if (context instanceof BuildContext) {
             context.getCurrentResult().setLifeCycleState(LifeCycleState.NOT_BUILT);
@@ -348,7 +385,10 @@ public class PreBuildQueuedEventListener {
             ConfigurationOverride.applyOverrides(config);
             config.copyToResult(context.getCurrentResult(), sizeDescriptor);
             jmx.incrementQueued();
+            statistics.queued(context, config);
             setQueueTimestamp(context);
+            StartupTrace.clear(context.getCurrentResult().getCustomBuildData());
+            tracer.begin(context, StartupPhase.TOTAL);
             retry(new RetryAgentStartupEvent(config, context));
         } else {
             // when a rerun happens and docker agents were disabled.
@@ -361,6 +401,7 @@ public class PreBuildQueuedEventListener {
     @EventListener
     public void deploymentFinished(DeploymentFinishedEvent event) {
         logger.debug("deployment finished event:" + event.getDeploymentResultId());
+        journal.closeDeployment(event.getDeploymentResultId());
         ImpersonationHelper.runWithSystemAuthority((BambooRunnables.NotThrowing) () -> {
             DeploymentResult dr = deploymentResultService.getDeploymentResult(event.getDeploymentResultId());
             if (dr != null) {
@@ -369,6 +410,7 @@ public class PreBuildQueuedEventListener {
                     BuildAgent agent = dr.getAgent();
                     if (agent != null) {
                         agentRemovals.stopAgentRemotely(agent);
+                        // asynchronous, the deployment is finished and doesn't need the agent record.
                         agentRemovals.removeAgent(agent);
                     }
                 }
@@ -0,0 +1,368 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.isolated.docker;
+
+import com.atlassian.bamboo.deployments.execution.DeploymentContext;
+import com.atlassian.bamboo.util.Narrow;
+import com.atlassian.bamboo.v2.build.BuildContext;
+import com.atlassian.bamboo.v2.build.CommonContext;
+import com.atlassian.buildeng.spi.isolated.docker.AccessConfiguration;
+import com.atlassian.buildeng.spi.isolated.docker.Configuration;
+import com.atlassian.plugin.spring.scanner.annotation.component.BambooComponent;
+import com.google.common.collect.ImmutableMap;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.inject.Inject;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Keeps track of PBC jobs and deployments waiting for an agent. Updated from the queue and agent events, so
+ * statistics requests don't have to walk the build queue and parse the configuration of every queued build.
+ * Readers get an immutable {@link Snapshot} that is only rebuilt after something changed.
+ */
+@BambooComponent
+public class QueueStatistics {
+
+    // builds can leave the queue without any event we listen to (eg. cancelled by the user while waiting
+    // for the agent), such entries are dropped by reconciling with the build queue at most this often.
+    static final long RECONCILE_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+    static final String KIND_PLAN = "plan";
+    static final String KIND_DEPLOYMENT = "deployment";
+
+    public enum State {
+        // waiting for the agent creation request, including retries
+        QUEUED,
+        // waiting because of the agent creation rate limit
+        THROTTLED,
+        // accepted by the backend, waiting for the agent to register
+        SCHEDULED
+    }
+
+    private final DateTime dateTime;
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+    private volatile Snapshot snapshot = new Snapshot(-1, Collections.emptyList());
+    private final AtomicLong lastReconcile = new AtomicLong();
+
+    @Inject
+    public QueueStatistics(DateTime dateTime) {
+        this.dateTime = dateTime;
+    }
+
+    /**
+     * PBC enabled job or deployment entered the queue.
+     */
+    public void queued(CommonContext context, Configuration configuration) {
+        Map<String, Object> descriptor = describe(context);
+        if (descriptor != null) {
+            queued(
+                    context.getResultKey().getKey(),
+                    context instanceof BuildContext ? KIND_PLAN : KIND_DEPLOYMENT,
+                    descriptor,
+                    configuration);
+        }
+    }
+
+    void queued(String resultKey, String kind, Map<String, Object> descriptor, Configuration configuration) {
+        entries.put(
+                resultKey,
+                new Entry(
+                        kind,
+                        descriptor,
+                        Objects.toString(configuration.getDockerImage(), ""),
+                        configuration.getSize().name(),
+                        configuration.getArchitecture(),
+                        State.QUEUED,
+                        dateTime.getCurrentTime()));
+        version.incrementAndGet();
+    }
+
+    /**
+     * Move a tracked job or deployment to another state, untracked ones are ignored.
+     */
+    public void update(String resultKey, State state) {
+        Entry updated = entries.computeIfPresent(resultKey, (String k, Entry e) -> e.withState(state));
+        if (updated != null) {
+            version.incrementAndGet();
+        }
+    }
+
+    /**
+     * Job or deployment got its agent or left the queue.
+     */
+    public void removed(String resultKey) {
+        if (entries.remove(resultKey) != null) {
+            version.incrementAndGet();
+        }
+    }
+
+    /**
+     * Drop entries that are no longer queued and pick up PBC builds queued before the tracking started.
+     * Does nothing when the last reconciliation happened less than {@link #RECONCILE_INTERVAL} ago, the queue
+     * is only read by the single caller that wins the interval.
+     *
+     * @param queue supplies the current content of the build queue
+     */
+    public void reconcile(Supplier<Stream<CommonContext>> queue) {
+        long now = dateTime.getCurrentTime();
+        long last = lastReconcile.get();
+        if (now - last < RECONCILE_INTERVAL || !lastReconcile.compareAndSet(last, now)) {
+            return;
+        }
+        Set<String> queuedKeys = new HashSet<>();
+        queue.get().forEach((CommonContext context) -> {
+            String key = context.getResultKey().getKey();
+            queuedKeys.add(key);
+            if (!entries.containsKey(key)) {
+                Configuration configuration = AccessConfiguration.forContext(context);
+                if (configuration.isEnabled()) {
+                    queued(context, configuration);
+                }
+            }
+        });
+        retainOnly(queuedKeys, now);
+    }
+
+    /**
+     * Drop entries not in the given set, unless they were added after the queue was read.
+     */
+    void retainOnly(Set<String> queuedKeys, long queueReadAt) {
+        boolean removed = entries.entrySet()
+                .removeIf((Map.Entry<String, Entry> t) ->
+                        !queuedKeys.contains(t.getKey()) && t.getValue().since < queueReadAt);
+        if (removed) {
+            version.incrementAndGet();
+        }
+    }
+
+    /**
+     * Current state of the tracked builds, rebuilt only when something changed since the last call.
+     */
+    public Snapshot getSnapshot() {
+        long current = version.get();
+        Snapshot last = snapshot;
+        if (last.version == current) {
+            return last;
+        }
+        Snapshot rebuilt = new Snapshot(current, new ArrayList<>(entries.values()));
+        snapshot = rebuilt;
+        return rebuilt;
+    }
+
+    @Nullable
+    private static Map<String, Object> describe(CommonContext context) {
+        BuildContext buildContext = Narrow.downTo(context, BuildContext.class);
+        if (buildContext != null) {
+            return ImmutableMap.of(
+                    "planKey",
+                    buildContext.getParentBuildContext().getTypedPlanKey().toString(),
+                    "resultKey",
+                    buildContext.getResultKey().toString());
+        }
+        DeploymentContext deploymentContext = Narrow.downTo(context, DeploymentContext.class);
+        if (deploymentContext != null) {
+            return ImmutableMap.of(
+                    "projectId",
+                    deploymentContext.getDeploymentProjectId(),
+                    "environmentId",
+                    deploymentContext.getEnvironmentId(),
+                    "versionId",
+                    deploymentContext.getDeploymentVersion().getId(),
+                    "resultKey",
+                    deploymentContext.getResultKey().toString());
+        }
+        return null;
+    }
+
+    private static final class Entry {
+        private final Bucket bucket;
+        private final Map<String, Object> descriptor;
+        private final long since;
+
+        Entry(
+                String kind,
+                Map<String, Object> descriptor,
+                String image,
+                String size,
+                String architecture,
+                State state,
+                long since) {
+            this(new Bucket(state, kind, image, size, architecture), descriptor, since);
+        }
+
+        private Entry(Bucket bucket, Map<String, Object> descriptor, long since) {
+            this.bucket = bucket;
+            this.descriptor = descriptor;
+            this.since = since;
+        }
+
+        Entry withState(State state) {
+            return new Entry(
+                    new Bucket(state, bucket.kind, bucket.image, bucket.size, bucket.architecture), descriptor, since);
+        }
+    }
+
+    /**
+     * Combination of the dimensions the statistics are aggregated by.
+     */
+    public static final class Bucket {
+        private static final Comparator<Bucket> ORDER = Comparator.comparing((Bucket t) -> t.state)
+                .thenComparing((Bucket t) -> t.kind)
+                .thenComparing((Bucket t) -> t.image)
+                .thenComparing((Bucket t) -> t.size)
+                .thenComparing((Bucket t) -> t.architecture, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+        private final State state;
+        private final String kind;
+        private final String image;
+        private final String size;
+        private final String architecture;
+
+        Bucket(State state, String kind, String image, String size, @Nullable String architecture) {
+            this.state = state;
+            this.kind = kind;
+            this.image = image;
+            this.size = size;
+            this.architecture = architecture;
+        }
+
+        public State getState() {
+            return state;
+        }
+
+        public String getKind() {
+            return kind;
+        }
+
+        public String getImage() {
+            return image;
+        }
+
+        public String getSize() {
+            return size;
+        }
+
+        @Nullable
+        public String getArchitecture() {
+            return architecture;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Bucket bucket = (Bucket) o;
+            return state == bucket.state
+                    && kind.equals(bucket.kind)
+                    && image.equals(bucket.image)
+                    && size.equals(bucket.size)
+                    && Objects.equals(architecture, bucket.architecture);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(state, kind, image, size, architecture);
+        }
+    }
+
+    /**
+     * Immutable view of the tracked builds and their counts.
+     */
+    public static final class Snapshot {
+        private final long version;
+        private final List<Map<String, Object>> plans;
+        private final List<Map<String, Object>> deployments;
+        private final Map<Bucket, Integer> counts;
+
+        Snapshot(long version, List<Entry> entries) {
+            this.version = version;
+            this.plans = Collections.unmodifiableList(entries.stream()
+                    .filter((Entry t) -> KIND_PLAN.equals(t.bucket.kind))
+                    .map((Entry t) -> t.descriptor)
+                    .collect(Collectors.toList()));
+            this.deployments = Collections.unmodifiableList(entries.stream()
+                    .filter((Entry t) -> KIND_DEPLOYMENT.equals(t.bucket.kind))
+                    .map((Entry t) -> t.descriptor)
+                    .collect(Collectors.toList()));
+            Map<Bucket, Integer> grouped = entries.stream()
+                    .collect(Collectors.groupingBy((Entry t) -> t.bucket, Collectors.summingInt((Entry t) -> 1)));
+            Map<Bucket, Integer> sorted = new LinkedHashMap<>();
+            grouped.entrySet().stream()
+                    .sorted(Map.Entry.comparingByKey(Bucket.ORDER))
+                    .forEach((Map.Entry<Bucket, Integer> t) -> sorted.put(t.getKey(), t.getValue()));
+            this.counts = Collections.unmodifiableMap(sorted);
+        }
+
+        public List<Map<String, Object>> getPlans() {
+            return plans;
+        }
+
+        public List<Map<String, Object>> getDeployments() {
+            return deployments;
+        }
+
+        /**
+         * Number of tracked builds per bucket, ordered by state, kind, image, size and architecture.
+         */
+        public Map<Bucket, Integer> getCounts() {
+            return counts;
+        }
+
+        /**
+         * Write the counts as tab separated values, one line per bucket after a header line.
+         * Missing architecture is written as "-".
+         */
+        public void export(Writer writer) throws IOException {
+            writer.write("state\tkind\timage\tsize\tarchitecture\tcount\n");
+            for (Map.Entry<Bucket, Integer> entry : counts.entrySet()) {
+                Bucket bucket = entry.getKey();
+                writer.write(bucket.state.name());
+                writer.write('\t');
+                writer.write(bucket.kind);
+                writer.write('\t');
+                writer.write(bucket.image);
+                writer.write('\t');
+                writer.write(bucket.size);
+                writer.write('\t');
+                writer.write(bucket.architecture != null ? bucket.architecture : "-");
+                writer.write('\t');
+                writer.write(Integer.toString(entry.getValue()));
+                writer.write('\n');
+            }
+        }
+    }
+}
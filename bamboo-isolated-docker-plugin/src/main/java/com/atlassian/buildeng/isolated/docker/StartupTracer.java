@@ -0,0 +1,174 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.isolated.docker;
+
+import com.atlassian.bamboo.v2.build.CommonContext;
+import com.atlassian.buildeng.isolated.docker.jmx.MBeanRegistrations;
+import com.atlassian.buildeng.isolated.docker.jmx.PhaseDurations;
+import com.atlassian.buildeng.spi.isolated.docker.StartupPhase;
+import com.atlassian.buildeng.spi.isolated.docker.StartupTrace;
+import com.atlassian.plugin.spring.scanner.annotation.component.BambooComponent;
+import com.atlassian.plugin.spring.scanner.annotation.export.ExportAsService;
+import com.atlassian.sal.api.lifecycle.LifecycleAware;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Traces how long PBC agent startup spends in each {@link StartupPhase}. Phases are stamped on the custom
+ * build data of the job (see {@link StartupTrace}) and every finished phase is recorded in a per-phase
+ * histogram exported via JMX as com.atlassian.buildeng.isolated.docker:type=StartupPhases,phase=[phase].
+ */
+@BambooComponent
+@ExportAsService({StartupTracer.class, LifecycleAware.class})
+public class StartupTracer implements LifecycleAware {
+    private static final Logger logger = LoggerFactory.getLogger(StartupTracer.class);
+    private static final int MAX_AWAITING_AGENT = 5000;
+
+    private final DateTime dateTime;
+    private final Map<StartupPhase, PhaseDurations> histograms = new EnumMap<>(StartupPhase.class);
+    // contexts waiting for their agent by result key, so registration doesn't have to walk the build queue.
+    // entries of builds that leave the queue without an agent expire.
+    private final Cache<String, CommonContext> awaitingAgent = CacheBuilder.newBuilder()
+            .maximumSize(MAX_AWAITING_AGENT)
+            .expireAfterWrite(1, TimeUnit.HOURS)
+            .build();
+    private final MBeanRegistrations mbeans = new MBeanRegistrations();
+
+    public StartupTracer(DateTime dateTime) {
+        this.dateTime = dateTime;
+        for (StartupPhase phase : StartupPhase.values()) {
+            histograms.put(phase, new PhaseDurations());
+        }
+    }
+
+    public void begin(CommonContext context, StartupPhase phase) {
+        StartupTrace.begin(data(context), phase, dateTime.getCurrentTime());
+        if (phase == StartupPhase.REGISTRATION) {
+            awaitingAgent.put(context.getResultKey().getKey(), context);
+        }
+    }
+
+    /**
+     * End the phase if it was in progress.
+     *
+     * @param context job or deployment
+     * @param phase phase to end
+     */
+    public void end(CommonContext context, StartupPhase phase) {
+        long elapsed = StartupTrace.end(data(context), phase, dateTime.getCurrentTime());
+        if (elapsed >= 0) {
+            histograms.get(phase).record(elapsed);
+        }
+    }
+
+    /**
+     * Record phase duration measured elsewhere, eg. by the backend.
+     *
+     * @param context job or deployment
+     * @param phase phase
+     * @param millis duration in milliseconds
+     */
+    public void record(CommonContext context, StartupPhase phase, long millis) {
+        StartupTrace.add(data(context), phase, millis);
+        histograms.get(phase).record(millis);
+    }
+
+    /**
+     * Agent of a job or deployment registered. Closes the startup trace and splits the time since the backend
+     * accepted the request into image pull, sidecar wait and registration when the agent reported
+     * its container start timestamp.
+     *
+     * Agents of builds not waiting for their agent, eg. after a plugin restart, are ignored.
+     *
+     * @param resultKey result key of the job or deployment the agent was started for
+     * @param containerStart agent container start timestamp as reported by the agent, null if not known
+     * @param sidecarWait time the agent waited for extra containers as reported by the agent, null if not known
+     */
+    public void agentRegistered(String resultKey, Long containerStart, Long sidecarWait) {
+        CommonContext context = awaitingAgent.asMap().remove(resultKey);
+        if (context != null) {
+            agentRegistered(context, containerStart, sidecarWait);
+        }
+    }
+
+    private void agentRegistered(CommonContext context, Long containerStart, Long sidecarWait) {
+        Map<String, String> data = data(context);
+        long now = dateTime.getCurrentTime();
+        long scheduled = StartupTrace.getStart(data, StartupPhase.REGISTRATION);
+        if (scheduled >= 0 && containerStart != null) {
+            // the agent clock can be skewed, never report negative durations.
+            long agentReady = containerStart + (sidecarWait != null ? sidecarWait : 0);
+            record(context, StartupPhase.IMAGE_PULL, Math.max(0, containerStart - scheduled));
+            if (sidecarWait != null) {
+                record(context, StartupPhase.SIDECAR_WAIT, sidecarWait);
+            }
+            // the rest of the time since scheduling is agent JVM startup and registration.
+            StartupTrace.discard(data, StartupPhase.REGISTRATION);
+            record(context, StartupPhase.REGISTRATION, Math.max(0, now - Math.max(agentReady, scheduled)));
+        } else {
+            end(context, StartupPhase.REGISTRATION);
+        }
+        end(context, StartupPhase.TOTAL);
+        logger.debug("Startup trace of {}: {}", context.getResultKey(), getTrace(context));
+    }
+
+    /**
+     * Durations of all finished phases of the context.
+     *
+     * @param context job or deployment
+     * @return phase to duration in milliseconds
+     */
+    public Map<StartupPhase, Long> getTrace(CommonContext context) {
+        Map<StartupPhase, Long> toRet = new EnumMap<>(StartupPhase.class);
+        Map<String, String> data = data(context);
+        for (StartupPhase phase : StartupPhase.values()) {
+            long duration = StartupTrace.getDuration(data, phase);
+            if (duration >= 0) {
+                toRet.put(phase, duration);
+            }
+        }
+        return toRet;
+    }
+
+    public Map<StartupPhase, PhaseDurations> getHistograms() {
+        return Collections.unmodifiableMap(histograms);
+    }
+
+    private Map<String, String> data(CommonContext context) {
+        return context.getCurrentResult().getCustomBuildData();
+    }
+
+    @Override
+    public void onStart() {
+        for (Map.Entry<StartupPhase, PhaseDurations> entry : histograms.entrySet()) {
+            mbeans.register(
+                    entry.getValue(),
+                    "com.atlassian.buildeng.isolated.docker:type=StartupPhases,phase=" + entry.getKey().getKey());
+        }
+    }
+
+    @Override
+    public void onStop() {
+        mbeans.unregisterAll();
+    }
+}
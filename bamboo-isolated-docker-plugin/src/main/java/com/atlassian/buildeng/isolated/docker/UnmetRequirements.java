@@ -160,6 +160,7 @@ public class UnmetRequirements {
                         current.setLifeCycleState(LifeCycleState.NOT_BUILT);
                         buildQueueManager.removeBuildFromQueue(found.get().getResultKey());
                         agentRemovals.stopAgentRemotely(pipelineDefinition.getId());
+                        // only scheduled, the build is out of the queue already so nothing waits for the removal.
                         agentRemovals.removeAgent(pipelineDefinition.getId());
                         errorUpdateHandler.recordError(
                                 found.get().getEntityKey(),
@@ -18,8 +18,6 @@ package com.atlassian.buildeng.isolated.docker.handler;
 
 import com.atlassian.bamboo.deployments.configuration.CustomEnvironmentConfigPluginExporter;
 import com.atlassian.bamboo.specs.api.builders.deployment.configuration.EnvironmentPluginConfiguration;
-import com.atlassian.bamboo.specs.api.builders.pbc.EnvVar;
-import com.atlassian.bamboo.specs.api.builders.pbc.ExtraContainer;
 import com.atlassian.bamboo.specs.api.builders.pbc.PerBuildContainerForEnvironment;
 import com.atlassian.bamboo.specs.api.exceptions.PropertiesValidationException;
 import com.atlassian.bamboo.specs.api.model.deployment.configuration.AnyPluginConfigurationProperties;
@@ -34,8 +32,6 @@ import com.atlassian.bamboo.utils.error.ErrorCollection;
 import com.atlassian.bamboo.utils.error.SimpleErrorCollection;
 import com.atlassian.buildeng.isolated.docker.Validator;
 import com.atlassian.buildeng.isolated.docker.lifecycle.BuildProcessorServerImpl;
-import com.atlassian.buildeng.isolated.docker.yaml.YamlConfigParser;
-import com.atlassian.buildeng.spi.isolated.docker.AccessConfiguration;
 import com.atlassian.buildeng.spi.isolated.docker.Configuration;
 import com.atlassian.buildeng.spi.isolated.docker.ConfigurationBuilder;
 import java.util.Collections;
@@ -63,24 +59,7 @@ public class CustomEnvironmentConfigExporterImpl implements CustomEnvironmentCon
     @NotNull
     @Override
     public EnvironmentPluginConfiguration toSpecsEntity(@NotNull Map<String, String> map) {
-        Configuration config = AccessConfiguration.forMap(map);
-        return new PerBuildContainerForEnvironment()
-                .enabled(config.isEnabled())
-                .image(config.getDockerImage())
-                .size(config.getSize().name())
-                .awsRole(config.getAwsRole())
-                .architecture(config.getArchitecture())
-                .extraContainers(config.getExtraContainers().stream()
-                        .map((Configuration.ExtraContainer t) -> new ExtraContainer()
-                                .name(t.getName())
-                                .image(t.getImage())
-                                .size(t.getExtraSize().name())
-                                .commands(t.getCommands())
-                                .envVariables(t.getEnvVariables().stream()
-                                        .map((Configuration.EnvVariable t2) -> new EnvVar(t2.getName(), t2.getValue()))
-                                        .collect(Collectors.toList())))
-                        .collect(Collectors.toList()))
-                .withFeatureFlags(config.getFeatureFlags());
+        return SpecsConverter.shared().toEnvironmentEntity(map);
     }
 
     @NotNull
@@ -101,7 +80,7 @@ public class CustomEnvironmentConfigExporterImpl implements CustomEnvironmentCon
             toRet.put(Configuration.DOCKER_ARCHITECTURE, custom.getArchitecture());
             toRet.put(
                     Configuration.DOCKER_EXTRA_CONTAINERS,
-                    BuildProcessorServerImpl.toJsonString(custom.getExtraContainers()));
+                    SpecsConverter.shared().toJsonString(custom.getExtraContainers()));
             toRet.put(
                     Configuration.DOCKER_FEATURE_FLAGS,
                     BuildProcessorServerImpl.toJsonString(custom.getFeatureFlags()));
@@ -146,7 +125,7 @@ public class CustomEnvironmentConfigExporterImpl implements CustomEnvironmentCon
                     pbc.getSize(),
                     pbc.getAwsRole(),
                     pbc.getArchitecture(),
-                    BuildProcessorServerImpl.toJsonString(pbc.getExtraContainers()),
+                    SpecsConverter.shared().toJsonString(pbc.getExtraContainers()),
                     coll,
                     false);
             return coll.getAllErrorMessages().stream()
@@ -166,29 +145,14 @@ public class CustomEnvironmentConfigExporterImpl implements CustomEnvironmentCon
      */
     @Override
     public PerBuildContainerForEnvironment fromYaml(@NotNull Node node) throws PropertiesValidationException {
-        YamlConfigParser parser = new YamlConfigParser();
-        Configuration config = parser.parse(node);
-        if (config == null) {
-            return null;
-        } else {
-            return new PerBuildContainerForEnvironment()
-                    .enabled(config.isEnabled())
-                    .image(config.getDockerImage())
-                    .size(config.getSize().name())
-                    .awsRole(config.getAwsRole())
-                    .architecture(config.getArchitecture())
-                    .extraContainers(config.getExtraContainers().stream()
-                            .map(BuildProcessorServerImpl.getExtraContainerExtraContainerFunction())
-                            .collect(Collectors.toList()))
-                    .withFeatureFlags(config.getFeatureFlags());
-        }
+        Configuration config = SpecsConverter.shared().parseYaml(node);
+        return config == null ? null : SpecsConverter.shared().toEnvironmentEntity(config);
     }
 
     @Nullable
     @Override
     public Node toYaml(@NotNull EnvironmentPluginConfigurationProperties specsProperties) {
-        YamlConfigParser parser = new YamlConfigParser();
-        return parser.toYaml(toConfig((PerBuildContainerForEnvironmentProperties) specsProperties));
+        return SpecsConverter.shared().toYaml(toConfig((PerBuildContainerForEnvironmentProperties) specsProperties));
     }
 
     private Configuration toConfig(PerBuildContainerForEnvironmentProperties specsProperties) {
@@ -0,0 +1,257 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.isolated.docker.handler;
+
+import com.atlassian.bamboo.specs.api.builders.pbc.EnvVar;
+import com.atlassian.bamboo.specs.api.builders.pbc.ExtraContainer;
+import com.atlassian.bamboo.specs.api.builders.pbc.PerBuildContainerForEnvironment;
+import com.atlassian.bamboo.specs.api.builders.pbc.PerBuildContainerForJob;
+import com.atlassian.bamboo.specs.api.model.pbc.EnvProperties;
+import com.atlassian.bamboo.specs.api.model.pbc.ExtraContainerProperties;
+import com.atlassian.bamboo.specs.yaml.Node;
+import com.atlassian.buildeng.isolated.docker.yaml.YamlConfigParser;
+import com.atlassian.buildeng.spi.isolated.docker.AccessConfiguration;
+import com.atlassian.buildeng.spi.isolated.docker.Configuration;
+import com.atlassian.buildeng.spi.isolated.docker.ConfigurationPersistence;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Shared conversion engine between PBC configuration and Bamboo Specs entities.
+ * A specs scan of a large repository converts the same few configuration blocks over and over again (thousands of
+ * jobs typically share a handful of images and sidecar setups), so parsed {@link Configuration} instances and
+ * serialized extra container definitions are cached by a digest of their content. The cached values never leave
+ * this class: {@link Configuration} is mutable and callers always receive freshly built specs entities or strings.
+ */
+public final class SpecsConverter {
+
+    static final int MAX_ENTRIES = 2048;
+
+    private static final SpecsConverter SHARED = new SpecsConverter(MAX_ENTRIES);
+
+    // order matters, it's part of the cache key
+    private static final String[] CONFIGURATION_KEYS = {
+        Configuration.ENABLED_FOR_JOB,
+        Configuration.DOCKER_IMAGE,
+        Configuration.DOCKER_IMAGE_SIZE,
+        Configuration.DOCKER_EXTRA_CONTAINERS,
+        Configuration.DOCKER_AWS_ROLE,
+        Configuration.DOCKER_ARCHITECTURE,
+        Configuration.DOCKER_FEATURE_FLAGS
+    };
+
+    private final YamlConfigParser yamlParser = new YamlConfigParser();
+    private final Map<String, Configuration> configurations;
+    private final Map<String, String> extraContainersJson;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    SpecsConverter(int maxEntries) {
+        this.configurations = lruMap(maxEntries);
+        this.extraContainersJson = lruMap(maxEntries);
+    }
+
+    /**
+     * The instance shared by the job and environment exporters.
+     */
+    public static SpecsConverter shared() {
+        return SHARED;
+    }
+
+    /**
+     * Converts the stored job configuration into its specs entity.
+     */
+    @NotNull
+    public PerBuildContainerForJob toJobEntity(@NotNull Map<String, String> configuration) {
+        return toJobEntity(configurationFor(configuration));
+    }
+
+    /**
+     * Converts an already parsed configuration, eg. coming from YAML specs, into its specs entity.
+     * The discouraged string variant of architecture() is used on purpose, to support architectures
+     * not listed in the specs enum.
+     */
+    @NotNull
+    public PerBuildContainerForJob toJobEntity(@NotNull Configuration c) {
+        return new PerBuildContainerForJob()
+                .enabled(c.isEnabled())
+                .image(c.getDockerImage())
+                .size(c.getSize().name())
+                .awsRole(c.getAwsRole())
+                .architecture(c.getArchitecture())
+                .extraContainers(toExtraContainers(c))
+                .withFeatureFlags(c.getFeatureFlags());
+    }
+
+    /**
+     * Converts the stored deployment environment configuration into its specs entity.
+     */
+    @NotNull
+    public PerBuildContainerForEnvironment toEnvironmentEntity(@NotNull Map<String, String> configuration) {
+        return toEnvironmentEntity(configurationFor(configuration));
+    }
+
+    /**
+     * Converts an already parsed configuration, eg. coming from YAML specs, into its specs entity.
+     */
+    @NotNull
+    public PerBuildContainerForEnvironment toEnvironmentEntity(@NotNull Configuration c) {
+        return new PerBuildContainerForEnvironment()
+                .enabled(c.isEnabled())
+                .image(c.getDockerImage())
+                .size(c.getSize().name())
+                .awsRole(c.getAwsRole())
+                .architecture(c.getArchitecture())
+                .extraContainers(toExtraContainers(c))
+                .withFeatureFlags(c.getFeatureFlags());
+    }
+
+    /**
+     * Parses the YAML specs node, returns null when the node has no PBC definition.
+     */
+    @Nullable
+    public Configuration parseYaml(@NotNull Node node) {
+        return yamlParser.parse(node);
+    }
+
+    @Nullable
+    public Node toYaml(@NotNull Configuration configuration) {
+        return yamlParser.toYaml(configuration);
+    }
+
+    /**
+     * Convert list of ExtraContainerProperties definitions into a json string.
+     */
+    @NotNull
+    public String toJsonString(@NotNull List<ExtraContainerProperties> extraContainers) {
+        Hasher hasher = Hashing.sha256().newHasher();
+        hasher.putInt(extraContainers.size());
+        for (ExtraContainerProperties t : extraContainers) {
+            putString(hasher, t.getName());
+            putString(hasher, t.getImage());
+            putString(hasher, t.getSize());
+            putStrings(hasher, t.getCommands());
+            List<EnvProperties> envs = t.getEnvironments() != null ? t.getEnvironments() : Collections.emptyList();
+            hasher.putInt(envs.size());
+            for (EnvProperties e : envs) {
+                putString(hasher, e.getKey());
+                putString(hasher, e.getValue());
+            }
+        }
+        return lookup(extraContainersJson, hasher.hash().toString(), (String k) -> serialize(extraContainers));
+    }
+
+    long getHits() {
+        return hits.get();
+    }
+
+    long getMisses() {
+        return misses.get();
+    }
+
+    private Configuration configurationFor(Map<String, String> configuration) {
+        Hasher hasher = Hashing.sha256().newHasher();
+        for (String key : CONFIGURATION_KEYS) {
+            putString(hasher, configuration.get(key));
+        }
+        String key = hasher.hash().toString();
+        return lookup(configurations, key, (String k) -> AccessConfiguration.forMap(configuration));
+    }
+
+    private <T> T lookup(Map<String, T> cache, String key, Function<String, T> compute) {
+        synchronized (cache) {
+            T value = cache.get(key);
+            if (value != null) {
+                hits.incrementAndGet();
+                return value;
+            }
+        }
+        // computed outside of the lock, a concurrent miss on the same key just computes an equal value twice.
+        T value = compute.apply(key);
+        misses.incrementAndGet();
+        synchronized (cache) {
+            cache.put(key, value);
+        }
+        return value;
+    }
+
+    private static List<ExtraContainer> toExtraContainers(Configuration c) {
+        return c.getExtraContainers().stream()
+                .map((Configuration.ExtraContainer t) -> new ExtraContainer()
+                        .name(t.getName())
+                        .image(t.getImage())
+                        .size(t.getExtraSize().name())
+                        .commands(t.getCommands())
+                        .envVariables(t.getEnvVariables().stream()
+                                .map((Configuration.EnvVariable t2) -> new EnvVar(t2.getName(), t2.getValue()))
+                                .collect(Collectors.toList())))
+                .collect(Collectors.toList());
+    }
+
+    private static String serialize(List<ExtraContainerProperties> extraContainers) {
+        return ConfigurationPersistence.toJson(extraContainers.stream()
+                        .map((ExtraContainerProperties t) -> {
+                            Configuration.ExtraContainer ec = new Configuration.ExtraContainer(
+                                    t.getName(), t.getImage(), Configuration.ExtraContainerSize.valueOf(t.getSize()));
+                            ec.setCommands(t.getCommands());
+                            ec.setEnvVariables(t.getEnvironments().stream()
+                                    .map((EnvProperties e) -> new Configuration.EnvVariable(e.getKey(), e.getValue()))
+                                    .collect(Collectors.toList()));
+                            return ec;
+                        })
+                        .collect(Collectors.toList()))
+                .toString();
+    }
+
+    private static void putStrings(Hasher hasher, List<String> values) {
+        if (values == null) {
+            hasher.putInt(-1);
+            return;
+        }
+        hasher.putInt(values.size());
+        values.forEach((String t) -> putString(hasher, t));
+    }
+
+    // length prefixed so that adjacent values can't run into each other, null distinct from empty
+    private static void putString(Hasher hasher, String value) {
+        if (value == null) {
+            hasher.putInt(-1);
+        } else {
+            hasher.putInt(value.length());
+            hasher.putString(value, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static <T> Map<String, T> lruMap(int maxEntries) {
+        return new LinkedHashMap<String, T>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, T> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+}
@@ -16,7 +16,9 @@
 
 package com.atlassian.buildeng.isolated.docker.jmx;
 
+import com.atlassian.buildeng.isolated.docker.AgentsThrottled;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class AgentCounts implements AgentCountsMBean {
 
@@ -33,6 +35,8 @@ public class AgentCounts implements AgentCountsMBean {
     final AtomicLong throttled20Minutes = new AtomicLong(0);
     final AtomicLong throttled25Minutes = new AtomicLong(0);
     final AtomicLong throttled30Minutes = new AtomicLong(0);
+    final AtomicReference<long[]> throttledHistogram =
+            new AtomicReference<>(new long[AgentsThrottled.HISTOGRAM_MINUTES]);
 
     @Override
     public long getQueuedAgentsCount() {
@@ -98,4 +102,9 @@ public class AgentCounts implements AgentCountsMBean {
     public long getThrottledFor30MinutesGauge() {
         return throttled30Minutes.get();
     }
+
+    @Override
+    public long[] getThrottledDurationHistogram() {
+        return throttledHistogram.get().clone();
+    }
 }
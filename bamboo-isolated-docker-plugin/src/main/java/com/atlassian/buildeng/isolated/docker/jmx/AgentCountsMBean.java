@@ -43,4 +43,10 @@ public interface AgentCountsMBean {
     long getThrottledFor25MinutesGauge();
 
     long getThrottledFor30MinutesGauge();
+
+    /**
+     * Throttled agents by throttle duration, element {@code i} counts agents throttled for more than {@code i} and
+     * at most {@code i + 1} minutes, the last element is open ended.
+     */
+    long[] getThrottledDurationHistogram();
 }
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.isolated.docker.jmx;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of agent removals, latency is measured from the removal request to the agent being gone.
+ */
+public class AgentRemovalStats implements AgentRemovalStatsMBean {
+
+    private final AtomicLong requested = new AtomicLong(0);
+    private final AtomicLong deduplicated = new AtomicLong(0);
+    private final AtomicLong removed = new AtomicLong(0);
+    private final AtomicLong failed = new AtomicLong(0);
+    private final AtomicLong pending = new AtomicLong(0);
+    private final AtomicLong totalLatencyMillis = new AtomicLong(0);
+    private final AtomicLong maxLatencyMillis = new AtomicLong(0);
+
+    public void requested() {
+        requested.incrementAndGet();
+        pending.incrementAndGet();
+    }
+
+    public void deduplicated() {
+        deduplicated.incrementAndGet();
+    }
+
+    /**
+     * Record finished removal request.
+     *
+     * @param latencyMillis time since the removal was requested
+     * @param success false if the removal failed
+     */
+    public void finished(long latencyMillis, boolean success) {
+        pending.decrementAndGet();
+        (success ? removed : failed).incrementAndGet();
+        totalLatencyMillis.addAndGet(latencyMillis);
+        maxLatencyMillis.accumulateAndGet(latencyMillis, Math::max);
+    }
+
+    @Override
+    public long getRequested() {
+        return requested.get();
+    }
+
+    @Override
+    public long getDeduplicated() {
+        return deduplicated.get();
+    }
+
+    @Override
+    public long getRemoved() {
+        return removed.get();
+    }
+
+    @Override
+    public long getFailed() {
+        return failed.get();
+    }
+
+    @Override
+    public long getPending() {
+        return pending.get();
+    }
+
+    @Override
+    public long getTotalLatencyMillis() {
+        return totalLatencyMillis.get();
+    }
+
+    @Override
+    public long getMaxLatencyMillis() {
+        return maxLatencyMillis.get();
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.isolated.docker.jmx;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+
+/**
+ * Outcomes of future capacity reservations. A reservation is positive when made, it is true when the stage
+ * that triggered it succeeded and the reserved capacity was used by the next stage.
+ */
+public class ForecastAccuracy implements ForecastAccuracyMBean {
+
+    private final AtomicLong truePositives = new AtomicLong(0);
+    private final AtomicLong falsePositives = new AtomicLong(0);
+    private final AtomicLong trueNegatives = new AtomicLong(0);
+    private final AtomicLong falseNegatives = new AtomicLong(0);
+    private final AtomicLong durationForecasts = new AtomicLong(0);
+    private final AtomicLong totalDurationErrorMillis = new AtomicLong(0);
+    private final AtomicLong historyLoads = new AtomicLong(0);
+    private final IntSupplier cachedJobs;
+
+    public ForecastAccuracy(IntSupplier cachedJobs) {
+        this.cachedJobs = cachedJobs;
+    }
+
+    /**
+     * Record the outcome of a stage that had PBC jobs in the next stage.
+     *
+     * @param reserved true if capacity was reserved for the next stage
+     * @param successful true if the stage succeeded
+     */
+    public void outcome(boolean reserved, boolean successful) {
+        if (reserved) {
+            (successful ? truePositives : falsePositives).incrementAndGet();
+        } else {
+            (successful ? falseNegatives : trueNegatives).incrementAndGet();
+        }
+    }
+
+    public void durationError(long errorMillis) {
+        durationForecasts.incrementAndGet();
+        totalDurationErrorMillis.addAndGet(Math.abs(errorMillis));
+    }
+
+    public void historyLoaded() {
+        historyLoads.incrementAndGet();
+    }
+
+    @Override
+    public long getTruePositives() {
+        return truePositives.get();
+    }
+
+    @Override
+    public long getFalsePositives() {
+        return falsePositives.get();
+    }
+
+    @Override
+    public long getTrueNegatives() {
+        return trueNegatives.get();
+    }
+
+    @Override
+    public long getFalseNegatives() {
+        return falseNegatives.get();
+    }
+
+    @Override
+    public double getPrecision() {
+        long positives = truePositives.get() + falsePositives.get();
+        return positives == 0 ? 0 : (double) truePositives.get() / positives;
+    }
+
+    @Override
+    public double getAccuracy() {
+        long correct = truePositives.get() + trueNegatives.get();
+        long total = correct + falsePositives.get() + falseNegatives.get();
+        return total == 0 ? 0 : (double) correct / total;
+    }
+
+    @Override
+    public long getDurationForecasts() {
+        return durationForecasts.get();
+    }
+
+    @Override
+    public long getMeanDurationErrorMillis() {
+        long count = durationForecasts.get();
+        return count == 0 ? 0 : totalDurationErrorMillis.get() / count;
+    }
+
+    @Override
+    public long getHistoryLoads() {
+        return historyLoads.get();
+    }
+
+    @Override
+    public int getCachedJobs() {
+        return cachedJobs.getAsInt();
+    }
+}
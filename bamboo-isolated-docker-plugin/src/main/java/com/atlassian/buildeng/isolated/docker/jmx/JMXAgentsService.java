@@ -17,10 +17,14 @@
 package com.atlassian.buildeng.isolated.docker.jmx;
 
 import com.atlassian.buildeng.isolated.docker.AgentsThrottled;
+import com.atlassian.buildeng.spi.isolated.docker.metrics.Counter;
+import com.atlassian.buildeng.spi.isolated.docker.metrics.JmxExporter;
+import com.atlassian.buildeng.spi.isolated.docker.metrics.MetricsRegistry;
 import com.atlassian.plugin.spring.scanner.annotation.component.BambooComponent;
 import com.atlassian.plugin.spring.scanner.annotation.export.ExportAsService;
 import com.atlassian.sal.api.lifecycle.LifecycleAware;
 import java.lang.management.ManagementFactory;
+import javax.inject.Inject;
 import javax.management.InstanceAlreadyExistsException;
 import javax.management.InstanceNotFoundException;
 import javax.management.MBeanRegistrationException;
@@ -36,9 +40,38 @@ import org.slf4j.LoggerFactory;
 public class JMXAgentsService implements LifecycleAware {
     private static final Logger logger = LoggerFactory.getLogger(JMXAgentsService.class);
 
+    /**
+     * JMX domain of the metrics of the shared {@link MetricsRegistry}.
+     */
+    public static final String METRICS_DOMAIN = "com.atlassian.buildeng.pbc";
+
     private final AgentCounts agentsCount = new AgentCounts();
+    private final MetricsRegistry metrics;
+    private final JmxExporter metricsExporter;
+    private final Counter queued;
+    private final Counter cancelled;
+    private final Counter timedOut;
+    private final Counter failed;
+    private final Counter scheduled;
+    private final Counter active;
     private ObjectName name;
 
+    @Inject
+    public JMXAgentsService() {
+        this(MetricsRegistry.global());
+    }
+
+    JMXAgentsService(MetricsRegistry metrics) {
+        this.metrics = metrics;
+        this.metricsExporter = new JmxExporter(metrics, METRICS_DOMAIN);
+        queued = metrics.counter("pbc_agents_total", "state", "queued");
+        cancelled = metrics.counter("pbc_agents_total", "state", "cancelled");
+        timedOut = metrics.counter("pbc_agents_total", "state", "timed_out");
+        failed = metrics.counter("pbc_agents_total", "state", "failed");
+        scheduled = metrics.counter("pbc_agents_total", "state", "scheduled");
+        active = metrics.counter("pbc_agents_total", "state", "active");
+    }
+
     @Override
     public void onStop() {
         MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
@@ -47,6 +80,7 @@ public class JMXAgentsService implements LifecycleAware {
         } catch (InstanceNotFoundException | MBeanRegistrationException e) {
             logger.error("Failed to unregister mbean {}: {}", name, e.getMessage());
         }
+        metricsExporter.stop();
     }
 
     @Override
@@ -62,30 +96,44 @@ public class JMXAgentsService implements LifecycleAware {
                 | NotCompliantMBeanException e) {
             logger.error("Failed to register mbean {}: {}", name, e.getMessage());
         }
+        metrics.gauge("pbc_agents_throttled", agentsCount.throttledTotal::get);
+        metrics.gauge("pbc_agents_throttled_longer_than", agentsCount.throttled5Minutes::get, "minutes", "5");
+        metrics.gauge("pbc_agents_throttled_longer_than", agentsCount.throttled10Minutes::get, "minutes", "10");
+        metrics.gauge("pbc_agents_throttled_longer_than", agentsCount.throttled15Minutes::get, "minutes", "15");
+        metrics.gauge("pbc_agents_throttled_longer_than", agentsCount.throttled20Minutes::get, "minutes", "20");
+        metrics.gauge("pbc_agents_throttled_longer_than", agentsCount.throttled25Minutes::get, "minutes", "25");
+        metrics.gauge("pbc_agents_throttled_longer_than", agentsCount.throttled30Minutes::get, "minutes", "30");
+        metricsExporter.start();
     }
 
     public void incrementQueued() {
         agentsCount.queued.incrementAndGet();
+        queued.increment();
     }
 
     public void incrementCancelled() {
         agentsCount.cancelled.incrementAndGet();
+        cancelled.increment();
     }
 
     public void incrementTimedOut() {
         agentsCount.timedOut.incrementAndGet();
+        timedOut.increment();
     }
 
     public void incrementFailed() {
         agentsCount.failed.incrementAndGet();
+        failed.increment();
     }
 
     public void incrementScheduled() {
         agentsCount.scheduled.incrementAndGet();
+        scheduled.increment();
     }
 
     public void incrementActive() {
         agentsCount.active.incrementAndGet();
+        active.increment();
     }
 
     /**
@@ -94,12 +142,14 @@ public class JMXAgentsService implements LifecycleAware {
      * @param agentsThrottled class holding information relating to throttled agents
      */
     public void recalculateThrottle(AgentsThrottled agentsThrottled) {
+        AgentsThrottled.Histogram histogram = agentsThrottled.getHistogram();
         agentsCount.throttledTotal.set(agentsThrottled.getTotalAgentsThrottled());
-        agentsCount.throttled5Minutes.set(agentsThrottled.numAgentsThrottledLongerThanMinutes(5));
-        agentsCount.throttled10Minutes.set(agentsThrottled.numAgentsThrottledLongerThanMinutes(10));
-        agentsCount.throttled15Minutes.set(agentsThrottled.numAgentsThrottledLongerThanMinutes(15));
-        agentsCount.throttled20Minutes.set(agentsThrottled.numAgentsThrottledLongerThanMinutes(20));
-        agentsCount.throttled25Minutes.set(agentsThrottled.numAgentsThrottledLongerThanMinutes(25));
-        agentsCount.throttled30Minutes.set(agentsThrottled.numAgentsThrottledLongerThanMinutes(30));
+        agentsCount.throttled5Minutes.set(histogram.longerThanMinutes(5));
+        agentsCount.throttled10Minutes.set(histogram.longerThanMinutes(10));
+        agentsCount.throttled15Minutes.set(histogram.longerThanMinutes(15));
+        agentsCount.throttled20Minutes.set(histogram.longerThanMinutes(20));
+        agentsCount.throttled25Minutes.set(histogram.longerThanMinutes(25));
+        agentsCount.throttled30Minutes.set(histogram.longerThanMinutes(30));
+        agentsCount.throttledHistogram.set(histogram.getBuckets());
     }
 }
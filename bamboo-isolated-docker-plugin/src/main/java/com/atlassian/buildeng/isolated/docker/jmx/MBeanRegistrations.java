@@ -0,0 +1,72 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.isolated.docker.jmx;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.MBeanRegistrationException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.NotCompliantMBeanException;
+import javax.management.ObjectName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * MBeans a component registered on the platform MBean server, unregistered together when the component stops.
+ * Failures are logged, monitoring must not prevent the plugin from starting.
+ */
+public class MBeanRegistrations {
+    private static final Logger logger = LoggerFactory.getLogger(MBeanRegistrations.class);
+
+    private final List<ObjectName> names = new ArrayList<>();
+
+    /**
+     * Register the MBean under the given object name.
+     *
+     * @param mbean the MBean
+     * @param name object name, eg. com.atlassian.buildeng.isolated.docker:type=AgentCounts
+     */
+    public synchronized void register(Object mbean, String name) {
+        MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName objectName = new ObjectName(name);
+            mbs.registerMBean(mbean, objectName);
+            names.add(objectName);
+        } catch (MalformedObjectNameException
+                | InstanceAlreadyExistsException
+                | MBeanRegistrationException
+                | NotCompliantMBeanException e) {
+            logger.error("Failed to register mbean {}: {}", name, e.getMessage());
+        }
+    }
+
+    public synchronized void unregisterAll() {
+        MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : names) {
+            try {
+                mbs.unregisterMBean(name);
+            } catch (InstanceNotFoundException | MBeanRegistrationException e) {
+                logger.error("Failed to unregister mbean {}: {}", name, e.getMessage());
+            }
+        }
+        names.clear();
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.isolated.docker.jmx;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of durations of a single agent startup phase.
+ * The last bucket counts all durations longer than the last upper bound.
+ */
+public class PhaseDurations implements PhaseDurationsMBean {
+
+    static final long[] BUCKET_UPPER_BOUNDS_MILLIS = {
+        1_000, 5_000, 10_000, 30_000, 60_000, 120_000, 300_000, 600_000, 1_200_000
+    };
+
+    private final AtomicLong count = new AtomicLong(0);
+    private final AtomicLong totalMillis = new AtomicLong(0);
+    private final AtomicLong maxMillis = new AtomicLong(0);
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_UPPER_BOUNDS_MILLIS.length + 1);
+
+    /**
+     * Record single phase duration.
+     *
+     * @param millis duration in milliseconds
+     */
+    public void record(long millis) {
+        count.incrementAndGet();
+        totalMillis.addAndGet(millis);
+        maxMillis.accumulateAndGet(millis, Math::max);
+        int index = 0;
+        while (index < BUCKET_UPPER_BOUNDS_MILLIS.length && millis > BUCKET_UPPER_BOUNDS_MILLIS[index]) {
+            index++;
+        }
+        buckets.incrementAndGet(index);
+    }
+
+    @Override
+    public long getCount() {
+        return count.get();
+    }
+
+    @Override
+    public long getTotalMillis() {
+        return totalMillis.get();
+    }
+
+    @Override
+    public long getMaxMillis() {
+        return maxMillis.get();
+    }
+
+    @Override
+    public long[] getBucketUpperBoundsMillis() {
+        return BUCKET_UPPER_BOUNDS_MILLIS.clone();
+    }
+
+    @Override
+    public long[] getBucketCounts() {
+        long[] toRet = new long[buckets.length()];
+        for (int i = 0; i < toRet.length; i++) {
+            toRet[i] = buckets.get(i);
+        }
+        return toRet;
+    }
+}
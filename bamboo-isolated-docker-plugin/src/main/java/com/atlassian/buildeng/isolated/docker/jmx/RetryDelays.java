@@ -0,0 +1,72 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.isolated.docker.jmx;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of retry delays chosen for a single retry reason.
+ * The last bucket counts all delays longer than the last upper bound.
+ */
+public class RetryDelays implements RetryDelaysMBean {
+
+    static final long[] BUCKET_UPPER_BOUNDS_SECONDS = {5, 10, 20, 40, 80, 160, 300};
+
+    private final AtomicLong count = new AtomicLong(0);
+    private final AtomicLong totalDelaySeconds = new AtomicLong(0);
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_UPPER_BOUNDS_SECONDS.length + 1);
+
+    /**
+     * Record a single scheduled retry.
+     *
+     * @param delaySeconds delay the retry was scheduled with
+     */
+    public void record(long delaySeconds) {
+        count.incrementAndGet();
+        totalDelaySeconds.addAndGet(delaySeconds);
+        int index = 0;
+        while (index < BUCKET_UPPER_BOUNDS_SECONDS.length && delaySeconds > BUCKET_UPPER_BOUNDS_SECONDS[index]) {
+            index++;
+        }
+        buckets.incrementAndGet(index);
+    }
+
+    @Override
+    public long getRetryCount() {
+        return count.get();
+    }
+
+    @Override
+    public long getTotalDelaySeconds() {
+        return totalDelaySeconds.get();
+    }
+
+    @Override
+    public long[] getDelayBucketUpperBoundsSeconds() {
+        return BUCKET_UPPER_BOUNDS_SECONDS.clone();
+    }
+
+    @Override
+    public long[] getDelayBucketCounts() {
+        long[] toRet = new long[buckets.length()];
+        for (int i = 0; i < toRet.length; i++) {
+            toRet[i] = buckets.get(i);
+        }
+        return toRet;
+    }
+}
@@ -25,6 +25,7 @@ import com.atlassian.bamboo.v2.build.agent.capability.RequirementSetImpl;
 import com.atlassian.bamboo.v2.build.events.AgentOfflineEvent;
 import com.atlassian.buildeng.isolated.docker.AgentQueries;
 import com.atlassian.buildeng.isolated.docker.AgentRemovals;
+import com.atlassian.buildeng.isolated.docker.AgentStartupJournal;
 import com.atlassian.buildeng.isolated.docker.Constants;
 import com.atlassian.event.api.EventListener;
 import java.util.Collection;
@@ -42,13 +43,18 @@ public class BuildCancelledEventListener {
     private final AgentRemovals agentRemovals;
     private final AgentManager agentManager;
     private final ExecutableAgentsHelper executableAgentsHelper;
+    private final AgentStartupJournal journal;
 
     @Inject
     public BuildCancelledEventListener(
-            AgentRemovals agentRemovals, AgentManager agentManager, ExecutableAgentsHelper executableAgentsHelper) {
+            AgentRemovals agentRemovals,
+            AgentManager agentManager,
+            ExecutableAgentsHelper executableAgentsHelper,
+            AgentStartupJournal journal) {
         this.agentRemovals = agentRemovals;
         this.agentManager = agentManager;
         this.executableAgentsHelper = executableAgentsHelper;
+        this.journal = journal;
     }
 
     /**
@@ -56,6 +62,10 @@ public class BuildCancelledEventListener {
      */
     @EventListener
     public void onCancelledBuild(BuildCanceledEvent event) {
+        if (event.getPlanResultKey() != null) {
+            // the agent might never register, don't keep its startup open until the next restart.
+            journal.closeAll(event.getPlanResultKey().getKey());
+        }
         Long agentId = event.getAgentId();
         if (agentId != null) {
             BuildAgent agent = agentManager.getAgent(agentId);
@@ -90,6 +100,7 @@ public class BuildCancelledEventListener {
         // that we want to keep. sort of ugly sorting criteria but there are little ways of
         // adding custom data to agents at runtime.
         if (AgentQueries.isEnabledDockerAgent(event.getBuildAgent())) {
+            // asynchronous, repeated offline events of the agent are dropped while its removal is pending.
             agentRemovals.removeAgent(event.getBuildAgent());
         }
     }
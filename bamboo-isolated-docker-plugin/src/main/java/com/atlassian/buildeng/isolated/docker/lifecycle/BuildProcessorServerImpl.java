@@ -18,11 +18,8 @@ package com.atlassian.buildeng.isolated.docker.lifecycle;
 
 import com.atlassian.bamboo.build.BuildExecutionManager;
 import com.atlassian.bamboo.build.CustomBuildProcessorServer;
-import com.atlassian.bamboo.specs.api.builders.pbc.EnvVar;
-import com.atlassian.bamboo.specs.api.builders.pbc.ExtraContainer;
 import com.atlassian.bamboo.specs.api.builders.pbc.PerBuildContainerForJob;
 import com.atlassian.bamboo.specs.api.exceptions.PropertiesValidationException;
-import com.atlassian.bamboo.specs.api.model.pbc.EnvProperties;
 import com.atlassian.bamboo.specs.api.model.pbc.ExtraContainerProperties;
 import com.atlassian.bamboo.specs.api.model.pbc.PerBuildContainerForJobProperties;
 import com.atlassian.bamboo.specs.api.validators.common.ValidationProblem;
@@ -39,7 +36,7 @@ import com.atlassian.buildeng.isolated.docker.AgentRemovals;
 import com.atlassian.buildeng.isolated.docker.Constants;
 import com.atlassian.buildeng.isolated.docker.Validator;
 import com.atlassian.buildeng.isolated.docker.handler.CustomEnvironmentConfigExporterImpl;
-import com.atlassian.buildeng.isolated.docker.yaml.YamlConfigParser;
+import com.atlassian.buildeng.isolated.docker.handler.SpecsConverter;
 import com.atlassian.buildeng.spi.isolated.docker.AccessConfiguration;
 import com.atlassian.buildeng.spi.isolated.docker.Configuration;
 import com.atlassian.buildeng.spi.isolated.docker.ConfigurationBuilder;
@@ -50,7 +47,6 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.function.Function;
 import java.util.stream.Collectors;
 import javax.inject.Inject;
 import org.apache.commons.configuration.HierarchicalConfiguration;
@@ -108,6 +104,7 @@ public class BuildProcessorServerImpl extends BaseConfigurablePlugin
             }
             if (building != null && agentId != null) {
                 agentRemovals.stopAgentRemotely(agentId);
+                // the agent is told to stop right away, its removal from the server runs asynchronously.
                 agentRemovals.removeAgent(agentId);
                 LOG.info(
                         "Build result {} not shutting down normally, killing agent {} explicitly.",
@@ -173,32 +170,7 @@ public class BuildProcessorServerImpl extends BaseConfigurablePlugin
         if (featureFlags != null) {
             cc.put(Configuration.DOCKER_FEATURE_FLAGS, featureFlags);
         }
-        Configuration c = AccessConfiguration.forMap(cc);
-        return new PerBuildContainerForJob()
-                .enabled(c.isEnabled())
-                .image(c.getDockerImage())
-                .size(c.getSize().name())
-                .awsRole(c.getAwsRole())
-                .architecture(c.getArchitecture())
-                .extraContainers(c.getExtraContainers().stream()
-                        .map(getExtraContainerExtraContainerFunction())
-                        .collect(Collectors.toList()))
-                .withFeatureFlags(c.getFeatureFlags());
-    }
-
-    /**
-     * Converter for extra container.
-     */
-    @NotNull
-    public static Function<Configuration.ExtraContainer, ExtraContainer> getExtraContainerExtraContainerFunction() {
-        return (Configuration.ExtraContainer t) -> new ExtraContainer()
-                .name(t.getName())
-                .image(t.getImage())
-                .size(t.getExtraSize().name())
-                .commands(t.getCommands())
-                .envVariables(t.getEnvVariables().stream()
-                        .map((Configuration.EnvVariable t2) -> new EnvVar(t2.getName(), t2.getValue()))
-                        .collect(Collectors.toList()));
+        return SpecsConverter.shared().toJobEntity(cc);
     }
 
     @Override
@@ -246,47 +218,21 @@ public class BuildProcessorServerImpl extends BaseConfigurablePlugin
     @Nullable
     @Override
     public PerBuildContainerForJob fromYaml(@NotNull Node node) {
-        YamlConfigParser parser = new YamlConfigParser();
-        Configuration config = parser.parse(node);
-        if (config == null) {
-            return null;
-        } else {
-            return new PerBuildContainerForJob()
-                    .enabled(config.isEnabled())
-                    .image(config.getDockerImage())
-                    .size(config.getSize().name())
-                    .awsRole(config.getAwsRole())
-                    .architecture(config.getArchitecture())
-                    .extraContainers(config.getExtraContainers().stream()
-                            .map(BuildProcessorServerImpl.getExtraContainerExtraContainerFunction())
-                            .collect(Collectors.toList()))
-                    .withFeatureFlags(config.getFeatureFlags());
-        }
+        Configuration config = SpecsConverter.shared().parseYaml(node);
+        return config == null ? null : SpecsConverter.shared().toJobEntity(config);
     }
 
     @Nullable
     @Override
     public Node toYaml(@NotNull PerBuildContainerForJobProperties specsProperties) {
-        final YamlConfigParser parser = new YamlConfigParser();
-        return parser.toYaml(toConfig(specsProperties));
+        return SpecsConverter.shared().toYaml(toConfig(specsProperties));
     }
 
     /**
      * Convert list of ExtraContainerProperties definitions into a json string.
      */
     public static String toJsonString(List<ExtraContainerProperties> extraContainers) {
-        return ConfigurationPersistence.toJson(extraContainers.stream()
-                        .map((ExtraContainerProperties t) -> {
-                            Configuration.ExtraContainer ec = new Configuration.ExtraContainer(
-                                    t.getName(), t.getImage(), Configuration.ExtraContainerSize.valueOf(t.getSize()));
-                            ec.setCommands(t.getCommands());
-                            ec.setEnvVariables(t.getEnvironments().stream()
-                                    .map((EnvProperties e) -> new Configuration.EnvVariable(e.getKey(), e.getValue()))
-                                    .collect(Collectors.toList()));
-                            return ec;
-                        })
-                        .collect(Collectors.toList()))
-                .toString();
+        return SpecsConverter.shared().toJsonString(extraContainers);
     }
 
     public static String toJsonString(HashSet<String> featureFlags) {
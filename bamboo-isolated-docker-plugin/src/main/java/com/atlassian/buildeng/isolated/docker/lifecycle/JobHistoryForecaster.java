@@ -0,0 +1,215 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.isolated.docker.lifecycle;
+
+import com.atlassian.bamboo.builder.BuildState;
+import com.atlassian.bamboo.plan.PlanKey;
+import com.atlassian.bamboo.plan.cache.ImmutablePlan;
+import com.atlassian.bamboo.resultsummary.ResultsSummary;
+import com.atlassian.bamboo.resultsummary.ResultsSummaryCriteria;
+import com.atlassian.bamboo.resultsummary.ResultsSummaryManager;
+import com.atlassian.buildeng.isolated.docker.DateTime;
+import com.atlassian.buildeng.isolated.docker.jmx.ForecastAccuracy;
+import com.atlassian.buildeng.isolated.docker.jmx.MBeanRegistrations;
+import com.atlassian.plugin.spring.scanner.annotation.component.BambooComponent;
+import com.atlassian.plugin.spring.scanner.annotation.export.ExportAsService;
+import com.atlassian.sal.api.lifecycle.LifecycleAware;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Inject;
+
+/**
+ * Rolling history of the last {@link #HISTORY_SIZE} results of each job, used to decide whether
+ * capacity for the next stage should be reserved. The history of a job is loaded from the database
+ * the first time the job is forecasted and then updated as stages finish
+ * (see {@link ReserveFutureCapacityPostStageAction}), it is reloaded once a day to pick up results
+ * that finished outside of stage execution. At most {@link #MAX_JOBS} histories are kept, jobs not forecasted for
+ * {@link #RELOAD_INTERVAL_MILLIS} are dropped.
+ * Forecast accuracy is exported via JMX as com.atlassian.buildeng.isolated.docker:type=FutureReservations.
+ */
+@BambooComponent
+@ExportAsService({JobHistoryForecaster.class, LifecycleAware.class})
+public class JobHistoryForecaster implements LifecycleAware {
+    static final int HISTORY_SIZE = 10;
+    static final long RELOAD_INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(24);
+    static final int MAX_JOBS = 5000;
+
+    private final ResultsSummaryManager resultsSummaryManager;
+    private final DateTime dateTime;
+    private final Cache<String, JobHistory> histories = CacheBuilder.newBuilder()
+            .maximumSize(MAX_JOBS)
+            .expireAfterAccess(RELOAD_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)
+            .build();
+    private final ForecastAccuracy accuracy = new ForecastAccuracy(histories.asMap()::size);
+    private final MBeanRegistrations mbeans = new MBeanRegistrations();
+
+    @Inject
+    public JobHistoryForecaster(ResultsSummaryManager resultsSummaryManager, DateTime dateTime) {
+        this.resultsSummaryManager = resultsSummaryManager;
+        this.dateTime = dateTime;
+    }
+
+    /**
+     * Statistics of the recent results of the job. When the job is a branch with less than
+     * {@link #HISTORY_SIZE} results, the most recent results of its master plan fill the rest.
+     */
+    public Stats forecast(ImmutablePlan job) {
+        List<Outcome> outcomes = new ArrayList<>(history(job.getPlanKey()).snapshot());
+        if (outcomes.size() < HISTORY_SIZE && job.getMaster() != null) {
+            List<Outcome> master = history(job.getMaster().getPlanKey()).snapshot();
+            outcomes.addAll(master.subList(0, Math.min(master.size(), HISTORY_SIZE - outcomes.size())));
+        }
+        return Stats.of(outcomes);
+    }
+
+    /**
+     * Record a finished job result. Jobs that were never forecasted are ignored, their history
+     * is loaded including this result when first needed.
+     */
+    public void recordResult(PlanKey job, BuildState state, long duration) {
+        JobHistory history = histories.getIfPresent(job.getKey());
+        if (history != null) {
+            history.add(new Outcome(BuildState.SUCCESS.equals(state), duration));
+        }
+    }
+
+    public ForecastAccuracy getAccuracy() {
+        return accuracy;
+    }
+
+    private JobHistory history(PlanKey job) {
+        long now = dateTime.getCurrentTime();
+        JobHistory existing = histories.getIfPresent(job.getKey());
+        if (existing != null && now - existing.loaded < RELOAD_INTERVAL_MILLIS) {
+            return existing;
+        }
+        // the database is queried without holding any lock, when another thread loaded the history meanwhile
+        // its copy is kept as results may have been recorded into it already.
+        JobHistory loaded = load(job.getKey(), now);
+        return histories
+                .asMap()
+                .merge(job.getKey(), loaded, (JobHistory current, JobHistory fresh) ->
+                        now - current.loaded < RELOAD_INTERVAL_MILLIS ? current : fresh);
+    }
+
+    private JobHistory load(String key, long now) {
+        ResultsSummaryCriteria criteria = new ResultsSummaryCriteria(key);
+        criteria.setMaxRowCount(HISTORY_SIZE);
+        List<Outcome> outcomes = new ArrayList<>();
+        for (ResultsSummary summary : resultsSummaryManager.getResultSummaries(criteria)) {
+            outcomes.add(new Outcome(BuildState.SUCCESS.equals(summary.getBuildState()), summary.getDuration()));
+        }
+        accuracy.historyLoaded();
+        return new JobHistory(outcomes, now);
+    }
+
+    @Override
+    public void onStart() {
+        mbeans.register(accuracy, "com.atlassian.buildeng.isolated.docker:type=FutureReservations");
+    }
+
+    @Override
+    public void onStop() {
+        mbeans.unregisterAll();
+    }
+
+    static final class Outcome {
+        final boolean successful;
+        final long duration;
+
+        Outcome(boolean successful, long duration) {
+            this.successful = successful;
+            this.duration = duration;
+        }
+    }
+
+    /**
+     * Most recent results first. The initial load may hold more than {@link #HISTORY_SIZE} results,
+     * new results push the oldest out until it is back to that size.
+     */
+    private static final class JobHistory {
+        private final Deque<Outcome> outcomes;
+        private final long loaded;
+
+        JobHistory(List<Outcome> outcomes, long loaded) {
+            this.outcomes = new ArrayDeque<>(outcomes);
+            this.loaded = loaded;
+        }
+
+        synchronized void add(Outcome outcome) {
+            outcomes.addFirst(outcome);
+            while (outcomes.size() > HISTORY_SIZE) {
+                outcomes.removeLast();
+            }
+        }
+
+        synchronized List<Outcome> snapshot() {
+            return new ArrayList<>(outcomes);
+        }
+    }
+
+    public static final class Stats {
+        final int count;
+        final int successPercentage;
+        final long avgDuration;
+
+        Stats(int count, int successPerc, long avgDuration) {
+            this.count = count;
+            this.successPercentage = successPerc;
+            this.avgDuration = avgDuration;
+        }
+
+        static Stats of(List<Outcome> outcomes) {
+            int count = outcomes.size();
+            long sum = 0;
+            int succCount = 0;
+            for (Outcome outcome : outcomes) {
+                if (outcome.successful) {
+                    succCount = succCount + 1;
+                    sum = sum + outcome.duration;
+                }
+            }
+            return new Stats(count, count != 0 ? (succCount * 100) / count : 0, succCount != 0 ? sum / succCount : 0);
+        }
+
+        /**
+         * Stats of a stage are bound by its worst job, the minimum count and success rate and the maximum duration.
+         */
+        Stats combine(Stats other) {
+            return new Stats(
+                    Math.min(count, other.count),
+                    Math.min(successPercentage, other.successPercentage),
+                    Math.max(avgDuration, other.avgDuration));
+        }
+
+        @Override
+        public String toString() {
+            return "Stats{" + "count="
+                    + count
+                    + ", successPercentage="
+                    + successPercentage
+                    + ", avgDuration="
+                    + avgDuration
+                    + '}';
+        }
+    }
+}
@@ -28,6 +28,7 @@ import com.atlassian.bamboo.v2.build.BuildKey;
 import com.atlassian.bamboo.v2.build.agent.BuildAgent;
 import com.atlassian.buildeng.isolated.docker.AgentQueries;
 import com.atlassian.buildeng.isolated.docker.AgentRemovals;
+import com.atlassian.buildeng.isolated.docker.AgentStartupJournal;
 import com.atlassian.buildeng.isolated.docker.Constants;
 import com.atlassian.buildeng.isolated.docker.GlobalConfiguration;
 import com.atlassian.buildeng.spi.isolated.docker.AccessConfiguration;
@@ -51,17 +52,20 @@ public class PostJobActionImpl implements PostJobAction {
     private final AgentManager agentManager;
     private final IsolatedAgentService isoService;
     private final GlobalConfiguration globalConfiguration;
+    private final AgentStartupJournal journal;
 
     @Inject
     private PostJobActionImpl(
             AgentRemovals agentRemovals,
             AgentManager agentManager,
             IsolatedAgentService isoService,
-            GlobalConfiguration globalConfiguration) {
+            GlobalConfiguration globalConfiguration,
+            AgentStartupJournal journal) {
         this.agentRemovals = agentRemovals;
         this.agentManager = agentManager;
         this.isoService = isoService;
         this.globalConfiguration = globalConfiguration;
+        this.journal = journal;
     }
 
     @Override
@@ -97,6 +101,8 @@ public class PostJobActionImpl implements PostJobAction {
         }
         Configuration config = AccessConfiguration.forBuildResultSummary(buildResultsSummary);
         if (config.isEnabled()) {
+            // also closes startups of jobs stopped or killed before their agent registered.
+            journal.closeAll(buildResultsSummary.getPlanResultKey().getKey());
             String properStopped = buildResultsSummary.getCustomBuildData().get(Constants.RESULT_AGENT_KILLED_ITSELF);
             // only remove the agent when the agent was stopped from inside by StopDockerAgentBuildProcessor.
             // Make sure to wait the same amount of time that the stopNicely is delayed by in
@@ -112,6 +118,7 @@ public class PostJobActionImpl implements PostJobAction {
                                     } catch (InterruptedException e) {
                                         LOG.error("Error while waiting for build to complete", e);
                                     }
+                                    // only schedules the removal, this thread just delays it.
                                     agentRemovals.removeAgent(agent);
                                 }
                             })
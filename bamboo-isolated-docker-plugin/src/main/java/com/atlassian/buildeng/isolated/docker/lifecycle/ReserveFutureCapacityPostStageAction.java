@@ -16,13 +16,16 @@
 
 package com.atlassian.buildeng.isolated.docker.lifecycle;
 
+import com.atlassian.bamboo.builder.BuildState;
 import com.atlassian.bamboo.chains.BuildExecution;
 import com.atlassian.bamboo.chains.ChainResultsSummary;
 import com.atlassian.bamboo.chains.ChainStageResult;
 import com.atlassian.bamboo.chains.StageExecution;
 import com.atlassian.bamboo.chains.plugins.PostStageAction;
+import com.atlassian.bamboo.resultsummary.BuildResultsSummary;
 import com.atlassian.bamboo.v2.build.BuildContext;
 import com.atlassian.bamboo.v2.build.CurrentBuildResult;
+import javax.inject.Inject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -30,8 +33,14 @@ public class ReserveFutureCapacityPostStageAction implements PostStageAction {
     private static final Logger logger = LoggerFactory.getLogger(ReserveFutureCapacityPostStageAction.class);
 
     private static final String FUTURE_RESERVE_STATE = "pbc.futureState";
+    private static final String FUTURE_RESERVE_DURATION = "pbc.futureDuration";
 
-    public ReserveFutureCapacityPostStageAction() {}
+    private final JobHistoryForecaster forecaster;
+
+    @Inject
+    public ReserveFutureCapacityPostStageAction(JobHistoryForecaster forecaster) {
+        this.forecaster = forecaster;
+    }
 
     @Override
     public void execute(
@@ -40,6 +49,20 @@ public class ReserveFutureCapacityPostStageAction implements PostStageAction {
         // cleanup future reservations in case of failure.
         FutureState state = retrieveFutureState(stageExecution);
         boolean successful = chainStageResult.isSuccessful();
+        long slowestSuccessful = -1;
+        for (BuildResultsSummary result : chainStageResult.getBuildResults()) {
+            forecaster.recordResult(result.getPlanKey(), result.getBuildState(), result.getDuration());
+            if (BuildState.SUCCESS.equals(result.getBuildState())) {
+                slowestSuccessful = Math.max(slowestSuccessful, result.getDuration());
+            }
+        }
+        if (state != FutureState.NOT_APPLICABLE) {
+            forecaster.getAccuracy().outcome(state == FutureState.RESERVED, successful);
+        }
+        Long forecastDuration = retrieveForecastDuration(stageExecution);
+        if (successful && forecastDuration != null && slowestSuccessful >= 0) {
+            forecaster.getAccuracy().durationError(slowestSuccessful - forecastDuration);
+        }
         switch (state) {
             case RESERVED:
                 if (successful) {
@@ -83,6 +106,26 @@ public class ReserveFutureCapacityPostStageAction implements PostStageAction {
                 });
     }
 
+    static void storeForecastDuration(StageExecution stageExecution, long duration) {
+        stageExecution.getBuilds().stream()
+                .map(BuildExecution::getBuildContext)
+                .map(BuildContext::getBuildResult)
+                .forEach((CurrentBuildResult t) -> {
+                    t.getCustomBuildData().put(FUTURE_RESERVE_DURATION, Long.toString(duration));
+                });
+    }
+
+    static Long retrieveForecastDuration(StageExecution stageExecution) {
+        return stageExecution.getBuilds().stream()
+                .map(BuildExecution::getBuildContext)
+                .map(BuildContext::getBuildResult)
+                .map((CurrentBuildResult t) -> t.getCustomBuildData().get(FUTURE_RESERVE_DURATION))
+                .filter((String t) -> t != null)
+                .map(Long::valueOf)
+                .findFirst()
+                .orElse(null);
+    }
+
     static FutureState retrieveFutureState(StageExecution stageExecution) {
         return stageExecution.getBuilds().stream()
                 .map(BuildExecution::getBuildContext)
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.isolated.docker.reaper;
+
+import com.atlassian.bamboo.buildqueue.PipelineDefinition;
+import com.atlassian.bamboo.event.agent.AgentRegisteredEvent;
+import com.atlassian.bamboo.v2.build.agent.BuildAgent;
+import com.atlassian.bamboo.v2.build.events.AgentOfflineEvent;
+import com.atlassian.buildeng.isolated.docker.AgentQueries;
+import com.atlassian.event.api.EventListener;
+import java.util.Date;
+import javax.inject.Inject;
+
+/**
+ * Feeds agent lifecycle events to {@link IdleAgentTracker}.
+ * Newly registered PBC agents become due once they cross the reaper threshold,
+ * agents going offline are due immediately.
+ */
+public class AgentLifecycleListener {
+    private final IdleAgentTracker tracker;
+
+    @Inject
+    public AgentLifecycleListener(IdleAgentTracker tracker) {
+        this.tracker = tracker;
+    }
+
+    @EventListener
+    public void agentRegistered(AgentRegisteredEvent event) {
+        PipelineDefinition definition = event.getAgent();
+        if (AgentQueries.isDockerAgent(definition)) {
+            Date creation = definition.getCreationDate();
+            long created = creation != null ? creation.getTime() : System.currentTimeMillis();
+            tracker.track(definition.getId(), created + Reaper.REAPER_THRESHOLD_MILLIS);
+        }
+    }
+
+    @EventListener
+    public void agentOffline(AgentOfflineEvent event) {
+        BuildAgent agent = event.getBuildAgent();
+        if (AgentQueries.isDockerAgent(agent)) {
+            tracker.track(agent.getId(), System.currentTimeMillis());
+        }
+    }
+}
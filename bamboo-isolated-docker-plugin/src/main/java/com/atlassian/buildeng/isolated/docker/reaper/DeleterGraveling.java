@@ -60,6 +60,7 @@ public class DeleterGraveling implements BuildAgentVisitor {
             @Override
             public void visitRemote(RemoteAgentDefinition pipelineDefinition) {
                 agentRemovals.stopAgentRemotely(buildAgent);
+                // the reaper doesn't wait for the removal, one still pending on its next run is not scheduled again.
                 agentRemovals.removeAgent(buildAgent);
             }
 
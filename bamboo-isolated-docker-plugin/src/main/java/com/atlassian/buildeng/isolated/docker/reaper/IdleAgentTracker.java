@@ -0,0 +1,126 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.isolated.docker.reaper;
+
+import com.atlassian.plugin.spring.scanner.annotation.component.BambooComponent;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Time ordered set of PBC agents the {@link ReaperJob} needs to look at, keyed by the time the agent
+ * next becomes interesting (eg. crosses {@link Reaper#REAPER_THRESHOLD_MILLIS} or went offline).
+ * Kept up to date by {@link AgentLifecycleListener} so that a reaper run only touches agents that are due,
+ * a full scan of all agents is done on startup and then every {@link #FULL_SCAN_INTERVAL_MILLIS}
+ * to pick up anything the events missed.
+ */
+@BambooComponent
+public class IdleAgentTracker {
+    static final long FULL_SCAN_INTERVAL_MILLIS = Duration.ofMinutes(10).toMillis();
+
+    private final TreeSet<Due> due = new TreeSet<>();
+    private final Map<Long, Due> byAgent = new HashMap<>();
+    private long lastFullScan = -1;
+
+    /**
+     * Track the agent, replacing the previous due time if the agent is already tracked.
+     */
+    public synchronized void track(long agentId, long dueTime) {
+        Due previous = byAgent.put(agentId, new Due(dueTime, agentId));
+        if (previous != null) {
+            due.remove(previous);
+        }
+        due.add(byAgent.get(agentId));
+    }
+
+    public synchronized void forget(long agentId) {
+        Due previous = byAgent.remove(agentId);
+        if (previous != null) {
+            due.remove(previous);
+        }
+    }
+
+    /**
+     * Remove and return agents due at the given time, the caller is expected to track again
+     * those that need to be looked at later.
+     */
+    public synchronized List<Long> pollDue(long now) {
+        List<Long> toRet = new ArrayList<>();
+        Iterator<Due> it = due.iterator();
+        while (it.hasNext()) {
+            Due next = it.next();
+            if (next.time > now) {
+                break;
+            }
+            it.remove();
+            byAgent.remove(next.agentId);
+            toRet.add(next.agentId);
+        }
+        return toRet;
+    }
+
+    public synchronized boolean isFullScanDue(long now) {
+        return lastFullScan < 0 || now - lastFullScan >= FULL_SCAN_INTERVAL_MILLIS;
+    }
+
+    /**
+     * Replace tracked agents with the outcome of a full scan.
+     *
+     * @param dueByAgent agent id to due time of all agents that need to be tracked
+     * @param now time of the scan
+     */
+    public synchronized void fullScanCompleted(Map<Long, Long> dueByAgent, long now) {
+        due.clear();
+        byAgent.clear();
+        dueByAgent.forEach(this::track);
+        lastFullScan = now;
+    }
+
+    public synchronized int size() {
+        return byAgent.size();
+    }
+
+    private static final class Due implements Comparable<Due> {
+        private final long time;
+        private final long agentId;
+
+        private Due(long time, long agentId) {
+            this.time = time;
+            this.agentId = agentId;
+        }
+
+        @Override
+        public int compareTo(Due o) {
+            int c = Long.compare(time, o.time);
+            return c != 0 ? c : Long.compare(agentId, o.agentId);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Due && ((Due) o).time == time && ((Due) o).agentId == agentId;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(time) * 31 + Long.hashCode(agentId);
+        }
+    }
+}
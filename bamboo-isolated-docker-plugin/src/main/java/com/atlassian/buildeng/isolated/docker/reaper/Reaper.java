@@ -51,6 +51,7 @@ public class Reaper implements LifecycleAware {
     private final AgentManager agentManager;
     private final AgentRemovals agentRemovals;
     private final UnmetRequirements unmetRequirements;
+    private final IdleAgentTracker idleAgentTracker;
     // BUILDENG-12799 Reap agents if they're older than 40 minutes, see the issue to learn why the number is so high.
     static long REAPER_THRESHOLD_MILLIS = Duration.ofMinutes(40).toMillis();
     static long REAPER_INTERVAL_MILLIS = 30000L; // Reap once every 30 seconds
@@ -59,6 +60,7 @@ public class Reaper implements LifecycleAware {
     static String REAPER_AGENTS_HELPER_KEY = "reaper-agents-helper";
     static String REAPER_REMOVALS_KEY = "reaper-agent-removals";
     static String REAPER_UNMET_KEY = "reaper-unmet-requirements";
+    static String REAPER_TRACKER_KEY = "reaper-idle-agent-tracker";
 
     @Inject
     public Reaper(
@@ -66,12 +68,14 @@ public class Reaper implements LifecycleAware {
             ExecutableAgentsHelper executableAgentsHelper,
             AgentManager agentManager,
             AgentRemovals agentRemovals,
-            UnmetRequirements unmetRequirements) {
+            UnmetRequirements unmetRequirements,
+            IdleAgentTracker idleAgentTracker) {
         this.scheduler = scheduler;
         this.executableAgentsHelper = executableAgentsHelper;
         this.agentManager = agentManager;
         this.agentRemovals = agentRemovals;
         this.unmetRequirements = unmetRequirements;
+        this.idleAgentTracker = idleAgentTracker;
     }
 
     @Override
@@ -87,6 +91,7 @@ public class Reaper implements LifecycleAware {
         data.put(REAPER_AGENTS_HELPER_KEY, executableAgentsHelper);
         data.put(REAPER_REMOVALS_KEY, agentRemovals);
         data.put(REAPER_UNMET_KEY, unmetRequirements);
+        data.put(REAPER_TRACKER_KEY, idleAgentTracker);
 
         Trigger reaperTrigger = newTrigger()
                 .startNow()
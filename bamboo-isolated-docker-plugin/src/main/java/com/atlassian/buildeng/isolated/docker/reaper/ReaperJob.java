@@ -28,6 +28,8 @@ import com.atlassian.buildeng.isolated.docker.AgentRemovals;
 import com.atlassian.buildeng.isolated.docker.Constants;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import org.quartz.DisallowConcurrentExecution;
 import org.quartz.Job;
@@ -60,7 +62,35 @@ public class ReaperJob implements Job {
         AgentRemovals agentRemovals = (AgentRemovals) jobDataMap.get(Reaper.REAPER_REMOVALS_KEY);
         ExecutableAgentsHelper executableAgentsHelper =
                 (ExecutableAgentsHelper) jobDataMap.get(Reaper.REAPER_AGENTS_HELPER_KEY);
+        IdleAgentTracker tracker = (IdleAgentTracker) jobDataMap.get(Reaper.REAPER_TRACKER_KEY);
+        long now = System.currentTimeMillis();
 
+        if (tracker == null || tracker.isFullScanDue(now)) {
+            Map<Long, Long> due = new HashMap<>();
+            for (BuildAgent agent : allAgents(executableAgentsHelper)) {
+                Long next = reap(agent, agentManager, agentRemovals, now);
+                if (next != null) {
+                    due.put(agent.getId(), next);
+                }
+            }
+            if (tracker != null) {
+                tracker.fullScanCompleted(due, now);
+                logger.debug("Reaper full scan done, tracking {} agents", due.size());
+            }
+        } else {
+            List<Long> due = tracker.pollDue(now);
+            for (Long agentId : due) {
+                BuildAgent agent = agentManager.getAgent(agentId);
+                Long next = agent != null ? reap(agent, agentManager, agentRemovals, now) : null;
+                if (next != null) {
+                    tracker.track(agentId, next);
+                }
+            }
+            logger.debug("Reaper checked {} due agents, tracking {} agents", due.size(), tracker.size());
+        }
+    }
+
+    private Collection<BuildAgent> allAgents(ExecutableAgentsHelper executableAgentsHelper) {
         RequirementSetImpl reqs = new RequirementSetImpl();
         reqs.addRequirement(new RequirementImpl(Constants.CAPABILITY_RESULT, true, ".*"));
         Collection<BuildAgent> agents =
@@ -73,16 +103,34 @@ public class ReaperJob implements Job {
         agents.addAll(executableAgentsHelper.getExecutableAgents(ExecutorQuery.newQueryWithoutAssignments(ephemeralReqs)
                 .withOfflineIncluded()
                 .withDisabledIncluded()));
+        return agents;
+    }
 
-        for (BuildAgent agent : agents) {
-            if (agentShouldBeKilled(agent)) {
-                // we want to kill disabled docker agents
-                agent.accept(new DeleterGraveling(agentRemovals));
-            } else if (agentShouldBeDisabled(agent)) {
-                // Stop and remove disabled agents
-                agent.accept(new SleeperGraveling(agentManager));
+    /**
+     * Kill or disable the agent if it's time to.
+     *
+     * @return when the agent should be looked at next, null if it doesn't need to be tracked anymore
+     */
+    private Long reap(BuildAgent agent, AgentManager agentManager, AgentRemovals agentRemovals, long now) {
+        if (agentShouldBeKilled(agent)) {
+            // we want to kill disabled docker agents
+            agent.accept(new DeleterGraveling(agentRemovals));
+            return null;
+        } else if (agentShouldBeDisabled(agent)) {
+            // Stop and remove disabled agents
+            agent.accept(new SleeperGraveling(agentManager));
+            // gets killed in the next run
+            return now;
+        } else if (AgentQueries.isDockerAgent(agent)) {
+            Date creationTime = agent.getDefinition().getCreationDate();
+            if (creationTime == null) {
+                // only offline agents get reaped, left to the agent offline event or the next full scan.
+                return null;
             }
+            // busy agents past the threshold are checked again in the next run.
+            return Math.max(creationTime.getTime() + Reaper.REAPER_THRESHOLD_MILLIS, now);
         }
+        return null;
     }
 
     // return true if the given agent should be killed, false otherwise
@@ -18,38 +18,121 @@ package com.atlassian.buildeng.isolated.docker.rest;
 
 import static com.atlassian.bamboo.v2.build.queue.BuildQueueManager.QueueItemView;
 
-import com.atlassian.bamboo.ResultKey;
-import com.atlassian.bamboo.deployments.execution.DeploymentContext;
-import com.atlassian.bamboo.plan.PlanKey;
-import com.atlassian.bamboo.util.Narrow;
-import com.atlassian.bamboo.v2.build.BuildContext;
 import com.atlassian.bamboo.v2.build.CommonContext;
 import com.atlassian.bamboo.v2.build.queue.BuildQueueManager;
 import com.atlassian.bamboo.v2.build.queue.QueueManagerView;
-import com.atlassian.buildeng.spi.isolated.docker.AccessConfiguration;
-import com.atlassian.buildeng.spi.isolated.docker.Configuration;
+import com.atlassian.buildeng.isolated.docker.AgentCreationReschedulerImpl;
+import com.atlassian.buildeng.isolated.docker.AgentStartupJournal;
+import com.atlassian.buildeng.isolated.docker.QueueStatistics;
+import com.atlassian.buildeng.isolated.docker.StartupTracer;
+import com.atlassian.buildeng.isolated.docker.jmx.PhaseDurations;
+import com.atlassian.buildeng.spi.isolated.docker.StartupPhase;
+import com.atlassian.buildeng.spi.isolated.docker.metrics.MetricsRegistry;
+import com.atlassian.buildeng.spi.isolated.docker.metrics.PrometheusTextExporter;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.Lists;
+import java.io.BufferedWriter;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.StreamSupport;
 import javax.inject.Inject;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import org.jetbrains.annotations.NotNull;
 
 @Path("/statistics")
 public class PbcStatisticsRest {
 
+    static final String EXPORT_MEDIA_TYPE = "text/tab-separated-values";
+
     private final QueueManagerView<CommonContext, CommonContext> queueManagerView;
+    private final AgentCreationReschedulerImpl rescheduler;
+    private final AgentStartupJournal journal;
+    private final StartupTracer tracer;
+    private final QueueStatistics statistics;
 
     @Inject
-    public PbcStatisticsRest(@NotNull BuildQueueManager queueManager) {
+    public PbcStatisticsRest(
+            @NotNull BuildQueueManager queueManager,
+            AgentCreationReschedulerImpl rescheduler,
+            AgentStartupJournal journal,
+            StartupTracer tracer,
+            QueueStatistics statistics) {
         this.queueManagerView =
                 QueueManagerView.newView(queueManager, (BuildQueueManager.QueueItemView<CommonContext> ctx) -> ctx);
+        this.rescheduler = rescheduler;
+        this.journal = journal;
+        this.tracer = tracer;
+        this.statistics = statistics;
+    }
+
+    /**
+     * Return histograms of agent startup phase durations.
+     *
+     * @return per phase count, total, max and bucket counts in milliseconds
+     */
+    @Path("/startupPhases")
+    @Produces(MediaType.APPLICATION_JSON)
+    @GET
+    public Response getStartupPhases() {
+        Map<String, Object> phases = new LinkedHashMap<>();
+        tracer.getHistograms().forEach((StartupPhase phase, PhaseDurations durations) -> {
+            phases.put(
+                    phase.getKey(),
+                    ImmutableMap.of(
+                            "count", durations.getCount(),
+                            "totalMillis", durations.getTotalMillis(),
+                            "maxMillis", durations.getMaxMillis(),
+                            "bucketUpperBoundsMillis", durations.getBucketUpperBoundsMillis(),
+                            "bucketCounts", durations.getBucketCounts()));
+        });
+        return Response.ok().entity(phases).build();
+    }
+
+    /**
+     * Return all metrics of the shared PBC metrics registry, including those of the backends.
+     *
+     * @return metrics in Prometheus text format
+     */
+    @Path("/metrics")
+    @Produces(PrometheusTextExporter.CONTENT_TYPE)
+    @GET
+    public Response getMetrics() {
+        StreamingOutput stream = (OutputStream output) -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+            MetricsRegistry.global().report(new PrometheusTextExporter(writer));
+        };
+        return Response.ok(stream).build();
+    }
+
+    /**
+     * Return outcome of the last agent startup journal replay and currently open journal entries.
+     *
+     * @return recovery statistics
+     */
+    @Path("/recovery")
+    @Produces(MediaType.APPLICATION_JSON)
+    @GET
+    public Response getRecovery() {
+        return Response.ok()
+                .entity(ImmutableMap.of(
+                        "lastRecoveryDurationMillis",
+                        rescheduler.getLastRecoveryDuration(),
+                        "lastRecoveryOrphaned",
+                        rescheduler.getLastRecoveryOrphaned(),
+                        "openJournalEntries",
+                        journal.getOpenEntries().size()))
+                .build();
     }
 
     /**
@@ -61,42 +144,57 @@ public class PbcStatisticsRest {
     @Produces(MediaType.APPLICATION_JSON)
     @GET
     public Response getQueuedPbcBuilds() {
+        QueueStatistics.Snapshot snapshot = currentQueue();
+        return Response.ok()
+                .entity(ImmutableMap.of("plans", snapshot.getPlans(), "deployments", snapshot.getDeployments()))
+                .build();
+    }
 
-        List<Map<String, String>> plans = Lists.newArrayList();
-        List<Map<String, Object>> deployments = Lists.newArrayList();
-        queueManagerView.getQueueView(Collections.emptyList()).forEach((QueueItemView<CommonContext> item) -> {
-            CommonContext ctx = item.getView();
-            Configuration configuration = AccessConfiguration.forContext(ctx);
-            if (configuration.isEnabled()) {
-                BuildContext buildContext = Narrow.downTo(ctx, BuildContext.class);
-                if (buildContext != null) {
-                    ResultKey resultKey = buildContext.getResultKey();
-                    PlanKey planKey = buildContext.getParentBuildContext().getTypedPlanKey();
-                    plans.add(ImmutableMap.of("planKey", planKey.toString(), "resultKey", resultKey.toString()));
-                } else {
-                    DeploymentContext deploymentContext = Narrow.downTo(ctx, DeploymentContext.class);
-                    if (deploymentContext != null) {
-                        ResultKey resultKey = deploymentContext.getResultKey();
-                        long projectId = deploymentContext.getDeploymentProjectId();
-                        long environId = deploymentContext.getEnvironmentId();
-                        long versionId =
-                                deploymentContext.getDeploymentVersion().getId();
-                        deployments.add(ImmutableMap.of(
-                                "projectId",
-                                projectId,
-                                "environmentId",
-                                environId,
-                                "versionId",
-                                versionId,
-                                "resultKey",
-                                resultKey.toString()));
-                    }
-                }
-            }
+    /**
+     * Return number of queued pbc builds/deployments by state, kind, image, size and architecture.
+     *
+     * @return list of buckets with their count
+     */
+    @Path("/queuedCounts")
+    @Produces(MediaType.APPLICATION_JSON)
+    @GET
+    public Response getQueuedCounts() {
+        List<Map<String, Object>> counts = new ArrayList<>();
+        currentQueue().getCounts().forEach((QueueStatistics.Bucket bucket, Integer count) -> {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("state", bucket.getState().name());
+            item.put("kind", bucket.getKind());
+            item.put("image", bucket.getImage());
+            item.put("size", bucket.getSize());
+            item.put("architecture", bucket.getArchitecture());
+            item.put("count", count);
+            counts.add(item);
         });
+        return Response.ok().entity(counts).build();
+    }
 
-        return Response.ok()
-                .entity(ImmutableMap.of("plans", plans, "deployments", deployments))
-                .build();
+    /**
+     * Compact export of the queued pbc builds/deployments counts for dashboards, as tab separated values.
+     *
+     * @return header line followed by one line per bucket
+     */
+    @Path("/queuedCounts/export")
+    @Produces(EXPORT_MEDIA_TYPE)
+    @GET
+    public Response exportQueuedCounts() {
+        QueueStatistics.Snapshot snapshot = currentQueue();
+        StreamingOutput stream = (OutputStream output) -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+            snapshot.export(writer);
+            writer.flush();
+        };
+        return Response.ok(stream).build();
+    }
+
+    private QueueStatistics.Snapshot currentQueue() {
+        statistics.reconcile(() -> StreamSupport.stream(
+                        queueManagerView.getQueueView(Collections.emptyList()).spliterator(), false)
+                .map((QueueItemView<CommonContext> item) -> item.getView()));
+        return statistics.getSnapshot();
     }
 }
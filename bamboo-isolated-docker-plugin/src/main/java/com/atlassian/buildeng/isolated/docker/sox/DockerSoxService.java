@@ -26,13 +26,10 @@ import com.atlassian.bandana.BandanaManager;
 import com.atlassian.buildeng.spi.isolated.docker.Configuration;
 import com.atlassian.plugin.spring.scanner.annotation.component.BambooComponent;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.Date;
-import java.util.List;
 import java.util.function.Predicate;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javax.inject.Inject;
 import javax.ws.rs.WebApplicationException;
@@ -50,7 +47,7 @@ public class DockerSoxService {
     private final BambooAuthenticationContext authenticationContext;
     static final String BANDANA_SOX_ENABLED = "com.atlassian.buildeng.pbc.sox.enabled";
     static final String BANDANA_SOX_PATTERNS = "com.atlassian.buildeng.pbc.sox.whitelist";
-    private List<Pattern> soxPatterns;
+    private ImageAllowList allowList;
 
     @Inject
     public DockerSoxService(
@@ -79,8 +76,8 @@ public class DockerSoxService {
     }
 
     private Predicate<String> matchesPatterns() {
-        return (String image) -> getSoxPatterns().stream()
-                .anyMatch((Pattern t) -> t.matcher(image).matches());
+        ImageAllowList whitelist = getAllowList();
+        return (String image) -> whitelist.matches(image);
     }
 
     public synchronized void updateConfig(SoxRestConfig config) {
@@ -117,7 +114,7 @@ public class DockerSoxService {
             auditLogService.log(ent);
             bandanaManager.setValue(
                     PlanAwareBandanaContext.GLOBAL_CONTEXT, BANDANA_SOX_PATTERNS, config.getWhitelistPatterns());
-            soxPatterns = null;
+            allowList = null;
         }
     }
 
@@ -131,26 +128,11 @@ public class DockerSoxService {
         return new SoxRestConfig(enabled, whitelist);
     }
 
-    private synchronized List<Pattern> getSoxPatterns() {
-        if (soxPatterns == null) {
-            SoxRestConfig config = getConfig();
-            String[] patts = config.getWhitelistPatterns();
-            if (patts != null) {
-                soxPatterns = Arrays.asList(patts).stream()
-                        .map((String t) -> {
-                            try {
-                                return Pattern.compile(t);
-                            } catch (PatternSyntaxException ex) {
-                                logger.error("Cannot compile SOX whitelist pattern for - {}", t);
-                                return Pattern.compile("X");
-                            }
-                        })
-                        .collect(Collectors.toList());
-            } else {
-                soxPatterns = Collections.emptyList();
-            }
+    private synchronized ImageAllowList getAllowList() {
+        if (allowList == null) {
+            allowList = ImageAllowList.compile(getConfig().getWhitelistPatterns());
         }
-        return soxPatterns;
+        return allowList;
     }
 
     private void validatePatterns(String[] whitelistPatterns) throws WebApplicationException {
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.isolated.docker.sox;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compiled form of the SOX image whitelist, equivalent to testing the image against each pattern with
+ * {@link java.util.regex.Matcher#matches()}.
+ * Patterns are split into their mandatory literal prefix and the rest. Literal only patterns and literal prefixes
+ * followed by {@code .*} are answered by walking a prefix trie without any regex evaluation, other patterns are
+ * stored in the trie node of their literal prefix and only evaluated for images starting with it.
+ * Verdicts are memoized per image, a new instance is to be created whenever the whitelist changes.
+ */
+final class ImageAllowList {
+    private static final Logger logger = LoggerFactory.getLogger(ImageAllowList.class);
+
+    static final int MAX_CACHED_VERDICTS = 10_000;
+
+    private final Node root = new Node();
+    private final List<Pattern> all = new ArrayList<>();
+    private final Map<String, Boolean> verdicts = new ConcurrentHashMap<>();
+
+    private ImageAllowList() {}
+
+    static ImageAllowList compile(String[] patterns) {
+        ImageAllowList list = new ImageAllowList();
+        if (patterns != null) {
+            for (String pattern : patterns) {
+                list.add(pattern);
+            }
+        }
+        return list;
+    }
+
+    private void add(String pattern) {
+        Pattern compiled;
+        try {
+            compiled = Pattern.compile(pattern);
+        } catch (PatternSyntaxException ex) {
+            logger.error("Cannot compile SOX whitelist pattern for - {}", pattern);
+            pattern = "X";
+            compiled = Pattern.compile(pattern);
+        }
+        all.add(compiled);
+        String body = pattern;
+        if (body.startsWith("^")) {
+            body = body.substring(1);
+        }
+        if (body.endsWith("$") && !isEscaped(body, body.length() - 1)) {
+            body = body.substring(0, body.length() - 1);
+        }
+        if (hasAlternation(body)) {
+            root.residual.add(compiled);
+            return;
+        }
+        StringBuilder literal = new StringBuilder();
+        int end = literalPrefix(body, literal);
+        Node node = root;
+        for (int i = 0; i < literal.length(); i++) {
+            node = node.children.computeIfAbsent(literal.charAt(i), (Character t) -> new Node());
+        }
+        String rest = body.substring(end);
+        if (rest.isEmpty()) {
+            node.exact = true;
+        } else if (".*".equals(rest)) {
+            node.anySuffix = true;
+        } else {
+            node.residual.add(compiled);
+        }
+    }
+
+    boolean matches(String image) {
+        Boolean verdict = verdicts.get(image);
+        if (verdict == null) {
+            verdict = evaluate(image);
+            if (verdicts.size() >= MAX_CACHED_VERDICTS) {
+                verdicts.clear();
+            }
+            verdicts.put(image, verdict);
+        }
+        return verdict;
+    }
+
+    int patternCount() {
+        return all.size();
+    }
+
+    private boolean evaluate(String image) {
+        if (hasLineTerminator(image)) {
+            // '.' doesn't match these, leave it to the full regex semantics.
+            return all.stream().anyMatch((Pattern t) -> t.matcher(image).matches());
+        }
+        List<Pattern> candidates = new ArrayList<>();
+        Node node = root;
+        int i = 0;
+        while (node != null) {
+            if (node.anySuffix || (node.exact && i == image.length())) {
+                return true;
+            }
+            candidates.addAll(node.residual);
+            node = i < image.length() ? node.children.get(image.charAt(i)) : null;
+            i++;
+        }
+        for (Pattern candidate : candidates) {
+            if (candidate.matcher(image).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * collect the mandatory literal characters at the start of the regex.
+     *
+     * @return index in the pattern where the literal prefix ends
+     */
+    private static int literalPrefix(String pattern, StringBuilder literal) {
+        int i = 0;
+        while (i < pattern.length()) {
+            char c = pattern.charAt(i);
+            int next;
+            char value;
+            if (c == '\\') {
+                if (i + 1 >= pattern.length() || Character.isLetterOrDigit(pattern.charAt(i + 1))) {
+                    // character classes like \d, \Q quoting, back references
+                    return i;
+                }
+                value = pattern.charAt(i + 1);
+                next = i + 2;
+            } else if (".[](){}*+?^$|".indexOf(c) >= 0) {
+                return i;
+            } else {
+                value = c;
+                next = i + 1;
+            }
+            if (next < pattern.length() && "*+?{".indexOf(pattern.charAt(next)) >= 0) {
+                // quantified character is not mandatory (or repeats), stop before it.
+                return i;
+            }
+            literal.append(value);
+            i = next;
+        }
+        return i;
+    }
+
+    private static boolean hasAlternation(String pattern) {
+        for (int i = 0; i < pattern.length(); i++) {
+            if (pattern.charAt(i) == '|' && !isEscaped(pattern, i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isEscaped(String pattern, int index) {
+        int backslashes = 0;
+        for (int i = index - 1; i >= 0 && pattern.charAt(i) == '\\'; i--) {
+            backslashes++;
+        }
+        return backslashes % 2 == 1;
+    }
+
+    private static boolean hasLineTerminator(String image) {
+        for (int i = 0; i < image.length(); i++) {
+            char c = image.charAt(i);
+            if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class Node {
+        private final Map<Character, Node> children = new HashMap<>();
+        private final List<Pattern> residual = new ArrayList<>();
+        private boolean exact;
+        private boolean anySuffix;
+    }
+}
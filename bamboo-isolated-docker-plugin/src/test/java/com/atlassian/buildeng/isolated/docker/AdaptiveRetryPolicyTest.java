@@ -0,0 +1,114 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.isolated.docker;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.atlassian.buildeng.spi.isolated.docker.RetryReason;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class AdaptiveRetryPolicyTest {
+
+    @Test
+    public void healthyBackendHalvesTheBaseDelay() {
+        AdaptiveRetryPolicy policy = new AdaptiveRetryPolicy(new FixedRandom(0.5));
+        policy.recordSuccess();
+        assertEquals(10, policy.nextDelay(RetryReason.QUOTA, 1, 0));
+    }
+
+    @Test
+    public void failingBackendDoublesTheDelay() {
+        AdaptiveRetryPolicy policy = new AdaptiveRetryPolicy(new FixedRandom(0.5));
+        policy.recordFailure(RetryReason.QUOTA);
+        assertEquals(40, policy.nextDelay(RetryReason.QUOTA, 1, 0));
+    }
+
+    @Test
+    public void delayNeverExceedsReasonMaximum() {
+        AdaptiveRetryPolicy policy = new AdaptiveRetryPolicy(new FixedRandom(1.0));
+        policy.recordFailure(RetryReason.CONFLICT);
+        assertEquals(60, policy.nextDelay(RetryReason.CONFLICT, 10, 1000));
+    }
+
+    @Test
+    public void backendRetryAfterOverridesShorterDelay() {
+        AdaptiveRetryPolicy policy = new AdaptiveRetryPolicy(new FixedRandom(0.5));
+        policy.recordSuccess();
+        assertEquals(5, policy.nextDelay(RetryReason.THROTTLED, 1, 0, 0));
+        assertEquals(30, policy.nextDelay(RetryReason.THROTTLED, 1, 0, 30));
+        assertEquals(120, policy.nextDelay(RetryReason.THROTTLED, 1, 0, 120));
+        assertEquals(5, policy.nextDelay(RetryReason.THROTTLED, 1, 0, 2));
+    }
+
+    @Test
+    public void throttlingIsNotBackendFailure() {
+        AdaptiveRetryPolicy policy = new AdaptiveRetryPolicy(new FixedRandom(0.5));
+        policy.recordSuccess();
+        policy.recordFailure(RetryReason.THROTTLED);
+        policy.recordFailure(RetryReason.LICENSE_LIMIT);
+        assertEquals(0.0, policy.getFailureRate());
+    }
+
+    @Test
+    public void failureRateOnlyConsidersRecentOutcomes() {
+        AdaptiveRetryPolicy policy = new AdaptiveRetryPolicy(new FixedRandom(0.5));
+        for (int i = 0; i < AdaptiveRetryPolicy.OUTCOME_WINDOW; i++) {
+            policy.recordFailure(RetryReason.UNREACHABLE);
+        }
+        assertEquals(1.0, policy.getFailureRate());
+        for (int i = 0; i < AdaptiveRetryPolicy.OUTCOME_WINDOW / 2; i++) {
+            policy.recordSuccess();
+        }
+        assertEquals(0.5, policy.getFailureRate());
+    }
+
+    @Test
+    public void pendingRetriesStretchTheDelay() {
+        AdaptiveRetryPolicy policy = new AdaptiveRetryPolicy(new FixedRandom(0.5));
+        long idle = policy.nextDelay(RetryReason.UNKNOWN, 1, 0);
+        long busy = policy.nextDelay(RetryReason.UNKNOWN, 1, AdaptiveRetryPolicy.PENDING_RETRIES_DOUBLING);
+        assertEquals(idle * 2, busy);
+    }
+
+    @Test
+    public void delaysAreRecordedPerReason() {
+        AdaptiveRetryPolicy policy = new AdaptiveRetryPolicy(new Random(42));
+        policy.nextDelay(RetryReason.QUOTA, 1, 0);
+        policy.nextDelay(RetryReason.QUOTA, 5, 0);
+        policy.nextDelay(RetryReason.CONFLICT, 1, 0);
+        assertEquals(2, policy.getHistograms().get(RetryReason.QUOTA).getRetryCount());
+        assertEquals(1, policy.getHistograms().get(RetryReason.CONFLICT).getRetryCount());
+        long[] buckets = policy.getHistograms().get(RetryReason.CONFLICT).getDelayBucketCounts();
+        assertEquals(1, buckets[0]);
+        assertTrue(policy.getHistograms().get(RetryReason.QUOTA).getTotalDelaySeconds() > 0);
+    }
+
+    private static class FixedRandom extends Random {
+        private final double value;
+
+        FixedRandom(double value) {
+            this.value = value;
+        }
+
+        @Override
+        public double nextDouble() {
+            return value;
+        }
+    }
+}
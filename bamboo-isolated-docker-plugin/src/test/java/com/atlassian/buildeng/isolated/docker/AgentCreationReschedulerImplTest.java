@@ -16,9 +16,12 @@
 
 package com.atlassian.buildeng.isolated.docker;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.atlassian.bamboo.ResultKey;
@@ -26,6 +29,9 @@ import com.atlassian.bamboo.v2.build.BuildContext;
 import com.atlassian.bamboo.v2.build.CurrentResult;
 import com.atlassian.bamboo.v2.build.queue.BuildQueueManager;
 import com.atlassian.buildeng.spi.isolated.docker.RetryAgentStartupEvent;
+import com.atlassian.buildeng.spi.isolated.docker.RetryReason;
+import com.atlassian.buildeng.spi.isolated.docker.StartupPhase;
+import com.atlassian.buildeng.spi.isolated.docker.StartupTrace;
 import com.atlassian.event.api.EventPublisher;
 import java.util.HashMap;
 import java.util.Map;
@@ -37,11 +43,12 @@ public class AgentCreationReschedulerImplTest {
 
     private final BuildQueueManager buildQueueManager = mock(BuildQueueManager.class);
     private final EventPublisher eventPublisher = mock(EventPublisher.class);
+    private final AgentStartupJournal journal = mock(AgentStartupJournal.class);
     private AgentCreationReschedulerImpl agentCreationReschedulerImpl;
 
     @Before
     public void setUp() {
-        agentCreationReschedulerImpl = new AgentCreationReschedulerImpl(eventPublisher, buildQueueManager);
+        agentCreationReschedulerImpl = new AgentCreationReschedulerImpl(eventPublisher, buildQueueManager, journal);
     }
 
     @Test
@@ -56,6 +63,24 @@ public class AgentCreationReschedulerImplTest {
         assertTrue(agentCreationReschedulerImpl.reschedule(event));
     }
 
+    @Test
+    public void throttledRescheduleIsNotJournaled() {
+        RetryAgentStartupEvent event = new RetryAgentStartupEvent(
+                null, mockBuildContext(), 0, UUID.randomUUID(), RetryReason.THROTTLED);
+        assertTrue(agentCreationReschedulerImpl.reschedule(event));
+        verify(journal, never()).waiting(event);
+        assertEquals(-1, StartupTrace.getStart(
+                event.getContext().getCurrentResult().getCustomBuildData(), StartupPhase.WAITING));
+    }
+
+    @Test
+    public void recoverableRescheduleIsJournaled() {
+        RetryAgentStartupEvent event = new RetryAgentStartupEvent(
+                null, mockBuildContext(), 0, UUID.randomUUID(), RetryReason.UNREACHABLE);
+        assertTrue(agentCreationReschedulerImpl.reschedule(event));
+        verify(journal).waiting(event);
+    }
+
     private BuildContext mockBuildContext() {
         BuildContext context = mock(BuildContext.class);
         ResultKey resultKey = mock(ResultKey.class);
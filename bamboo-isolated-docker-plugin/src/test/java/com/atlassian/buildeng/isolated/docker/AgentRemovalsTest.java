@@ -0,0 +1,101 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.isolated.docker;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.atlassian.bamboo.buildqueue.manager.AgentManager;
+import com.atlassian.bamboo.v2.build.agent.AgentCommandSender;
+import com.atlassian.bamboo.v2.build.agent.BuildAgent;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class AgentRemovalsTest {
+    private AgentManager agentManager;
+    private AgentRemovals agentRemovals;
+
+    @BeforeEach
+    public void setUp() {
+        agentManager = mock(AgentManager.class);
+        agentRemovals = new AgentRemovals(agentManager, mock(AgentCommandSender.class));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        agentRemovals.onStop();
+    }
+
+    @Test
+    public void agentsAreRemovedInParallel() throws TimeoutException, InterruptedException {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        for (long id = 1; id <= 2; id++) {
+            BuildAgent agent = mock(BuildAgent.class);
+            when(agentManager.getAgent(id)).thenAnswer(invocation -> {
+                bothStarted.countDown();
+                // only finishes when the other removal runs at the same time
+                bothStarted.await(5, TimeUnit.SECONDS);
+                return agent;
+            });
+        }
+
+        agentRemovals.removeAgent(1L);
+        agentRemovals.removeAgent(2L);
+
+        verify(agentManager, timeout(5000)).removeAgent(1L);
+        verify(agentManager, timeout(5000)).removeAgent(2L);
+        assertEquals(0, bothStarted.getCount());
+    }
+
+    @Test
+    public void pendingRemovalIsDeduplicated() throws TimeoutException, InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        BuildAgent agent = mock(BuildAgent.class);
+        when(agentManager.getAgent(1L)).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return agent;
+        });
+
+        agentRemovals.removeAgent(1L);
+        agentRemovals.removeAgent(1L);
+        release.countDown();
+
+        verify(agentManager, timeout(5000)).removeAgent(1L);
+        assertEquals(1, agentRemovals.getStats().getRequested());
+        assertEquals(1, agentRemovals.getStats().getDeduplicated());
+    }
+
+    @Test
+    public void removalAfterShutdownRunsInline() throws TimeoutException {
+        when(agentManager.getAgent(1L)).thenReturn(mock(BuildAgent.class));
+        agentRemovals.onStop();
+
+        agentRemovals.removeAgent(1L);
+        agentRemovals.removeAgent(1L);
+
+        verify(agentManager, times(2)).removeAgent(1L);
+        assertEquals(0, agentRemovals.getStats().getDeduplicated());
+    }
+}
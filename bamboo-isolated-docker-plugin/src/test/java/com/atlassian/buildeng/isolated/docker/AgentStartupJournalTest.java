@@ -0,0 +1,192 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.isolated.docker;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.atlassian.bamboo.ResultKey;
+import com.atlassian.bamboo.deployments.execution.DeploymentContext;
+import com.atlassian.bamboo.v2.build.BuildContext;
+import com.atlassian.bamboo.v2.build.BuildKey;
+import com.atlassian.buildeng.spi.isolated.docker.RetryAgentStartupEvent;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class AgentStartupJournalTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final BuildKey firstRun = new BuildKey();
+    private final BuildKey secondRun = new BuildKey();
+
+    @Test
+    public void startedRequestSurvivesRestart() {
+        RetryAgentStartupEvent event = event("AAA-BBB-JOB-1", firstRun);
+        AgentStartupJournal journal = new AgentStartupJournal(journalFile());
+        journal.requested(event);
+        journal.started(event, ImmutableMap.of("name", "pod-1"));
+
+        AgentStartupJournal replayed = new AgentStartupJournal(journalFile());
+        AgentStartupJournal.Entry entry = replayed.find("AAA-BBB-JOB-1", firstRun.getKey());
+        assertEquals(AgentStartupJournal.State.STARTED, entry.getState());
+        assertEquals(event.getUniqueIdentifier(), entry.getUuid());
+        assertEquals("pod-1", entry.getCustomResultData().get("name"));
+    }
+
+    @Test
+    public void inFlightRequestIsReplayedWithRetryCount() {
+        RetryAgentStartupEvent event = new RetryAgentStartupEvent(
+                null, context("AAA-BBB-JOB-1", firstRun), 3, UUID.randomUUID());
+        new AgentStartupJournal(journalFile()).requested(event);
+
+        AgentStartupJournal replayed = new AgentStartupJournal(journalFile());
+        AgentStartupJournal.Entry entry = replayed.find("AAA-BBB-JOB-1", firstRun.getKey());
+        assertEquals(AgentStartupJournal.State.REQUESTED, entry.getState());
+        assertEquals(3, entry.getRetryCount());
+    }
+
+    @Test
+    public void closedRequestIsForgotten() {
+        RetryAgentStartupEvent event = event("AAA-BBB-JOB-1", firstRun);
+        AgentStartupJournal journal = new AgentStartupJournal(journalFile());
+        journal.requested(event);
+        journal.closed(event);
+        assertNull(new AgentStartupJournal(journalFile()).find("AAA-BBB-JOB-1", firstRun.getKey()));
+    }
+
+    @Test
+    public void rerunIsNotMatched() {
+        new AgentStartupJournal(journalFile()).requested(event("AAA-BBB-JOB-1", firstRun));
+        assertNull(new AgentStartupJournal(journalFile()).find("AAA-BBB-JOB-1", secondRun.getKey()));
+    }
+
+    @Test
+    public void registeredAgentClosesEntries() {
+        AgentStartupJournal journal = new AgentStartupJournal(journalFile());
+        journal.started(event("AAA-BBB-JOB-1", firstRun), ImmutableMap.of());
+        journal.closeAll("AAA-BBB-JOB-1");
+        assertEquals(0, new AgentStartupJournal(journalFile()).getOpenEntries().size());
+    }
+
+    @Test
+    public void concurrentRequestsSurviveRestart() throws Exception {
+        AgentStartupJournal journal = new AgentStartupJournal(journalFile());
+        List<RetryAgentStartupEvent> events = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            events.add(event("AAA-BBB-JOB-" + i, firstRun));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (Future<?> future : events.stream()
+                    .map((RetryAgentStartupEvent e) -> executor.submit(() -> journal.requested(e)))
+                    .collect(Collectors.toList())) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(20, new AgentStartupJournal(journalFile()).getOpenEntries().size());
+    }
+
+    @Test
+    public void closeAllOnlyClosesGivenResult() {
+        AgentStartupJournal journal = new AgentStartupJournal(journalFile());
+        journal.requested(event("AAA-BBB-JOB-1", firstRun));
+        journal.requested(event("AAA-BBB-JOB-1", firstRun));
+        journal.requested(event("AAA-BBB-JOB-2", firstRun));
+        journal.closeAll("AAA-BBB-JOB-1");
+
+        assertNull(journal.find("AAA-BBB-JOB-1", firstRun.getKey()));
+        assertEquals(1, journal.getOpenEntries().size());
+        assertEquals("AAA-BBB-JOB-2", journal.find("AAA-BBB-JOB-2", firstRun.getKey()).getResultKey());
+    }
+
+    @Test
+    public void finishedDeploymentClosesEntries() {
+        DeploymentContext context = mock(DeploymentContext.class);
+        ResultKey key = mock(ResultKey.class);
+        when(key.getKey()).thenReturn("111-222-333");
+        when(context.getResultKey()).thenReturn(key);
+        when(context.getBuildKey()).thenReturn(firstRun);
+        when(context.getDeploymentResultId()).thenReturn(333L);
+        AgentStartupJournal journal = new AgentStartupJournal(journalFile());
+        journal.started(new RetryAgentStartupEvent(null, context), ImmutableMap.of());
+
+        journal.closeDeployment(444L);
+        assertEquals(1, journal.getOpenEntries().size());
+        journal.closeDeployment(333L);
+        assertEquals(0, new AgentStartupJournal(journalFile()).getOpenEntries().size());
+    }
+
+    @Test
+    public void tornRecordIsIgnored() throws IOException {
+        new AgentStartupJournal(journalFile()).requested(event("AAA-BBB-JOB-1", firstRun));
+        Files.write(journalFile(), "STARTED\tbroken".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        AgentStartupJournal replayed = new AgentStartupJournal(journalFile());
+        AgentStartupJournal.Entry entry = replayed.find("AAA-BBB-JOB-1", firstRun.getKey());
+        assertEquals(AgentStartupJournal.State.REQUESTED, entry.getState());
+    }
+
+    @Test
+    public void retainOnlyDropsEntriesNoLongerQueued() {
+        AgentStartupJournal journal = new AgentStartupJournal(journalFile());
+        journal.requested(event("AAA-BBB-JOB-1", firstRun));
+        journal.requested(event("AAA-BBB-JOB-2", secondRun));
+        journal.retainOnly(ImmutableSet.of("AAA-BBB-JOB-2"));
+
+        AgentStartupJournal replayed = new AgentStartupJournal(journalFile());
+        assertEquals(1, replayed.getOpenEntries().size());
+        assertNull(replayed.find("AAA-BBB-JOB-1", firstRun.getKey()));
+    }
+
+    private Path journalFile() {
+        return tempDir.resolve(AgentStartupJournal.JOURNAL_FILE);
+    }
+
+    private RetryAgentStartupEvent event(String resultKey, BuildKey buildKey) {
+        return new RetryAgentStartupEvent(null, context(resultKey, buildKey));
+    }
+
+    private BuildContext context(String resultKey, BuildKey buildKey) {
+        BuildContext context = mock(BuildContext.class);
+        ResultKey key = mock(ResultKey.class);
+        when(key.getKey()).thenReturn(resultKey);
+        when(context.getResultKey()).thenReturn(key);
+        when(context.getBuildKey()).thenReturn(buildKey);
+        return context;
+    }
+}
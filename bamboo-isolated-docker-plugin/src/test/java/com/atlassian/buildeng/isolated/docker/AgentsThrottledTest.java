@@ -123,6 +123,52 @@ public class AgentsThrottledTest {
         assertEquals(1, agentsThrottled.numAgentsThrottledLongerThanMinutes(5));
     }
 
+    @Test
+    public void histogramBucketsByMinute() {
+        when(dateTime.getCurrentTime()).thenReturn(overXMinsAgoMilliseconds(7));
+        agentsThrottled.add("key1");
+        agentsThrottled.add("key2");
+        when(dateTime.getCurrentTime()).thenReturn(overXMinsAgoMilliseconds(2));
+        agentsThrottled.add("key3");
+        when(dateTime.getCurrentTime()).thenReturn(new Date().getTime());
+
+        long[] buckets = agentsThrottled.getHistogram().getBuckets();
+        assertEquals(AgentsThrottled.HISTOGRAM_MINUTES, buckets.length);
+        assertEquals(2, buckets[7]);
+        assertEquals(1, buckets[2]);
+        assertEquals(3, agentsThrottled.numAgentsThrottledLongerThanMinutes(2));
+        assertEquals(2, agentsThrottled.numAgentsThrottledLongerThanMinutes(3));
+        assertEquals(2, agentsThrottled.numAgentsThrottledLongerThanMinutes(7));
+        assertEquals(0, agentsThrottled.numAgentsThrottledLongerThanMinutes(8));
+    }
+
+    @Test
+    public void histogramIsRebuiltAfterRemoval() {
+        when(dateTime.getCurrentTime()).thenReturn(overXMinsAgoMilliseconds(10));
+        agentsThrottled.add("key1");
+        agentsThrottled.add("key2");
+        when(dateTime.getCurrentTime()).thenReturn(new Date().getTime());
+        assertEquals(2, agentsThrottled.numAgentsThrottledLongerThanMinutes(10));
+        agentsThrottled.remove("key1");
+        assertEquals(1, agentsThrottled.numAgentsThrottledLongerThanMinutes(10));
+        agentsThrottled.remove("key2");
+        assertEquals(0, agentsThrottled.numAgentsThrottledLongerThanMinutes(0));
+    }
+
+    @Test
+    public void thresholdsBeyondHistogramRangeAreExact() {
+        when(dateTime.getCurrentTime()).thenReturn(overXMinsAgoMilliseconds(120));
+        agentsThrottled.add("key1");
+        when(dateTime.getCurrentTime()).thenReturn(overXMinsAgoMilliseconds(75));
+        agentsThrottled.add("key2");
+        when(dateTime.getCurrentTime()).thenReturn(new Date().getTime());
+        assertEquals(2, agentsThrottled.getHistogram().getBuckets()[AgentsThrottled.HISTOGRAM_MINUTES - 1]);
+        assertEquals(2, agentsThrottled.numAgentsThrottledLongerThanMinutes(75));
+        assertEquals(1, agentsThrottled.numAgentsThrottledLongerThanMinutes(76));
+        assertEquals(1, agentsThrottled.numAgentsThrottledLongerThanMinutes(120));
+        assertEquals(0, agentsThrottled.numAgentsThrottledLongerThanMinutes(121));
+    }
+
     // return time just over x minutes ago
     private long overXMinsAgoMilliseconds(int minutes) {
         return new Date().getTime() - ((long) minutes * 60 * 1000) - 1;
@@ -16,6 +16,7 @@
 
 package com.atlassian.buildeng.isolated.docker;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
@@ -26,6 +27,8 @@ import com.atlassian.bamboo.bandana.PlanAwareBandanaContext;
 import com.atlassian.bamboo.persister.AuditLogService;
 import com.atlassian.bamboo.user.BambooAuthenticationContext;
 import com.atlassian.bandana.BandanaManager;
+import java.util.ArrayList;
+import java.util.List;
 import org.junit.Test;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -91,4 +94,42 @@ public class GlobalConfigurationTest {
         globalConfiguration.migrateEnabled();
         verify(globalConfiguration, times(1)).setEnabledProperty(true);
     }
+
+    @Test
+    public void testSettingsAreReadFromSnapshot() {
+        when(bandanaManager.getValue(PlanAwareBandanaContext.GLOBAL_CONTEXT, GlobalConfiguration.BANDANA_DEFAULT_IMAGE))
+                .thenReturn("image");
+
+        assertEquals("image", globalConfiguration.getDefaultImage());
+        assertEquals("image", globalConfiguration.getDefaultImage());
+        assertEquals(false, globalConfiguration.getEnabledProperty());
+        verify(bandanaManager, times(1))
+                .getValue(PlanAwareBandanaContext.GLOBAL_CONTEXT, GlobalConfiguration.BANDANA_DEFAULT_IMAGE);
+    }
+
+    @Test
+    public void testSavingSwapsSnapshotAndNotifiesListeners() {
+        when(bandanaManager.getValue(PlanAwareBandanaContext.GLOBAL_CONTEXT, GlobalConfiguration.BANDANA_DEFAULT_IMAGE))
+                .thenReturn("old", "new");
+        List<GlobalConfiguration.Snapshot> changes = new ArrayList<>();
+        globalConfiguration.addChangeListener(changes::add);
+
+        assertEquals("old", globalConfiguration.getDefaultImage());
+        globalConfiguration.setEnabledProperty(true);
+
+        assertEquals("new", globalConfiguration.getDefaultImage());
+        assertEquals(1, changes.size());
+        assertEquals("new", changes.get(0).getDefaultImage());
+    }
+
+    @Test
+    public void testUnchangedSettingsDontNotifyListeners() {
+        List<GlobalConfiguration.Snapshot> changes = new ArrayList<>();
+        globalConfiguration.addChangeListener(changes::add);
+
+        globalConfiguration.getSnapshot();
+        globalConfiguration.reload();
+
+        assertEquals(0, changes.size());
+    }
 }
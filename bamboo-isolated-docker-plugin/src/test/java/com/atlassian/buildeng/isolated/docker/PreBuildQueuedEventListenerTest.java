@@ -95,6 +95,15 @@ public class PreBuildQueuedEventListenerTest {
     @Mock
     private AgentSecurityTokenService agentSecurityTokenService;
 
+    @Mock
+    private AgentStartupJournal journal;
+
+    @Mock
+    private StartupTracer tracer;
+
+    @Mock
+    private QueueStatistics statistics;
+
     @InjectMocks
     private PreBuildQueuedEventListener listener;
 
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.isolated.docker;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.atlassian.bamboo.v2.build.CommonContext;
+import com.atlassian.buildeng.spi.isolated.docker.Configuration;
+import com.atlassian.buildeng.spi.isolated.docker.ConfigurationBuilder;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class QueueStatisticsTest {
+
+    private final DateTime dateTime = mock(DateTime.class);
+    private QueueStatistics statistics;
+
+    @BeforeEach
+    public void setUp() {
+        when(dateTime.getCurrentTime()).thenReturn(1000L);
+        statistics = new QueueStatistics(dateTime);
+    }
+
+    @Test
+    public void countsByBucket() {
+        queuePlan("A-B-1", "image-a", Configuration.ContainerSize.REGULAR);
+        queuePlan("A-B-2", "image-a", Configuration.ContainerSize.REGULAR);
+        queuePlan("A-C-1", "image-b", Configuration.ContainerSize.LARGE);
+        statistics.update("A-B-2", QueueStatistics.State.THROTTLED);
+
+        Map<QueueStatistics.Bucket, Integer> counts = statistics.getSnapshot().getCounts();
+
+        assertEquals(3, counts.size());
+        Iterator<Map.Entry<QueueStatistics.Bucket, Integer>> it = counts.entrySet().iterator();
+        Map.Entry<QueueStatistics.Bucket, Integer> first = it.next();
+        assertEquals(QueueStatistics.State.QUEUED, first.getKey().getState());
+        assertEquals("image-a", first.getKey().getImage());
+        assertEquals(1, first.getValue());
+        Map.Entry<QueueStatistics.Bucket, Integer> second = it.next();
+        assertEquals("image-b", second.getKey().getImage());
+        assertEquals("LARGE", second.getKey().getSize());
+        Map.Entry<QueueStatistics.Bucket, Integer> third = it.next();
+        assertEquals(QueueStatistics.State.THROTTLED, third.getKey().getState());
+        assertEquals(3, statistics.getSnapshot().getPlans().size());
+    }
+
+    @Test
+    public void snapshotReusedUntilChange() {
+        queuePlan("A-B-1", "image-a", Configuration.ContainerSize.REGULAR);
+        QueueStatistics.Snapshot snapshot = statistics.getSnapshot();
+        assertSame(snapshot, statistics.getSnapshot());
+        // unknown keys don't change anything
+        statistics.update("X-Y-1", QueueStatistics.State.SCHEDULED);
+        statistics.removed("X-Y-1");
+        assertSame(snapshot, statistics.getSnapshot());
+
+        statistics.update("A-B-1", QueueStatistics.State.SCHEDULED);
+        QueueStatistics.Snapshot updated = statistics.getSnapshot();
+        assertEquals(
+                QueueStatistics.State.SCHEDULED,
+                updated.getCounts().keySet().iterator().next().getState());
+
+        statistics.removed("A-B-1");
+        assertEquals(0, statistics.getSnapshot().getCounts().size());
+        assertEquals(0, statistics.getSnapshot().getPlans().size());
+    }
+
+    @Test
+    public void retainOnlyKeepsEntriesAddedAfterQueueWasRead() {
+        queuePlan("A-B-1", "image-a", Configuration.ContainerSize.REGULAR);
+        queuePlan("A-B-2", "image-a", Configuration.ContainerSize.REGULAR);
+        when(dateTime.getCurrentTime()).thenReturn(5000L);
+        queuePlan("A-B-3", "image-a", Configuration.ContainerSize.REGULAR);
+
+        statistics.retainOnly(ImmutableSet.of("A-B-2"), 2000L);
+
+        assertEquals(2, statistics.getSnapshot().getPlans().size());
+        assertEquals(2, statistics.getSnapshot().getCounts().values().iterator().next());
+    }
+
+    @Test
+    public void reconcileIsRateLimited() {
+        queuePlan("A-B-1", "image-a", Configuration.ContainerSize.REGULAR);
+        when(dateTime.getCurrentTime()).thenReturn(QueueStatistics.RECONCILE_INTERVAL + 2000L);
+        statistics.reconcile(() -> Collections.<CommonContext>emptyList().stream());
+        assertEquals(0, statistics.getSnapshot().getPlans().size());
+
+        queuePlan("A-B-2", "image-a", Configuration.ContainerSize.REGULAR);
+        when(dateTime.getCurrentTime()).thenReturn(QueueStatistics.RECONCILE_INTERVAL + 3000L);
+        statistics.reconcile(() -> {
+            throw new AssertionError("queue read within the reconcile interval");
+        });
+        assertEquals(1, statistics.getSnapshot().getPlans().size());
+    }
+
+    @Test
+    public void exportWritesOneLinePerBucket() throws IOException {
+        queuePlan("A-B-1", "image-a", Configuration.ContainerSize.REGULAR);
+        queuePlan("A-B-2", "image-a", Configuration.ContainerSize.REGULAR);
+        statistics.queued(
+                "D-1",
+                QueueStatistics.KIND_DEPLOYMENT,
+                ImmutableMap.of("resultKey", "D-1"),
+                ConfigurationBuilder.create("image-d")
+                        .withImageSize(Configuration.ContainerSize.SMALL)
+                        .withArchitecture("arm64")
+                        .build());
+
+        StringWriter writer = new StringWriter();
+        statistics.getSnapshot().export(writer);
+
+        assertEquals(
+                "state\tkind\timage\tsize\tarchitecture\tcount\n"
+                        + "QUEUED\tdeployment\timage-d\tSMALL\tarm64\t1\n"
+                        + "QUEUED\tplan\timage-a\tREGULAR\t-\t2\n",
+                writer.toString());
+        assertEquals(1, statistics.getSnapshot().getDeployments().size());
+    }
+
+    private void queuePlan(String resultKey, String image, Configuration.ContainerSize size) {
+        statistics.queued(
+                resultKey,
+                QueueStatistics.KIND_PLAN,
+                ImmutableMap.of("resultKey", resultKey),
+                ConfigurationBuilder.create(image).withImageSize(size).build());
+    }
+}
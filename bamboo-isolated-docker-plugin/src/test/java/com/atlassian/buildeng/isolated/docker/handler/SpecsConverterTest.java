@@ -0,0 +1,173 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.isolated.docker.handler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+
+import com.atlassian.bamboo.specs.api.builders.pbc.PerBuildContainerForEnvironment;
+import com.atlassian.bamboo.specs.api.builders.pbc.PerBuildContainerForJob;
+import com.atlassian.bamboo.specs.api.model.pbc.EnvProperties;
+import com.atlassian.bamboo.specs.api.model.pbc.ExtraContainerProperties;
+import com.atlassian.buildeng.spi.isolated.docker.Configuration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class SpecsConverterTest {
+
+    private static final int JOBS = 10_000;
+    private static final int IMAGES = 25;
+
+    @Test
+    void syntheticSpecConvertsEachDistinctBlockOnce() {
+        List<Map<String, String>> spec = syntheticSpec(JOBS);
+        SpecsConverter converter = new SpecsConverter(SpecsConverter.MAX_ENTRIES);
+        // a cache that can't hold anything converts every job from scratch
+        SpecsConverter reference = new SpecsConverter(0);
+
+        for (Map<String, String> job : spec) {
+            assertEquals(reference.toJobEntity(job), converter.toJobEntity(job));
+        }
+        assertEquals(IMAGES * 2, converter.getMisses());
+        assertEquals(JOBS - IMAGES * 2, converter.getHits());
+        assertEquals(JOBS, reference.getMisses());
+    }
+
+    @Test
+    void cachedBlocksAreNotShared() {
+        SpecsConverter converter = new SpecsConverter(SpecsConverter.MAX_ENTRIES);
+        Map<String, String> job = syntheticSpec(1).get(0);
+
+        PerBuildContainerForJob first = converter.toJobEntity(job);
+        PerBuildContainerForJob second = converter.toJobEntity(job);
+        first.image("mutated");
+
+        assertNotSame(first, second);
+        assertEquals(converter.toJobEntity(job), second);
+        assertEquals(1, converter.getMisses());
+    }
+
+    @Test
+    void jobAndEnvironmentShareBlocks() {
+        SpecsConverter converter = new SpecsConverter(SpecsConverter.MAX_ENTRIES);
+        Map<String, String> block = syntheticSpec(1).get(0);
+
+        PerBuildContainerForJob job = converter.toJobEntity(block);
+        PerBuildContainerForEnvironment environment = converter.toEnvironmentEntity(block);
+
+        assertEquals(new SpecsConverter(0).toEnvironmentEntity(block), environment);
+        assertEquals(new SpecsConverter(0).toJobEntity(block), job);
+        assertEquals(1, converter.getMisses());
+        assertEquals(1, converter.getHits());
+    }
+
+    @Test
+    void missingAndBlankValuesAreDistinctBlocks() {
+        SpecsConverter converter = new SpecsConverter(SpecsConverter.MAX_ENTRIES);
+        Map<String, String> withRole = syntheticSpec(1).get(0);
+        Map<String, String> blankRole = new HashMap<>(withRole);
+        blankRole.put(Configuration.DOCKER_AWS_ROLE, "");
+        Map<String, String> noRole = new HashMap<>(withRole);
+        noRole.remove(Configuration.DOCKER_AWS_ROLE);
+
+        converter.toJobEntity(withRole);
+        converter.toJobEntity(blankRole);
+        converter.toJobEntity(noRole);
+
+        assertEquals(3, converter.getMisses());
+    }
+
+    @Test
+    void extraContainersJsonIsCachedByContent() {
+        SpecsConverter converter = new SpecsConverter(SpecsConverter.MAX_ENTRIES);
+        SpecsConverter reference = new SpecsConverter(0);
+
+        for (int i = 0; i < JOBS; i++) {
+            List<ExtraContainerProperties> containers = extraContainers(i % IMAGES);
+            assertEquals(reference.toJsonString(containers), converter.toJsonString(containers));
+        }
+        assertEquals(IMAGES, converter.getMisses());
+        // values that would concatenate the same way must not collide
+        assertEquals(
+                reference.toJsonString(Collections.singletonList(container("ab", "c"))),
+                converter.toJsonString(Collections.singletonList(container("ab", "c"))));
+        assertEquals(
+                reference.toJsonString(Collections.singletonList(container("a", "bc"))),
+                converter.toJsonString(Collections.singletonList(container("a", "bc"))));
+        assertEquals(IMAGES + 2, converter.getMisses());
+    }
+
+    @Test
+    void leastRecentlyUsedBlocksAreEvicted() {
+        SpecsConverter converter = new SpecsConverter(2);
+        List<Map<String, String>> spec = syntheticSpec(IMAGES * 2);
+
+        converter.toJobEntity(spec.get(0));
+        converter.toJobEntity(spec.get(1));
+        converter.toJobEntity(spec.get(0));
+        converter.toJobEntity(spec.get(2));
+        converter.toJobEntity(spec.get(0));
+        converter.toJobEntity(spec.get(1));
+
+        assertEquals(4, converter.getMisses());
+        assertEquals(2, converter.getHits());
+    }
+
+    /**
+     * Plan tree of a large specs repository: many jobs sharing a small set of images, with and without sidecars.
+     */
+    static List<Map<String, String>> syntheticSpec(int jobs) {
+        List<Map<String, String>> result = new ArrayList<>(jobs);
+        for (int i = 0; i < jobs; i++) {
+            int image = i % IMAGES;
+            Map<String, String> job = new HashMap<>();
+            job.put(Configuration.ENABLED_FOR_JOB, "true");
+            job.put(Configuration.DOCKER_IMAGE, "docker.example.com/build/image-" + image + ":latest");
+            job.put(Configuration.DOCKER_IMAGE_SIZE, image % 3 == 0 ? "LARGE" : "REGULAR");
+            job.put(Configuration.DOCKER_AWS_ROLE, "arn:aws:iam::0:role/role-" + image);
+            job.put(Configuration.DOCKER_ARCHITECTURE, image % 5 == 0 ? "arm64" : "");
+            job.put(Configuration.DOCKER_FEATURE_FLAGS, "[\"flag-" + image + "\"]");
+            job.put(
+                    Configuration.DOCKER_EXTRA_CONTAINERS,
+                    (i / IMAGES) % 2 == 0
+                            ? "[]"
+                            : "[{\"name\":\"db\",\"image\":\"postgres:" + image + "\",\"size\":\"SMALL\","
+                                    + "\"commands\":[\"-c\",\"fsync=off\"],"
+                                    + "\"envVars\":[{\"name\":\"POSTGRES_DB\",\"value\":\"db" + image + "\"}]}]");
+            result.add(job);
+        }
+        return result;
+    }
+
+    private static List<ExtraContainerProperties> extraContainers(int image) {
+        return Arrays.asList(container("db", "postgres:" + image), container("cache", "redis:" + image));
+    }
+
+    private static ExtraContainerProperties container(String name, String image) {
+        return new ExtraContainerProperties(
+                name,
+                image,
+                "SMALL",
+                new ArrayList<>(Arrays.asList("-c", "fsync=off")),
+                new ArrayList<>(Collections.singletonList(new EnvProperties("KEY", name))));
+    }
+}
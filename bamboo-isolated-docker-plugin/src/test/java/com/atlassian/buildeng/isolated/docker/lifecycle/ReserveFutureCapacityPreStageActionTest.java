@@ -17,9 +17,12 @@
 package com.atlassian.buildeng.isolated.docker.lifecycle;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.atlassian.bamboo.builder.BuildState;
@@ -33,15 +36,16 @@ import com.atlassian.bamboo.plan.cache.ImmutablePlan;
 import com.atlassian.bamboo.resultsummary.ResultsSummary;
 import com.atlassian.bamboo.resultsummary.ResultsSummaryCriteria;
 import com.atlassian.bamboo.resultsummary.ResultsSummaryManager;
+import com.atlassian.buildeng.isolated.docker.DateTime;
 import com.atlassian.buildeng.spi.isolated.docker.IsolatedAgentService;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
@@ -56,9 +60,14 @@ public class ReserveFutureCapacityPreStageActionTest {
     @Mock
     private CachedPlanManager cachedPlanManager;
 
-    @InjectMocks
     private ReserveFutureCapacityPreStageAction action;
 
+    @BeforeEach
+    public void setUp() {
+        action = new ReserveFutureCapacityPreStageAction(
+                isoService, new JobHistoryForecaster(resultsSummaryManager, new DateTime()), cachedPlanManager, null);
+    }
+
     @Test
     public void testNoResults() {
         StageExecution stage = mockStageExecution(new String[] {"AAA-BBB-CCC-22"});
@@ -227,6 +236,54 @@ public class ReserveFutureCapacityPreStageActionTest {
         assertEquals(1000, ret);
     }
 
+    @Test
+    public void testHistoryUpdatedWithoutQueries() {
+        StageExecution stage = mockStageExecution(new String[] {"AAA-BBB-CCC-22"});
+        final List<ResultsSummary> summaries = summaries(new Summ[] {
+            new Summ(1000, BuildState.SUCCESS),
+            new Summ(1000, BuildState.SUCCESS),
+            new Summ(1000, BuildState.SUCCESS),
+            new Summ(500, BuildState.FAILED),
+            new Summ(500, BuildState.FAILED),
+            new Summ(500, BuildState.FAILED),
+        });
+        when(resultsSummaryManager.getResultSummaries(eq(new ResultsSummaryCriteria(
+                        PlanKeys.getPlanKey("AAA-BBB-CCC").getKey()))))
+                .thenReturn(summaries);
+        JobHistoryForecaster forecaster = new JobHistoryForecaster(resultsSummaryManager, new DateTime());
+        action = new ReserveFutureCapacityPreStageAction(isoService, forecaster, cachedPlanManager, null);
+        assertEquals(-1, action.stageSuccessfulCompletionAvg(stage));
+
+        forecaster.recordResult(PlanKeys.getPlanKey("AAA-BBB-CCC"), BuildState.SUCCESS, 1600);
+        forecaster.recordResult(PlanKeys.getPlanKey("AAA-BBB-CCC"), BuildState.SUCCESS, 1600);
+        forecaster.recordResult(PlanKeys.getPlanKey("AAA-BBB-CCC"), BuildState.SUCCESS, 1600);
+        // unrelated jobs that were never forecasted are not tracked.
+        forecaster.recordResult(PlanKeys.getPlanKey("AAA-BBB-EEE"), BuildState.SUCCESS, 1600);
+
+        // 6 successful out of the last 9
+        assertEquals(1300, action.stageSuccessfulCompletionAvg(stage));
+        verify(resultsSummaryManager, times(1)).getResultSummaries(any(ResultsSummaryCriteria.class));
+        assertEquals(1, forecaster.getAccuracy().getCachedJobs());
+    }
+
+    @Test
+    public void testHistoryReloadedOnceStale() {
+        DateTime dateTime = mock(DateTime.class);
+        when(dateTime.getCurrentTime()).thenReturn(0L, 1000L, JobHistoryForecaster.RELOAD_INTERVAL_MILLIS);
+        when(resultsSummaryManager.getResultSummaries(any(ResultsSummaryCriteria.class)))
+                .thenReturn(summaries(new Summ[] {new Summ(1000, BuildState.SUCCESS)}));
+        ImmutablePlan job = mock(ImmutablePlan.class);
+        when(job.getPlanKey()).thenReturn(PlanKeys.getPlanKey("AAA-BBB-CCC"));
+        JobHistoryForecaster forecaster = new JobHistoryForecaster(resultsSummaryManager, dateTime);
+
+        forecaster.forecast(job);
+        forecaster.forecast(job);
+        forecaster.forecast(job);
+
+        verify(resultsSummaryManager, times(2)).getResultSummaries(any(ResultsSummaryCriteria.class));
+        assertEquals(1, forecaster.getAccuracy().getCachedJobs());
+    }
+
     private List<ResultsSummary> summaries(Summ[] summaries) {
         List<ResultsSummary> toRet = new ArrayList<>();
         for (Summ s : summaries) {
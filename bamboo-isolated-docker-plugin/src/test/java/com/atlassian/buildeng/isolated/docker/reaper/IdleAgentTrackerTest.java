@@ -0,0 +1,76 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.isolated.docker.reaper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class IdleAgentTrackerTest {
+
+    @Test
+    public void dueAgentsArePolledInTimeOrder() {
+        IdleAgentTracker tracker = new IdleAgentTracker();
+        tracker.track(1, 300);
+        tracker.track(2, 100);
+        tracker.track(3, 200);
+        tracker.track(4, 1000);
+
+        assertEquals(Arrays.asList(2L, 3L, 1L), tracker.pollDue(500));
+        assertEquals(1, tracker.size());
+        assertTrue(tracker.pollDue(500).isEmpty());
+        assertEquals(Collections.singletonList(4L), tracker.pollDue(1000));
+    }
+
+    @Test
+    public void trackingAgainReplacesDueTime() {
+        IdleAgentTracker tracker = new IdleAgentTracker();
+        tracker.track(1, 1000);
+        tracker.track(1, 100);
+        assertEquals(1, tracker.size());
+        assertEquals(Collections.singletonList(1L), tracker.pollDue(100));
+        assertEquals(0, tracker.size());
+    }
+
+    @Test
+    public void forgottenAgentIsNotDue() {
+        IdleAgentTracker tracker = new IdleAgentTracker();
+        tracker.track(1, 100);
+        tracker.forget(1);
+        assertTrue(tracker.pollDue(1000).isEmpty());
+    }
+
+    @Test
+    public void fullScanReplacesTrackedAgents() {
+        IdleAgentTracker tracker = new IdleAgentTracker();
+        assertTrue(tracker.isFullScanDue(0));
+        tracker.track(1, 100);
+        Map<Long, Long> scanned = new HashMap<>();
+        scanned.put(2L, 200L);
+        tracker.fullScanCompleted(scanned, 50);
+
+        assertFalse(tracker.isFullScanDue(50 + IdleAgentTracker.FULL_SCAN_INTERVAL_MILLIS - 1));
+        assertTrue(tracker.isFullScanDue(50 + IdleAgentTracker.FULL_SCAN_INTERVAL_MILLIS));
+        assertEquals(Collections.singletonList(2L), tracker.pollDue(1000));
+    }
+}
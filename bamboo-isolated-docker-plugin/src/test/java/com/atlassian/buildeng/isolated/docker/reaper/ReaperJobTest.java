@@ -19,6 +19,8 @@ package com.atlassian.buildeng.isolated.docker.reaper;
 import static com.atlassian.buildeng.isolated.docker.reaper.Reaper.REAPER_AGENTS_HELPER_KEY;
 import static com.atlassian.buildeng.isolated.docker.reaper.Reaper.REAPER_AGENT_MANAGER_KEY;
 import static com.atlassian.buildeng.isolated.docker.reaper.Reaper.REAPER_REMOVALS_KEY;
+import static com.atlassian.buildeng.isolated.docker.reaper.Reaper.REAPER_TRACKER_KEY;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
@@ -51,15 +53,19 @@ import org.quartz.JobExecutionException;
 public class ReaperJobTest {
     private ExecutableAgentsHelper executableAgentsHelper;
 
+    private AgentManager agentManager;
+
+    private JobDataMap jobDataMap;
+
     private JobExecutionContext context;
 
     private ReaperJob reaperJob;
 
     @BeforeEach
     public void setUp() {
-        JobDataMap jobDataMap = new JobDataMap();
+        jobDataMap = new JobDataMap();
 
-        AgentManager agentManager = mock(AgentManager.class);
+        agentManager = mock(AgentManager.class);
         AgentRemovals agentRemovals = mock(AgentRemovals.class);
         executableAgentsHelper = mock(ExecutableAgentsHelper.class);
 
@@ -161,6 +167,46 @@ public class ReaperJobTest {
         verify(agent, times(0)).accept(any(SleeperGraveling.class));
     }
 
+    @Test
+    public void onlyDueAgentsAreCheckedBetweenFullScans() throws JobExecutionException {
+        IdleAgentTracker tracker = new IdleAgentTracker();
+        tracker.fullScanCompleted(Collections.emptyMap(), System.currentTimeMillis());
+        jobDataMap.put(REAPER_TRACKER_KEY, tracker);
+        BuildAgent agent = mockIdleDockerAgent(minutesAgo(1000));
+        when(agent.isEnabled()).thenReturn(true);
+        when(agent.isActive()).thenReturn(true);
+        when(agentManager.getAgent(1L)).thenReturn(agent);
+        tracker.track(1L, 0);
+        tracker.track(2L, Long.MAX_VALUE);
+
+        reaperJob.execute(context);
+
+        verify(agent, times(1)).accept(any(SleeperGraveling.class));
+        verify(agentManager, times(0)).getAgent(2L);
+        verify(executableAgentsHelper, times(0)).getExecutableAgents(any());
+        // disabled agent is due again to be killed in the next run
+        assertEquals(2, tracker.size());
+    }
+
+    @Test
+    public void fullScanSeedsTracker() throws JobExecutionException {
+        IdleAgentTracker tracker = new IdleAgentTracker();
+        jobDataMap.put(REAPER_TRACKER_KEY, tracker);
+        BuildAgent agent = mockIdleDockerAgent(minutesAgo(0));
+        when(agent.getId()).thenReturn(7L);
+        when(agent.isEnabled()).thenReturn(true);
+        when(agent.isActive()).thenReturn(true);
+        when(executableAgentsHelper.getExecutableAgents(any()))
+                .thenReturn(new ArrayList<>(Collections.singletonList(agent)))
+                .thenReturn(Collections.emptyList());
+
+        reaperJob.execute(context);
+
+        verify(agent, times(0)).accept(any(SleeperGraveling.class));
+        assertEquals(1, tracker.size());
+        assertTrue(tracker.pollDue(System.currentTimeMillis()).isEmpty());
+    }
+
     private BuildAgent mockElasticAgent(Date creationDate) {
         BuildAgent agent = mock(BuildAgent.class);
         when(agent.getType()).thenReturn(AgentType.REMOTE);
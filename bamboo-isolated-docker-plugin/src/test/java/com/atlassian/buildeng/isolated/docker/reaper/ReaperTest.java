@@ -36,6 +36,7 @@ public class ReaperTest {
     private AgentManager agentManager;
     private AgentRemovals agentRemovals;
     private UnmetRequirements unmetRequirements;
+    private IdleAgentTracker idleAgentTracker;
 
     private Reaper reaper;
 
@@ -46,8 +47,10 @@ public class ReaperTest {
         agentManager = mock(AgentManager.class);
         agentRemovals = mock(AgentRemovals.class);
         unmetRequirements = mock(UnmetRequirements.class);
+        idleAgentTracker = new IdleAgentTracker();
 
-        reaper = new Reaper(scheduler, executableAgentsHelper, agentManager, agentRemovals, unmetRequirements);
+        reaper = new Reaper(
+                scheduler, executableAgentsHelper, agentManager, agentRemovals, unmetRequirements, idleAgentTracker);
     }
 
     @Test
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.isolated.docker.sox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+public class ImageAllowListTest {
+
+    @Test
+    public void literalAndPrefixPatterns() {
+        ImageAllowList list = ImageAllowList.compile(
+                new String[] {"^docker\\.atlassian\\.io/buildeng/.*", "ubuntu:16.04", "^alpine$", "node:1[0-9]"});
+        assertTrue(list.matches("docker.atlassian.io/buildeng/agent-baseagent"));
+        assertFalse(list.matches("dockerXatlassian.io/buildeng/agent-baseagent"));
+        assertTrue(list.matches("ubuntu:16.04"));
+        assertFalse(list.matches("ubuntu:16.04.1"));
+        assertTrue(list.matches("alpine"));
+        assertFalse(list.matches("alpine:3"));
+        assertTrue(list.matches("node:12"));
+        assertFalse(list.matches("node:8"));
+    }
+
+    @Test
+    public void quantifiedCharacterIsNotPartOfPrefix() {
+        ImageAllowList list = ImageAllowList.compile(new String[] {"abc*", "x+y", "ma?ven", "go{2}gle"});
+        assertTrue(list.matches("ab"));
+        assertTrue(list.matches("abccc"));
+        assertTrue(list.matches("xxxy"));
+        assertTrue(list.matches("mven"));
+        assertTrue(list.matches("google"));
+        assertFalse(list.matches("gogle"));
+    }
+
+    @Test
+    public void alternationAndFlagsFallBackToRegex() {
+        ImageAllowList list = ImageAllowList.compile(new String[] {"^a.*|^b.*", "(?i)MAVEN:.*", "c\\|d"});
+        assertTrue(list.matches("banana"));
+        assertTrue(list.matches("maven:3"));
+        assertTrue(list.matches("c|d"));
+        assertFalse(list.matches("cd"));
+    }
+
+    @Test
+    public void dotDoesNotMatchLineTerminators() {
+        ImageAllowList list = ImageAllowList.compile(new String[] {"ubuntu.*"});
+        assertFalse(list.matches("ubuntu\n:latest"));
+        assertTrue(list.matches("ubuntu:latest"));
+    }
+
+    @Test
+    public void invalidPatternKeepsPreviousBehaviour() {
+        ImageAllowList list = ImageAllowList.compile(new String[] {"[unclosed"});
+        assertEquals(1, list.patternCount());
+        assertTrue(list.matches("X"));
+        assertFalse(list.matches("[unclosed"));
+    }
+
+    @Test
+    public void emptyWhitelistMatchesNothing() {
+        assertFalse(ImageAllowList.compile(null).matches("ubuntu"));
+        assertFalse(ImageAllowList.compile(new String[0]).matches("ubuntu"));
+    }
+
+    @Test
+    public void sameVerdictsAsEvaluatingEachPattern() {
+        Random random = new Random(42);
+        String[] registries = {"docker.atlassian.io", "docker-proxy.services.atlassian.com", "quay.io", "gcr.io"};
+        String[] teams = {"buildeng", "sox", "pipelines", "bamboo", "jira", "confluence", "search", "identity"};
+        List<String> patterns = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            String prefix = registries[random.nextInt(registries.length)].replace(".", "\\.")
+                    + "/" + teams[random.nextInt(teams.length)] + i;
+            switch (random.nextInt(4)) {
+                case 0:
+                    patterns.add("^" + prefix + "/.*");
+                    break;
+                case 1:
+                    patterns.add(prefix + ":[0-9]+\\.[0-9]+");
+                    break;
+                case 2:
+                    patterns.add(prefix + "/agent-(base|java|node)agent$");
+                    break;
+                default:
+                    patterns.add(prefix + "/img" + random.nextInt(10));
+                    break;
+            }
+        }
+        patterns.add("^library/.*|^_/.*");
+        List<Pattern> compiled = patterns.stream().map(Pattern::compile).collect(Collectors.toList());
+        ImageAllowList list = ImageAllowList.compile(patterns.toArray(new String[0]));
+        String[] suffixes = {"/x", ":1.2", ":1.x", "/agent-javaagent", "/agent-rubyagent", "/img3", "/img33", ""};
+        int allowed = 0;
+        for (int i = 0; i < 5000; i++) {
+            String image = random.nextInt(50) == 0
+                    ? "library/ubuntu"
+                    : registries[random.nextInt(registries.length)] + "/"
+                            + teams[random.nextInt(teams.length)] + random.nextInt(3100)
+                            + suffixes[random.nextInt(suffixes.length)];
+            boolean expected = compiled.stream().anyMatch((Pattern t) -> t.matcher(image).matches());
+            assertEquals(expected, list.matches(image), image);
+            // memoized verdict is the same
+            assertEquals(expected, list.matches(image), image);
+            allowed += expected ? 1 : 0;
+        }
+        assertTrue(allowed > 100 && allowed < 4900, "both verdicts exercised: " + allowed);
+    }
+}
@@ -36,6 +36,7 @@ import com.atlassian.buildeng.spi.isolated.docker.IsolatedAgentService;
 import com.atlassian.buildeng.spi.isolated.docker.IsolatedDockerAgentRequest;
 import com.atlassian.buildeng.spi.isolated.docker.IsolatedDockerAgentResult;
 import com.atlassian.buildeng.spi.isolated.docker.IsolatedDockerRequestCallback;
+import com.atlassian.buildeng.spi.isolated.docker.RetryReason;
 import com.atlassian.event.api.EventPublisher;
 import com.atlassian.sal.api.lifecycle.LifecycleAware;
 import java.net.MalformedURLException;
@@ -106,7 +107,7 @@ public class ECSIsolatedAgentServiceImpl implements IsolatedAgentService, Lifecy
                                 .contains(
                                         "Too many concurrent attempts to create a new revision of the specified family")) {
                     IsolatedDockerAgentResult toRet = new IsolatedDockerAgentResult();
-                    toRet.withRetryRecoverable("Hit Api limit for task revisions.");
+                    toRet.withRetryRecoverable("Hit Api limit for task revisions.", RetryReason.THROTTLED);
                     callback.handle(toRet);
                 } else {
                     callback.handle(ex);
@@ -45,9 +45,13 @@ import java.io.StringWriter;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 import javax.inject.Inject;
 import org.apache.commons.io.IOUtils;
@@ -68,6 +72,8 @@ public class GlobalConfiguration implements ContainerSizeDescriptor, LifecycleAw
     private static final String MAIN_PREFIX = "main-";
     private static final String EXTRA_PREFIX = "extra-";
     private static final Logger logger = LoggerFactory.getLogger(GlobalConfiguration.class);
+    // settings saved on other nodes get picked up at the latest after this long.
+    private static final long SNAPSHOT_MAX_AGE_NANOS = TimeUnit.MINUTES.toNanos(1);
     static String BANDANA_SIDEKICK_KEY = "com.atlassian.buildeng.pbc.kubernetes.sidekick";
     static String BANDANA_POD_TEMPLATE = "com.atlassian.buildeng.pbc.kubernetes.podtemplate";
     static String BANDANA_IAM_REQUEST_TEMPLATE = "com.atlassian.buildeng.pbc.kubernetes.iamRequesttemplate";
@@ -87,11 +93,9 @@ public class GlobalConfiguration implements ContainerSizeDescriptor, LifecycleAw
     private final AdministrationConfigurationAccessor admConfAccessor;
     private final AuditLogService auditLogService;
     private final BambooAuthenticationContext authenticationContext;
-    private final Map<String, Integer> cpuSizes = new HashMap<>();
-    private final Map<String, Integer> memorySizes = new HashMap<>();
-    private final Map<String, Integer> memoryLimitSizes = new HashMap<>();
-    private final Map<String, String> labelSizes = new HashMap<>();
     private final ContainerSizeDescriptor defaults = new DefaultContainerSizeDescriptor();
+    private final List<Consumer<Snapshot>> changeListeners = new CopyOnWriteArrayList<>();
+    private volatile Snapshot snapshot;
 
     @Inject
     public GlobalConfiguration(
@@ -109,6 +113,75 @@ public class GlobalConfiguration implements ContainerSizeDescriptor, LifecycleAw
         return this;
     }
 
+    /**
+     * Current Kubernetes backend settings, cached the same way as the PBC settings.
+     */
+    @NotNull
+    public Snapshot getSnapshot() {
+        Snapshot current = snapshot;
+        if (isStale(current)) {
+            current = reloadIfStale();
+        }
+        return current;
+    }
+
+    private synchronized Snapshot reloadIfStale() {
+        // another thread may have reloaded while this one waited for the lock.
+        Snapshot current = snapshot;
+        return isStale(current) ? reload() : current;
+    }
+
+    private static boolean isStale(@Nullable Snapshot current) {
+        return current == null || System.nanoTime() - current.loadedAt > SNAPSHOT_MAX_AGE_NANOS;
+    }
+
+    /**
+     * Registers a callback invoked with the new settings whenever they change.
+     */
+    public void addChangeListener(Consumer<Snapshot> listener) {
+        changeListeners.add(listener);
+    }
+
+    public void removeChangeListener(Consumer<Snapshot> listener) {
+        changeListeners.remove(listener);
+    }
+
+    synchronized Snapshot reload() {
+        Snapshot old = snapshot;
+        Snapshot loaded = new Snapshot(
+                getBandanaString(BANDANA_SIDEKICK_KEY),
+                getBandanaString(BANDANA_POD_TEMPLATE),
+                getBandanaString(BANDANA_ARCHITECTURE_CONFIG),
+                getBandanaIamRequestTemplateRaw(),
+                getIamSubjectIdPrefixRaw(),
+                getBandanaString(BANDANA_CONTAINER_SIZES),
+                getBandanaString(BANDANA_POD_LOGS_URL),
+                (Boolean) bandanaManager.getValue(PlanAwareBandanaContext.GLOBAL_CONTEXT, BANDANA_USE_CLUSTER_REGISTRY),
+                getBandanaString(BANDANA_CR_AVAILABLE_CLUSTER_SELECTOR),
+                getBandanaString(BANDANA_CR_PRIMARY_CLUSTER_SELECTOR),
+                getBandanaString(BANDANA_ARTIFACTORY_CACHE_ALLOWLIST),
+                getBandanaString(BANDANA_ARTIFACTORY_CACHE_PODSPEC),
+                getAgentHeartbeatTimeRaw(),
+                getBandanaString(BANDANA_CURRENT_CONTEXT),
+                System.nanoTime());
+        snapshot = loaded;
+        if (old != null && !old.sameSettings(loaded)) {
+            for (Consumer<Snapshot> listener : changeListeners) {
+                try {
+                    listener.accept(loaded);
+                } catch (RuntimeException e) {
+                    logger.error("Failed to notify about PBC Kubernetes settings change", e);
+                }
+            }
+        }
+        return loaded;
+    }
+
+    @Nullable
+    private String getBandanaString(String key) {
+        return (String) bandanaManager.getValue(PlanAwareBandanaContext.GLOBAL_CONTEXT, key);
+    }
+
     /**
      * Strips characters from bamboo baseurl to conform to kubernetes label values.
      *
@@ -130,6 +203,15 @@ public class GlobalConfiguration implements ContainerSizeDescriptor, LifecycleAw
      * Saves changes to the configuration.
      */
     public void persist(Config config) throws IOException {
+        try {
+            persistChanges(config);
+        } finally {
+            // some values could have been written even when the rest was rejected
+            reload();
+        }
+    }
+
+    private void persistChanges(Config config) throws IOException {
         final String sidekick = config.getSidekickImage();
         final String currentContext = config.getCurrentContext();
         final String podTemplate = config.getPodTemplate();
@@ -188,7 +270,6 @@ public class GlobalConfiguration implements ContainerSizeDescriptor, LifecycleAw
         if (!StringUtils.equals(containerSizes, getContainerSizesAsString())) {
             auditLogEntry("PBC Kubernetes Container Sizes", getContainerSizesAsString(), containerSizes);
             bandanaManager.setValue(PlanAwareBandanaContext.GLOBAL_CONTEXT, BANDANA_CONTAINER_SIZES, containerSizes);
-            reloadContainerSizes();
         }
         if (!StringUtils.equals(podLogUrl, getPodLogsUrl())) {
             auditLogEntry("PBC Kubernetes Container Logs URL", getPodLogsUrl(), podLogUrl);
@@ -405,7 +486,7 @@ public class GlobalConfiguration implements ContainerSizeDescriptor, LifecycleAw
     }
 
     public String getCurrentSidekick() {
-        return (String) bandanaManager.getValue(PlanAwareBandanaContext.GLOBAL_CONTEXT, BANDANA_SIDEKICK_KEY);
+        return getSnapshot().sidekick;
     }
 
     private void auditLogEntry(String name, String oldValue, String newValue) {
@@ -429,8 +510,7 @@ public class GlobalConfiguration implements ContainerSizeDescriptor, LifecycleAw
      * @return string representation of yaml
      */
     public String getPodTemplateAsString() {
-        String template =
-                (String) bandanaManager.getValue(PlanAwareBandanaContext.GLOBAL_CONTEXT, BANDANA_POD_TEMPLATE);
+        String template = getSnapshot().podTemplate;
         if (template == null) {
             return "apiVersion: v1\n" + "kind: Pod";
         }
@@ -443,8 +523,7 @@ public class GlobalConfiguration implements ContainerSizeDescriptor, LifecycleAw
      * @return Architecture dependent pod YAML template as string
      */
     public String getBandanaArchitecturePodConfig() {
-        String config =
-                (String) bandanaManager.getValue(PlanAwareBandanaContext.GLOBAL_CONTEXT, BANDANA_ARCHITECTURE_CONFIG);
+        String config = getSnapshot().architecturePodConfig;
         if (StringUtils.isBlank(config)) {
             return "";
         }
@@ -458,7 +537,7 @@ public class GlobalConfiguration implements ContainerSizeDescriptor, LifecycleAw
      */
     @NotNull
     public String getBandanaIamRequestTemplateAsString() {
-        String template = getBandanaIamRequestTemplateRaw();
+        String template = getSnapshot().iamRequestTemplate;
         if (template == null) {
             return "kind: IAMRequest";
         }
@@ -472,7 +551,7 @@ public class GlobalConfiguration implements ContainerSizeDescriptor, LifecycleAw
      */
     @NotNull
     public String getIamSubjectIdPrefix() {
-        String iamSubjectId = getIamSubjectIdPrefixRaw();
+        String iamSubjectId = getSnapshot().iamSubjectIdPrefix;
         // (String) null = "null", which causes the displayed value to show null{subjectId}
         // If the subject ID is null, return an empty string instead
         if (iamSubjectId == null) {
@@ -482,8 +561,7 @@ public class GlobalConfiguration implements ContainerSizeDescriptor, LifecycleAw
     }
 
     String getContainerSizesAsString() throws IOException {
-        String template =
-                (String) bandanaManager.getValue(PlanAwareBandanaContext.GLOBAL_CONTEXT, BANDANA_CONTAINER_SIZES);
+        String template = getSnapshot().containerSizes;
         if (template == null) {
             try (InputStream is = getClass().getResourceAsStream("/defaultContainerSizes.json")) {
                 StringWriter writer = new StringWriter();
@@ -494,56 +572,32 @@ public class GlobalConfiguration implements ContainerSizeDescriptor, LifecycleAw
         return template;
     }
 
-    private synchronized void reloadContainerSizes() {
-        try {
-            cpuSizes.clear();
-            memoryLimitSizes.clear();
-            memorySizes.clear();
-            labelSizes.clear();
-            JsonElement root = JsonParser.parseString(getContainerSizesAsString());
-            root.getAsJsonObject().getAsJsonArray("main").forEach((JsonElement t) -> {
-                processEntry(t, MAIN_PREFIX);
-            });
-            root.getAsJsonObject().getAsJsonArray("extra").forEach((JsonElement t) -> {
-                processEntry(t, EXTRA_PREFIX);
-            });
-        } catch (IOException ex) {
-            logger.error("IO error during reloading container sizes", ex);
-        }
-    }
-
     public String getPodLogsUrl() {
-        return (String) bandanaManager.getValue(PlanAwareBandanaContext.GLOBAL_CONTEXT, BANDANA_POD_LOGS_URL);
+        return getSnapshot().podLogsUrl;
     }
 
     /**
      * use cluster registry to dynamically discover current clusters.
      */
     public boolean isUseClusterRegistry() {
-        Boolean val =
-                (Boolean) bandanaManager.getValue(PlanAwareBandanaContext.GLOBAL_CONTEXT, BANDANA_USE_CLUSTER_REGISTRY);
-        return val != null ? val : false;
+        return getSnapshot().useClusterRegistry;
     }
 
     public String getClusterRegistryAvailableClusterSelector() {
-        return (String)
-                bandanaManager.getValue(PlanAwareBandanaContext.GLOBAL_CONTEXT, BANDANA_CR_AVAILABLE_CLUSTER_SELECTOR);
+        return getSnapshot().clusterRegistryAvailableSelector;
     }
 
     public String getClusterRegistryPrimaryClusterSelector() {
-        return (String)
-                bandanaManager.getValue(PlanAwareBandanaContext.GLOBAL_CONTEXT, BANDANA_CR_PRIMARY_CLUSTER_SELECTOR);
+        return getSnapshot().clusterRegistryPrimarySelector;
     }
 
     public String getArtifactoryCacheAllowListAsString() {
-        String allowList = (String)
-                bandanaManager.getValue(PlanAwareBandanaContext.GLOBAL_CONTEXT, BANDANA_ARTIFACTORY_CACHE_ALLOWLIST);
+        String allowList = getSnapshot().artifactoryCacheAllowList;
         return allowList != null ? allowList : "";
     }
 
     public String getArtifactoryCachePodSpecAsString() {
-        String podSpec = (String)
-                bandanaManager.getValue(PlanAwareBandanaContext.GLOBAL_CONTEXT, BANDANA_ARTIFACTORY_CACHE_PODSPEC);
+        String podSpec = getSnapshot().artifactoryCachePodSpec;
         return podSpec != null ? podSpec : "";
     }
 
@@ -565,6 +619,7 @@ public class GlobalConfiguration implements ContainerSizeDescriptor, LifecycleAw
                 // rely on default context in .kube/config.
                 bandanaManager.removeValue(PlanAwareBandanaContext.GLOBAL_CONTEXT, BANDANA_CURRENT_CONTEXT);
             }
+            reload();
         }
     }
 
@@ -591,7 +646,7 @@ public class GlobalConfiguration implements ContainerSizeDescriptor, LifecycleAw
 
     @NotNull
     public Integer getAgentHeartbeatTime() {
-        Integer heartbeatTimeRaw = getAgentHeartbeatTimeRaw();
+        Integer heartbeatTimeRaw = getSnapshot().agentHeartbeatTime;
         return heartbeatTimeRaw != null ? heartbeatTimeRaw : Constants.DEFAULT_HEARTBEAT_TIME;
     }
 
@@ -611,61 +666,51 @@ public class GlobalConfiguration implements ContainerSizeDescriptor, LifecycleAw
         return (String) bandanaManager.getValue(PlanAwareBandanaContext.GLOBAL_CONTEXT, BANDANA_IAM_SUBJECT_ID_PREFIX);
     }
 
-    private void processEntry(JsonElement t, String prefix) {
-        JsonObject obj = t.getAsJsonObject();
-        String name = obj.getAsJsonPrimitive("name").getAsString();
-        String key = prefix + name;
-        cpuSizes.put(key, obj.getAsJsonPrimitive("cpu").getAsInt());
-        memorySizes.put(key, obj.getAsJsonPrimitive("memory").getAsInt());
-        memoryLimitSizes.put(key, obj.getAsJsonPrimitive("memoryLimit").getAsInt());
-        labelSizes.put(key, obj.getAsJsonPrimitive("label").getAsString());
-    }
-
     /**
      * get current context. Null value means to rely on default context.
      */
     public String getCurrentContext() {
-        return (String) bandanaManager.getValue(PlanAwareBandanaContext.GLOBAL_CONTEXT, BANDANA_CURRENT_CONTEXT);
+        return getSnapshot().currentContext;
     }
 
     @Override
-    public synchronized int getCpu(Configuration.ContainerSize size) {
-        return cpuSizes.getOrDefault(MAIN_PREFIX + size.name(), defaults.getCpu(size));
+    public int getCpu(Configuration.ContainerSize size) {
+        return getSnapshot().cpuSizes.getOrDefault(MAIN_PREFIX + size.name(), defaults.getCpu(size));
     }
 
     @Override
-    public synchronized int getCpu(Configuration.ExtraContainerSize size) {
-        return cpuSizes.getOrDefault(EXTRA_PREFIX + size.name(), defaults.getCpu(size));
+    public int getCpu(Configuration.ExtraContainerSize size) {
+        return getSnapshot().cpuSizes.getOrDefault(EXTRA_PREFIX + size.name(), defaults.getCpu(size));
     }
 
     @Override
-    public synchronized int getMemory(Configuration.ContainerSize size) {
-        return memorySizes.getOrDefault(MAIN_PREFIX + size.name(), defaults.getMemory(size));
+    public int getMemory(Configuration.ContainerSize size) {
+        return getSnapshot().memorySizes.getOrDefault(MAIN_PREFIX + size.name(), defaults.getMemory(size));
     }
 
     @Override
-    public synchronized int getMemory(Configuration.ExtraContainerSize size) {
-        return memorySizes.getOrDefault(EXTRA_PREFIX + size.name(), defaults.getMemory(size));
+    public int getMemory(Configuration.ExtraContainerSize size) {
+        return getSnapshot().memorySizes.getOrDefault(EXTRA_PREFIX + size.name(), defaults.getMemory(size));
     }
 
     @Override
-    public synchronized int getMemoryLimit(Configuration.ContainerSize size) {
-        return memoryLimitSizes.getOrDefault(MAIN_PREFIX + size.name(), defaults.getMemoryLimit(size));
+    public int getMemoryLimit(Configuration.ContainerSize size) {
+        return getSnapshot().memoryLimitSizes.getOrDefault(MAIN_PREFIX + size.name(), defaults.getMemoryLimit(size));
     }
 
     @Override
-    public synchronized int getMemoryLimit(Configuration.ExtraContainerSize size) {
-        return memoryLimitSizes.getOrDefault(EXTRA_PREFIX + size.name(), defaults.getMemoryLimit(size));
+    public int getMemoryLimit(Configuration.ExtraContainerSize size) {
+        return getSnapshot().memoryLimitSizes.getOrDefault(EXTRA_PREFIX + size.name(), defaults.getMemoryLimit(size));
     }
 
     @Override
-    public synchronized String getLabel(Configuration.ContainerSize size) {
-        return labelSizes.getOrDefault(MAIN_PREFIX + size.name(), defaults.getLabel(size));
+    public String getLabel(Configuration.ContainerSize size) {
+        return getSnapshot().labelSizes.getOrDefault(MAIN_PREFIX + size.name(), defaults.getLabel(size));
     }
 
     @Override
-    public synchronized String getLabel(Configuration.ExtraContainerSize size) {
-        return labelSizes.getOrDefault(EXTRA_PREFIX + size.name(), defaults.getLabel(size));
+    public String getLabel(Configuration.ExtraContainerSize size) {
+        return getSnapshot().labelSizes.getOrDefault(EXTRA_PREFIX + size.name(), defaults.getLabel(size));
     }
 
     @Override
@@ -692,4 +737,123 @@ public class GlobalConfiguration implements ContainerSizeDescriptor, LifecycleAw
     public void onStop() {
         // We don't need to do anything on stop for this class
     }
+
+    /**
+     * Immutable copy of the Kubernetes backend settings stored in Bandana, including the parsed container sizes.
+     * Values are raw, the getters of the enclosing class apply the defaults.
+     */
+    public static final class Snapshot {
+        private final String sidekick;
+        private final String podTemplate;
+        private final String architecturePodConfig;
+        private final String iamRequestTemplate;
+        private final String iamSubjectIdPrefix;
+        private final String containerSizes;
+        private final String podLogsUrl;
+        private final boolean useClusterRegistry;
+        private final String clusterRegistryAvailableSelector;
+        private final String clusterRegistryPrimarySelector;
+        private final String artifactoryCacheAllowList;
+        private final String artifactoryCachePodSpec;
+        private final Integer agentHeartbeatTime;
+        private final String currentContext;
+        private final Map<String, Integer> cpuSizes = new HashMap<>();
+        private final Map<String, Integer> memorySizes = new HashMap<>();
+        private final Map<String, Integer> memoryLimitSizes = new HashMap<>();
+        private final Map<String, String> labelSizes = new HashMap<>();
+        private final long loadedAt;
+
+        Snapshot(
+                String sidekick,
+                String podTemplate,
+                String architecturePodConfig,
+                String iamRequestTemplate,
+                String iamSubjectIdPrefix,
+                String containerSizes,
+                String podLogsUrl,
+                Boolean useClusterRegistry,
+                String clusterRegistryAvailableSelector,
+                String clusterRegistryPrimarySelector,
+                String artifactoryCacheAllowList,
+                String artifactoryCachePodSpec,
+                Integer agentHeartbeatTime,
+                String currentContext,
+                long loadedAt) {
+            this.sidekick = sidekick;
+            this.podTemplate = podTemplate;
+            this.architecturePodConfig = architecturePodConfig;
+            this.iamRequestTemplate = iamRequestTemplate;
+            this.iamSubjectIdPrefix = iamSubjectIdPrefix;
+            this.containerSizes = containerSizes;
+            this.podLogsUrl = podLogsUrl;
+            this.useClusterRegistry = useClusterRegistry != null ? useClusterRegistry : false;
+            this.clusterRegistryAvailableSelector = clusterRegistryAvailableSelector;
+            this.clusterRegistryPrimarySelector = clusterRegistryPrimarySelector;
+            this.artifactoryCacheAllowList = artifactoryCacheAllowList;
+            this.artifactoryCachePodSpec = artifactoryCachePodSpec;
+            this.agentHeartbeatTime = agentHeartbeatTime;
+            this.currentContext = currentContext;
+            this.loadedAt = loadedAt;
+            if (containerSizes != null) {
+                try {
+                    JsonElement root = JsonParser.parseString(containerSizes);
+                    root.getAsJsonObject().getAsJsonArray("main").forEach((JsonElement t) -> {
+                        processEntry(t, MAIN_PREFIX);
+                    });
+                    root.getAsJsonObject().getAsJsonArray("extra").forEach((JsonElement t) -> {
+                        processEntry(t, EXTRA_PREFIX);
+                    });
+                } catch (RuntimeException ex) {
+                    logger.error("Stored container sizes are invalid, using defaults", ex);
+                    cpuSizes.clear();
+                    memorySizes.clear();
+                    memoryLimitSizes.clear();
+                    labelSizes.clear();
+                }
+            }
+        }
+
+        private void processEntry(JsonElement t, String prefix) {
+            JsonObject obj = t.getAsJsonObject();
+            String name = obj.getAsJsonPrimitive("name").getAsString();
+            String key = prefix + name;
+            cpuSizes.put(key, obj.getAsJsonPrimitive("cpu").getAsInt());
+            memorySizes.put(key, obj.getAsJsonPrimitive("memory").getAsInt());
+            memoryLimitSizes.put(key, obj.getAsJsonPrimitive("memoryLimit").getAsInt());
+            labelSizes.put(key, obj.getAsJsonPrimitive("label").getAsString());
+        }
+
+        public String getPodTemplate() {
+            return podTemplate;
+        }
+
+        public String getArchitecturePodConfig() {
+            return architecturePodConfig;
+        }
+
+        public String getIamRequestTemplate() {
+            return iamRequestTemplate;
+        }
+
+        public String getArtifactoryCachePodSpec() {
+            return artifactoryCachePodSpec;
+        }
+
+        boolean sameSettings(Snapshot other) {
+            return Objects.equals(sidekick, other.sidekick)
+                    && Objects.equals(podTemplate, other.podTemplate)
+                    && Objects.equals(architecturePodConfig, other.architecturePodConfig)
+                    && Objects.equals(iamRequestTemplate, other.iamRequestTemplate)
+                    && Objects.equals(iamSubjectIdPrefix, other.iamSubjectIdPrefix)
+                    && Objects.equals(containerSizes, other.containerSizes)
+                    && Objects.equals(podLogsUrl, other.podLogsUrl)
+                    && useClusterRegistry == other.useClusterRegistry
+                    && Objects.equals(clusterRegistryAvailableSelector, other.clusterRegistryAvailableSelector)
+                    && Objects.equals(clusterRegistryPrimarySelector, other.clusterRegistryPrimarySelector)
+                    && Objects.equals(artifactoryCacheAllowList, other.artifactoryCacheAllowList)
+                    && Objects.equals(artifactoryCachePodSpec, other.artifactoryCachePodSpec)
+                    && Objects.equals(agentHeartbeatTime, other.agentHeartbeatTime)
+                    && Objects.equals(currentContext, other.currentContext);
+        }
+    }
 }
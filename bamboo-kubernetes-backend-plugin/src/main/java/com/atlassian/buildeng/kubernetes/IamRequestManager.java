@@ -0,0 +1,288 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.kubernetes;
+
+import com.atlassian.buildeng.kubernetes.exception.KubectlException;
+import com.atlassian.plugin.spring.scanner.annotation.component.BambooComponent;
+import com.google.common.annotations.VisibleForTesting;
+import io.fabric8.kubernetes.api.model.Pod;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import javax.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Shares one IAMRequest between all pods with the same IAM subject id instead of creating and deleting
+ * one IAMRequest per pod. The IAMRequest is applied once while it's known to exist, pods reference it by
+ * annotation and the watchdog counts the references from the live pods in every cycle.
+ * IAMRequests that are no longer referenced for {@link #IDLE_MILLIS} are deleted in batches.
+ * kubectl runs outside of the lock, only pods of the IAMRequest being applied or deleted wait for it.
+ */
+@BambooComponent
+public class IamRequestManager {
+    private static final Logger logger = LoggerFactory.getLogger(IamRequestManager.class);
+
+    /**
+     * Opt-in, shared IAMRequests are not used with cluster registry as pods of one plan can end up
+     * in different clusters.
+     */
+    static final String SHARED_IAM_REQUESTS = "pbc.kube.iam.shared";
+    // keeps the IAMRequest around for the next build of the same plan.
+    static final long IDLE_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    static final int DELETE_BATCH_SIZE = 50;
+
+    private final LongSupplier clock;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private boolean discovered;
+
+    @Inject
+    public IamRequestManager() {
+        this(System::currentTimeMillis);
+    }
+
+    @VisibleForTesting
+    IamRequestManager(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    static boolean isEnabled(GlobalConfiguration globalConfiguration) {
+        return Boolean.getBoolean(SHARED_IAM_REQUESTS) && !globalConfiguration.isUseClusterRegistry();
+    }
+
+    /**
+     * Reference the IAMRequest from a pod that is about to be created, applying it first unless it's known
+     * to exist. Concurrent callers for the same name wait for the one applying it, callers for an IAMRequest
+     * being deleted wait for the deletion and apply it again. Every successful acquire has to be followed by
+     * {@link #release(String)} once the pod creation finished, from then on the created pod itself is the reference.
+     */
+    void acquire(String name, Creator creator) throws KubectlException, IOException {
+        Entry entry;
+        CompletableFuture<Void> creation;
+        boolean applying = false;
+        while (true) {
+            CompletableFuture<Void> deletion;
+            synchronized (this) {
+                entry = entries.computeIfAbsent(name, (String t) -> new Entry());
+                deletion = entry.deletion;
+                if (deletion == null) {
+                    // referenced before applying so that the garbage collection skips it.
+                    entry.pending++;
+                    entry.lastUsed = clock.getAsLong();
+                    if (entry.creation == null) {
+                        entry.creation = new CompletableFuture<>();
+                        applying = true;
+                    }
+                    creation = entry.creation;
+                    break;
+                }
+            }
+            deletion.join();
+        }
+        if (applying) {
+            try {
+                creator.create();
+                creation.complete(null);
+            } catch (IOException | RuntimeException e) {
+                synchronized (this) {
+                    // the next acquire applies it again.
+                    entry.creation = null;
+                }
+                creation.completeExceptionally(e);
+                release(name);
+                throw e;
+            }
+        } else {
+            try {
+                creation.join();
+            } catch (CompletionException e) {
+                release(name);
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+    }
+
+    synchronized void release(String name) {
+        Entry entry = entries.get(name);
+        if (entry != null && entry.pending > 0) {
+            entry.pending--;
+            entry.lastUsed = clock.getAsLong();
+        }
+    }
+
+    /**
+     * Whether IAMRequests existing in the cluster still have to be registered, only needed once after startup.
+     */
+    synchronized boolean needsDiscovery() {
+        return !discovered;
+    }
+
+    /**
+     * Register IAMRequests found in the cluster, e.g. ones left over from before a restart.
+     */
+    synchronized void discovered(Collection<String> names) {
+        long now = clock.getAsLong();
+        for (String name : names) {
+            Entry entry = entries.computeIfAbsent(name, (String t) -> new Entry());
+            entry.markCreated();
+            entry.lastUsed = Math.max(entry.lastUsed, now);
+        }
+        discovered = true;
+    }
+
+    /**
+     * Recount the references from the current pods of this Bamboo server.
+     */
+    synchronized void update(Collection<Pod> pods) {
+        long now = clock.getAsLong();
+        entries.values().forEach((Entry t) -> t.live = 0);
+        for (Pod pod : pods) {
+            String name = getSharedIamRequestName(pod);
+            if (name != null) {
+                Entry entry = entries.computeIfAbsent(name, (String t) -> new Entry());
+                entry.markCreated();
+                entry.live++;
+                entry.lastUsed = now;
+            }
+        }
+    }
+
+    /**
+     * Delete IAMRequests unreferenced for longer than {@link #IDLE_MILLIS} in batches of
+     * {@link #DELETE_BATCH_SIZE}. The selected IAMRequests are marked as being deleted so that pods
+     * acquiring one of them wait for its batch while all other IAMRequests stay available.
+     *
+     * @return number of deleted IAMRequests
+     */
+    int collectGarbage(Deleter deleter) {
+        List<List<String>> batches = new ArrayList<>();
+        List<CompletableFuture<Void>> deletions = new ArrayList<>();
+        synchronized (this) {
+            long now = clock.getAsLong();
+            List<String> idle = new ArrayList<>();
+            Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, Entry> e = it.next();
+                Entry entry = e.getValue();
+                if (entry.deletion == null
+                        && entry.pending == 0
+                        && entry.live == 0
+                        && now - entry.lastUsed >= IDLE_MILLIS) {
+                    if (entry.creation != null) {
+                        idle.add(e.getKey());
+                    } else {
+                        // creation failed, nothing to delete.
+                        it.remove();
+                    }
+                }
+            }
+            for (int i = 0; i < idle.size(); i += DELETE_BATCH_SIZE) {
+                List<String> batch = new ArrayList<>(idle.subList(i, Math.min(idle.size(), i + DELETE_BATCH_SIZE)));
+                CompletableFuture<Void> deletion = new CompletableFuture<>();
+                batch.forEach((String t) -> entries.get(t).deletion = deletion);
+                batches.add(batch);
+                deletions.add(deletion);
+            }
+        }
+        int deleted = 0;
+        for (int i = 0; i < batches.size(); i++) {
+            List<String> batch = batches.get(i);
+            boolean success = false;
+            try {
+                deleter.delete(batch);
+                success = true;
+                deleted += batch.size();
+            } catch (KubectlException e) {
+                // entries stay and are retried in the next cycle.
+                logger.warn("Failed to delete {} unused IAMRequests", batch.size(), e);
+            } finally {
+                finishDeletion(batch, success);
+                deletions.get(i).complete(null);
+            }
+        }
+        if (deleted > 0) {
+            logger.info("Deleted {} unused shared IAMRequests", deleted);
+        }
+        return deleted;
+    }
+
+    private synchronized void finishDeletion(List<String> batch, boolean deleted) {
+        for (String name : batch) {
+            if (deleted) {
+                entries.remove(name);
+            } else {
+                entries.get(name).deletion = null;
+            }
+        }
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Name of the shared IAMRequest referenced by the pod, null if the pod has none or its own.
+     */
+    static String getSharedIamRequestName(Pod pod) {
+        Map<String, String> annotations = pod.getMetadata().getAnnotations();
+        if (annotations == null || !Boolean.parseBoolean(annotations.get(PodCreator.ANN_IAM_REQUEST_SHARED))) {
+            return null;
+        }
+        return annotations.get(PodCreator.ANN_IAM_REQUEST_NAME);
+    }
+
+    interface Creator {
+        void create() throws KubectlException, IOException;
+    }
+
+    interface Deleter {
+        void delete(List<String> names) throws KubectlException;
+    }
+
+    private static class Entry {
+        // completed once applied, null until the first acquire or after a failed apply
+        private CompletableFuture<Void> creation;
+        // set while the IAMRequest is being deleted
+        private CompletableFuture<Void> deletion;
+        // pods being created with the IAMRequest
+        private int pending;
+        // live pods referencing the IAMRequest as of the last update
+        private int live;
+        private long lastUsed;
+
+        private void markCreated() {
+            if (creation == null) {
+                creation = CompletableFuture.completedFuture(null);
+            }
+        }
+    }
+}
@@ -30,6 +30,8 @@ import com.atlassian.buildeng.kubernetes.serialization.ResponseMapper;
 import com.atlassian.buildeng.kubernetes.serialization.StringResponseMapper;
 import com.atlassian.buildeng.kubernetes.shell.ShellException;
 import com.atlassian.buildeng.kubernetes.shell.ShellExecutor;
+import com.atlassian.buildeng.spi.isolated.docker.metrics.MetricsRegistry;
+import com.atlassian.buildeng.spi.isolated.docker.metrics.Timer;
 import com.google.common.base.Charsets;
 import com.google.common.collect.Lists;
 import io.fabric8.kubernetes.api.model.HasMetadata;
@@ -42,6 +44,8 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import org.apache.commons.io.FileUtils;
@@ -61,13 +65,20 @@ public class KubernetesClient {
     private final GlobalConfiguration globalConfiguration;
     private final StringResponseMapper defaultResponseMapper = new StringResponseMapper();
     private final JsonResponseMapper jsonResponseMapper = new JsonResponseMapper();
-    private final KubernetesExceptionParser kubernetesExceptionParser = new KubernetesExceptionParser();
+    private final KubernetesExceptionParser kubernetesExceptionParser;
 
     private final DeletePodLogger deletePodLogger = new DeletePodLogger();
+    private final MetricsRegistry metrics;
 
     KubernetesClient(GlobalConfiguration globalConfiguration, ShellExecutor shellExecutor) {
+        this(globalConfiguration, shellExecutor, MetricsRegistry.global());
+    }
+
+    KubernetesClient(GlobalConfiguration globalConfiguration, ShellExecutor shellExecutor, MetricsRegistry metrics) {
         this.globalConfiguration = globalConfiguration;
         this.shellExecutor = shellExecutor;
+        this.metrics = metrics;
+        this.kubernetesExceptionParser = new KubernetesExceptionParser(metrics);
 
         globalContextSupplier = new GlobalContextSupplier(globalConfiguration);
         clusterFactory = new ClusterFactory(this, globalContextSupplier);
@@ -82,21 +93,42 @@ public class KubernetesClient {
 
     private <T> T executeKubectlWithResponseMapper(
             ContextSupplier contextSupplier, ResponseMapper<T> responseMapper, String... args) throws KubectlException {
-        List<String> kubectlArgs = new ArrayList<>(Arrays.asList(args));
-        kubectlArgs.add(0, Constants.KUBECTL_GLOBAL_OPTIONS);
-        kubectlArgs.add(0, Constants.KUBECTL_EXECUTABLE);
-        if (contextSupplier != null && contextSupplier.getValue() != null) {
-            kubectlArgs.addAll(Arrays.asList("--context", contextSupplier.getValue()));
-        }
+        List<String> kubectlArgs = kubectlArgs(contextSupplier, args);
         logger.debug("Executing " + kubectlArgs);
-        try {
+        String command = commandOf(args);
+        try (Timer.Sample sample = metrics.timer("pbc_kubectl_seconds", "command", command).start()) {
             return shellExecutor.exec(kubectlArgs, responseMapper);
         } catch (ShellException e) {
             logger.debug("mapping shell exception");
+            metrics.counter("pbc_kubectl_errors_total", "command", command).increment();
             throw kubernetesExceptionParser.map(ERROR_MESSAGE_PREFIX, e);
         }
     }
 
+    /**
+     * The kubectl verb, eg. get or delete, skipping options in front of it.
+     */
+    static String commandOf(String... args) {
+        for (int i = 0; i < args.length; i++) {
+            if ("-o".equals(args[i])) {
+                i++;
+            } else if (!args[i].startsWith("-")) {
+                return args[i];
+            }
+        }
+        return "unknown";
+    }
+
+    private List<String> kubectlArgs(ContextSupplier contextSupplier, String... args) {
+        List<String> kubectlArgs = new ArrayList<>(Arrays.asList(args));
+        kubectlArgs.add(0, Constants.KUBECTL_GLOBAL_OPTIONS);
+        kubectlArgs.add(0, Constants.KUBECTL_EXECUTABLE);
+        if (contextSupplier != null && contextSupplier.getValue() != null) {
+            kubectlArgs.addAll(Arrays.asList("--context", contextSupplier.getValue()));
+        }
+        return kubectlArgs;
+    }
+
     public String executeKubectl(ContextSupplier contextSupplier, String... args) throws KubectlException {
         return executeKubectlWithResponseMapper(contextSupplier, defaultResponseMapper, args);
     }
@@ -156,7 +188,65 @@ public class KubernetesClient {
     @SuppressWarnings("unchecked")
     Pod createPod(File podFile) throws KubectlException {
         Pod pod;
-        ContextSupplier supplier;
+        ContextSupplier supplier = creationContext();
+        try {
+            pod = (Pod) executeKubectlAsObject(supplier, "create", "--validate=false", "-f", podFile.getAbsolutePath());
+        } catch (KubectlException e) {
+            logPodFile(podFile, e);
+            throw e;
+        }
+        pod.setAdditionalProperty(Const.PROP_CONTEXT, globalContextSupplier.getValue());
+        return pod;
+    }
+
+    /**
+     * Create pods from a multi-document manifest in one kubectl call. All documents are created in the same
+     * cluster context. Failures of individual documents don't fail the whole call, they are reported
+     * per pod in the result.
+     *
+     * @param podFile manifest with all pods and their accompanying documents
+     * @param podDocuments pod name to names of all documents in the manifest belonging to the pod
+     * @throws KubectlException when kubectl failed as a whole without creating anything
+     */
+    PodBatchResult createPods(File podFile, Map<String, List<String>> podDocuments) throws KubectlException {
+        ContextSupplier supplier = creationContext();
+        List<String> kubectlArgs = kubectlArgs(
+                supplier, "-o", "json", "create", "--validate=false", "-f", podFile.getAbsolutePath());
+        logger.debug("Executing " + kubectlArgs);
+        String output;
+        try {
+            output = shellExecutor.exec(kubectlArgs, defaultResponseMapper);
+        } catch (ShellException e) {
+            if (e.getStdout() == null) {
+                throw kubernetesExceptionParser.map(ERROR_MESSAGE_PREFIX, e);
+            }
+            logPodFile(podFile, e);
+            output = e.getStdout();
+        }
+        PodBatchResult result = PodBatchResult.parse(
+                output == null ? "" : output,
+                podDocuments,
+                (String error) -> kubernetesExceptionParser.map(
+                        ERROR_MESSAGE_PREFIX, new ShellException("Non-zero exit code", error, "", 1, kubectlArgs)));
+        for (String podName : podDocuments.keySet()) {
+            Pod pod = result.getPod(podName);
+            if (pod != null) {
+                pod.setAdditionalProperty(Const.PROP_CONTEXT, globalContextSupplier.getValue());
+            }
+        }
+        return result;
+    }
+
+    private void logPodFile(File podFile, Exception e) {
+        try {
+            String body = FileUtils.readFileToString(podFile, Charsets.UTF_8);
+            logger.error("Invalid kubectl request. File at fault: \n" + body, e);
+        } catch (IOException ioException) {
+            // We don't log the file content in case of error
+        }
+    }
+
+    private ContextSupplier creationContext() throws ClusterRegistryKubectlException {
         if (globalConfiguration.isUseClusterRegistry()) {
             logger.debug("loading primary cluster contexts");
             List<String> primary = primaryClusterRegistryContexts();
@@ -170,24 +260,11 @@ public class KubernetesClient {
                 throw new ClusterRegistryKubectlException("Found no cluster available in cluster registry");
             } else {
                 logger.debug("using {} context", primary.get(0));
-                supplier = new SimpleContextSupplier(primary.get(0));
+                return new SimpleContextSupplier(primary.get(0));
             }
         } else {
-            supplier = globalContextSupplier;
+            return globalContextSupplier;
         }
-        try {
-            pod = (Pod) executeKubectlAsObject(supplier, "create", "--validate=false", "-f", podFile.getAbsolutePath());
-        } catch (KubectlException e) {
-            try {
-                String body = FileUtils.readFileToString(podFile, Charsets.UTF_8);
-                logger.error("Invalid kubectl request. File at fault: \n" + body, e);
-            } catch (IOException ioException) {
-                // We don't log the file content in case of error
-            }
-            throw e;
-        }
-        pod.setAdditionalProperty(Const.PROP_CONTEXT, globalContextSupplier.getValue());
-        return pod;
     }
 
     String describePod(Pod pod) throws KubectlException {
@@ -218,12 +295,20 @@ public class KubernetesClient {
                 KubernetesHelper.getName(pod));
         long podDeletionEnd = System.currentTimeMillis();
         deletePodLogger.log(String.format("pod deletion took %d ms", podDeletionEnd - startTime));
-        if (pod.getMetadata().getAnnotations().containsKey(PodCreator.ANN_IAM_REQUEST_NAME)) {
+        metrics.timer("pbc_kube_pod_deletion_seconds", "step", "pod")
+                .record(podDeletionEnd - startTime, TimeUnit.MILLISECONDS);
+        // shared IAMRequests are deleted in batches by IamRequestManager once no pod references them.
+        if (pod.getMetadata().getAnnotations().containsKey(PodCreator.ANN_IAM_REQUEST_NAME)
+                && IamRequestManager.getSharedIamRequestName(pod) == null) {
             deleteIamRequest(pod);
         }
         long endTime = System.currentTimeMillis();
         deletePodLogger.log(String.format("iam deletion took %d ms", endTime - podDeletionEnd));
         deletePodLogger.log(String.format("total deletion time %d ms", endTime - startTime));
+        metrics.timer("pbc_kube_pod_deletion_seconds", "step", "iam")
+                .record(endTime - podDeletionEnd, TimeUnit.MILLISECONDS);
+        metrics.timer("pbc_kube_pod_deletion_seconds", "step", "total")
+                .record(endTime - startTime, TimeUnit.MILLISECONDS);
     }
 
     void deletePod(String podName) throws InterruptedException, IOException, KubectlException {
@@ -262,6 +347,52 @@ public class KubernetesClient {
                 pod.getMetadata().getAnnotations().get(PodCreator.ANN_IAM_REQUEST_NAME));
     }
 
+    /**
+     * Create or update the IAMRequest shared by pods of one subject id, see {@link IamRequestManager}.
+     * Applied instead of created, the IAMRequest can be left over from before a restart.
+     */
+    void applyIamRequest(File iamRequestFile) throws KubectlException {
+        executeKubectl(globalContextSupplier, "apply", "-f", iamRequestFile.getAbsolutePath());
+    }
+
+    /**
+     * Delete multiple IAMRequests in one kubectl call.
+     */
+    void deleteIamRequests(List<String> names) throws KubectlException {
+        List<String> args = new ArrayList<>(Arrays.asList(
+                "delete",
+                "iam",
+                "--ignore-not-found",
+                "--wait=false",
+                "--timeout=" + Constants.KUBECTL_DELETE_TIMEOUT));
+        args.addAll(names);
+        executeKubectl(globalContextSupplier, args.toArray(new String[0]));
+    }
+
+    /**
+     * Names of the shared IAMRequests of this Bamboo server.
+     */
+    List<String> getSharedIamRequestNames() throws KubectlException {
+        String output = executeKubectl(
+                globalContextSupplier,
+                "get",
+                "iam",
+                "-l",
+                PodCreator.LABEL_IAM_REQUEST_SHARED + "=true," + PodCreator.LABEL_BAMBOO_SERVER + "="
+                        + globalConfiguration.getBambooBaseUrlAskKubeLabel(),
+                "-o",
+                "name");
+        List<String> names = new ArrayList<>();
+        for (String line : StringUtils.split(StringUtils.defaultString(output), '\n')) {
+            // kind/name, eg. iamrequest.kube.atlassian.com/pbc-iam-abc
+            String name = StringUtils.substringAfterLast(line.trim(), "/");
+            if (!name.isEmpty()) {
+                names.add(name);
+            }
+        }
+        return names;
+    }
+
     // The problem with only having the String is that we can't tell if the IAMRequest is meant to exist.
     // So we just blindly delete and ignore failures if it can't find the iamRequest
     void deleteIamRequest(ContextSupplier contextSupplier, String podName) throws KubectlException {
@@ -23,6 +23,7 @@ import static org.quartz.TriggerBuilder.newTrigger;
 import com.atlassian.bamboo.plan.PlanKeys;
 import com.atlassian.bamboo.utils.Pair;
 import com.atlassian.buildeng.isolated.docker.scheduler.SchedulerUtils;
+import com.atlassian.buildeng.kubernetes.exception.ApiThrottledException;
 import com.atlassian.buildeng.kubernetes.exception.ClusterRegistryKubectlException;
 import com.atlassian.buildeng.kubernetes.exception.KubectlException;
 import com.atlassian.buildeng.kubernetes.jmx.JmxJob;
@@ -34,6 +35,8 @@ import com.atlassian.buildeng.spi.isolated.docker.IsolatedDockerAgentException;
 import com.atlassian.buildeng.spi.isolated.docker.IsolatedDockerAgentRequest;
 import com.atlassian.buildeng.spi.isolated.docker.IsolatedDockerAgentResult;
 import com.atlassian.buildeng.spi.isolated.docker.IsolatedDockerRequestCallback;
+import com.atlassian.buildeng.spi.isolated.docker.RetryReason;
+import com.atlassian.buildeng.spi.isolated.docker.StartupPhase;
 import com.atlassian.plugin.spring.scanner.annotation.component.BambooComponent;
 import com.atlassian.plugin.spring.scanner.annotation.export.ExportAsService;
 import com.atlassian.sal.api.lifecycle.LifecycleAware;
@@ -45,14 +48,20 @@ import java.net.MalformedURLException;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import javax.inject.Inject;
 import org.apache.http.client.utils.URIBuilder;
@@ -90,6 +99,11 @@ public class KubernetesIsolatedDockerImpl implements IsolatedAgentService, Lifec
     private static final JobKey PLUGIN_JOB_JMX_KEY = JobKey.jobKey("KubeJmxService");
     private static final long PLUGIN_JOB_JMX_INTERVAL_MILLIS =
             Duration.ofSeconds(20).toMillis();
+    // kubectl processes that create pods concurrently
+    private static final int CREATE_CONCURRENCY = 5;
+    // pods created in one kubectl call when requests pile up faster than kubectl can create them
+    @VisibleForTesting
+    static final int MAX_BATCH_SIZE = 25;
 
     private final GlobalConfiguration globalConfiguration;
     private final KubeJmxService kubeJmxService;
@@ -98,6 +112,9 @@ public class KubernetesIsolatedDockerImpl implements IsolatedAgentService, Lifec
     private final SubjectIdService subjectIdService;
 
     private final KubernetesPodSpecList podSpecList;
+    private final IamRequestManager iamRequests;
+    private final Queue<PendingPod> pendingPods = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger activeCreators = new AtomicInteger();
 
     @Inject
     public KubernetesIsolatedDockerImpl(
@@ -105,14 +122,17 @@ public class KubernetesIsolatedDockerImpl implements IsolatedAgentService, Lifec
             Scheduler scheduler,
             KubeJmxService kubeJmxService,
             SubjectIdService subjectIdService,
-            KubernetesPodSpecList podSpecList) {
+            KubernetesPodSpecList podSpecList,
+            IamRequestManager iamRequests) {
         this.scheduler = scheduler;
         this.globalConfiguration = globalConfiguration;
         this.kubeJmxService = kubeJmxService;
         this.subjectIdService = subjectIdService;
         this.podSpecList = podSpecList;
+        this.iamRequests = iamRequests;
 
-        ThreadPoolExecutor tpe = new ThreadPoolExecutor(5, 5, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        ThreadPoolExecutor tpe = new ThreadPoolExecutor(
+                CREATE_CONCURRENCY, CREATE_CONCURRENCY, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
         tpe.allowCoreThreadTimeOut(true);
         executor = tpe;
     }
@@ -121,25 +141,108 @@ public class KubernetesIsolatedDockerImpl implements IsolatedAgentService, Lifec
     public void startAgent(IsolatedDockerAgentRequest request, final IsolatedDockerRequestCallback callback) {
         logger.debug("Kubernetes received request for " + request.getResultKey());
         String subjectId = getSubjectId(request);
-        executor.submit(() -> exec(request, callback, subjectId));
+        pendingPods.add(new PendingPod(request, callback, subjectId));
+        scheduleCreation();
+    }
+
+    private void scheduleCreation() {
+        int active = activeCreators.get();
+        while (active < CREATE_CONCURRENCY) {
+            if (activeCreators.compareAndSet(active, active + 1)) {
+                executor.submit(this::createPending);
+                return;
+            }
+            active = activeCreators.get();
+        }
+        // all creators busy, the request will be picked up by one of them in the next batch.
+    }
+
+    /**
+     * Create pending pods until none are left. A lone request goes through the single pod path,
+     * requests that queued up while other kubectl calls were in flight are created in batches.
+     */
+    @VisibleForTesting
+    void createPending() {
+        try {
+            List<PendingPod> batch = pollBatch();
+            while (!batch.isEmpty()) {
+                if (batch.size() == 1) {
+                    PendingPod pending = batch.get(0);
+                    exec(pending.request, pending.callback, pending.subjectId);
+                } else {
+                    execBatch(batch);
+                }
+                batch = pollBatch();
+            }
+        } finally {
+            activeCreators.decrementAndGet();
+        }
+        // a request could have been added after the last poll while this creator still counted as active.
+        if (!pendingPods.isEmpty()) {
+            scheduleCreation();
+        }
+    }
+
+    private List<PendingPod> pollBatch() {
+        List<PendingPod> batch = new ArrayList<>();
+        PendingPod pending;
+        while (batch.size() < MAX_BATCH_SIZE && (pending = pendingPods.poll()) != null) {
+            batch.add(pending);
+        }
+        return batch;
     }
 
     private Pod createPod(File podFile) throws KubectlException {
         return new KubernetesClient(globalConfiguration, new JavaShellExecutor()).createPod(podFile);
     }
 
-    private void handleCallback(IsolatedDockerRequestCallback callback, Pod pod, String name) {
+    private PodBatchResult createPods(File podFile, Map<String, List<String>> podDocuments)
+            throws KubectlException {
+        return new KubernetesClient(globalConfiguration, new JavaShellExecutor()).createPods(podFile, podDocuments);
+    }
+
+    /**
+     * Reference the shared IAMRequest of the pod, applying it when not known to exist yet.
+     *
+     * @return name of the IAMRequest to release once the pod is created, null when the pod doesn't use one
+     */
+    private String acquireSharedIamRequest(IsolatedDockerAgentRequest request, String subjectId)
+            throws KubectlException, IOException {
+        String name = podSpecList.getSharedIamRequestName(request, subjectId);
+        if (name != null) {
+            iamRequests.acquire(name, () -> {
+                File iamRequestFile = podSpecList.generate(
+                        Collections.singletonList(podSpecList.generateSharedIamRequest(subjectId)));
+                try {
+                    new KubernetesClient(globalConfiguration, new JavaShellExecutor()).applyIamRequest(iamRequestFile);
+                } finally {
+                    podSpecList.cleanUp(iamRequestFile);
+                }
+            });
+        }
+        return name;
+    }
+
+    private void handleCallback(
+            IsolatedDockerRequestCallback callback, Pod pod, String name, long generateMillis, long createMillis) {
         callback.handle(new IsolatedDockerAgentResult()
                 .withCustomResultData(NAME, name)
-                .withCustomResultData(UID, pod.getMetadata().getUid()));
+                .withCustomResultData(UID, pod.getMetadata().getUid())
+                .withPhaseDuration(StartupPhase.SPEC_GENERATION, generateMillis)
+                .withPhaseDuration(StartupPhase.BACKEND_CREATE, createMillis));
     }
 
     @VisibleForTesting
     void exec(IsolatedDockerAgentRequest request, final IsolatedDockerRequestCallback callback, String subjectId) {
         logger.debug("Kubernetes processing request for " + request.getResultKey());
+        String sharedIamRequest = null;
         try {
+            sharedIamRequest = acquireSharedIamRequest(request, subjectId);
+            long generateStart = System.currentTimeMillis();
             File podFile = this.podSpecList.generate(request, subjectId);
+            long createStart = System.currentTimeMillis();
             Pod pod = createPod(podFile);
+            long created = System.currentTimeMillis();
 
             Duration servedIn = Duration.ofMillis(System.currentTimeMillis() - request.getQueueTimestamp());
             String name = KubernetesHelper.getName(pod);
@@ -149,31 +252,126 @@ public class KubernetesIsolatedDockerImpl implements IsolatedAgentService, Lifec
                     servedIn,
                     name);
             podSpecList.cleanUp(podFile);
-            handleCallback(callback, pod, name);
+            handleCallback(callback, pod, name, createStart - generateStart, created - createStart);
         } catch (ClusterRegistryKubectlException e) {
             IsolatedDockerAgentResult result = new IsolatedDockerAgentResult();
             logger.error("Cluster Registry error:" + e.getMessage());
-            callback.handle(result.withRetryRecoverable("Cluster Registry failure: " + e.getMessage()));
+            callback.handle(result.withRetryRecoverable(
+                    "Cluster Registry failure: " + e.getMessage(), RetryReason.UNREACHABLE));
         } catch (KubectlException e) {
             handleKubeCtlException(callback, e);
         } catch (IOException e) {
             logger.error("io error", e);
             callback.handle(new IsolatedDockerAgentException(e));
         } catch (Throwable e) {
-            // org.eclipse.gemini.blueprint.service.importer.ServiceProxyDestroyedException
-            // is occasionally thrown when live reloading plugins. reattempt later.
-            // do a dummy name check, not clear how this dependency is even pulled into
-            // bamboo,
-            // it's likely part of a plugin only, and we would not have the class in question
-            // on classpath anyway
-            if (e.getClass().getSimpleName().equals("ServiceProxyDestroyedException")) {
-                IsolatedDockerAgentResult result = new IsolatedDockerAgentResult();
-                logger.warn("OSGi plugin system binding error:" + e.getMessage());
-                callback.handle(result.withRetryRecoverable("PBC plugin was reloading/upgrading: " + e.getMessage()));
-            } else {
-                logger.error("unknown error", e);
-                callback.handle(new IsolatedDockerAgentException(e));
+            handleUnexpected(callback, e);
+        } finally {
+            if (sharedIamRequest != null) {
+                iamRequests.release(sharedIamRequest);
+            }
+        }
+    }
+
+    /**
+     * Create pods of multiple requests with one multi-document manifest and demultiplex the outcome
+     * back to the individual callbacks.
+     */
+    @VisibleForTesting
+    void execBatch(List<PendingPod> batch) {
+        Map<String, PendingPod> byName = new LinkedHashMap<>();
+        Map<String, List<String>> podDocuments = new LinkedHashMap<>();
+        Map<String, Long> generateMillis = new HashMap<>();
+        List<Map<String, Object>> documents = new ArrayList<>();
+        List<String> sharedIamRequests = new ArrayList<>();
+        for (PendingPod pending : batch) {
+            try {
+                String sharedIamRequest = acquireSharedIamRequest(pending.request, pending.subjectId);
+                if (sharedIamRequest != null) {
+                    sharedIamRequests.add(sharedIamRequest);
+                }
+                long generateStart = System.currentTimeMillis();
+                List<Map<String, Object>> specs = podSpecList.generateSpecs(pending.request, pending.subjectId);
+                String name = KubernetesPodSpecList.getName(specs.get(0));
+                generateMillis.put(name, System.currentTimeMillis() - generateStart);
+                byName.put(name, pending);
+                podDocuments.put(
+                        name,
+                        specs.stream().map(KubernetesPodSpecList::getName).collect(Collectors.toList()));
+                documents.addAll(specs);
+            } catch (KubectlException e) {
+                handleKubeCtlException(pending.callback, e);
+            } catch (Throwable e) {
+                handleUnexpected(pending.callback, e);
+            }
+        }
+        if (byName.isEmpty()) {
+            sharedIamRequests.forEach(iamRequests::release);
+            return;
+        }
+        logger.debug("Kubernetes processing batch of {} requests", byName.size());
+        File podFile = null;
+        try {
+            podFile = podSpecList.generate(documents);
+            long createStart = System.currentTimeMillis();
+            PodBatchResult result = createPods(podFile, podDocuments);
+            long created = System.currentTimeMillis();
+            logger.info(
+                    "Kubernetes processed batch of {} requests in {} ms, {} failed",
+                    byName.size(),
+                    created - createStart,
+                    result.getFailedCount());
+            byName.forEach((String name, PendingPod pending) -> {
+                KubectlException failure = result.getFailure(name);
+                if (failure != null) {
+                    handleKubeCtlException(pending.callback, failure);
+                } else {
+                    logger.info(
+                            "Kubernetes successfully processed request for {} in {}, pod name: {}",
+                            pending.request.getResultKey(),
+                            Duration.ofMillis(created - pending.request.getQueueTimestamp()),
+                            name);
+                    handleCallback(
+                            pending.callback,
+                            result.getPod(name),
+                            name,
+                            generateMillis.get(name),
+                            created - createStart);
+                }
+            });
+        } catch (ClusterRegistryKubectlException e) {
+            logger.error("Cluster Registry error:" + e.getMessage());
+            byName.values().forEach((PendingPod pending) -> pending.callback.handle(new IsolatedDockerAgentResult()
+                    .withRetryRecoverable("Cluster Registry failure: " + e.getMessage(), RetryReason.UNREACHABLE)));
+        } catch (KubectlException e) {
+            byName.values().forEach((PendingPod pending) -> handleKubeCtlException(pending.callback, e));
+        } catch (IOException e) {
+            logger.error("io error", e);
+            byName.values().forEach((PendingPod pending) ->
+                    pending.callback.handle(new IsolatedDockerAgentException(e)));
+        } catch (Throwable e) {
+            byName.values().forEach((PendingPod pending) -> handleUnexpected(pending.callback, e));
+        } finally {
+            if (podFile != null) {
+                podSpecList.cleanUp(podFile);
             }
+            sharedIamRequests.forEach(iamRequests::release);
+        }
+    }
+
+    private void handleUnexpected(IsolatedDockerRequestCallback callback, Throwable e) {
+        // org.eclipse.gemini.blueprint.service.importer.ServiceProxyDestroyedException
+        // is occasionally thrown when live reloading plugins. reattempt later.
+        // do a dummy name check, not clear how this dependency is even pulled into
+        // bamboo,
+        // it's likely part of a plugin only, and we would not have the class in question
+        // on classpath anyway
+        if (e.getClass().getSimpleName().equals("ServiceProxyDestroyedException")) {
+            IsolatedDockerAgentResult result = new IsolatedDockerAgentResult();
+            logger.warn("OSGi plugin system binding error:" + e.getMessage());
+            callback.handle(result.withRetryRecoverable("PBC plugin was reloading/upgrading: " + e.getMessage()));
+        } else {
+            logger.error("unknown error", e);
+            callback.handle(new IsolatedDockerAgentException(e));
         }
     }
 
@@ -198,7 +396,10 @@ public class KubernetesIsolatedDockerImpl implements IsolatedAgentService, Lifec
             logger.error("error", e);
             callback.handle(new IsolatedDockerAgentException(e));
         } else if (e.isRecoverable()) {
-            result = result.withRetryRecoverable(e.getMessage());
+            result = result.withRetryRecoverable(e.getMessage(), e.getRetryReason());
+            if (e instanceof ApiThrottledException) {
+                result = result.withRetryAfter(((ApiThrottledException) e).getRetryAfterSeconds());
+            }
         } else {
             result = result.withError(e.getMessage());
         }
@@ -223,6 +424,7 @@ public class KubernetesIsolatedDockerImpl implements IsolatedAgentService, Lifec
         config.put("globalConfiguration", globalConfiguration);
         config.put("isolatedAgentService", this);
         config.put("kubeJmxService", kubeJmxService);
+        config.put("iamRequestManager", iamRequests);
 
         JobDetail watchdogJob = jobDetail(KubernetesWatchdog.class, PLUGIN_JOB_KEY, config);
         JobDetail pluginJmxJob = jobDetail(JmxJob.class, PLUGIN_JOB_JMX_KEY, config);
@@ -297,4 +499,17 @@ public class KubernetesIsolatedDockerImpl implements IsolatedAgentService, Lifec
                 .filter((Pair<String, URL> t) -> t.getSecond() != null)
                 .collect(Collectors.toMap(Pair::getFirst, Pair::getSecond));
     }
+
+    @VisibleForTesting
+    static final class PendingPod {
+        private final IsolatedDockerAgentRequest request;
+        private final IsolatedDockerRequestCallback callback;
+        private final String subjectId;
+
+        PendingPod(IsolatedDockerAgentRequest request, IsolatedDockerRequestCallback callback, String subjectId) {
+            this.request = request;
+            this.callback = callback;
+            this.subjectId = subjectId;
+        }
+    }
 }
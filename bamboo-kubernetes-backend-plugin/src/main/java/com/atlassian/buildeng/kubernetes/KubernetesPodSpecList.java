@@ -32,6 +32,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 import javax.inject.Inject;
 import org.apache.commons.io.FileUtils;
@@ -50,6 +51,8 @@ public class KubernetesPodSpecList {
     private final BandanaManager bandanaManager;
     private final DarkFeatureManager darkFeatureManager;
     private final PodCreator podCreator;
+    // parsed artifactory cache allow list, dropped whenever the settings change
+    private volatile ParsedAllowList allowList;
 
     @Inject
     public KubernetesPodSpecList(
@@ -61,19 +64,66 @@ public class KubernetesPodSpecList {
         this.bandanaManager = bandanaManager;
         this.darkFeatureManager = darkFeatureManager;
         this.podCreator = podCreator;
+        globalConfiguration.addChangeListener((GlobalConfiguration.Snapshot t) -> allowList = null);
     }
 
     public File generate(IsolatedDockerAgentRequest request, String subjectId) throws IOException {
         return createPodFile(createPodSpecList(request, subjectId));
     }
 
+    /**
+     * Generate all documents for the request: the pod first, followed by accompanying documents like IAMRequest.
+     */
+    public List<Map<String, Object>> generateSpecs(IsolatedDockerAgentRequest request, String subjectId) {
+        return createPodSpecList(request, subjectId);
+    }
+
+    /**
+     * Generate the IAMRequest shared by all pods of the subject id, see {@link IamRequestManager}.
+     */
+    public Map<String, Object> generateSharedIamRequest(String subjectId) {
+        return mergeMap(loadTemplateIamRequest(), podCreator.createSharedIamRequest(subjectId));
+    }
+
+    /**
+     * Name of the shared IAMRequest the pod of the request will reference, null if the pod gets its own
+     * IAMRequest or none at all.
+     */
+    public String getSharedIamRequestName(IsolatedDockerAgentRequest request, String subjectId) {
+        if (isSharedIamRequest(request, subjectId)) {
+            return PodCreator.createSharedIamRequestName(subjectId);
+        }
+        return null;
+    }
+
+    private boolean isSharedIamRequest(IsolatedDockerAgentRequest request, String subjectId) {
+        return request.getConfiguration().isAwsRoleDefined()
+                && subjectId != null
+                && IamRequestManager.isEnabled(globalConfiguration);
+    }
+
+    /**
+     * Write documents of multiple requests into a single multi-document manifest.
+     */
+    public File generate(List<Map<String, Object>> documents) throws IOException {
+        return createPodFile(documents);
+    }
+
+    @SuppressWarnings("unchecked")
+    static String getName(Map<String, Object> document) {
+        Object metadata = document.get("metadata");
+        return metadata instanceof Map ? (String) ((Map<String, Object>) metadata).get("name") : null;
+    }
+
     public void cleanUp(File podFile) {
         this.deletePodFile(podFile);
     }
 
     private List<Map<String, Object>> createPodSpecList(IsolatedDockerAgentRequest request, String subjectId) {
         Map<String, Object> template = loadTemplatePod();
-        Map<String, Object> podDefinition = podCreator.create(request);
+        boolean sharedIamRequest = isSharedIamRequest(request, subjectId);
+        Map<String, Object> podDefinition =
+                sharedIamRequest ? podCreator.create(request, subjectId) : podCreator.create(request);
         Map<String, Object> podWithoutArchOverrides = mergeMap(template, podDefinition);
 
         Map<String, Object> finalPod;
@@ -90,13 +140,14 @@ public class KubernetesPodSpecList {
         podSpecList.add(finalPod);
 
         if (request.getConfiguration().isAwsRoleDefined()) {
-            Map<String, Object> iamRequest = podCreator.createIamRequest(request, subjectId);
-            Map<String, Object> iamRequestTemplate = loadTemplateIamRequest();
-
-            Map<String, Object> finalIamRequest = mergeMap(iamRequestTemplate, iamRequest);
             // Temporary Workaround until we fully migrate to IRSA
             removeDefaultRole(finalPod);
-            podSpecList.add(finalIamRequest);
+            // a shared IAMRequest is not part of the pod's documents, it's applied once by IamRequestManager.
+            if (!sharedIamRequest) {
+                Map<String, Object> iamRequest = podCreator.createIamRequest(request, subjectId);
+                Map<String, Object> iamRequestTemplate = loadTemplateIamRequest();
+                podSpecList.add(mergeMap(iamRequestTemplate, iamRequest));
+            }
         }
 
         return podSpecList;
@@ -120,19 +171,30 @@ public class KubernetesPodSpecList {
 
     @VisibleForTesting
     HashSet<String> loadAllowList() {
-        String allowList = globalConfiguration.getArtifactoryCacheAllowListAsString();
-        if (allowList.isEmpty()) {
-            return new HashSet<>();
+        return new HashSet<>(parsedAllowList());
+    }
+
+    private Set<String> parsedAllowList() {
+        String value = globalConfiguration.getArtifactoryCacheAllowListAsString();
+        ParsedAllowList parsed = allowList;
+        // comparing the source as well, a parse racing with a settings change could have stored the old list
+        if (parsed == null || !parsed.source.equals(value)) {
+            if (value.isEmpty()) {
+                parsed = new ParsedAllowList(value, Collections.emptySet());
+            } else {
+                Yaml yaml = new Yaml(new SafeConstructor(new LoaderOptions()));
+                parsed = new ParsedAllowList(value, new HashSet<>(yaml.load(value)));
+            }
+            allowList = parsed;
         }
-        Yaml yaml = new Yaml(new SafeConstructor(new LoaderOptions()));
-        return new HashSet<>(yaml.load(allowList));
+        return parsed.plans;
     }
 
     private boolean isPlanInArtifactoryGlobalAllowList(IsolatedDockerAgentRequest request) {
         String[] resultKeyArray = request.getResultKey().split("-");
         try {
             String planKey = resultKeyArray[0] + "-" + resultKeyArray[1];
-            return loadAllowList().contains(planKey);
+            return parsedAllowList().contains(planKey);
         } catch (ArrayIndexOutOfBoundsException e) {
             logger.error("Cannot determine plan key of request: ", e);
             return false;
@@ -306,4 +368,14 @@ public class KubernetesPodSpecList {
     String getDefaultArchitectureName(Map<String, Object> archConfig) {
         return (String) archConfig.get(DEFAULT_ARCHITECTURE);
     }
+
+    private static final class ParsedAllowList {
+        private final String source;
+        private final Set<String> plans;
+
+        ParsedAllowList(String source, Set<String> plans) {
+            this.source = source;
+            this.plans = Collections.unmodifiableSet(plans);
+        }
+    }
 }
@@ -33,6 +33,7 @@ import com.atlassian.buildeng.spi.isolated.docker.Configuration;
 import com.atlassian.buildeng.spi.isolated.docker.DockerAgentBuildQueue;
 import com.atlassian.buildeng.spi.isolated.docker.IsolatedAgentService;
 import com.atlassian.buildeng.spi.isolated.docker.RetryAgentStartupEvent;
+import com.atlassian.buildeng.spi.isolated.docker.RetryReason;
 import com.atlassian.buildeng.spi.isolated.docker.WatchdogJob;
 import com.atlassian.event.api.EventPublisher;
 import com.atlassian.plugin.PluginAccessor;
@@ -43,6 +44,7 @@ import java.io.IOException;
 import java.net.URL;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -57,6 +59,7 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
@@ -95,6 +98,13 @@ public class KubernetesWatchdog extends WatchdogJob {
     private static final int MAX_BACKOFF_SECONDS = 600;
     private static final int MAX_RETRY_COUNT = 30;
     private static final int MAX_WAIT_FOR_TERMINATION_IN_SECONDS = 30;
+    private static final String KEY_POD_DIAGNOSTICS = "POD_DIAGNOSTICS";
+    // less than MAX_WAIT_FOR_TERMINATION_IN_SECONDS to leave time for the deletion itself.
+    private static final long DIAGNOSTICS_WAIT_MILLIS = TimeUnit.SECONDS.toMillis(20);
+    /**
+     * Describe failing pods even when debug logging is not enabled.
+     */
+    static final String DESCRIBE_FAILED_PODS = "pbc.kube.describe.failed.pods";
 
     private final ExecutorService executorService;
     private static final Logger logger = LoggerFactory.getLogger(KubernetesWatchdog.class);
@@ -173,6 +183,13 @@ public class KubernetesWatchdog extends WatchdogJob {
                 Duration.ofMillis(System.currentTimeMillis() - clusterStateQueryTime));
 
         Map<String, TerminationReason> terminationReasons = getPodTerminationReasons(jobDataMap);
+        PodDiagnostics diagnostics = getPodDiagnostics(jobDataMap);
+        diagnostics.expire();
+        if (IamRequestManager.isEnabled(globalConfiguration)) {
+            // terminating pods still mount the IAM token, they count as references too.
+            IamRequestManager iamRequests = getService(IamRequestManager.class, "iamRequestManager", jobDataMap);
+            collectSharedIamRequests(iamRequests, client, bambooPods);
+        }
         List<Future<Optional<TerminationReason>>> killedFutures = new LinkedList<>();
 
         // delete alivePods which have had the bamboo-agent container terminated
@@ -190,25 +207,13 @@ public class KubernetesWatchdog extends WatchdogJob {
                     .filter((TerminatePodSelector t) -> t.shouldBeDeleted(pod))
                     .findFirst()
                     .ifPresent((TerminatePodSelector t) -> {
-                        killedFutures.add(executorService.submit(t.delete(pod, client)));
+                        killedFutures.add(executorService.submit(t.delete(pod, client, diagnostics)));
                     });
         }
 
-        for (Future<Optional<TerminationReason>> future : killedFutures) {
-            try {
-                Optional<TerminationReason> result = future.get(MAX_WAIT_FOR_TERMINATION_IN_SECONDS, TimeUnit.SECONDS);
-                if (result.isPresent()) {
-                    TerminationReason reason = result.get();
-                    alivePods.remove(reason.getPod());
-                    terminationReasons.put(KubernetesHelper.getName(reason.getPod()), reason);
-                }
-            } catch (InterruptedException ex) {
-                logger.error("interrupted", ex);
-            } catch (ExecutionException ex) {
-                logger.error("Future Execution failed", ex);
-            } catch (TimeoutException ex) {
-                logger.error("timed out", ex);
-            }
+        for (TerminationReason reason : awaitDeletions(killedFutures)) {
+            alivePods.remove(reason.getPod());
+            terminationReasons.put(KubernetesHelper.getName(reason.getPod()), reason);
         }
 
         if (!killedFutures.isEmpty()) {
@@ -241,6 +246,7 @@ public class KubernetesWatchdog extends WatchdogJob {
         backoffCache.addAll(newBackedOff);
 
         long currentTime = System.currentTimeMillis();
+        List<Future<Optional<TerminationReason>>> backoffFutures = new LinkedList<>();
         backoffCache.stream()
                 .filter((BackoffCache t) -> MAX_BACKOFF_SECONDS
                         < Duration.ofMillis(currentTime - t.creationTime.getTime())
@@ -256,22 +262,22 @@ public class KubernetesWatchdog extends WatchdogJob {
                     if (pod != null) {
                         logger.warn(
                                 "Killing pod {} with container in ImagePullBackOff state: {}", t.podName, t.message);
-                        Optional<TerminationReason> deleted = deletePod(
+                        backoffFutures.add(submitDeletion(
                                 client,
+                                diagnostics,
                                 pod,
-                                "Container '" + t.containerName + "' image '" + t.imageName + "' pull failed",
-                                false);
-                        if (deleted.isPresent()) {
-                            terminationReasons.put(
-                                    KubernetesHelper.getName(deleted.get().getPod()), deleted.get());
-                            alivePods.remove(pod);
-                        }
+                                "Container '" + t.containerName + "' image '" + t.imageName + "' pull failed"));
                     } else {
                         logger.warn("Could not find pod {} in the current list.", t.podName);
                     }
                 });
+        for (TerminationReason reason : awaitDeletions(backoffFutures)) {
+            terminationReasons.put(KubernetesHelper.getName(reason.getPod()), reason);
+            alivePods.remove(reason.getPod());
+        }
 
         AtomicBoolean shouldPrintDebugInfo = new AtomicBoolean(false);
+        List<Future<Optional<TerminationReason>>> queueTimeoutFutures = new LinkedList<>();
         Map<String, Pod> nameToPod = alivePods.stream().collect(Collectors.toMap(KubernetesHelper::getName, x -> x));
         // Kill queued jobs waiting on alivePods that no longer exist or which have been queued for too long
         DockerAgentBuildQueue.currentlyQueued(buildQueueManager).forEach((CommonContext context) -> {
@@ -308,7 +314,7 @@ public class KubernetesWatchdog extends WatchdogJob {
                                 && reason.isRestartPod()
                                 && getRetryCount(reason.getPod()) < MAX_RETRY_COUNT) {
                             try {
-                                deletePod(client, pod, "Delete existing Pod before retry", false);
+                                deletePod(client, diagnostics, pod, "Delete existing Pod before retry", false);
                             } catch (KubectlException e) {
                                 logger.debug("Unable to delete pod before retry for reason: " + e.getMessage()
                                         + " proceeding with retry anyway");
@@ -397,15 +403,26 @@ public class KubernetesWatchdog extends WatchdogJob {
                                 context,
                                 current);
 
-                        Optional<TerminationReason> deleted = deletePod(client, pod, errorMessage, false);
-                        if (deleted.isPresent()) {
-                            logger.error("{}\n{}", logMessage, deleted.get().getDescribePod());
-                        }
+                        CompletableFuture<PodDiagnostics.Diagnostics> collected =
+                                collectDiagnostics(client, diagnostics, pod, false);
+                        queueTimeoutFutures.add(executorService.submit(() -> {
+                            Optional<TerminationReason> deleted = deletePod(
+                                    client,
+                                    pod,
+                                    errorMessage,
+                                    false,
+                                    diagnostics.await(collected, DIAGNOSTICS_WAIT_MILLIS));
+                            deleted.ifPresent((TerminationReason reason) ->
+                                    logger.error("{}\n{}", logMessage, reason.getDescribePod()));
+                            return deleted;
+                        }));
                     }
                 }
             }
         });
 
+        awaitDeletions(queueTimeoutFutures);
+
         if (shouldPrintDebugInfo.get()) {
             logger.debug("All pods:" + bambooPods.size()
                     + "\n"
@@ -448,7 +465,8 @@ public class KubernetesWatchdog extends WatchdogJob {
         context.getCurrentResult()
                 .getCustomBuildData()
                 .remove(KubernetesIsolatedDockerImpl.RESULT_PREFIX + KubernetesIsolatedDockerImpl.NAME);
-        rescheduler.reschedule(new RetryAgentStartupEvent(config, context, retryCount + 1, UUID.fromString(uuid)));
+        rescheduler.reschedule(new RetryAgentStartupEvent(
+                config, context, retryCount + 1, UUID.fromString(uuid), RetryReason.POD_FAILED));
         eventPublisher.publish(new DockerAgentKubeRestartEvent(
                 errorMessage, context.getResultKey(), podName, Collections.emptyMap(), configuration));
     }
@@ -482,21 +500,61 @@ public class KubernetesWatchdog extends WatchdogJob {
     }
 
     private static Optional<TerminationReason> deletePod(
-            KubernetesClient client, Pod pod, String terminationReason, boolean restartPod) {
-        String describePod;
-        // describe is expensive operation especially if a lot of events are present and the cluster is large.
-        // this condition hopes to preserve the describe for debugging purposes but avoid it in normal traffic.
-        if (logger.isDebugEnabled()) {
+            KubernetesClient client,
+            PodDiagnostics diagnostics,
+            Pod pod,
+            String terminationReason,
+            boolean restartPod) {
+        PodDiagnostics.Diagnostics collected =
+                diagnostics.await(collectDiagnostics(client, diagnostics, pod, false), DIAGNOSTICS_WAIT_MILLIS);
+        return deletePod(client, pod, terminationReason, restartPod, collected);
+    }
+
+    /**
+     * Delete the pod on the executor, the diagnostics are collected meanwhile on the diagnostics pool.
+     */
+    private Future<Optional<TerminationReason>> submitDeletion(
+            KubernetesClient client, PodDiagnostics diagnostics, Pod pod, String terminationReason) {
+        CompletableFuture<PodDiagnostics.Diagnostics> collected = collectDiagnostics(client, diagnostics, pod, false);
+        return executorService.submit(() -> deletePod(
+                client, pod, terminationReason, false, diagnostics.await(collected, DIAGNOSTICS_WAIT_MILLIS)));
+    }
+
+    private static List<TerminationReason> awaitDeletions(List<Future<Optional<TerminationReason>>> futures) {
+        List<TerminationReason> toRet = new ArrayList<>();
+        for (Future<Optional<TerminationReason>> future : futures) {
             try {
-                describePod = client.describePod(pod);
-            } catch (KubectlException e) {
-                describePod =
-                        String.format("Could not describe pod %s. %s", KubernetesHelper.getName(pod), e.toString());
-                logger.error(describePod);
+                future.get(MAX_WAIT_FOR_TERMINATION_IN_SECONDS, TimeUnit.SECONDS).ifPresent(toRet::add);
+            } catch (InterruptedException ex) {
+                logger.error("interrupted", ex);
+            } catch (ExecutionException ex) {
+                logger.error("Future Execution failed", ex);
+            } catch (TimeoutException ex) {
+                logger.error("timed out", ex);
             }
-        } else {
-            describePod = "Pods not described when debug logging not enabled."
-                    + "(com.atlassian.buildeng.kubernetes.KubernetesWatchdog)";
+        }
+        return toRet;
+    }
+
+    private static CompletableFuture<PodDiagnostics.Diagnostics> collectDiagnostics(
+            KubernetesClient client, PodDiagnostics diagnostics, Pod pod, boolean logTail) {
+        // describe is expensive operation especially if a lot of events are present and the cluster is large.
+        // this condition hopes to preserve the describe for debugging purposes but avoid it in normal traffic.
+        boolean describe = logger.isDebugEnabled() || Boolean.getBoolean(DESCRIBE_FAILED_PODS);
+        return diagnostics.collect(pod, client, logTail, describe);
+    }
+
+    private static Optional<TerminationReason> deletePod(
+            KubernetesClient client,
+            Pod pod,
+            String terminationReason,
+            boolean restartPod,
+            PodDiagnostics.Diagnostics collected) {
+        String describePod = collected.getDescribe();
+        if (describePod == null) {
+            describePod = "Pod not described, pods are described when debug logging is enabled "
+                    + "(com.atlassian.buildeng.kubernetes.KubernetesWatchdog) or with -D" + DESCRIBE_FAILED_PODS
+                    + "=true";
         }
         try {
             client.deletePod(pod);
@@ -509,6 +567,28 @@ public class KubernetesWatchdog extends WatchdogJob {
         return Optional.of(new TerminationReason(pod, new Date(), terminationReason, describePod, restartPod));
     }
 
+    private static void collectSharedIamRequests(
+            IamRequestManager iamRequests, KubernetesClient client, List<Pod> pods) {
+        if (iamRequests.needsDiscovery()) {
+            try {
+                iamRequests.discovered(client.getSharedIamRequestNames());
+            } catch (KubectlException e) {
+                logger.warn("Failed to list shared IAMRequests", e);
+            }
+        }
+        iamRequests.update(pods);
+        iamRequests.collectGarbage(client::deleteIamRequests);
+    }
+
+    private PodDiagnostics getPodDiagnostics(Map<String, Object> data) {
+        PodDiagnostics diagnostics = (PodDiagnostics) data.get(KEY_POD_DIAGNOSTICS);
+        if (diagnostics == null) {
+            diagnostics = new PodDiagnostics();
+            data.put(KEY_POD_DIAGNOSTICS, diagnostics);
+        }
+        return diagnostics;
+    }
+
     private Map<String, TerminationReason> getPodTerminationReasons(Map<String, Object> data) {
         @SuppressWarnings("unchecked")
         Map<String, TerminationReason> map = (Map<String, TerminationReason>) data.get(KEY_TERMINATED_POD_REASONS);
@@ -607,7 +687,11 @@ public class KubernetesWatchdog extends WatchdogJob {
 
         boolean shouldBeDeleted(Pod pod);
 
-        Callable<Optional<TerminationReason>> delete(Pod pod, KubernetesClient client);
+        /**
+         * Prepare deletion of the pod. Runs in the watchdog cycle, so it must not block, the returned callable
+         * runs on the watchdog pool.
+         */
+        Callable<Optional<TerminationReason>> delete(Pod pod, KubernetesClient client, PodDiagnostics diagnostics);
     }
 
     private static class OutOfResourcesSelector implements TerminatePodSelector {
@@ -620,12 +704,19 @@ public class KubernetesWatchdog extends WatchdogJob {
         }
 
         @Override
-        public Callable<Optional<TerminationReason>> delete(Pod pod, KubernetesClient client) {
+        public Callable<Optional<TerminationReason>> delete(
+                Pod pod, KubernetesClient client, PodDiagnostics diagnostics) {
             logger.info(
                     "Killing pod {} due to resource constraints. {} ", KubernetesHelper.getName(pod), pod.getStatus());
             String message = pod.getStatus().getReason();
+            CompletableFuture<PodDiagnostics.Diagnostics> collected =
+                    collectDiagnostics(client, diagnostics, pod, false);
             return () -> deletePod(
-                    client, pod, "Bamboo agent could not be scheduled " + (message != null ? ":" + message : ""), true);
+                    client,
+                    pod,
+                    "Bamboo agent could not be scheduled " + (message != null ? ":" + message : ""),
+                    true,
+                    diagnostics.await(collected, DIAGNOSTICS_WAIT_MILLIS));
         }
     }
 
@@ -642,7 +733,8 @@ public class KubernetesWatchdog extends WatchdogJob {
         }
 
         @Override
-        public Callable<Optional<TerminationReason>> delete(Pod pod, KubernetesClient client) {
+        public Callable<Optional<TerminationReason>> delete(
+                Pod pod, KubernetesClient client, PodDiagnostics diagnostics) {
             logger.info(
                     "Killing pod {} with terminated agent container. Container states: {}",
                     KubernetesHelper.getName(pod),
@@ -656,22 +748,26 @@ public class KubernetesWatchdog extends WatchdogJob {
                     .getState()
                     .getTerminated()
                     .getMessage();
-            try {
-                // Short circuit AND so that we don't grab the line if unnecessary
-                if (message == null && client.lastLogLinePod(pod).trim().endsWith("exec format error")) {
-                    message = "An 'exec format error' was detected when starting your container. Check that the "
+            // the log tail is only needed when the container did not report a message.
+            CompletableFuture<PodDiagnostics.Diagnostics> collected =
+                    collectDiagnostics(client, diagnostics, pod, message == null);
+            return () -> {
+                PodDiagnostics.Diagnostics result = diagnostics.await(collected, DIAGNOSTICS_WAIT_MILLIS);
+                String finalMessage = message;
+                if (finalMessage == null
+                        && result.getLastLogLine() != null
+                        && result.getLastLogLine().trim().endsWith("exec format error")) {
+                    finalMessage = "An 'exec format error' was detected when starting your container. Check that the "
                             + "architecture of your image matches the architecture your build is configured to run on.";
                 }
-            } catch (KubectlException e) {
-                logger.info(
-                        "Failed to retrieve last line of pod logs from " + KubernetesHelper.getName(pod) + ": " + e);
-            }
-            final String finalMessage = message;
-            return () -> deletePod(
-                    client,
-                    pod,
-                    "Bamboo agent container prematurely exited" + (finalMessage != null ? " : " + finalMessage : ""),
-                    false);
+                return deletePod(
+                        client,
+                        pod,
+                        "Bamboo agent container prematurely exited"
+                                + (finalMessage != null ? " : " + finalMessage : ""),
+                        false,
+                        result);
+            };
         }
     }
 
@@ -690,9 +786,17 @@ public class KubernetesWatchdog extends WatchdogJob {
         }
 
         @Override
-        public Callable<Optional<TerminationReason>> delete(Pod pod, KubernetesClient client) {
+        public Callable<Optional<TerminationReason>> delete(
+                Pod pod, KubernetesClient client, PodDiagnostics diagnostics) {
             logger.info("Killing pod {} with CreateContainerError.", KubernetesHelper.getName(pod));
-            return () -> deletePod(client, pod, "Pod with CreateContainerError.", true);
+            CompletableFuture<PodDiagnostics.Diagnostics> collected =
+                    collectDiagnostics(client, diagnostics, pod, false);
+            return () -> deletePod(
+                    client,
+                    pod,
+                    "Pod with CreateContainerError.",
+                    true,
+                    diagnostics.await(collected, DIAGNOSTICS_WAIT_MILLIS));
         }
     }
 
@@ -713,7 +817,8 @@ public class KubernetesWatchdog extends WatchdogJob {
         }
 
         @Override
-        public Callable<Optional<TerminationReason>> delete(Pod pod, KubernetesClient client) {
+        public Callable<Optional<TerminationReason>> delete(
+                Pod pod, KubernetesClient client, PodDiagnostics diagnostics) {
             List<String> errorStates = errorStates(pod);
             logger.info(
                     "Killing pod {} with error state. Container states: {}",
@@ -725,7 +830,14 @@ public class KubernetesWatchdog extends WatchdogJob {
             // this is a retryable error, only appears to affect single node fairly rarely.
             // if there are others that can create endless cycles, we need to revisit
             boolean retry = errorStates.stream().anyMatch((String t) -> t.contains("ImageInspectError"));
-            return () -> deletePod(client, pod, "Container error state(s):" + errorStates, retry);
+            CompletableFuture<PodDiagnostics.Diagnostics> collected =
+                    collectDiagnostics(client, diagnostics, pod, false);
+            return () -> deletePod(
+                    client,
+                    pod,
+                    "Container error state(s):" + errorStates,
+                    retry,
+                    diagnostics.await(collected, DIAGNOSTICS_WAIT_MILLIS));
         }
 
         private Stream<String> waitingStateErrorsStream(Pod pod) {
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.kubernetes;
+
+import com.atlassian.buildeng.kubernetes.exception.KubectlException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.fabric8.kubernetes.api.model.Pod;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Outcome of creating multiple pods from one multi-document manifest in a single kubectl call.
+ * kubectl creates every document it can and reports each failure on its own line, the output
+ * is demultiplexed here into created pods and failures per pod name.
+ */
+class PodBatchResult {
+    private static final Logger logger = LoggerFactory.getLogger(PodBatchResult.class);
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final String WARNING_PREFIX = "Warning:";
+
+    private final Map<String, Pod> created;
+    private final Map<String, KubectlException> failed;
+
+    private PodBatchResult(Map<String, Pod> created, Map<String, KubectlException> failed) {
+        this.created = created;
+        this.failed = failed;
+    }
+
+    /**
+     * Created pod, null if the pod failed.
+     */
+    Pod getPod(String podName) {
+        return failed.containsKey(podName) ? null : created.get(podName);
+    }
+
+    /**
+     * Failure of the pod or any other document (eg. IAMRequest) created along with it, null if all succeeded.
+     */
+    KubectlException getFailure(String podName) {
+        return failed.get(podName);
+    }
+
+    int getFailedCount() {
+        return failed.size();
+    }
+
+    /**
+     * Demultiplex kubectl create output.
+     *
+     * @param output combined stdout and stderr of kubectl create -o json
+     * @param podDocuments pod name to names of all documents created for the pod, including the pod itself
+     * @param errorMapper maps error output to the matching exception
+     */
+    static PodBatchResult parse(
+            String output,
+            Map<String, List<String>> podDocuments,
+            Function<String, KubectlException> errorMapper) {
+        StringBuilder json = new StringBuilder();
+        List<String> messages = new ArrayList<>();
+        for (String line : output.split("\n")) {
+            if (line.isEmpty() || line.charAt(0) == '{' || line.charAt(0) == '}'
+                    || Character.isWhitespace(line.charAt(0))) {
+                json.append(line).append('\n');
+            } else if (!line.startsWith(WARNING_PREFIX)) {
+                messages.add(line);
+            }
+        }
+
+        Map<String, Pod> created = new HashMap<>();
+        if (json.toString().trim().length() > 0) {
+            try (MappingIterator<JsonNode> it =
+                    OBJECT_MAPPER.readerFor(JsonNode.class).readValues(json.toString())) {
+                while (it.hasNext()) {
+                    JsonNode node = it.next();
+                    if ("Pod".equals(node.path("kind").asText())) {
+                        Pod pod = OBJECT_MAPPER.treeToValue(node, Pod.class);
+                        created.put(pod.getMetadata().getName(), pod);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.error("Unable to parse kubectl create output, {} pods parsed", created.size(), e);
+            }
+        }
+
+        Map<String, KubectlException> failed = new HashMap<>();
+        List<String> unattributed = new ArrayList<>();
+        for (String message : messages) {
+            String podName = podDocuments.entrySet().stream()
+                    .filter((Map.Entry<String, List<String>> e) ->
+                            e.getValue().stream().anyMatch((String name) -> message.contains("\"" + name + "\"")))
+                    .map(Map.Entry::getKey)
+                    .findFirst()
+                    .orElse(null);
+            if (podName != null) {
+                failed.putIfAbsent(podName, errorMapper.apply(message));
+            } else {
+                unattributed.add(message);
+            }
+        }
+        for (String podName : podDocuments.keySet()) {
+            if (!failed.containsKey(podName) && !created.containsKey(podName)) {
+                failed.put(
+                        podName,
+                        unattributed.isEmpty()
+                                ? new KubectlException("kubectl did not report pod " + podName + " as created")
+                                : errorMapper.apply(String.join("\n", unattributed)));
+            }
+        }
+        return new PodBatchResult(Collections.unmodifiableMap(created), Collections.unmodifiableMap(failed));
+    }
+}
@@ -26,6 +26,9 @@ import com.atlassian.plugin.spring.scanner.annotation.component.BambooComponent;
 import com.atlassian.sal.api.features.DarkFeatureManager;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -107,6 +110,14 @@ public class PodCreator {
      */
     static final String PBC_DIR = "/pbc/kube";
 
+    /**
+     * Created by the last side container to start, once all side containers have written to {@link #PBC_DIR}.
+     * Lets the agent container wait for a single file instead of counting the directory content.
+     */
+    static final String PBC_READY_FILE = "/pbc/sidecars.ready";
+
+    static final String ENV_PBC_READY_FILE = "PBC_READY_FILE";
+
     static final String AWS_WEB_IDENTITY_TOKEN_FILE = "/var/run/secrets/eks.amazonaws.com/serviceaccount/";
 
     static final String CONTAINER_NAME_BAMBOOAGENT = "bamboo-agent";
@@ -116,9 +127,15 @@ public class PodCreator {
     public static final String ANN_UUID = "pbc.uuid";
     public static final String ANN_IAM_REQUEST_NAME = "pbc.iamRequestName";
     public static final String ANN_POD_NAME = "pbc.podName";
+    /**
+     * Marks pods referencing an IAMRequest shared with other pods of the same subject id,
+     * see {@link IamRequestManager}.
+     */
+    public static final String ANN_IAM_REQUEST_SHARED = "pbc.iamRequestShared";
 
     public static final String LABEL_PBC_MARKER = "pbc";
     public static final String LABEL_BAMBOO_SERVER = "pbc.bamboo.server";
+    public static final String LABEL_IAM_REQUEST_SHARED = "pbc.iamShared";
 
     static final Integer KUBE_NAME_MAX_LENGTH = 87;
     static final Integer IRSA_SECRET_MAX_LENGTH = 63;
@@ -126,6 +143,9 @@ public class PodCreator {
     // very short suffix as we have a much stricter limit for labels
     static final String IRSA_SECRET_NAME_SUFFIX = "it";
     static final String IAM_REQUEST_NAME_SUFFIX = "iamrequest";
+    static final String SHARED_IAM_REQUEST_NAME_PREFIX = "pbc-iam-";
+    // 40 hex characters keep the secret name well below IRSA_SECRET_MAX_LENGTH
+    private static final int SHARED_IAM_HASH_LENGTH = 40;
 
     private final GlobalConfiguration globalConfiguration;
     private final DarkFeatureManager darkFeatureManager;
@@ -148,11 +168,21 @@ public class PodCreator {
             new SystemProperty(false, "atlassian.bamboo.pbc.image.pull.policy").getValue("Always");
 
     Map<String, Object> create(IsolatedDockerAgentRequest r) {
+        return create(r, null);
+    }
+
+    /**
+     * Create the pod definition.
+     *
+     * @param sharedIamSubjectId when not null the pod references the IAMRequest shared by all pods
+     *     of the subject id instead of its own one
+     */
+    Map<String, Object> create(IsolatedDockerAgentRequest r, String sharedIamSubjectId) {
         Map<String, Object> root = new HashMap<>();
         root.put("apiVersion", "v1");
         root.put("kind", "Pod");
-        root.put("metadata", createMetadata(r));
-        root.put("spec", createSpec(r));
+        root.put("metadata", createMetadata(r, sharedIamSubjectId));
+        root.put("spec", createSpec(r, sharedIamSubjectId));
         return root;
     }
 
@@ -170,14 +200,39 @@ public class PodCreator {
         return iamRequest;
     }
 
-    private Map<String, String> createAnnotations(IsolatedDockerAgentRequest r) {
+    Map<String, Object> createSharedIamRequest(String subjectId) {
+        Map<String, Object> iamRequest = new HashMap<>();
+        iamRequest.put("kind", "IAMRequest");
+        iamRequest.put(
+                "metadata",
+                ImmutableMap.of(
+                        "name",
+                        createSharedIamRequestName(subjectId),
+                        "labels",
+                        ImmutableMap.of(
+                                LABEL_IAM_REQUEST_SHARED,
+                                "true",
+                                LABEL_BAMBOO_SERVER,
+                                globalConfiguration.getBambooBaseUrlAskKubeLabel())));
+        iamRequest.put(
+                "spec",
+                ImmutableMap.of("subjectID", subjectId, "outputSecretName", createSharedIrsaSecretName(subjectId)));
+        return iamRequest;
+    }
+
+    private Map<String, String> createAnnotations(IsolatedDockerAgentRequest r, String sharedIamSubjectId) {
         Map<String, String> annotations = new HashMap<>();
         annotations.put(ANN_UUID, r.getUniqueIdentifier().toString());
         annotations.put(ANN_RESULTID, r.getResultKey());
         annotations.put(ANN_RETRYCOUNT, Integer.toString(r.getRetryCount()));
 
         if (r.getConfiguration().isAwsRoleDefined()) {
-            annotations.put(ANN_IAM_REQUEST_NAME, createIamRequestName(r));
+            if (sharedIamSubjectId != null) {
+                annotations.put(ANN_IAM_REQUEST_NAME, createSharedIamRequestName(sharedIamSubjectId));
+                annotations.put(ANN_IAM_REQUEST_SHARED, "true");
+            } else {
+                annotations.put(ANN_IAM_REQUEST_NAME, createIamRequestName(r));
+            }
         }
         return annotations;
     }
@@ -251,7 +306,9 @@ public class PodCreator {
 
                     map.put("volumeMounts", mountsBuilder.build());
 
-                    map.put("lifecycle", createContainerLifecycle(t.getName()));
+                    map.put(
+                            "lifecycle",
+                            createContainerLifecycle(t.getName(), c.getExtraContainers().size()));
                     return map;
                 })
                 .collect(Collectors.toList());
@@ -290,11 +347,11 @@ public class PodCreator {
                 .collect(Collectors.toList());
     }
 
-    private Map<String, Object> createMetadata(IsolatedDockerAgentRequest r) {
+    private Map<String, Object> createMetadata(IsolatedDockerAgentRequest r, String sharedIamSubjectId) {
         Map<String, Object> map = new HashMap<>();
         map.put("name", createPodName(r));
         map.put("labels", createLabels(r));
-        map.put("annotations", createAnnotations(r));
+        map.put("annotations", createAnnotations(r, sharedIamSubjectId));
         return map;
     }
 
@@ -310,6 +367,30 @@ public class PodCreator {
         return createName(r, IAM_REQUEST_NAME_SUFFIX, KUBE_NAME_MAX_LENGTH);
     }
 
+    /**
+     * Subject ids contain characters not allowed in kubernetes names, the shared names use a hash of it instead.
+     */
+    static String createSharedIamRequestName(String subjectId) {
+        return SHARED_IAM_REQUEST_NAME_PREFIX + hash(subjectId);
+    }
+
+    static String createSharedIrsaSecretName(String subjectId) {
+        return "iamtoken-" + hash(subjectId);
+    }
+
+    private static String hash(String subjectId) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(subjectId.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder();
+            for (byte b : digest) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.substring(0, SHARED_IAM_HASH_LENGTH);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     /**
      * A character for some resources are necessary. This functions reduces the name of a plan to 50 characters
      * while keeping identifying characteristics.
@@ -338,7 +419,7 @@ public class PodCreator {
         return name.toLowerCase(Locale.ENGLISH) + "-" + r.getUniqueIdentifier();
     }
 
-    private Object createSpec(IsolatedDockerAgentRequest r) {
+    private Object createSpec(IsolatedDockerAgentRequest r, String sharedIamSubjectId) {
         Map<String, Object> map = new HashMap<>();
         map.put("restartPolicy", "Never");
         // 63 is max - https://tools.ietf.org/html/rfc2181#section-11
@@ -347,7 +428,7 @@ public class PodCreator {
             hostname = hostname.substring(0, 62);
         }
         map.put("hostname", hostname);
-        map.put("volumes", createVolumes(r));
+        map.put("volumes", createVolumes(r, sharedIamSubjectId));
         map.put("containers", createContainers(r));
         List<Map<String, Object>> initContainersList = new ArrayList<>();
         String currentSidekick = Objects.requireNonNull(
@@ -360,7 +441,7 @@ public class PodCreator {
         return map;
     }
 
-    private List<Map<String, Object>> createVolumes(IsolatedDockerAgentRequest r) {
+    private List<Map<String, Object>> createVolumes(IsolatedDockerAgentRequest r, String sharedIamSubjectId) {
         ImmutableList.Builder<Map<String, Object>> builder = ImmutableList.builder();
         if (GENERATE_SHM_VOLUME) {
             // workaround for low default of 64M in docker daemon.
@@ -374,6 +455,9 @@ public class PodCreator {
                 .add(ImmutableMap.of("name", "logspool", "emptyDir", new HashMap<>()))
                 .add(ImmutableMap.of("name", "bamboo-agent-sidekick", "emptyDir", new HashMap<>()));
         if (r.getConfiguration().isAwsRoleDefined()) {
+            String irsaSecretName = sharedIamSubjectId != null
+                    ? createSharedIrsaSecretName(sharedIamSubjectId)
+                    : createIrsaSecretName(r);
             builder.add(ImmutableMap.<String, Object>builder()
                     .put("name", "aws-iam-token")
                     .put(
@@ -386,7 +470,7 @@ public class PodCreator {
                                                     .add(ImmutableMap.of(
                                                             "secret",
                                                             ImmutableMap.builder()
-                                                                    .put("name", createIrsaSecretName(r))
+                                                                    .put("name", irsaSecretName)
                                                                     .put(
                                                                             "items",
                                                                             ImmutableList.of(
@@ -513,6 +597,7 @@ public class PodCreator {
                 KUBE_NUM_EXTRA_CONTAINERS,
                 "value",
                 "" + r.getConfiguration().getExtraContainers().size()));
+        envs.add(ImmutableMap.of("name", ENV_PBC_READY_FILE, "value", PBC_READY_FILE));
         if (r.getConfiguration().isAwsRoleDefined()) {
             String awsRole = r.getConfiguration().getAwsRole();
             envs.add(ImmutableMap.of("name", ENV_AWS_ROLE_ARN, "value", awsRole));
@@ -542,13 +627,15 @@ public class PodCreator {
      * The final user of the outcome is the agent container startup script that
      * needs to wait for all side containers to start up, avoiding the case when the build actually starts/finishes
      * but side containers haven't even started yet.
+     * The container that finds all side containers started also creates {@link #PBC_READY_FILE}.
+     * A failure to count or to create the ready file doesn't fail the hook, the agent falls back to counting.
      */
-    private static Map<String, Object> createContainerLifecycle(String containerName) {
+    static Map<String, Object> createContainerLifecycle(String containerName, int extraContainers) {
+        String command = "touch " + PBC_DIR + "/" + containerName
+                + " && if [ \"$(ls " + PBC_DIR + " | wc -l)\" -ge " + extraContainers + " ] 2>/dev/null;"
+                + " then touch " + PBC_READY_FILE + " || true; fi";
         Map<String, Object> map = new HashMap<>();
-        map.put(
-                "exec",
-                ImmutableMap.of(
-                        "command", ImmutableList.of("/bin/sh", "-c", "touch " + PBC_DIR + "/" + containerName)));
+        map.put("exec", ImmutableMap.of("command", ImmutableList.of("/bin/sh", "-c", command)));
         return Collections.singletonMap("postStart", map);
     }
 
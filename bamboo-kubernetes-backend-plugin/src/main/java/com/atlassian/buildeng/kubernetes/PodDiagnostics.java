@@ -0,0 +1,236 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.kubernetes;
+
+import com.atlassian.buildeng.kubernetes.exception.KubectlException;
+import io.fabric8.kubernetes.api.model.Pod;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+import org.eclipse.jkube.kit.common.util.KubernetesHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collects the agent container log tail and the describe output of failing pods on a small bounded pool,
+ * once per pod uid. The watchdog requests the diagnostics as soon as it selects a pod for deletion and only
+ * waits for them on the thread deleting the pod, repeated requests for the same pod reuse the cached result.
+ */
+class PodDiagnostics {
+    private static final Logger logger = LoggerFactory.getLogger(PodDiagnostics.class);
+
+    static final long MAX_AGE_MILLIS = TimeUnit.MINUTES.toMillis(15);
+    static final int MAX_ENTRIES = 1000;
+    private static final int THREADS = 4;
+    private static final int QUEUE_SIZE = 200;
+
+    private final Executor executor;
+    private final LongSupplier clock;
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    PodDiagnostics() {
+        this(newExecutor(), System::currentTimeMillis);
+    }
+
+    PodDiagnostics(Executor executor, LongSupplier clock) {
+        this.executor = executor;
+        this.clock = clock;
+    }
+
+    private static Executor newExecutor() {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor tpe = new ThreadPoolExecutor(
+                THREADS,
+                THREADS,
+                60L,
+                TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_SIZE),
+                (Runnable r) -> {
+                    Thread thread = new Thread(r, "pbc-pod-diagnostics-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        tpe.allowCoreThreadTimeOut(true);
+        return tpe;
+    }
+
+    /**
+     * Start collecting diagnostics of the pod unless they are already collected or being collected.
+     *
+     * @param pod the failing pod
+     * @param client client used to run kubectl
+     * @param logTail whether the last line of the agent container log is needed
+     * @param describe whether the describe output is needed
+     * @return future completed with the diagnostics
+     */
+    synchronized CompletableFuture<Diagnostics> collect(
+            Pod pod, KubernetesClient client, boolean logTail, boolean describe) {
+        String key = keyOf(pod);
+        Entry existing = entries.get(key);
+        boolean needLogTail = logTail && (existing == null || !existing.logTail);
+        boolean needDescribe = describe && (existing == null || !existing.describe);
+        if (!needLogTail && !needDescribe) {
+            // nothing to fetch, don't occupy the pool.
+            return existing != null ? existing.future : CompletableFuture.completedFuture(new Diagnostics(null, null));
+        }
+        CompletableFuture<Diagnostics> fetched;
+        try {
+            fetched = CompletableFuture.supplyAsync(() -> fetch(pod, client, needLogTail, needDescribe), executor);
+        } catch (RejectedExecutionException e) {
+            logger.warn("Too many pending pod diagnostics, skipping {}", KubernetesHelper.getName(pod));
+            // not cached, the next request can try again.
+            return existing != null ? existing.future : CompletableFuture.completedFuture(new Diagnostics(null, null));
+        }
+        CompletableFuture<Diagnostics> future =
+                existing != null ? existing.future.thenCombine(fetched, Diagnostics::merge) : fetched;
+        entries.put(
+                key,
+                new Entry(
+                        future,
+                        logTail || (existing != null && existing.logTail),
+                        describe || (existing != null && existing.describe),
+                        existing != null ? existing.created : clock.getAsLong()));
+        return future;
+    }
+
+    /**
+     * Wait for collected diagnostics.
+     *
+     * @param future as returned by {@link #collect(Pod, KubernetesClient, boolean, boolean)}
+     * @param timeoutMillis how long to wait at most
+     * @return the diagnostics or empty ones when not collected in time
+     */
+    Diagnostics await(CompletableFuture<Diagnostics> future, long timeoutMillis) {
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            logger.info("Pod diagnostics not available: {}", e.toString());
+        }
+        return new Diagnostics(null, null);
+    }
+
+    /**
+     * Drop diagnostics that are too old to be reused and the oldest ones above the size limit.
+     */
+    synchronized void expire() {
+        long threshold = clock.getAsLong() - MAX_AGE_MILLIS;
+        entries.values().removeIf((Entry e) -> e.created < threshold);
+        if (entries.size() > MAX_ENTRIES) {
+            entries.entrySet().stream()
+                    .sorted(Comparator.comparingLong((Map.Entry<String, Entry> e) -> e.getValue().created))
+                    .limit(entries.size() - MAX_ENTRIES)
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toList())
+                    .forEach(entries::remove);
+        }
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    private static Diagnostics fetch(Pod pod, KubernetesClient client, boolean logTail, boolean describe) {
+        String lastLogLine = null;
+        String describeOutput = null;
+        String podName = KubernetesHelper.getName(pod);
+        if (logTail) {
+            try {
+                lastLogLine = client.lastLogLinePod(pod);
+            } catch (KubectlException e) {
+                logger.info("Failed to retrieve last line of pod logs from " + podName + ": " + e);
+            }
+        }
+        if (describe) {
+            try {
+                describeOutput = client.describePod(pod);
+            } catch (KubectlException e) {
+                describeOutput = String.format("Could not describe pod %s. %s", podName, e.toString());
+                logger.error(describeOutput);
+            }
+        }
+        return new Diagnostics(lastLogLine, describeOutput);
+    }
+
+    private static String keyOf(Pod pod) {
+        String uid = pod.getMetadata().getUid();
+        return uid != null ? uid : KubernetesHelper.getName(pod);
+    }
+
+    private static final class Entry {
+        private final CompletableFuture<Diagnostics> future;
+        private final boolean logTail;
+        private final boolean describe;
+        private final long created;
+
+        Entry(CompletableFuture<Diagnostics> future, boolean logTail, boolean describe, long created) {
+            this.future = future;
+            this.logTail = logTail;
+            this.describe = describe;
+            this.created = created;
+        }
+    }
+
+    /**
+     * Collected diagnostics of a single pod.
+     */
+    static final class Diagnostics {
+        private final String lastLogLine;
+        private final String describe;
+
+        Diagnostics(String lastLogLine, String describe) {
+            this.lastLogLine = lastLogLine;
+            this.describe = describe;
+        }
+
+        Diagnostics merge(Diagnostics other) {
+            return new Diagnostics(
+                    other.lastLogLine != null ? other.lastLogLine : lastLogLine,
+                    other.describe != null ? other.describe : describe);
+        }
+
+        /**
+         * Last line of the agent container log.
+         *
+         * @return the line or null when not collected
+         */
+        String getLastLogLine() {
+            return lastLogLine;
+        }
+
+        /**
+         * Output of kubectl describe pod, or the reason why it failed.
+         *
+         * @return describe output or null when not collected
+         */
+        String getDescribe() {
+            return describe;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.kubernetes;
+
+import com.atlassian.bamboo.deployments.projects.events.DeploymentProjectConfigUpdatedEvent;
+import com.atlassian.bamboo.deployments.projects.events.DeploymentProjectDeletedEvent;
+import com.atlassian.bamboo.event.BuildConfigurationUpdatedEvent;
+import com.atlassian.bamboo.event.ChainDeletedEvent;
+import com.atlassian.event.api.EventListener;
+
+/**
+ * Drops cached subject ids of plans and deployment projects that were changed or deleted.
+ */
+public class SubjectIdChangeListener {
+
+    private final SubjectIdServiceImpl subjectIdService;
+
+    public SubjectIdChangeListener(SubjectIdServiceImpl subjectIdService) {
+        this.subjectIdService = subjectIdService;
+    }
+
+    @EventListener
+    public void onBuildConfigurationUpdatedEvent(BuildConfigurationUpdatedEvent event) {
+        subjectIdService.invalidatePlan(event.getPlanKey());
+    }
+
+    @EventListener
+    public void onChainDeletedEvent(ChainDeletedEvent event) {
+        subjectIdService.invalidatePlan(event.getPlanKey());
+    }
+
+    @EventListener
+    public void onDeploymentProjectConfigUpdatedEvent(DeploymentProjectConfigUpdatedEvent event) {
+        subjectIdService.invalidateDeployment(event.getDeploymentProjectId());
+    }
+
+    @EventListener
+    public void onDeploymentProjectDeletedEvent(DeploymentProjectDeletedEvent event) {
+        subjectIdService.invalidateDeployment(event.getDeploymentProjectId());
+    }
+}
@@ -11,6 +11,10 @@ import com.atlassian.bamboo.plan.cache.ImmutableJob;
 import com.atlassian.bamboo.plan.cache.ImmutablePlan;
 import com.atlassian.bamboo.plan.cache.ImmutableTopLevelPlan;
 import com.atlassian.plugin.spring.scanner.annotation.component.BambooComponent;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 import javax.inject.Inject;
 
 @BambooComponent
@@ -20,6 +24,11 @@ public class SubjectIdServiceImpl implements SubjectIdService {
     private final DeploymentProjectService deploymentProjectService;
 
     private static final Integer IAM_REQUEST_LIMIT = 63;
+    // backstop for changes without an invalidating event, eg. plans moved to another project.
+    private static final long CACHE_EXPIRY_MINUTES = 60;
+    static final int MAX_CACHED_SUBJECT_IDS = 5000;
+
+    private volatile Resolved resolved;
 
     @Inject
     public SubjectIdServiceImpl(
@@ -38,16 +47,20 @@ public class SubjectIdServiceImpl implements SubjectIdService {
      */
     @Override
     public String getSubjectId(ImmutablePlan plan) {
+        return createSubjectId(getResolved().instanceName, plan);
+    }
+
+    private String createSubjectId(String instanceName, ImmutablePlan plan) {
         // Check if ImmutablePlan is actually a job; get the containing plan if so.
         plan = plan.getPlanType().equals(PlanType.JOB) ? ((ImmutableJob) plan).getParent() : plan;
         // Check if plan is a branch build or not. If so, grab the main branch.
         plan = plan.hasMaster() ? plan.getMaster() : plan;
-        String subjectId = getInstanceName() + "/" + plan.getPlanKey() + "/B/" + plan.getId();
+        String subjectId = instanceName + "/" + plan.getPlanKey() + "/B/" + plan.getId();
         // IAM Request validator has a limit of 63 characters
         if (subjectId.length() > IAM_REQUEST_LIMIT) {
             // Since the ID is unique, we need to make sure it's not truncate. The user-defined instance name and
             // plan need to be truncated.
-            String toBeTruncated = getInstanceName() + "/" + plan.getPlanKey();
+            String toBeTruncated = instanceName + "/" + plan.getPlanKey();
 
             // We need to truncate the string to fit a '/<ID>' at the end without going over the limit
             // -3 as we need to fit the '/B/'
@@ -60,13 +73,17 @@ public class SubjectIdServiceImpl implements SubjectIdService {
 
     @Override
     public String getSubjectId(DeploymentProject deploymentProject) {
-        String subjectId = getInstanceName() + "/" + deploymentProject.getPlanKey() + "/D/" + deploymentProject.getId();
+        return createSubjectId(getResolved().instanceName, deploymentProject);
+    }
+
+    private String createSubjectId(String instanceName, DeploymentProject deploymentProject) {
+        String subjectId = instanceName + "/" + deploymentProject.getPlanKey() + "/D/" + deploymentProject.getId();
         // IAM Request validator has a limit of 63 characters
         if (subjectId.length() > IAM_REQUEST_LIMIT) {
             // Again, the ID is unique, so we should not truncate it. The user defined instance name and plan
             // key should be truncated instead.
 
-            String toBeTruncated = getInstanceName() + "/" + deploymentProject.getPlanKey();
+            String toBeTruncated = instanceName + "/" + deploymentProject.getPlanKey();
 
             // Truncate the instance-name to fit a '/D/<ID>' at the end.
             // -3 as we need to fit '/D/'
@@ -83,27 +100,81 @@ public class SubjectIdServiceImpl implements SubjectIdService {
 
     @Override
     public String getSubjectId(PlanKey planKey) {
-        ImmutablePlan plan = cachedPlanManager.getPlanByKey(planKey);
-        if (plan == null) {
-            throw new NotFoundException("Could not find plan with plankey: " + planKey.toString());
+        Resolved current = getResolved();
+        String subjectId = current.plans.getIfPresent(planKey);
+        if (subjectId == null) {
+            ImmutablePlan plan = cachedPlanManager.getPlanByKey(planKey);
+            if (plan == null) {
+                throw new NotFoundException("Could not find plan with plankey: " + planKey.toString());
+            }
+            subjectId = createSubjectId(current.instanceName, plan);
+            current.plans.put(planKey, subjectId);
         }
-        return getSubjectId(plan);
+        return subjectId;
     }
 
     @Override
     public String getSubjectId(Long deploymentId) {
-        DeploymentProject deploymentProject = deploymentProjectService.getDeploymentProject(deploymentId);
-        if (deploymentProject == null) {
-            throw new NotFoundException("Could not find deployment project with id: " + deploymentId);
+        Resolved current = getResolved();
+        String subjectId = current.deployments.getIfPresent(deploymentId);
+        if (subjectId == null) {
+            DeploymentProject deploymentProject = deploymentProjectService.getDeploymentProject(deploymentId);
+            if (deploymentProject == null) {
+                throw new NotFoundException("Could not find deployment project with id: " + deploymentId);
+            }
+            subjectId = createSubjectId(current.instanceName, deploymentProject);
+            current.deployments.put(deploymentId, subjectId);
         }
-        return getSubjectId(deploymentProject);
+        return subjectId;
     }
 
-    private String getInstanceName() {
-        return admConfAccessor
-                .getAdministrationConfiguration()
-                .getInstanceName()
-                .toLowerCase()
-                .replaceAll("\\s", "-");
+    /**
+     * Forget subject ids of the plan, its jobs and branches. Matches by key prefix, other plans with
+     * a key starting with the same characters are resolved again as well.
+     */
+    void invalidatePlan(PlanKey planKey) {
+        Resolved current = resolved;
+        if (current != null) {
+            String prefix = planKey.getKey();
+            current.plans.asMap().keySet().removeIf((PlanKey t) -> t.getKey().startsWith(prefix));
+        }
+    }
+
+    void invalidateDeployment(long deploymentId) {
+        Resolved current = resolved;
+        if (current != null) {
+            current.deployments.invalidate(deploymentId);
+        }
+    }
+
+    /**
+     * Subject ids resolved for the current instance name, a changed instance name starts over with empty caches.
+     */
+    private Resolved getResolved() {
+        String rawInstanceName = admConfAccessor.getAdministrationConfiguration().getInstanceName();
+        Resolved current = resolved;
+        if (current == null || !Objects.equals(current.rawInstanceName, rawInstanceName)) {
+            current = new Resolved(rawInstanceName);
+            resolved = current;
+        }
+        return current;
+    }
+
+    private static final class Resolved {
+        private final String rawInstanceName;
+        private final String instanceName;
+        private final Cache<PlanKey, String> plans = CacheBuilder.newBuilder()
+                .maximumSize(MAX_CACHED_SUBJECT_IDS)
+                .expireAfterWrite(CACHE_EXPIRY_MINUTES, TimeUnit.MINUTES)
+                .build();
+        private final Cache<Long, String> deployments = CacheBuilder.newBuilder()
+                .maximumSize(MAX_CACHED_SUBJECT_IDS)
+                .expireAfterWrite(CACHE_EXPIRY_MINUTES, TimeUnit.MINUTES)
+                .build();
+
+        private Resolved(String rawInstanceName) {
+            this.rawInstanceName = rawInstanceName;
+            this.instanceName = rawInstanceName.toLowerCase().replaceAll("\\s", "-");
+        }
     }
 }
@@ -0,0 +1,10 @@
+package com.atlassian.buildeng.kubernetes.exception;
+
+/**
+ * Request rejected by an admission controller or webhook, the same request would be rejected again.
+ */
+public class AdmissionDeniedException extends KubectlException {
+    public AdmissionDeniedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
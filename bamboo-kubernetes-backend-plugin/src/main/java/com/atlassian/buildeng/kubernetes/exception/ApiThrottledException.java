@@ -0,0 +1,24 @@
+package com.atlassian.buildeng.kubernetes.exception;
+
+import com.atlassian.buildeng.spi.isolated.docker.RetryReason;
+
+public class ApiThrottledException extends RecoverableKubectlException {
+    private final int retryAfterSeconds;
+
+    public ApiThrottledException(String message, int retryAfterSeconds, Throwable cause) {
+        super(message, cause);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * Delay suggested by the API server, 0 if none.
+     */
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    @Override
+    public RetryReason getRetryReason() {
+        return RetryReason.THROTTLED;
+    }
+}
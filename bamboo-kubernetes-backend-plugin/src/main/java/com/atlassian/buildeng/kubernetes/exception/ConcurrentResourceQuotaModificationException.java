@@ -1,5 +1,7 @@
 package com.atlassian.buildeng.kubernetes.exception;
 
+import com.atlassian.buildeng.spi.isolated.docker.RetryReason;
+
 public class ConcurrentResourceQuotaModificationException extends RecoverableKubectlException {
     public ConcurrentResourceQuotaModificationException(String message) {
         super(message);
@@ -8,4 +10,9 @@ public class ConcurrentResourceQuotaModificationException extends RecoverableKub
     public ConcurrentResourceQuotaModificationException(String message, Throwable cause) {
         super(message, cause);
     }
+
+    @Override
+    public RetryReason getRetryReason() {
+        return RetryReason.CONFLICT;
+    }
 }
@@ -1,5 +1,7 @@
 package com.atlassian.buildeng.kubernetes.exception;
 
+import com.atlassian.buildeng.spi.isolated.docker.RetryReason;
+
 public class ConnectionTimeoutException extends RecoverableKubectlException {
     public ConnectionTimeoutException(String message) {
         super(message);
@@ -8,4 +10,9 @@ public class ConnectionTimeoutException extends RecoverableKubectlException {
     public ConnectionTimeoutException(String message, Throwable cause) {
         super(message, cause);
     }
+
+    @Override
+    public RetryReason getRetryReason() {
+        return RetryReason.UNREACHABLE;
+    }
 }
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.kubernetes.exception;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Classifies kubectl failures by the API Status reason kubectl reports, either as a Status JSON document
+ * or as the reason in "Error from server (Reason): message" lines. The message is only inspected where
+ * the reason alone is ambiguous, eg. Forbidden is a quota, an admission or an authorization failure.
+ */
+public class KubectlErrorClassifier {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final Pattern SERVER_ERROR = Pattern.compile("^Error from server(?: \\((\\w+)\\))?: (.*)$");
+    private static final String[] UNREACHABLE_MESSAGES = {
+        "Unable to connect to the server",
+        "TLS handshake timeout",
+        "i/o timeout",
+        "connection refused",
+        "connection reset by peer",
+        "no such host",
+        "context deadline exceeded",
+        "client connection lost",
+        "etcdserver: request timed out",
+        "failed calling webhook"
+    };
+
+    public enum Category {
+        /**
+         * resource quota exceeded, clears up once other pods finish.
+         */
+        QUOTA,
+        /**
+         * rejected by an admission controller or webhook, retrying the same request fails again.
+         */
+        ADMISSION,
+        /**
+         * concurrent modification, typically of the pod-limit resource quota.
+         */
+        CONFLICT,
+        ALREADY_EXISTS,
+        /**
+         * API server rate limiting or priority and fairness rejected the request.
+         */
+        THROTTLING,
+        /**
+         * API server, etcd or a webhook could not be reached or timed out.
+         */
+        UNREACHABLE,
+        UNKNOWN
+    }
+
+    /**
+     * Classify combined kubectl output. The first API error in the output decides.
+     */
+    public Classification classify(String output) {
+        if (output == null || output.isEmpty()) {
+            return new Classification(Category.UNKNOWN, null, 0, "", 0);
+        }
+        Classification status = parseStatus(output);
+        if (status != null) {
+            return status;
+        }
+        Classification unreachable = null;
+        for (String line : output.split("\n")) {
+            Matcher matcher = SERVER_ERROR.matcher(line.trim());
+            if (matcher.matches()) {
+                String reason = matcher.group(1);
+                String message = matcher.group(2);
+                return new Classification(categorize(reason, 0, message), reason, 0, message, 0);
+            } else if (unreachable == null && isUnreachable(line)) {
+                unreachable = new Classification(Category.UNREACHABLE, null, 0, line.trim(), 0);
+            }
+        }
+        return unreachable != null ? unreachable : new Classification(Category.UNKNOWN, null, 0, output.trim(), 0);
+    }
+
+    private Classification parseStatus(String output) {
+        int start = output.indexOf('{');
+        int end = output.lastIndexOf('}');
+        if (start < 0 || end < start || !output.contains("\"Status\"")) {
+            return null;
+        }
+        try {
+            JsonNode node = OBJECT_MAPPER.readTree(output.substring(start, end + 1));
+            if (!"Status".equals(node.path("kind").asText())) {
+                return null;
+            }
+            String reason = node.path("reason").asText(null);
+            int code = node.path("code").asInt(0);
+            String message = node.path("message").asText("");
+            return new Classification(
+                    categorize(reason, code, message),
+                    reason,
+                    code,
+                    message,
+                    node.path("details").path("retryAfterSeconds").asInt(0));
+        } catch (IOException e) {
+            // not a Status document, eg. a pod created before the failure.
+            return null;
+        }
+    }
+
+    private static Category categorize(String reason, int code, String message) {
+        if (message.contains("admission webhook") && message.contains("denied the request")
+                || message.contains("violates PodSecurity")) {
+            return Category.ADMISSION;
+        }
+        String r = reason == null ? "" : reason;
+        if ("Forbidden".equals(r) || code == 403) {
+            return message.contains("exceeded quota") ? Category.QUOTA : Category.UNKNOWN;
+        } else if ("Conflict".equals(r)) {
+            return Category.CONFLICT;
+        } else if ("AlreadyExists".equals(r)) {
+            return Category.ALREADY_EXISTS;
+        } else if ("TooManyRequests".equals(r) || code == 429) {
+            return Category.THROTTLING;
+        } else if ("ServiceUnavailable".equals(r) || "Timeout".equals(r) || code == 503 || code == 504) {
+            return Category.UNREACHABLE;
+        } else if (code == 409) {
+            return Category.CONFLICT;
+        }
+        // InternalError or no reason at all, transient only when the cause is a connectivity problem.
+        return isUnreachable(message) ? Category.UNREACHABLE : Category.UNKNOWN;
+    }
+
+    private static boolean isUnreachable(String message) {
+        for (String candidate : UNREACHABLE_MESSAGES) {
+            if (message.contains(candidate)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static final class Classification {
+        private final Category category;
+        private final String reason;
+        private final int code;
+        private final String message;
+        private final int retryAfterSeconds;
+
+        Classification(Category category, String reason, int code, String message, int retryAfterSeconds) {
+            this.category = category;
+            this.reason = reason;
+            this.code = code;
+            this.message = message;
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        public Category getCategory() {
+            return category;
+        }
+
+        /**
+         * Status reason reported by the API server, eg. Forbidden, null when kubectl failed without one.
+         */
+        public String getReason() {
+            return reason;
+        }
+
+        /**
+         * HTTP status code, only known from Status documents, 0 otherwise.
+         */
+        public int getCode() {
+            return code;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        /**
+         * Delay suggested by the API server for throttled requests, 0 if none.
+         */
+        public int getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+
+        /**
+         * Tag value for metrics.
+         */
+        public String getCategoryName() {
+            return category.name().toLowerCase(Locale.ENGLISH);
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.atlassian.buildeng.kubernetes.exception;
 
+import com.atlassian.buildeng.spi.isolated.docker.RetryReason;
+
 public class KubectlException extends RuntimeException {
     public KubectlException(String message) {
         super(message);
@@ -12,4 +14,8 @@ public class KubectlException extends RuntimeException {
     public boolean isRecoverable() {
         return false;
     }
+
+    public RetryReason getRetryReason() {
+        return RetryReason.UNKNOWN;
+    }
 }
@@ -1,8 +1,21 @@
 package com.atlassian.buildeng.kubernetes.exception;
 
 import com.atlassian.buildeng.kubernetes.shell.ShellException;
+import com.atlassian.buildeng.spi.isolated.docker.metrics.MetricsRegistry;
+import org.apache.commons.lang3.StringUtils;
 
 public class KubernetesExceptionParser {
+    private final KubectlErrorClassifier classifier = new KubectlErrorClassifier();
+    private final MetricsRegistry metrics;
+
+    public KubernetesExceptionParser() {
+        this(MetricsRegistry.global());
+    }
+
+    public KubernetesExceptionParser(MetricsRegistry metrics) {
+        this.metrics = metrics;
+    }
+
     /**
      * Parses the process output to determine an appropriate exception.
      *
@@ -19,19 +32,37 @@ public class KubernetesExceptionParser {
             return new KubectlException(errorMessage + " \n ARGS: " + args, exception);
         }
 
-        if (stdout.contains(
-                "Operation cannot be fulfilled on resourcequotas \"pod-limit\": the object has been modified")) {
-            // see https://github.com/kubernetes/kubernetes/issues/67761
-            return new ConcurrentResourceQuotaModificationException("Too many parallel requests in-flight", exception);
-        } else if (stdout.contains("is forbidden: exceeded quota: pod-limit")) {
-            return new PodLimitQuotaExceededException("pod-limit reached", exception);
-        } else if (stdout.contains("net/http: TLS handshake timeout")) {
-            return new ConnectionTimeoutException("Unable to connect to Kubernetes API", exception);
-        } else if (stdout.contains("(AlreadyExists)") && stdout.contains("error when creating")) {
-            return new PodAlreadyExistsException("pod already exists");
+        // kubectl output is usually merged into stdout, stderr only has content when it's kept apart.
+        KubectlErrorClassifier.Classification error =
+                classifier.classify(StringUtils.defaultString(stdout) + "\n" + StringUtils.defaultString(stderr));
+        metrics.counter("pbc_kubectl_failures_total", "category", error.getCategoryName()).increment();
+        switch (error.getCategory()) {
+            case QUOTA:
+                return new PodLimitQuotaExceededException(
+                        error.getMessage().contains("pod-limit") ? "pod-limit reached" : error.getMessage(), exception);
+            case CONFLICT:
+                if (error.getMessage().contains("resourcequotas")) {
+                    // see https://github.com/kubernetes/kubernetes/issues/67761
+                    return new ConcurrentResourceQuotaModificationException(
+                            "Too many parallel requests in-flight", exception);
+                }
+                return new ResourceConflictException(error.getMessage(), exception);
+            case ALREADY_EXISTS:
+                return new PodAlreadyExistsException("pod already exists");
+            case THROTTLING:
+                return new ApiThrottledException(
+                        "Kubernetes API throttled the request: " + error.getMessage(),
+                        error.getRetryAfterSeconds(),
+                        exception);
+            case UNREACHABLE:
+                return new ConnectionTimeoutException(
+                        "Unable to connect to Kubernetes API: " + error.getMessage(), exception);
+            case ADMISSION:
+                return new AdmissionDeniedException("Rejected by admission control: " + error.getMessage(), exception);
+            default:
+                return new KubectlException(
+                        errorMessage + " \nARGS: " + args + " \nSTDOUT: " + stdout + " \nSTDERR: " + stderr,
+                        exception);
         }
-
-        return new KubectlException(
-                errorMessage + " \nARGS: " + args + " \nSTDOUT: " + stdout + " \nSTDERR: " + stderr, exception);
     }
 }
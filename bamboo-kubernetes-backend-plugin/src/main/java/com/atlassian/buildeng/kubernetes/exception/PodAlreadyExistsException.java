@@ -1,7 +1,14 @@
 package com.atlassian.buildeng.kubernetes.exception;
 
+import com.atlassian.buildeng.spi.isolated.docker.RetryReason;
+
 public class PodAlreadyExistsException extends RecoverableKubectlException {
     public PodAlreadyExistsException(String message) {
         super(message);
     }
+
+    @Override
+    public RetryReason getRetryReason() {
+        return RetryReason.CONFLICT;
+    }
 }
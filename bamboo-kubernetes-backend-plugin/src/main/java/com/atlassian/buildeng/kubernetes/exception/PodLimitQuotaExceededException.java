@@ -1,5 +1,7 @@
 package com.atlassian.buildeng.kubernetes.exception;
 
+import com.atlassian.buildeng.spi.isolated.docker.RetryReason;
+
 public class PodLimitQuotaExceededException extends RecoverableKubectlException {
     public PodLimitQuotaExceededException(String message) {
         super(message);
@@ -8,4 +10,9 @@ public class PodLimitQuotaExceededException extends RecoverableKubectlException
     public PodLimitQuotaExceededException(String message, Throwable cause) {
         super(message, cause);
     }
+
+    @Override
+    public RetryReason getRetryReason() {
+        return RetryReason.QUOTA;
+    }
 }
@@ -0,0 +1,14 @@
+package com.atlassian.buildeng.kubernetes.exception;
+
+import com.atlassian.buildeng.spi.isolated.docker.RetryReason;
+
+public class ResourceConflictException extends RecoverableKubectlException {
+    public ResourceConflictException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    @Override
+    public RetryReason getRetryReason() {
+        return RetryReason.CONFLICT;
+    }
+}
@@ -22,6 +22,7 @@ import com.atlassian.bamboo.v2.build.queue.BuildQueueManager;
 import com.atlassian.buildeng.kubernetes.KubernetesIsolatedDockerImpl;
 import com.atlassian.buildeng.kubernetes.KubernetesWatchdog;
 import com.atlassian.buildeng.spi.isolated.docker.DockerAgentBuildQueue;
+import com.atlassian.buildeng.spi.isolated.docker.metrics.MetricsRegistry;
 import com.atlassian.plugin.spring.scanner.annotation.component.BambooComponent;
 import java.lang.management.ManagementFactory;
 import java.util.concurrent.atomic.AtomicLong;
@@ -52,6 +53,14 @@ public class KubeJmxService implements DisposableBean, InitializingBean {
         agentsCount = new KubeAgents();
         name = new ObjectName("com.atlassian.buildeng.kubernetes:type=KubeAgents");
         mbs.registerMBean(agentsCount, name);
+        MetricsRegistry metrics = MetricsRegistry.global();
+        metrics.gauge("pbc_kube_queued_agents", agentsCount.total::get);
+        metrics.gauge("pbc_kube_queued_agents_longer_than", agentsCount.minute5::get, "minutes", "5");
+        metrics.gauge("pbc_kube_queued_agents_longer_than", agentsCount.minute10::get, "minutes", "10");
+        metrics.gauge("pbc_kube_queued_agents_longer_than", agentsCount.minute15::get, "minutes", "15");
+        metrics.gauge("pbc_kube_queued_agents_longer_than", agentsCount.minute20::get, "minutes", "20");
+        metrics.gauge("pbc_kube_queued_agents_longer_than", agentsCount.minute25::get, "minutes", "25");
+        metrics.gauge("pbc_kube_queued_agents_longer_than", agentsCount.minute30::get, "minutes", "30");
     }
 
     /**
@@ -31,7 +31,10 @@ import com.atlassian.bamboo.persister.AuditLogService;
 import com.atlassian.bamboo.user.BambooAuthenticationContext;
 import com.atlassian.bandana.BandanaManager;
 import com.atlassian.buildeng.kubernetes.rest.Config;
+import com.atlassian.buildeng.spi.isolated.docker.Configuration;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import org.junit.Test;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -148,4 +151,47 @@ public class GlobalConfigurationTest {
                 "httpsstaging-bamboo.internal.atlassian.com",
                 GlobalConfiguration.stripLabelValue("https://staging-bamboo.internal.atlassian.com"));
     }
+
+    @Test
+    public void testSettingsAreReadFromSnapshot() {
+        when(bandanaManager.getValue(PlanAwareBandanaContext.GLOBAL_CONTEXT, GlobalConfiguration.BANDANA_SIDEKICK_KEY))
+                .thenReturn("sidekick");
+
+        assertEquals("sidekick", globalConfiguration.getCurrentSidekick());
+        assertEquals("sidekick", globalConfiguration.getCurrentSidekick());
+        assertEquals("", globalConfiguration.getIamSubjectIdPrefix());
+        verify(bandanaManager, times(1))
+                .getValue(PlanAwareBandanaContext.GLOBAL_CONTEXT, GlobalConfiguration.BANDANA_SIDEKICK_KEY);
+    }
+
+    @Test
+    public void testStoredContainerSizesAreUsed() {
+        when(bandanaManager.getValue(
+                        PlanAwareBandanaContext.GLOBAL_CONTEXT, GlobalConfiguration.BANDANA_CONTAINER_SIZES))
+                .thenReturn("{'main':[{'name':'REGULAR','cpu':1000,'memory':2000,'memoryLimit':3000,'label':'r'}],"
+                        + "'extra':[]}");
+
+        assertEquals(1000, globalConfiguration.getCpu(Configuration.ContainerSize.REGULAR));
+        assertEquals(3000, globalConfiguration.getMemoryLimit(Configuration.ContainerSize.REGULAR));
+        assertEquals("r", globalConfiguration.getLabel(Configuration.ContainerSize.REGULAR));
+    }
+
+    @Test
+    public void testSavingContextSwapsSnapshotAndNotifiesListeners() {
+        when(bandanaManager.getValue(
+                        PlanAwareBandanaContext.GLOBAL_CONTEXT, GlobalConfiguration.BANDANA_CURRENT_CONTEXT))
+                .thenReturn(null, "context");
+        List<GlobalConfiguration.Snapshot> changes = new ArrayList<>();
+        globalConfiguration.addChangeListener(changes::add);
+
+        globalConfiguration.persistCurrentContext("context");
+
+        verify(bandanaManager)
+                .setValue(
+                        PlanAwareBandanaContext.GLOBAL_CONTEXT,
+                        GlobalConfiguration.BANDANA_CURRENT_CONTEXT,
+                        "context");
+        assertEquals("context", globalConfiguration.getCurrentContext());
+        assertEquals(1, changes.size());
+    }
 }
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.kubernetes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.atlassian.buildeng.kubernetes.exception.KubectlException;
+import io.fabric8.kubernetes.api.model.ObjectMeta;
+import io.fabric8.kubernetes.api.model.Pod;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+public class IamRequestManagerTest {
+
+    private final AtomicLong now = new AtomicLong(1000);
+    private final IamRequestManager manager = new IamRequestManager(now::get);
+    private final AtomicInteger created = new AtomicInteger();
+    private final List<List<String>> deleted = new ArrayList<>();
+
+    @Test
+    public void appliedOncePerSubject() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            manager.acquire("pbc-iam-a", created::incrementAndGet);
+        }
+        manager.acquire("pbc-iam-b", created::incrementAndGet);
+
+        assertEquals(2, created.get());
+        assertEquals(2, manager.size());
+    }
+
+    @Test
+    public void referencedRequestsAreKept() throws Exception {
+        manager.acquire("pbc-iam-a", created::incrementAndGet);
+        manager.release("pbc-iam-a");
+        manager.update(Collections.singletonList(pod("pod-1", "pbc-iam-a", true)));
+        now.addAndGet(IamRequestManager.IDLE_MILLIS * 2);
+
+        assertEquals(0, manager.collectGarbage(this::delete));
+        assertEquals(Collections.emptyList(), deleted);
+    }
+
+    @Test
+    public void pendingRequestsAreKept() throws Exception {
+        manager.acquire("pbc-iam-a", created::incrementAndGet);
+        manager.update(Collections.emptyList());
+        now.addAndGet(IamRequestManager.IDLE_MILLIS * 2);
+
+        assertEquals(0, manager.collectGarbage(this::delete));
+    }
+
+    @Test
+    public void idleRequestsAreDeletedInBatches() throws Exception {
+        int count = IamRequestManager.DELETE_BATCH_SIZE + 10;
+        for (int i = 0; i < count; i++) {
+            manager.acquire("pbc-iam-" + i, created::incrementAndGet);
+            manager.release("pbc-iam-" + i);
+        }
+        manager.update(Collections.emptyList());
+        now.addAndGet(IamRequestManager.IDLE_MILLIS - 1);
+        assertEquals(0, manager.collectGarbage(this::delete));
+
+        now.incrementAndGet();
+        assertEquals(count, manager.collectGarbage(this::delete));
+        assertEquals(2, deleted.size());
+        assertEquals(IamRequestManager.DELETE_BATCH_SIZE, deleted.get(0).size());
+        assertEquals(10, deleted.get(1).size());
+        assertEquals(0, manager.size());
+
+        // deleted requests are applied again on next use
+        manager.acquire("pbc-iam-0", created::incrementAndGet);
+        assertEquals(count + 1, created.get());
+    }
+
+    @Test
+    public void failedDeletionIsRetried() throws Exception {
+        manager.acquire("pbc-iam-a", created::incrementAndGet);
+        manager.release("pbc-iam-a");
+        now.addAndGet(IamRequestManager.IDLE_MILLIS);
+
+        assertEquals(0, manager.collectGarbage((List<String> names) -> {
+            throw new KubectlException("timeout");
+        }));
+        assertEquals(1, manager.size());
+        assertEquals(1, manager.collectGarbage(this::delete));
+        assertEquals(Collections.singletonList(Collections.singletonList("pbc-iam-a")), deleted);
+    }
+
+    @Test
+    public void failedCreationIsRetried() throws Exception {
+        assertThrows(KubectlException.class, () -> manager.acquire("pbc-iam-a", () -> {
+            throw new KubectlException("forbidden");
+        }));
+        manager.acquire("pbc-iam-a", created::incrementAndGet);
+
+        assertEquals(1, created.get());
+    }
+
+    @Test
+    public void requestsOfExistingPodsAreNotApplied() throws Exception {
+        manager.discovered(Collections.singletonList("pbc-iam-leftover"));
+        manager.update(Arrays.asList(pod("pod-1", "pbc-iam-a", true), pod("pod-2", "pod-2-iamrequest", false)));
+        manager.acquire("pbc-iam-a", created::incrementAndGet);
+        manager.release("pbc-iam-a");
+        manager.update(Collections.emptyList());
+        now.addAndGet(IamRequestManager.IDLE_MILLIS);
+
+        assertEquals(0, created.get());
+        assertEquals(2, manager.collectGarbage(this::delete));
+        assertEquals(
+                Arrays.asList("pbc-iam-a", "pbc-iam-leftover"),
+                deleted.get(0).stream().sorted().collect(Collectors.toList()));
+    }
+
+    @Test
+    public void slowApplyOnlyBlocksSameName() throws Exception {
+        CountDownLatch applying = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> first = executor.submit(() -> {
+                manager.acquire("pbc-iam-a", () -> {
+                    applying.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new KubectlException("interrupted");
+                    }
+                    created.incrementAndGet();
+                });
+                return null;
+            });
+            assertTrue(applying.await(5, TimeUnit.SECONDS));
+            Future<?> second = executor.submit(() -> {
+                manager.acquire("pbc-iam-a", created::incrementAndGet);
+                return null;
+            });
+
+            manager.acquire("pbc-iam-b", created::incrementAndGet);
+            assertEquals(1, created.get());
+            assertFalse(second.isDone());
+
+            release.countDown();
+            first.get(5, TimeUnit.SECONDS);
+            second.get(5, TimeUnit.SECONDS);
+            // applied once for each name
+            assertEquals(2, created.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void slowDeleteOnlyBlocksSameName() throws Exception {
+        manager.acquire("pbc-iam-a", created::incrementAndGet);
+        manager.release("pbc-iam-a");
+        now.addAndGet(IamRequestManager.IDLE_MILLIS);
+        CountDownLatch deleting = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Integer> gc = executor.submit(() -> manager.collectGarbage((List<String> names) -> {
+                deleting.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new KubectlException("interrupted");
+                }
+            }));
+            assertTrue(deleting.await(5, TimeUnit.SECONDS));
+            Future<?> reacquire = executor.submit(() -> {
+                manager.acquire("pbc-iam-a", created::incrementAndGet);
+                return null;
+            });
+
+            manager.acquire("pbc-iam-b", created::incrementAndGet);
+            assertEquals(2, created.get());
+            assertFalse(reacquire.isDone());
+
+            release.countDown();
+            assertEquals(1, (int) gc.get(5, TimeUnit.SECONDS));
+            reacquire.get(5, TimeUnit.SECONDS);
+            // applied again after the deletion
+            assertEquals(3, created.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void sharedNameOnlyForSharedPods() {
+        assertEquals("pbc-iam-a", IamRequestManager.getSharedIamRequestName(pod("pod-1", "pbc-iam-a", true)));
+        assertNull(IamRequestManager.getSharedIamRequestName(pod("pod-2", "pod-2-iamrequest", false)));
+    }
+
+    private void delete(List<String> names) {
+        deleted.add(new ArrayList<>(names));
+    }
+
+    private static Pod pod(String name, String iamRequest, boolean shared) {
+        Map<String, String> annotations = new HashMap<>();
+        annotations.put(PodCreator.ANN_IAM_REQUEST_NAME, iamRequest);
+        if (shared) {
+            annotations.put(PodCreator.ANN_IAM_REQUEST_SHARED, "true");
+        }
+        ObjectMeta metadata = new ObjectMeta();
+        metadata.setName(name);
+        metadata.setAnnotations(annotations);
+        Pod pod = new Pod();
+        pod.setMetadata(metadata);
+        return pod;
+    }
+}
@@ -1,5 +1,6 @@
 package com.atlassian.buildeng.kubernetes;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import com.atlassian.buildeng.kubernetes.exception.ConcurrentResourceQuotaModificationException;
@@ -7,6 +8,8 @@ import com.atlassian.buildeng.kubernetes.exception.ConnectionTimeoutException;
 import com.atlassian.buildeng.kubernetes.exception.PodLimitQuotaExceededException;
 import com.atlassian.buildeng.kubernetes.shell.ResponseStub;
 import com.atlassian.buildeng.kubernetes.shell.StubShellExecutor;
+import com.atlassian.buildeng.spi.isolated.docker.metrics.InMemoryReporter;
+import com.atlassian.buildeng.spi.isolated.docker.metrics.MetricsRegistry;
 import io.fabric8.kubernetes.api.model.Pod;
 import java.io.File;
 import java.util.List;
@@ -70,4 +73,34 @@ public class KubernetesClientTest {
             client.createPod(new File("/tmp/file.yaml"));
         });
     }
+
+    @Test
+    public void testKubectlCallsAreTimedPerCommand() {
+        StubShellExecutor shellExecutor = new StubShellExecutor();
+        shellExecutor.addStub(
+                "kubectl --request-timeout=5m -o json get pods --selector label=label_value",
+                new ResponseStub("/fixture/kubectl/get-pods-1.json", "/fixture/kubectl/empty.txt", 0));
+        shellExecutor.addStub(
+                "kubectl --request-timeout=5m -o json create --validate=false -f /tmp/file.yaml",
+                new ResponseStub("/fixture/kubectl/pod-quota-limit.txt", "/fixture/kubectl/empty.txt", 1));
+        MetricsRegistry metrics = new MetricsRegistry();
+        KubernetesClient client = new KubernetesClient(globalConfiguration, shellExecutor, metrics);
+
+        client.getPodsByLabel("label", "label_value");
+        assertThrows(PodLimitQuotaExceededException.class, () -> client.createPod(new File("/tmp/file.yaml")));
+
+        InMemoryReporter reporter = new InMemoryReporter();
+        metrics.report(reporter);
+        assertEquals(1, reporter.getValue("pbc_kubectl_seconds", "command", "get"));
+        assertEquals(1, reporter.getValue("pbc_kubectl_seconds", "command", "create"));
+        assertEquals(0, reporter.getValue("pbc_kubectl_errors_total", "command", "get"));
+        assertEquals(1, reporter.getValue("pbc_kubectl_errors_total", "command", "create"));
+    }
+
+    @Test
+    public void testCommandOfSkipsOptions() {
+        assertEquals("get", KubernetesClient.commandOf("-o", "json", "get", "pods"));
+        assertEquals("delete", KubernetesClient.commandOf("delete", "pod", "--grace-period=0"));
+        assertEquals("unknown", KubernetesClient.commandOf("--help"));
+    }
 }
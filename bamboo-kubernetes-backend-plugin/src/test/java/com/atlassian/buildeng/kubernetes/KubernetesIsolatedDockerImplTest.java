@@ -16,6 +16,8 @@
 
 package com.atlassian.buildeng.kubernetes;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
@@ -26,6 +28,7 @@ import static org.mockito.Mockito.when;
 import com.atlassian.bamboo.plan.PlanKey;
 import com.atlassian.bamboo.plan.PlanKeys;
 import com.atlassian.bandana.BandanaManager;
+import com.atlassian.buildeng.kubernetes.exception.ApiThrottledException;
 import com.atlassian.buildeng.kubernetes.exception.KubectlException;
 import com.atlassian.buildeng.kubernetes.exception.PodLimitQuotaExceededException;
 import com.atlassian.buildeng.kubernetes.jmx.KubeJmxService;
@@ -33,16 +36,24 @@ import com.atlassian.buildeng.spi.isolated.docker.IsolatedDockerAgentException;
 import com.atlassian.buildeng.spi.isolated.docker.IsolatedDockerAgentRequest;
 import com.atlassian.buildeng.spi.isolated.docker.IsolatedDockerAgentResult;
 import com.atlassian.buildeng.spi.isolated.docker.IsolatedDockerRequestCallback;
+import com.atlassian.buildeng.spi.isolated.docker.RetryReason;
 import com.atlassian.sal.api.features.DarkFeatureManager;
 import io.fabric8.kubernetes.api.model.ObjectMeta;
 import io.fabric8.kubernetes.api.model.Pod;
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockedConstruction;
@@ -75,6 +86,9 @@ public class KubernetesIsolatedDockerImplTest {
     @Mock
     KubernetesPodSpecList podSpecList;
 
+    @Mock
+    IamRequestManager iamRequestManager;
+
     @InjectMocks
     KubernetesIsolatedDockerImpl kubernetesIsolatedDocker;
 
@@ -95,6 +109,25 @@ public class KubernetesIsolatedDockerImplTest {
         assertTrue(retry.get(), "PBC should retry on exceeding kube quota");
     }
 
+    @Test
+    public void throttledRetryCarriesRetryAfter() {
+        KubectlException ke = new ApiThrottledException("too many requests", 7, null);
+        final AtomicReference<IsolatedDockerAgentResult> handled = new AtomicReference<>();
+        IsolatedDockerRequestCallback callback = new IsolatedDockerRequestCallback() {
+            @Override
+            public void handle(IsolatedDockerAgentResult result) {
+                handled.set(result);
+            }
+
+            @Override
+            public void handle(IsolatedDockerAgentException exception) {}
+        };
+        kubernetesIsolatedDocker.handleKubeCtlException(callback, ke);
+        assertTrue(handled.get().isRetryRecoverable());
+        assertEquals(RetryReason.THROTTLED, handled.get().getRetryReason());
+        assertEquals(7, handled.get().getRetryAfterSeconds());
+    }
+
     @Test
     public void testSubjectIdForPlan() {
         IsolatedDockerAgentRequest request = new IsolatedDockerAgentRequest(
@@ -140,6 +173,42 @@ public class KubernetesIsolatedDockerImplTest {
         verify(callback).handle(any(IsolatedDockerAgentResult.class));
     }
 
+    @Test
+    public void batchOutcomeIsDemultiplexedToCallbacks() throws IOException {
+        final IsolatedDockerAgentRequest requestA = mock(IsolatedDockerAgentRequest.class);
+        final IsolatedDockerAgentRequest requestB = mock(IsolatedDockerAgentRequest.class);
+        final IsolatedDockerRequestCallback callbackA = mock(IsolatedDockerRequestCallback.class);
+        final IsolatedDockerRequestCallback callbackB = mock(IsolatedDockerRequestCallback.class);
+        final File file = mock(File.class);
+        when(podSpecList.generateSpecs(requestA, "subjectId")).thenReturn(podSpec("pod-a"));
+        when(podSpecList.generateSpecs(requestB, "subjectId")).thenReturn(podSpec("pod-b"));
+        when(podSpecList.generate(any(List.class))).thenReturn(file);
+        String output = "{\"kind\": \"Pod\", \"metadata\": {\"name\": \"pod-a\", \"uid\": \"uid-a\"}}\n"
+                + "Error from server (Forbidden): error when creating \"/tmp/pod1yaml\": pods \"pod-b\""
+                + " is forbidden: exceeded quota: pod-limit\n";
+
+        try (MockedConstruction<KubernetesClient> mocked = mockConstruction(
+                KubernetesClient.class,
+                (mock, context) -> when(mock.createPods(any(File.class), any(Map.class)))
+                        .thenAnswer(invocation -> PodBatchResult.parse(
+                                output,
+                                invocation.getArgument(1),
+                                (String error) -> new PodLimitQuotaExceededException(error))))) {
+            kubernetesIsolatedDocker.execBatch(Arrays.asList(
+                    new KubernetesIsolatedDockerImpl.PendingPod(requestA, callbackA, "subjectId"),
+                    new KubernetesIsolatedDockerImpl.PendingPod(requestB, callbackB, "subjectId")));
+        }
+
+        ArgumentCaptor<IsolatedDockerAgentResult> resultA = ArgumentCaptor.forClass(IsolatedDockerAgentResult.class);
+        verify(callbackA).handle(resultA.capture());
+        assertFalse(resultA.getValue().isRetryRecoverable());
+        assertEquals("pod-a", resultA.getValue().getCustomResultData().get(KubernetesIsolatedDockerImpl.NAME));
+        ArgumentCaptor<IsolatedDockerAgentResult> resultB = ArgumentCaptor.forClass(IsolatedDockerAgentResult.class);
+        verify(callbackB).handle(resultB.capture());
+        assertTrue(resultB.getValue().isRetryRecoverable());
+        verify(podSpecList).cleanUp(file);
+    }
+
     // Helper functions
 
     private Pod setupMocksForPodFileDeleted(IsolatedDockerAgentRequest request, String subjectId, File file)
@@ -152,4 +221,11 @@ public class KubernetesIsolatedDockerImplTest {
         when(podMeta.getUid()).thenReturn(uid);
         return pod;
     }
+
+    private static List<Map<String, Object>> podSpec(String name) {
+        Map<String, Object> pod = new HashMap<>();
+        pod.put("kind", "Pod");
+        pod.put("metadata", Collections.singletonMap("name", name));
+        return Collections.singletonList(pod);
+    }
 }
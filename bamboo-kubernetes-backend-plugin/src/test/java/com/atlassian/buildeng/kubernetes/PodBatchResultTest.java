@@ -0,0 +1,117 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.kubernetes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.atlassian.buildeng.kubernetes.exception.ConnectionTimeoutException;
+import com.atlassian.buildeng.kubernetes.exception.KubectlException;
+import com.atlassian.buildeng.kubernetes.exception.KubernetesExceptionParser;
+import com.atlassian.buildeng.kubernetes.exception.PodAlreadyExistsException;
+import com.atlassian.buildeng.kubernetes.exception.PodLimitQuotaExceededException;
+import com.atlassian.buildeng.kubernetes.shell.ShellException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import org.junit.jupiter.api.Test;
+
+public class PodBatchResultTest {
+    private final Function<String, KubectlException> errorMapper = (String error) -> new KubernetesExceptionParser()
+            .map("error", new ShellException("Non-zero exit code", error, "", 1, Collections.emptyList()));
+
+    @Test
+    public void allPodsCreated() {
+        String output = pod("pod-a", "uid-a") + pod("pod-b", "uid-b");
+        PodBatchResult result = PodBatchResult.parse(output, documents("pod-a", "pod-b"), errorMapper);
+        assertEquals("uid-a", result.getPod("pod-a").getMetadata().getUid());
+        assertEquals("uid-b", result.getPod("pod-b").getMetadata().getUid());
+        assertNull(result.getFailure("pod-a"));
+        assertEquals(0, result.getFailedCount());
+    }
+
+    @Test
+    public void failuresAreDemultiplexedToPods() {
+        String output = pod("pod-a", "uid-a")
+                + "Error from server (Forbidden): error when creating \"/tmp/pod1yaml\": pods \"pod-b\" is forbidden:"
+                + " exceeded quota: pod-limit, requested: pods=1, used: pods=1500, limited: pods=1500\n"
+                + "Error from server (AlreadyExists): error when creating \"/tmp/pod1yaml\":"
+                + " pods \"pod-c\" already exists\n";
+        PodBatchResult result = PodBatchResult.parse(output, documents("pod-a", "pod-b", "pod-c"), errorMapper);
+        assertNotNull(result.getPod("pod-a"));
+        assertInstanceOf(PodLimitQuotaExceededException.class, result.getFailure("pod-b"));
+        assertInstanceOf(PodAlreadyExistsException.class, result.getFailure("pod-c"));
+        assertNull(result.getPod("pod-b"));
+        assertEquals(2, result.getFailedCount());
+    }
+
+    @Test
+    public void failedIamRequestFailsItsPod() {
+        Map<String, List<String>> documents = new LinkedHashMap<>();
+        documents.put("pod-a", Arrays.asList("pod-a", "pod-a-iam"));
+        documents.put("pod-b", Arrays.asList("pod-b", "pod-b-iam"));
+        String output = pod("pod-a", "uid-a")
+                + pod("pod-b", "uid-b")
+                + "Error from server (AlreadyExists): error when creating \"/tmp/pod1yaml\":"
+                + " iamrequests.kube.atlassian.com \"pod-b-iam\" already exists\n";
+        PodBatchResult result = PodBatchResult.parse(output, documents, errorMapper);
+        assertNotNull(result.getPod("pod-a"));
+        assertNull(result.getPod("pod-b"));
+        assertInstanceOf(PodAlreadyExistsException.class, result.getFailure("pod-b"));
+    }
+
+    @Test
+    public void unattributedErrorFailsPodsNotCreated() {
+        String output = "Warning: resource is deprecated\n"
+                + pod("pod-a", "uid-a")
+                + "Unable to connect to the server: net/http: TLS handshake timeout\n";
+        PodBatchResult result = PodBatchResult.parse(output, documents("pod-a", "pod-b"), errorMapper);
+        assertNotNull(result.getPod("pod-a"));
+        assertInstanceOf(ConnectionTimeoutException.class, result.getFailure("pod-b"));
+    }
+
+    @Test
+    public void missingPodIsFailure() {
+        PodBatchResult result = PodBatchResult.parse("", documents("pod-a"), errorMapper);
+        assertNull(result.getPod("pod-a"));
+        assertNotNull(result.getFailure("pod-a"));
+    }
+
+    private static Map<String, List<String>> documents(String... podNames) {
+        Map<String, List<String>> documents = new LinkedHashMap<>();
+        for (String name : podNames) {
+            documents.put(name, Collections.singletonList(name));
+        }
+        return documents;
+    }
+
+    private static String pod(String name, String uid) {
+        return "{\n"
+                + "    \"apiVersion\": \"v1\",\n"
+                + "    \"kind\": \"Pod\",\n"
+                + "    \"metadata\": {\n"
+                + "        \"name\": \"" + name + "\",\n"
+                + "        \"uid\": \"" + uid + "\"\n"
+                + "    }\n"
+                + "}\n";
+    }
+}
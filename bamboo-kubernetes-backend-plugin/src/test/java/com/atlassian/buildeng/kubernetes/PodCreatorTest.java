@@ -90,6 +90,18 @@ class PodCreatorTest {
         assertEquals(EXPECTED_POD_NAME, result);
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    void testContainerLifecycleSignalsReadiness() {
+        Map<String, Object> postStart =
+                (Map<String, Object>) PodCreator.createContainerLifecycle("postgres", 2).get("postStart");
+        List<String> command = (List<String>) ((Map<String, Object>) postStart.get("exec")).get("command");
+        assertEquals("/bin/sh", command.get(0));
+        assertTrue(command.get(2).startsWith("touch " + PodCreator.PBC_DIR + "/postgres && "));
+        assertTrue(command.get(2).contains("-ge 2 ]"));
+        assertTrue(command.get(2).contains("touch " + PodCreator.PBC_READY_FILE + " || true"));
+    }
+
     @Test
     void testCreateIrsaSecretName() {
         String result = podCreator.createIrsaSecretName(
@@ -235,6 +247,38 @@ class PodCreatorTest {
         assertEquals(expectedIamRequest, yaml.dump(iamRequest));
     }
 
+    @Test
+    void testSharedIamRequest() {
+        mockGlobalConfiguration();
+        mockDarkFeatureManager(Optional.of(false));
+        Configuration config = ConfigurationBuilder.create(IMAGE_NAME)
+                .withAwsRole("arn:aws:iam::123456789012:role/testrole")
+                .withImageSize(Configuration.ContainerSize.REGULAR)
+                .build();
+        IsolatedDockerAgentRequest request =
+                new IsolatedDockerAgentRequest(config, "TEST-PLAN-JOB-1", requestUuid, 0, "bk", 0, true);
+        String subjectId = "test-bamboo/TEST-PLAN/abc123";
+
+        Map<String, Object> pod = podCreator.create(request, subjectId);
+        Map<String, Object> iamRequest = podCreator.createSharedIamRequest(subjectId);
+
+        String name = PodCreator.createSharedIamRequestName(subjectId);
+        assertTrue(name.startsWith(PodCreator.SHARED_IAM_REQUEST_NAME_PREFIX));
+        assertEquals(name, PodCreator.createSharedIamRequestName(subjectId));
+        assertNotEquals(name, PodCreator.createSharedIamRequestName(subjectId + "x"));
+        assertEquals(name, ((Map<String, Object>) iamRequest.get("metadata")).get("name"));
+        Map<String, Object> annotations =
+                (Map<String, Object>) ((Map<String, Object>) pod.get("metadata")).get("annotations");
+        assertEquals(name, annotations.get(PodCreator.ANN_IAM_REQUEST_NAME));
+        assertEquals("true", annotations.get(PodCreator.ANN_IAM_REQUEST_SHARED));
+
+        String secretName = PodCreator.createSharedIrsaSecretName(subjectId);
+        assertTrue(secretName.length() <= PodCreator.IRSA_SECRET_MAX_LENGTH);
+        assertEquals(secretName, ((Map<String, Object>) iamRequest.get("spec")).get("outputSecretName"));
+        String irsaVolume = yaml.dump(getVolume((Map<String, Object>) pod.get("spec"), "aws-iam-token"));
+        assertTrue(irsaVolume.contains(secretName));
+    }
+
     private void testEphemeral(Optional<Boolean> darkFeatureResult, String expected) {
         mockGlobalConfiguration();
         mockDarkFeatureManager(darkFeatureResult);
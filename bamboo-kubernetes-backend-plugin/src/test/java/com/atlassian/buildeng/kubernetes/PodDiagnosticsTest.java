@@ -0,0 +1,140 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.kubernetes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.atlassian.buildeng.kubernetes.exception.KubectlException;
+import io.fabric8.kubernetes.api.model.ObjectMeta;
+import io.fabric8.kubernetes.api.model.Pod;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+public class PodDiagnosticsTest {
+
+    private final KubernetesClient client = mock(KubernetesClient.class);
+    private final AtomicLong now = new AtomicLong(1000);
+    private final PodDiagnostics diagnostics = new PodDiagnostics(Runnable::run, now::get);
+
+    @Test
+    public void collectedOncePerPod() {
+        Pod pod = pod("pod-1", "uid-1");
+        when(client.lastLogLinePod(any())).thenReturn("exec format error\n");
+        when(client.describePod(any())).thenReturn("Name: pod-1");
+
+        PodDiagnostics.Diagnostics first = diagnostics.await(diagnostics.collect(pod, client, true, true), 1000);
+        PodDiagnostics.Diagnostics second = diagnostics.await(diagnostics.collect(pod, client, true, false), 1000);
+
+        assertEquals("exec format error\n", second.getLastLogLine());
+        assertEquals("Name: pod-1", second.getDescribe());
+        assertEquals(first.getDescribe(), second.getDescribe());
+        verify(client, times(1)).lastLogLinePod(pod);
+        verify(client, times(1)).describePod(pod);
+    }
+
+    @Test
+    public void missingPartIsCollectedLater() {
+        Pod pod = pod("pod-1", "uid-1");
+        when(client.lastLogLinePod(any())).thenReturn("last line");
+        when(client.describePod(any())).thenReturn("Name: pod-1");
+
+        PodDiagnostics.Diagnostics logOnly = diagnostics.await(diagnostics.collect(pod, client, true, false), 1000);
+        assertNull(logOnly.getDescribe());
+        PodDiagnostics.Diagnostics both = diagnostics.await(diagnostics.collect(pod, client, false, true), 1000);
+
+        assertEquals("last line", both.getLastLogLine());
+        assertEquals("Name: pod-1", both.getDescribe());
+        verify(client, times(1)).lastLogLinePod(pod);
+        verify(client, times(1)).describePod(pod);
+    }
+
+    @Test
+    public void failuresAreReportedInDiagnostics() {
+        Pod pod = pod("pod-1", "uid-1");
+        when(client.lastLogLinePod(any())).thenThrow(new KubectlException("no logs"));
+        when(client.describePod(any())).thenThrow(new KubectlException("forbidden"));
+
+        PodDiagnostics.Diagnostics result = diagnostics.await(diagnostics.collect(pod, client, true, true), 1000);
+
+        assertNull(result.getLastLogLine());
+        assertEquals(
+                "Could not describe pod pod-1. " + new KubectlException("forbidden").toString(), result.getDescribe());
+    }
+
+    @Test
+    public void rejectedCollectionIsNotCached() {
+        PodDiagnostics rejecting = new PodDiagnostics(
+                (Runnable r) -> {
+                    throw new RejectedExecutionException("full");
+                },
+                now::get);
+        Pod pod = pod("pod-1", "uid-1");
+
+        CompletableFuture<PodDiagnostics.Diagnostics> future = rejecting.collect(pod, client, true, true);
+
+        assertNull(future.join().getDescribe());
+        assertEquals(0, rejecting.size());
+        verify(client, never()).describePod(any());
+    }
+
+    @Test
+    public void nothingToCollectSkipsThePool() {
+        PodDiagnostics rejecting = new PodDiagnostics(
+                (Runnable r) -> {
+                    throw new AssertionError("nothing to collect");
+                },
+                now::get);
+
+        CompletableFuture<PodDiagnostics.Diagnostics> future =
+                rejecting.collect(pod("pod-1", "uid-1"), client, false, false);
+
+        assertTrue(future.isDone());
+        assertNull(future.join().getDescribe());
+        assertEquals(0, rejecting.size());
+    }
+
+    @Test
+    public void oldDiagnosticsExpire() {
+        diagnostics.collect(pod("pod-1", "uid-1"), client, true, false);
+        now.addAndGet(PodDiagnostics.MAX_AGE_MILLIS / 2);
+        diagnostics.collect(pod("pod-2", "uid-2"), client, true, false);
+        now.addAndGet(PodDiagnostics.MAX_AGE_MILLIS / 2 + 1);
+
+        diagnostics.expire();
+
+        assertEquals(1, diagnostics.size());
+    }
+
+    private static Pod pod(String name, String uid) {
+        ObjectMeta metadata = new ObjectMeta();
+        metadata.setName(name);
+        metadata.setUid(uid);
+        Pod pod = new Pod();
+        pod.setMetadata(metadata);
+        return pod;
+    }
+}
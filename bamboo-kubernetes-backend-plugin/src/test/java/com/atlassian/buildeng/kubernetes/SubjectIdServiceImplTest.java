@@ -2,7 +2,10 @@ package com.atlassian.buildeng.kubernetes;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.atlassian.bamboo.configuration.AdministrationConfiguration;
@@ -185,6 +188,54 @@ public class SubjectIdServiceImplTest {
         assert (subjectIdService.getSubjectId(TEST_VERY_LONG_PLAN_KEY).length() <= IAM_REQUEST_LIMIT);
     }
 
+    @Test
+    public void testPlanKeyIsCached() {
+        when(cachedPlanManager.getPlanByKey(TEST_JOB_PARENT_KEY)).thenReturn(TEST_JOB);
+
+        assertEquals("test-bamboo/TEST-PARENT/B/1", subjectIdService.getSubjectId(TEST_JOB_PARENT_KEY));
+        assertEquals("test-bamboo/TEST-PARENT/B/1", subjectIdService.getSubjectId(TEST_JOB_PARENT_KEY));
+        verify(cachedPlanManager, times(1)).getPlanByKey(TEST_JOB_PARENT_KEY);
+
+        subjectIdService.invalidatePlan(TEST_PARENT_KEY);
+        assertEquals("test-bamboo/TEST-PARENT/B/1", subjectIdService.getSubjectId(TEST_JOB_PARENT_KEY));
+        verify(cachedPlanManager, times(2)).getPlanByKey(TEST_JOB_PARENT_KEY);
+    }
+
+    @Test
+    public void testDeploymentIdIsCached() {
+        when(deploymentProjectService.getDeploymentProject(TEST_DEPLOYMENT_ID)).thenReturn(TEST_DEPLOYMENT);
+
+        assertEquals("test-bamboo/TEST-PLAN/D/12345", subjectIdService.getSubjectId(TEST_DEPLOYMENT_ID));
+        assertEquals("test-bamboo/TEST-PLAN/D/12345", subjectIdService.getSubjectId(TEST_DEPLOYMENT_ID));
+        verify(deploymentProjectService, times(1)).getDeploymentProject(TEST_DEPLOYMENT_ID);
+
+        subjectIdService.invalidateDeployment(TEST_DEPLOYMENT_ID);
+        assertEquals("test-bamboo/TEST-PLAN/D/12345", subjectIdService.getSubjectId(TEST_DEPLOYMENT_ID));
+        verify(deploymentProjectService, times(2)).getDeploymentProject(TEST_DEPLOYMENT_ID);
+    }
+
+    @Test
+    public void testInstanceNameChangeInvalidatesCache() {
+        when(cachedPlanManager.getPlanByKey(TEST_PLAN_KEY)).thenReturn(TEST_PLAN);
+
+        assertEquals("test-bamboo/TEST-PLAN/B/1", subjectIdService.getSubjectId(TEST_PLAN_KEY));
+        when(admConfAccessor.getAdministrationConfiguration().getInstanceName()).thenReturn("Other Bamboo");
+
+        assertEquals("other-bamboo/TEST-PLAN/B/1", subjectIdService.getSubjectId(TEST_PLAN_KEY));
+        verify(cachedPlanManager, times(2)).getPlanByKey(TEST_PLAN_KEY);
+    }
+
+    @Test
+    public void testDeploymentCacheIsBounded() {
+        when(deploymentProjectService.getDeploymentProject(anyLong())).thenReturn(TEST_DEPLOYMENT);
+
+        for (long id = 0; id < 2 * SubjectIdServiceImpl.MAX_CACHED_SUBJECT_IDS; id++) {
+            subjectIdService.getSubjectId(id);
+        }
+        subjectIdService.getSubjectId(0L);
+        verify(deploymentProjectService, times(2)).getDeploymentProject(0L);
+    }
+
     private ImmutablePlan mockPlan(PlanKey planKey, long planId) {
         ImmutablePlan plan = mock(ImmutablePlan.class);
         when(plan.getPlanKey()).thenReturn(planKey);
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.kubernetes.exception;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Classifies the corpus of real kubectl error outputs in /fixture/kubectl/errors, the directory of each
+ * fixture is the expected category.
+ */
+public class KubectlErrorClassifierTest {
+
+    private final KubectlErrorClassifier classifier = new KubectlErrorClassifier();
+
+    @Test
+    public void corpusIsClassified() throws IOException, URISyntaxException {
+        File root = new File(getClass().getResource("/fixture/kubectl/errors").toURI());
+        List<String> failures = new ArrayList<>();
+        int count = 0;
+        for (KubectlErrorClassifier.Category category : KubectlErrorClassifier.Category.values()) {
+            File[] fixtures = new File(root, category.name().toLowerCase()).listFiles();
+            assertTrue(fixtures != null && fixtures.length > 0, "no fixtures for " + category);
+            for (File fixture : fixtures) {
+                count++;
+                KubectlErrorClassifier.Classification result =
+                        classifier.classify(FileUtils.readFileToString(fixture, StandardCharsets.UTF_8));
+                if (result.getCategory() != category) {
+                    failures.add(fixture.getName() + " expected " + category + " but was " + result.getCategory());
+                }
+            }
+        }
+        assertEquals(new ArrayList<>(), failures);
+        assertTrue(count >= KubectlErrorClassifier.Category.values().length);
+    }
+
+    @Test
+    public void statusDocumentIsParsed() throws IOException {
+        String output = FileUtils.readFileToString(
+                new File(getClass()
+                        .getResource("/fixture/kubectl/errors/throttling/status-too-many-requests.json")
+                        .getFile()),
+                StandardCharsets.UTF_8);
+        KubectlErrorClassifier.Classification result = classifier.classify(output);
+        assertEquals("TooManyRequests", result.getReason());
+        assertEquals(429, result.getCode());
+        assertEquals(3, result.getRetryAfterSeconds());
+        assertEquals("Too many requests, please try again later.", result.getMessage());
+    }
+
+    @Test
+    public void firstServerErrorDecides() {
+        String output = "Warning: resource is deprecated\n"
+                + "Error from server (Conflict): Operation cannot be fulfilled on resourcequotas \"pod-limit\"\n"
+                + "Unable to connect to the server: net/http: TLS handshake timeout\n";
+        KubectlErrorClassifier.Classification result = classifier.classify(output);
+        assertEquals(KubectlErrorClassifier.Category.CONFLICT, result.getCategory());
+        assertEquals("Conflict", result.getReason());
+        assertEquals("Operation cannot be fulfilled on resourcequotas \"pod-limit\"", result.getMessage());
+    }
+
+    @Test
+    public void emptyOutputIsUnknown() {
+        assertEquals(KubectlErrorClassifier.Category.UNKNOWN, classifier.classify("").getCategory());
+        assertEquals(KubectlErrorClassifier.Category.UNKNOWN, classifier.classify(null).getCategory());
+    }
+}
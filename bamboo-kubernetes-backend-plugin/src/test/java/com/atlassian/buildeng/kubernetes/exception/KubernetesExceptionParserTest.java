@@ -1,6 +1,14 @@
 package com.atlassian.buildeng.kubernetes.exception;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 import com.atlassian.buildeng.kubernetes.shell.ShellException;
+import com.atlassian.buildeng.spi.isolated.docker.RetryReason;
+import com.atlassian.buildeng.spi.isolated.docker.metrics.InMemoryReporter;
+import com.atlassian.buildeng.spi.isolated.docker.metrics.MetricsRegistry;
 import java.util.Collections;
 import org.junit.jupiter.api.Test;
 
@@ -31,6 +39,51 @@ public class KubernetesExceptionParserTest {
                 instanceof ConcurrentResourceQuotaModificationException;
     }
 
+    @Test
+    public void testThrottledException() {
+        ShellException shellException = withErrorInStdout(
+                "Error from server (TooManyRequests): error when creating \"/tmp/pod1yaml\": the server has received too many requests and has asked us to try again later (post pods)");
+        KubectlException exception = mapper.map("kubectl returned non-zero exit code.", shellException);
+        assertInstanceOf(ApiThrottledException.class, exception);
+        assertTrue(exception.isRecoverable());
+        assertEquals(RetryReason.THROTTLED, exception.getRetryReason());
+    }
+
+    @Test
+    public void testAdmissionDeniedIsNotRecoverable() {
+        ShellException shellException = withErrorInStdout(
+                "Error from server (Forbidden): error when creating \"/tmp/pod1yaml\": admission webhook \"validation.gatekeeper.sh\" denied the request: Privileged container is not allowed: docker");
+        KubectlException exception = mapper.map("kubectl returned non-zero exit code.", shellException);
+        assertInstanceOf(AdmissionDeniedException.class, exception);
+        assertFalse(exception.isRecoverable());
+    }
+
+    @Test
+    public void testErrorOnlyInStderr() {
+        ShellException shellException = new ShellException(
+                "some error",
+                null,
+                "Unable to connect to the server: dial tcp 10.16.4.12:443: i/o timeout",
+                1,
+                Collections.emptyList());
+        assertInstanceOf(
+                ConnectionTimeoutException.class, mapper.map("kubectl returned non-zero exit code.", shellException));
+    }
+
+    @Test
+    public void testFailuresAreCountedPerCategory() {
+        MetricsRegistry metrics = new MetricsRegistry();
+        KubernetesExceptionParser parser = new KubernetesExceptionParser(metrics);
+        parser.map("error", withErrorInStdout("Error from server (AlreadyExists): pods \"pod-a\" already exists"));
+        parser.map("error", withErrorInStdout("Error from server (AlreadyExists): pods \"pod-b\" already exists"));
+        parser.map("error", withErrorInStdout("Error from server (NotFound): pods \"pod-c\" not found"));
+
+        InMemoryReporter reporter = new InMemoryReporter();
+        metrics.report(reporter);
+        assertEquals(2, reporter.getValue("pbc_kubectl_failures_total", "category", "already_exists"));
+        assertEquals(1, reporter.getValue("pbc_kubectl_failures_total", "category", "unknown"));
+    }
+
     private ShellException withErrorInStdout(String message) {
         return new ShellException("some error", message, "", 1, Collections.emptyList());
     }
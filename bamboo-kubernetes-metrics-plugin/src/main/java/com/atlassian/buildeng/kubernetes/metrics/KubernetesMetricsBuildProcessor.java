@@ -23,6 +23,7 @@ import com.atlassian.bamboo.security.SecureToken;
 import com.atlassian.bamboo.v2.build.BuildContext;
 import com.atlassian.bamboo.v2.build.BuildContextHelper;
 import com.atlassian.bamboo.v2.build.CommonContext;
+import com.atlassian.buildeng.metrics.shared.CompactSeriesWriter;
 import com.atlassian.buildeng.metrics.shared.MetricsBuildProcessor;
 import com.atlassian.buildeng.metrics.shared.PreJobActionImpl;
 import com.atlassian.buildeng.spi.isolated.docker.Configuration;
@@ -67,7 +68,6 @@ public class KubernetesMetricsBuildProcessor extends MetricsBuildProcessor {
 
     private static final String KUBE_POD_NAME = System.getenv("KUBE_POD_NAME");
     private static final String SUBMIT_TIMESTAMP = System.getenv("SUBMIT_TIMESTAMP");
-    private static final String STEP_PERIOD = "15s";
 
     @Inject
     private KubernetesMetricsBuildProcessor(BuildLoggerManager buildLoggerManager, ArtifactManager artifactManager) {
@@ -259,8 +259,9 @@ public class KubernetesMetricsBuildProcessor extends MetricsBuildProcessor {
         String fileName = container + suffix;
         String queryMemory = String.format(query, metricName, KUBE_POD_NAME, container);
         Datapoint[] dp = generateMetricsFile(
-                buildWorkingDirectory.resolve(METRICS_FOLDER).resolve(fileName + ".json"),
+                buildWorkingDirectory.resolve(METRICS_FOLDER).resolve(fileName + CompactSeriesWriter.FILE_EXTENSION),
                 queryMemory,
+                MetricsDownsampler.Mode.LTTB,
                 container,
                 prometheusUrl,
                 buildLogger);
@@ -268,7 +269,7 @@ public class KubernetesMetricsBuildProcessor extends MetricsBuildProcessor {
         if (dp.length != 0) { // Metric file exists
             publishMetrics(
                     fileName,
-                    ".json",
+                    CompactSeriesWriter.FILE_EXTENSION,
                     secureToken,
                     buildLogger,
                     buildWorkingDirectory.toFile(),
@@ -288,15 +289,16 @@ public class KubernetesMetricsBuildProcessor extends MetricsBuildProcessor {
         String fileName = container + suffix;
         String queryMemory = String.format("%s{pod=\"%s\",container=\"%s\"}", metricName, KUBE_POD_NAME, container);
         Datapoint[] dp = generateMetricsFile(
-                buildWorkingDirectory.resolve(METRICS_FOLDER).resolve(fileName + ".json"),
+                buildWorkingDirectory.resolve(METRICS_FOLDER).resolve(fileName + CompactSeriesWriter.FILE_EXTENSION),
                 queryMemory,
+                MetricsDownsampler.Mode.MIN_MAX,
                 container,
                 prometheusUrl,
                 buildLogger);
         if (dp.length != 0) { // Metric file exists
             publishMetrics(
                     fileName,
-                    ".json",
+                    CompactSeriesWriter.FILE_EXTENSION,
                     secureToken,
                     buildLogger,
                     buildWorkingDirectory.toFile(),
@@ -307,20 +309,24 @@ public class KubernetesMetricsBuildProcessor extends MetricsBuildProcessor {
     }
 
     /**
-     * Create a JSON file containing the metrics by querying Prometheus and massaging its output.
+     * Create a compact series file containing the metrics by querying Prometheus and massaging its output.
+     * The query step depends on the build duration and the published series is downsampled with the given mode,
+     * the returned datapoints are at full query resolution.
      * Prometheus HTTP API: https://prometheus.io/docs/querying/api/
      */
     @Nonnull
     private Datapoint[] generateMetricsFile(
-            Path location, String query, String containerName, String prometheusUrl, BuildLogger buildLogger) {
+            Path location,
+            String query,
+            MetricsDownsampler.Mode mode,
+            String containerName,
+            String prometheusUrl,
+            BuildLogger buildLogger) {
         long submitTimestamp = Long.parseLong(SUBMIT_TIMESTAMP) / 1000;
+        long now = Instant.now().getEpochSecond();
+        int step = MetricsDownsampler.stepSeconds(now - submitTimestamp);
         try {
-            JSONObject jsonResponse = QueryPrometheus.query(
-                    prometheusUrl,
-                    query,
-                    STEP_PERIOD,
-                    submitTimestamp,
-                    Instant.now().getEpochSecond());
+            JSONObject jsonResponse = QueryPrometheus.query(prometheusUrl, query, step + "s", submitTimestamp, now);
             JSONArray result = jsonResponse.getJSONObject("data").getJSONArray("result");
             if (result.length() == 0) {
                 buildLogger.addBuildLogEntry(String.format(
@@ -332,7 +338,12 @@ public class KubernetesMetricsBuildProcessor extends MetricsBuildProcessor {
             JSONArray values = result.getJSONObject(0).getJSONArray("values");
             try {
                 Datapoint[] toRet = createDatapoints(values);
-                Files.write(location, createJsonArtifact(toRet).toString().getBytes());
+                if (step > MetricsDownsampler.BASE_STEP_SECONDS) {
+                    // the coarse step would leave the tail below full resolution.
+                    long tailStart = Math.max(submitTimestamp, now - MetricsDownsampler.TAIL_SECONDS);
+                    toRet = MetricsDownsampler.withTail(toRet, queryTail(query, prometheusUrl, tailStart, now));
+                }
+                writeArtifact(location, MetricsDownsampler.downsample(toRet, mode));
                 return toRet;
             } catch (IOException e) {
                 buildLogger.addBuildLogEntry(
@@ -347,6 +358,28 @@ public class KubernetesMetricsBuildProcessor extends MetricsBuildProcessor {
         }
     }
 
+    /**
+     * Query the end of the build at the base step, empty when it fails, the coarse points are kept then.
+     */
+    private Datapoint[] queryTail(String query, String prometheusUrl, long start, long end) {
+        try {
+            JSONArray result = QueryPrometheus.query(
+                            prometheusUrl, query, MetricsDownsampler.BASE_STEP_SECONDS + "s", start, end)
+                    .getJSONObject("data")
+                    .getJSONArray("result");
+            return result.length() == 0
+                    ? new Datapoint[0]
+                    : createDatapoints(result.getJSONObject(0).getJSONArray("values"));
+        } catch (URISyntaxException | IOException | RuntimeException ex) {
+            logger.warn(
+                    "Error when querying the end of the build at full resolution: {}. Query: {} Response {}",
+                    prometheusUrl,
+                    query,
+                    ex.getClass().getName() + " " + ex.getMessage());
+            return new Datapoint[0];
+        }
+    }
+
     private void logValues(
             Datapoint[] memAll,
             Datapoint[] memRss,
@@ -420,19 +453,12 @@ public class KubernetesMetricsBuildProcessor extends MetricsBuildProcessor {
         return toRet;
     }
 
-    private JSONArray createJsonArtifact(Datapoint[] datapoints) {
-        JSONArray data = new JSONArray();
-        for (Datapoint dp : datapoints) {
-            data.put(createDataPointJson(dp));
+    private void writeArtifact(Path location, Datapoint[] datapoints) throws IOException {
+        try (CompactSeriesWriter writer = new CompactSeriesWriter(Files.newOutputStream(location))) {
+            for (Datapoint dp : datapoints) {
+                writer.append(dp.x, dp.y);
+            }
         }
-        return data;
-    }
-
-    private JSONObject createDataPointJson(Datapoint dp) {
-        JSONObject point = new JSONObject();
-        point.put("x", dp.x);
-        point.put("y", dp.y);
-        return point;
     }
 
     private ReservationSize createReservationSize(String name, BuildContext context) {
@@ -470,6 +496,14 @@ public class KubernetesMetricsBuildProcessor extends MetricsBuildProcessor {
             this.x = x;
             this.y = y;
         }
+
+        int getX() {
+            return x;
+        }
+
+        double getY() {
+            return y;
+        }
     }
 
     public static class ReservationSize {
@@ -23,6 +23,7 @@ import com.atlassian.bamboo.build.artifact.ArtifactFileData;
 import com.atlassian.bamboo.build.artifact.ArtifactLinkDataProvider;
 import com.atlassian.bamboo.build.artifact.FileSystemArtifactLinkDataProvider;
 import com.atlassian.buildeng.metrics.shared.MetricsBuildProcessor;
+import com.atlassian.buildeng.metrics.shared.SeriesArtifact;
 import com.atlassian.buildeng.metrics.shared.ViewMetricsAction;
 import com.atlassian.buildeng.spi.isolated.docker.DefaultContainerSizeDescriptor;
 import com.sun.jersey.api.client.Client;
@@ -31,27 +32,29 @@ import com.sun.jersey.api.client.WebResource;
 import java.io.File;
 import java.io.IOException;
 import java.net.URI;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import javax.ws.rs.core.MediaType;
 import org.apache.commons.io.FileUtils;
 import org.json.JSONArray;
 import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class KubernetesViewMetricsAction extends ViewMetricsAction {
+    private static final Logger logger = LoggerFactory.getLogger(KubernetesViewMetricsAction.class);
 
     public final class ContainerMetrics {
         private final String containerName;
-        private String cpuMetrics;
-        private String cpuUserMetrics;
-        private String cpuSystemMetrics;
-        private String memoryMetrics;
-        private String memoryRssMetrics;
-        private String memoryCacheMetrics;
-        private String memorySwapMetrics;
-        private String fsWriteMetrics;
-        private String fsReadMetrics;
+        private SeriesArtifact cpuMetrics;
+        private SeriesArtifact cpuUserMetrics;
+        private SeriesArtifact cpuSystemMetrics;
+        private SeriesArtifact memoryMetrics;
+        private SeriesArtifact memoryRssMetrics;
+        private SeriesArtifact memoryCacheMetrics;
+        private SeriesArtifact memorySwapMetrics;
+        private SeriesArtifact fsWriteMetrics;
+        private SeriesArtifact fsReadMetrics;
         private final int memoryLimit;
         private final int cpuLimit;
         private final int memoryRequest;
@@ -68,58 +71,58 @@ public class KubernetesViewMetricsAction extends ViewMetricsAction {
         }
 
         public String getCpuMetrics() {
-            return cpuMetrics;
+            return toJson(cpuMetrics);
         }
 
-        public void setCpuMetrics(String cpuMetrics) {
+        public void setCpuMetrics(SeriesArtifact cpuMetrics) {
             this.cpuMetrics = cpuMetrics;
         }
 
         public String getCpuUserMetrics() {
-            return cpuUserMetrics;
+            return toJson(cpuUserMetrics);
         }
 
-        public void setCpuUserMetrics(String cpuUserMetrics) {
+        public void setCpuUserMetrics(SeriesArtifact cpuUserMetrics) {
             this.cpuUserMetrics = cpuUserMetrics;
         }
 
         public String getCpuSystemMetrics() {
-            return cpuSystemMetrics;
+            return toJson(cpuSystemMetrics);
         }
 
-        public void setCpuSystemMetrics(String cpuSystemMetrics) {
+        public void setCpuSystemMetrics(SeriesArtifact cpuSystemMetrics) {
             this.cpuSystemMetrics = cpuSystemMetrics;
         }
 
         public String getMemoryMetrics() {
-            return memoryMetrics;
+            return toJson(memoryMetrics);
         }
 
-        public void setMemoryMetrics(String memoryMetrics) {
+        public void setMemoryMetrics(SeriesArtifact memoryMetrics) {
             this.memoryMetrics = memoryMetrics;
         }
 
         public String getMemoryRssMetrics() {
-            return memoryRssMetrics;
+            return toJson(memoryRssMetrics);
         }
 
-        public void setMemoryRssMetrics(String memoryRssMetrics) {
+        public void setMemoryRssMetrics(SeriesArtifact memoryRssMetrics) {
             this.memoryRssMetrics = memoryRssMetrics;
         }
 
         public String getMemoryCacheMetrics() {
-            return memoryCacheMetrics;
+            return toJson(memoryCacheMetrics);
         }
 
-        public void setMemoryCacheMetrics(String memoryCacheMetrics) {
+        public void setMemoryCacheMetrics(SeriesArtifact memoryCacheMetrics) {
             this.memoryCacheMetrics = memoryCacheMetrics;
         }
 
         public String getMemorySwapMetrics() {
-            return memorySwapMetrics;
+            return toJson(memorySwapMetrics);
         }
 
-        public void setMemorySwapMetrics(String memorySwapMetrics) {
+        public void setMemorySwapMetrics(SeriesArtifact memorySwapMetrics) {
             this.memorySwapMetrics = memorySwapMetrics;
         }
 
@@ -136,18 +139,18 @@ public class KubernetesViewMetricsAction extends ViewMetricsAction {
         }
 
         public String getFsWriteMetrics() {
-            return fsWriteMetrics;
+            return toJson(fsWriteMetrics);
         }
 
-        public void setFsWriteMetrics(String fsWrite) {
+        public void setFsWriteMetrics(SeriesArtifact fsWrite) {
             this.fsWriteMetrics = fsWrite;
         }
 
         public String getFsReadMetrics() {
-            return fsReadMetrics;
+            return toJson(fsReadMetrics);
         }
 
-        public void setFsReadMetrics(String fsRead) {
+        public void setFsReadMetrics(SeriesArtifact fsRead) {
             this.fsReadMetrics = fsRead;
         }
     }
@@ -156,8 +159,8 @@ public class KubernetesViewMetricsAction extends ViewMetricsAction {
 
     private final List<ContainerMetrics> containerList = new ArrayList<>();
 
-    private String netWriteMetrics;
-    private String netReadMetrics;
+    private SeriesArtifact netWriteMetrics;
+    private SeriesArtifact netReadMetrics;
 
     public List<ContainerMetrics> getContainerList() {
         return containerList;
@@ -193,7 +196,7 @@ public class KubernetesViewMetricsAction extends ViewMetricsAction {
         }
     }
 
-    private String loadArtifact(String containerName, String suffix) {
+    private SeriesArtifact loadArtifact(String containerName, String suffix) {
         String artifactName = ARTIFACT_PREFIX + containerName + suffix;
 
         Artifact artifact = createArtifact(
@@ -233,22 +236,24 @@ public class KubernetesViewMetricsAction extends ViewMetricsAction {
             // We have to directly retrieve the artifact here instead of passing the URL to the user due to
             // same-origin policy.
             try {
-                return webTarget.accept(MediaType.APPLICATION_JSON).get(String.class);
+                return new SeriesArtifact(webTarget
+                        .accept(MediaType.APPLICATION_OCTET_STREAM_TYPE, MediaType.APPLICATION_JSON_TYPE)
+                        .get(byte[].class));
             } catch (UniformInterfaceException e) {
-                addActionError(String.format("Error retrieving metrics JSON artifact from %s", single.getUrl()));
+                addActionError(String.format("Error retrieving metrics artifact from %s", single.getUrl()));
                 return null;
             }
         }
         return null;
     }
 
-    private String loadArtifactFile(File file) {
+    private SeriesArtifact loadArtifactFile(File file) {
         if (file == null || !file.exists() || file.isDirectory()) {
             addActionError("Unable to load artifact file, " + file + " is not a file");
             return null;
         }
         try {
-            return FileUtils.readFileToString(file, StandardCharsets.UTF_8);
+            return new SeriesArtifact(FileUtils.readFileToByteArray(file));
         } catch (IOException e) {
             addActionError("Unable to load artifact file " + file + " due to exception: " + e.getMessage());
             return null;
@@ -256,18 +261,33 @@ public class KubernetesViewMetricsAction extends ViewMetricsAction {
     }
 
     public String getNetWriteMetrics() {
-        return netWriteMetrics;
+        return toJson(netWriteMetrics);
     }
 
-    public void setNetWriteMetrics(String netWriteMetrics) {
+    public void setNetWriteMetrics(SeriesArtifact netWriteMetrics) {
         this.netWriteMetrics = netWriteMetrics;
     }
 
     public String getNetReadMetrics() {
-        return netReadMetrics;
+        return toJson(netReadMetrics);
     }
 
-    public void setNetReadMetrics(String netReadMetrics) {
+    public void setNetReadMetrics(SeriesArtifact netReadMetrics) {
         this.netReadMetrics = netReadMetrics;
     }
+
+    /**
+     * Decodes the artifact when the template first asks for it, so series that are not shown are never decoded.
+     */
+    private static String toJson(SeriesArtifact artifact) {
+        if (artifact == null) {
+            return null;
+        }
+        try {
+            return artifact.toJson();
+        } catch (IOException e) {
+            logger.warn("Unable to decode metrics artifact", e);
+            return null;
+        }
+    }
 }
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.kubernetes.metrics;
+
+import com.atlassian.buildeng.kubernetes.metrics.KubernetesMetricsBuildProcessor.Datapoint;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reduces the Prometheus series of long builds before they are published.
+ * The query step grows with the build duration so a single query never returns more than
+ * {@link #MAX_QUERY_POINTS} points, the persisted series is then reduced to {@link #TARGET_POINTS}
+ * except for the last {@link #TAIL_SECONDS} that stay at full resolution, as the end of a build is
+ * usually the interesting part when it failed. When the step grew past {@link #BASE_STEP_SECONDS} the
+ * tail is queried separately at the base step and replaces the coarse one, see {@link #withTail}.
+ */
+final class MetricsDownsampler {
+    static final int BASE_STEP_SECONDS = 15;
+    static final int MAX_QUERY_POINTS = 1500;
+    static final int TARGET_POINTS = 600;
+    static final long TAIL_SECONDS = 300;
+
+    enum Mode {
+        /**
+         * Largest-Triangle-Three-Buckets, keeps the visual shape of the series, used for rates.
+         */
+        LTTB,
+        /**
+         * Keeps the minimum and maximum of each bucket, used for memory where peaks must not be lost.
+         */
+        MIN_MAX
+    }
+
+    private MetricsDownsampler() {}
+
+    /**
+     * Query step for a build running for the given duration, a multiple of {@link #BASE_STEP_SECONDS}.
+     */
+    static int stepSeconds(long durationSeconds) {
+        long needed = (durationSeconds + MAX_QUERY_POINTS - 1) / MAX_QUERY_POINTS;
+        long buckets = Math.max(1, (needed + BASE_STEP_SECONDS - 1) / BASE_STEP_SECONDS);
+        return (int) Math.min(Integer.MAX_VALUE, buckets * BASE_STEP_SECONDS);
+    }
+
+    /**
+     * Replaces the points from the first tail point on with the tail, queried at a finer step.
+     */
+    static Datapoint[] withTail(Datapoint[] points, Datapoint[] tail) {
+        if (tail.length == 0) {
+            return points;
+        }
+        int split = points.length;
+        while (split > 0 && points[split - 1].getX() >= tail[0].getX()) {
+            split--;
+        }
+        Datapoint[] result = Arrays.copyOf(points, split + tail.length);
+        System.arraycopy(tail, 0, result, split, tail.length);
+        return result;
+    }
+
+    static Datapoint[] downsample(Datapoint[] points, Mode mode) {
+        return downsample(points, mode, TARGET_POINTS, TAIL_SECONDS);
+    }
+
+    /**
+     * Reduces points (ordered by time) to about targetPoints, leaving those within tailSeconds
+     * of the last point untouched.
+     */
+    static Datapoint[] downsample(Datapoint[] points, Mode mode, int targetPoints, long tailSeconds) {
+        if (points.length <= targetPoints) {
+            return points;
+        }
+        long tailStart = points[points.length - 1].getX() - tailSeconds;
+        int split = points.length;
+        while (split > 0 && points[split - 1].getX() >= tailStart) {
+            split--;
+        }
+        int headTarget = Math.max(targetPoints - (points.length - split), 2);
+        Datapoint[] head = Arrays.copyOfRange(points, 0, split);
+        Datapoint[] reduced = mode == Mode.LTTB ? lttb(head, headTarget) : minMax(head, headTarget);
+        Datapoint[] result = Arrays.copyOf(reduced, reduced.length + points.length - split);
+        System.arraycopy(points, split, result, reduced.length, points.length - split);
+        return result;
+    }
+
+    static Datapoint[] lttb(Datapoint[] points, int threshold) {
+        if (threshold >= points.length || threshold < 3) {
+            return points;
+        }
+        Datapoint[] sampled = new Datapoint[threshold];
+        double every = (double) (points.length - 2) / (threshold - 2);
+        int selected = 0;
+        sampled[0] = points[0];
+        for (int i = 0; i < threshold - 2; i++) {
+            int avgStart = (int) Math.floor((i + 1) * every) + 1;
+            int avgEnd = Math.min((int) Math.floor((i + 2) * every) + 1, points.length);
+            double avgX = 0;
+            double avgY = 0;
+            for (int j = avgStart; j < avgEnd; j++) {
+                avgX += points[j].getX();
+                avgY += points[j].getY();
+            }
+            avgX /= avgEnd - avgStart;
+            avgY /= avgEnd - avgStart;
+
+            int rangeStart = (int) Math.floor(i * every) + 1;
+            int rangeEnd = (int) Math.floor((i + 1) * every) + 1;
+            Datapoint a = points[selected];
+            double maxArea = -1;
+            int maxIndex = rangeStart;
+            for (int j = rangeStart; j < rangeEnd; j++) {
+                double area = Math.abs((a.getX() - avgX) * (points[j].getY() - a.getY())
+                        - (a.getX() - points[j].getX()) * (avgY - a.getY()));
+                if (area > maxArea) {
+                    maxArea = area;
+                    maxIndex = j;
+                }
+            }
+            sampled[i + 1] = points[maxIndex];
+            selected = maxIndex;
+        }
+        sampled[threshold - 1] = points[points.length - 1];
+        return sampled;
+    }
+
+    static Datapoint[] minMax(Datapoint[] points, int threshold) {
+        int buckets = threshold / 2;
+        if (threshold >= points.length || buckets < 1) {
+            return points;
+        }
+        List<Datapoint> sampled = new ArrayList<>(buckets * 2);
+        double size = (double) points.length / buckets;
+        for (int b = 0; b < buckets; b++) {
+            int start = (int) Math.floor(b * size);
+            int end = Math.min((int) Math.floor((b + 1) * size), points.length);
+            int min = start;
+            int max = start;
+            for (int j = start + 1; j < end; j++) {
+                if (points[j].getY() < points[min].getY()) {
+                    min = j;
+                }
+                if (points[j].getY() > points[max].getY()) {
+                    max = j;
+                }
+            }
+            sampled.add(points[Math.min(min, max)]);
+            if (min != max) {
+                sampled.add(points[Math.max(min, max)]);
+            }
+        }
+        return sampled.toArray(new Datapoint[0]);
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.kubernetes.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.atlassian.buildeng.kubernetes.metrics.KubernetesMetricsBuildProcessor.Datapoint;
+import com.atlassian.buildeng.metrics.shared.CompactSeriesWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+public class MetricsDownsamplerTest {
+
+    @Test
+    public void stepGrowsWithBuildDuration() {
+        assertEquals(15, MetricsDownsampler.stepSeconds(60));
+        assertEquals(15, MetricsDownsampler.stepSeconds(6 * 3600));
+        assertEquals(30, MetricsDownsampler.stepSeconds(12 * 3600));
+        assertEquals(60, MetricsDownsampler.stepSeconds(24 * 3600));
+    }
+
+    @Test
+    public void shortSeriesIsUntouched() {
+        Datapoint[] points = {new Datapoint(0, 1), new Datapoint(15, 2), new Datapoint(30, 3)};
+
+        assertSame(points, MetricsDownsampler.downsample(points, MetricsDownsampler.Mode.LTTB));
+        assertSame(points, MetricsDownsampler.downsample(points, MetricsDownsampler.Mode.MIN_MAX));
+    }
+
+    @Test
+    public void memoryKeepsPeaksAndTail() throws IOException {
+        Datapoint[] original = load("memory-6h.txt");
+
+        Datapoint[] reduced = MetricsDownsampler.downsample(original, MetricsDownsampler.Mode.MIN_MAX);
+
+        assertTrue(reduced.length <= MetricsDownsampler.TARGET_POINTS, "" + reduced.length);
+        assertEquals(max(original), max(reduced));
+        assertEquals(min(original), min(reduced));
+        assertOrdered(reduced);
+        assertTailKept(original, reduced);
+    }
+
+    @Test
+    public void cpuKeepsShapeAndTail() throws IOException {
+        Datapoint[] original = load("cpu-6h.txt");
+
+        Datapoint[] reduced = MetricsDownsampler.downsample(original, MetricsDownsampler.Mode.LTTB);
+
+        assertEquals(MetricsDownsampler.TARGET_POINTS, reduced.length);
+        assertSame(original[0], reduced[0]);
+        assertOrdered(reduced);
+        assertTailKept(original, reduced);
+        // the phases of the build (idle, compile, test) must still be visible.
+        double error = 0;
+        double total = 0;
+        for (Datapoint point : original) {
+            error += Math.abs(interpolate(reduced, point.getX()) - point.getY());
+            total += point.getY();
+        }
+        assertTrue(error / total < 0.2, "relative error " + error / total);
+        assertEquals(mean(original), mean(reduced), 0.15);
+    }
+
+    @Test
+    public void tailReplacesCoarsePoints() {
+        Datapoint[] coarse = {new Datapoint(0, 1), new Datapoint(60, 2), new Datapoint(120, 3), new Datapoint(180, 4)};
+        Datapoint[] tail = {new Datapoint(150, 5), new Datapoint(165, 6), new Datapoint(180, 7)};
+
+        Datapoint[] merged = MetricsDownsampler.withTail(coarse, tail);
+
+        assertEquals(6, merged.length);
+        assertSame(coarse[2], merged[2]);
+        assertSame(tail[0], merged[3]);
+        assertSame(tail[2], merged[5]);
+        assertOrdered(merged);
+        assertSame(coarse, MetricsDownsampler.withTail(coarse, new Datapoint[0]));
+    }
+
+    @Test
+    public void publishedArtifactShrinks() throws IOException {
+        Datapoint[] original = load("cpu-6h.txt");
+        Datapoint[] reduced = MetricsDownsampler.downsample(original, MetricsDownsampler.Mode.LTTB);
+
+        assertTrue(encodedSize(reduced) * 2 < encodedSize(original));
+    }
+
+    private static void assertOrdered(Datapoint[] points) {
+        for (int i = 1; i < points.length; i++) {
+            assertTrue(points[i - 1].getX() < points[i].getX(), "not ordered at " + i);
+        }
+    }
+
+    private static void assertTailKept(Datapoint[] original, Datapoint[] reduced) {
+        int tail = (int) (MetricsDownsampler.TAIL_SECONDS / MetricsDownsampler.BASE_STEP_SECONDS) + 1;
+        List<Datapoint> expected = Arrays.asList(original).subList(original.length - tail, original.length);
+        List<Datapoint> actual = Arrays.asList(reduced).subList(reduced.length - tail, reduced.length);
+        assertEquals(expected, actual);
+    }
+
+    private static double interpolate(Datapoint[] points, int x) {
+        int i = 1;
+        while (i < points.length - 1 && points[i].getX() < x) {
+            i++;
+        }
+        Datapoint a = points[i - 1];
+        Datapoint b = points[i];
+        return a.getY() + (b.getY() - a.getY()) * (x - a.getX()) / (b.getX() - a.getX());
+    }
+
+    private static double max(Datapoint[] points) {
+        return Arrays.stream(points).mapToDouble(Datapoint::getY).max().getAsDouble();
+    }
+
+    private static double min(Datapoint[] points) {
+        return Arrays.stream(points).mapToDouble(Datapoint::getY).min().getAsDouble();
+    }
+
+    private static double mean(Datapoint[] points) {
+        return Arrays.stream(points).mapToDouble(Datapoint::getY).average().getAsDouble();
+    }
+
+    private static int encodedSize(Datapoint[] points) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (CompactSeriesWriter writer = new CompactSeriesWriter(out)) {
+            for (Datapoint point : points) {
+                writer.append(point.getX(), point.getY());
+            }
+        }
+        return out.size();
+    }
+
+    /**
+     * Fixtures hold the values of a Prometheus query_range result, one "timestamp value" pair per line.
+     */
+    private Datapoint[] load(String name) throws IOException {
+        try (InputStream stream = getClass().getResourceAsStream("/fixture/prometheus/" + name)) {
+            String content = new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+            return content.lines()
+                    .map((String line) -> line.split(" "))
+                    .map((String[] parts) -> new Datapoint(Integer.parseInt(parts[0]), Double.parseDouble(parts[1])))
+                    .collect(Collectors.toList())
+                    .toArray(new Datapoint[0]);
+        }
+    }
+}
@@ -30,6 +30,7 @@ import com.atlassian.buildeng.spi.isolated.docker.IsolatedDockerAgentException;
 import com.atlassian.buildeng.spi.isolated.docker.IsolatedDockerAgentRequest;
 import com.atlassian.buildeng.spi.isolated.docker.IsolatedDockerAgentResult;
 import com.atlassian.buildeng.spi.isolated.docker.IsolatedDockerRequestCallback;
+import com.atlassian.buildeng.spi.isolated.docker.RetryReason;
 import com.atlassian.plugin.PluginAccessor;
 import com.atlassian.sal.api.lifecycle.LifecycleAware;
 import com.google.gson.JsonArray;
@@ -110,13 +111,14 @@ public class ECSIsolatedAgentServiceImpl implements IsolatedAgentService, Lifecy
             }
             logger.error("Error contacting ECS:" + code + " " + s, e);
             if (code == 504 || code == 503) { // gateway timeout/Service Unavailable
-                callback.handle(new IsolatedDockerAgentResult().withRetryRecoverable(s));
+                callback.handle(new IsolatedDockerAgentResult().withRetryRecoverable(s, RetryReason.UNREACHABLE));
             } else {
                 callback.handle(new IsolatedDockerAgentException(e));
             }
         } catch (ClientHandlerException che) {
             logger.error("Error connecting to ECS:", che);
-            callback.handle(new IsolatedDockerAgentResult().withRetryRecoverable(che.getMessage()));
+            callback.handle(
+                    new IsolatedDockerAgentResult().withRetryRecoverable(che.getMessage(), RetryReason.UNREACHABLE));
         } catch (Exception t) {
             logger.error("unknown error", t);
             callback.handle(new IsolatedDockerAgentException(t));
@@ -16,6 +16,8 @@
 
 package com.atlassian.buildeng.ecs;
 
+import com.atlassian.buildeng.spi.isolated.docker.metrics.MetricsRegistry;
+import com.atlassian.buildeng.spi.isolated.docker.metrics.Timer;
 import com.atlassian.event.api.EventPublisher;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
@@ -45,16 +47,21 @@ public class DatadogEventPublisher implements EventPublisher {
 
     @Override
     public void publish(Object event) {
+        MetricsRegistry metrics = MetricsRegistry.global();
+        metrics.counter("pbc_scheduler_events_total", "event", event.getClass().getSimpleName())
+                .increment();
         HttpPost httpPost = new HttpPost("https://app.datadoghq.com/api/v1/events?api_key=" + token);
         httpPost.setHeader(HttpHeaders.CONTENT_TYPE, "application/json");
         httpPost.setEntity(new StringEntity(createDDEvent(event), "UTF-8"));
-        try (CloseableHttpResponse response = httpclient.execute(httpPost)) {
+        try (Timer.Sample sample = metrics.timer("pbc_scheduler_datadog_publish_seconds").start();
+                CloseableHttpResponse response = httpclient.execute(httpPost)) {
             logger.info(
                     "Sent Datadog event, response: {}, api_key:{}",
                     response.getStatusLine().getStatusCode(),
                     token.substring(0, 3) + "???" + token.substring(token.length() - 3));
         } catch (IOException ex) {
             logger.error("Error while sending datadog event", ex);
+            metrics.counter("pbc_scheduler_datadog_errors_total").increment();
         }
     }
 
@@ -18,6 +18,7 @@ package com.atlassian.buildeng.ecs;
 
 import com.atlassian.buildeng.ecs.resources.HeartBeatResource;
 import com.atlassian.buildeng.ecs.resources.LogsResource;
+import com.atlassian.buildeng.ecs.resources.MetricsResource;
 import com.atlassian.buildeng.ecs.resources.SchedulerResource;
 import com.atlassian.buildeng.ecs.scheduling.AWSSchedulerBackend;
 import com.atlassian.buildeng.ecs.scheduling.AwsPullModelLoader;
@@ -27,18 +28,24 @@ import com.atlassian.buildeng.ecs.scheduling.ECSConfiguration;
 import com.atlassian.buildeng.ecs.scheduling.ECSScheduler;
 import com.atlassian.buildeng.ecs.scheduling.ModelLoader;
 import com.atlassian.buildeng.ecs.scheduling.ModelUpdater;
+import com.atlassian.buildeng.ecs.scheduling.ReservationLedger;
 import com.atlassian.buildeng.ecs.scheduling.SchedulerBackend;
 import com.atlassian.buildeng.ecs.scheduling.TaskDefinitionRegistrations;
+import com.atlassian.buildeng.spi.isolated.docker.metrics.JmxExporter;
+import com.atlassian.buildeng.spi.isolated.docker.metrics.MetricsRegistry;
 import com.atlassian.event.api.EventPublisher;
 import com.google.inject.AbstractModule;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
+import com.google.inject.Provides;
+import com.google.inject.Singleton;
 import com.google.inject.name.Names;
 import io.dropwizard.Configuration;
 import io.dropwizard.setup.Bootstrap;
 import io.dropwizard.setup.Environment;
 import java.io.Closeable;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.Map;
 import org.apache.commons.lang3.StringUtils;
@@ -46,6 +53,10 @@ import org.eclipse.jetty.util.component.AbstractLifeCycle;
 import org.eclipse.jetty.util.component.LifeCycle;
 
 public class SchedulerApplication extends io.dropwizard.Application<Configuration> {
+    /**
+     * optional path to a file where future reservations are kept across service restarts.
+     */
+    static final String ECS_RESERVATIONS_FILE = "ECS_RESERVATIONS_FILE";
 
     public SchedulerApplication() {}
 
@@ -93,7 +104,6 @@ public class SchedulerApplication extends io.dropwizard.Application<Configuratio
                     bind(EventPublisher.class).to(DummyEventPublisher.class);
                 }
                 bind(ECSConfiguration.class).to(ECSConfigurationImpl.class);
-                bind(ECSScheduler.class).to(CyclingECSScheduler.class);
                 bind(SchedulerBackend.class).to(AWSSchedulerBackend.class);
                 bind(ModelLoader.class).to(AwsPullModelLoader.class);
                 bind(ModelUpdater.class).to(DefaultModelUpdater.class);
@@ -101,11 +111,28 @@ public class SchedulerApplication extends io.dropwizard.Application<Configuratio
 
                 Names.bindProperties(binder(), props);
             }
+
+            @Provides
+            @Singleton
+            ECSScheduler provideScheduler(
+                    SchedulerBackend schedulerBackend,
+                    ECSConfiguration globalConfiguration,
+                    ModelLoader modelLoader,
+                    ModelUpdater modelUpdater) {
+                String reservationsFile = System.getenv(ECS_RESERVATIONS_FILE);
+                ReservationLedger ledger = StringUtils.isBlank(reservationsFile)
+                        ? new ReservationLedger()
+                        : new ReservationLedger(new ReservationLedger.FileStore(Paths.get(reservationsFile)));
+                return new CyclingECSScheduler(schedulerBackend, globalConfiguration, modelLoader, modelUpdater, ledger);
+            }
         });
+        JmxExporter metricsExporter = new JmxExporter(MetricsRegistry.global(), "com.atlassian.buildeng.pbc");
+        metricsExporter.start();
         // make sure to close datadog before stopping.
         environment.lifecycle().addLifeCycleListener(new AbstractLifeCycle.AbstractLifeCycleListener() {
             @Override
             public void lifeCycleStopping(LifeCycle event) {
+                metricsExporter.stop();
                 EventPublisher ep = injector.getInstance(EventPublisher.class);
                 if (ep instanceof Closeable) {
                     try {
@@ -120,5 +147,6 @@ public class SchedulerApplication extends io.dropwizard.Application<Configuratio
         environment.jersey().register(injector.getInstance(SchedulerResource.class));
         environment.jersey().register(injector.getInstance(HeartBeatResource.class));
         environment.jersey().register(injector.getInstance(LogsResource.class));
+        environment.jersey().register(injector.getInstance(MetricsResource.class));
     }
 }
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.ecs.resources;
+
+import com.atlassian.buildeng.spi.isolated.docker.metrics.MetricsRegistry;
+import com.atlassian.buildeng.spi.isolated.docker.metrics.PrometheusTextExporter;
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+
+@Path("/metrics")
+public class MetricsResource {
+
+    @Inject
+    public MetricsResource() {}
+
+    @GET
+    @Produces(PrometheusTextExporter.CONTENT_TYPE)
+    public String getMetrics() {
+        return PrometheusTextExporter.export(MetricsRegistry.global());
+    }
+}
@@ -33,6 +33,7 @@ import com.atlassian.buildeng.spi.isolated.docker.HostFolderMapping;
 import com.atlassian.buildeng.spi.isolated.docker.IsolatedDockerAgentException;
 import com.atlassian.buildeng.spi.isolated.docker.IsolatedDockerAgentResult;
 import com.atlassian.buildeng.spi.isolated.docker.IsolatedDockerRequestCallback;
+import com.atlassian.buildeng.spi.isolated.docker.RetryReason;
 import com.codahale.metrics.annotation.Timed;
 import java.util.Collection;
 import java.util.List;
@@ -108,7 +109,7 @@ public class SchedulerResource {
                                 .contains(
                                         "Too many concurrent attempts to create a new revision of the specified family")) {
                     IsolatedDockerAgentResult toRet = new IsolatedDockerAgentResult();
-                    toRet.withRetryRecoverable("Hit Api limit for task revisions.");
+                    toRet.withRetryRecoverable("Hit Api limit for task revisions.", RetryReason.THROTTLED);
                     response.resume(toRet);
                 } else {
                     response.resume(ex);
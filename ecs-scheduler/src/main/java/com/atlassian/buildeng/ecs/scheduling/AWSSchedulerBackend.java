@@ -316,13 +316,17 @@ public class AWSSchedulerBackend implements SchedulerBackend {
                     overrides.withContainerOverrides(ride);
                 }
             });
+            long startTaskStart = System.currentTimeMillis();
             StartTaskResult startTaskResult = ecsClient.startTask(new StartTaskRequest()
                     .withCluster(cluster)
                     .withContainerInstances(dockerHost.getContainerInstanceArn())
                     .withTaskDefinition(taskDefinition + ":" + request.getRevision())
                     .withOverrides(overrides));
             return new SchedulingResult(
-                    startTaskResult, dockerHost.getContainerInstanceArn(), dockerHost.getInstanceId());
+                    startTaskResult,
+                    dockerHost.getContainerInstanceArn(),
+                    dockerHost.getInstanceId(),
+                    System.currentTimeMillis() - startTaskStart);
         } catch (Exception e) {
             throw new ECSException(e);
         }
@@ -54,6 +54,18 @@ public interface Constants {
      */
     String PROPERTY_DRAIN_DISCONNECTED = "pbc.instance.termination.policy.draining";
 
+    /**
+     * System property to scale the cluster up ahead of demand predicted from recent queue trends and
+     * hour of day history, on top of the reactive scaling on lacking capacity and future reservations.
+     */
+    String PROPERTY_PREDICTIVE_SCALING = "pbc.ecs.scaling.predictive";
+
+    /**
+     * System property to drain partially used instances during scale down when the remaining instances can absorb
+     * the upcoming demand, consolidating the running tasks onto fewer instances over time.
+     */
+    String PROPERTY_CONSOLIDATE_SCALE_DOWN = "pbc.ecs.scaling.consolidate";
+
     // ECS
 
     // The name of the sidekick docker image and sidekick container
@@ -19,19 +19,20 @@ package com.atlassian.buildeng.ecs.scheduling;
 import com.atlassian.buildeng.ecs.exceptions.ECSException;
 import com.atlassian.buildeng.ecs.exceptions.InstancesSmallerThanAgentException;
 import com.atlassian.buildeng.spi.isolated.docker.Configuration;
+import com.atlassian.buildeng.spi.isolated.docker.metrics.MetricName;
+import com.atlassian.buildeng.spi.isolated.docker.metrics.MetricsRegistry;
+import com.atlassian.buildeng.spi.isolated.docker.metrics.Timer;
 import com.google.common.annotations.VisibleForTesting;
-import java.time.Duration;
+import com.google.common.cache.CacheBuilder;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -44,9 +45,16 @@ import org.springframework.beans.factory.DisposableBean;
 
 public class CyclingECSScheduler implements ECSScheduler, DisposableBean {
     private static final Logger logger = LoggerFactory.getLogger(CyclingECSScheduler.class);
+    private static final String PENDING_REQUESTS_GAUGE = "pbc_ecs_pending_requests";
     private long lackingCPU = 0;
     private long lackingMemory = 0;
     private final Set<UUID> consideredRequestIdentifiers = new HashSet<>();
+    // requests already counted as arrived demand, unlike consideredRequestIdentifiers not reset once the shortfall
+    // is covered so that retries are not counted again. Requests that never come back expire.
+    private final Set<UUID> arrivedRequestIdentifiers = Collections.newSetFromMap(CacheBuilder.newBuilder()
+            .expireAfterWrite(1, TimeUnit.HOURS)
+            .<UUID, Boolean>build()
+            .asMap());
 
     @VisibleForTesting
     final ExecutorService executor = Executors.newSingleThreadScheduledExecutor();
@@ -54,7 +62,10 @@ public class CyclingECSScheduler implements ECSScheduler, DisposableBean {
     private final BlockingQueue<Pair<SchedulingRequest, SchedulingCallback>> requests = new LinkedBlockingQueue<>();
 
     @VisibleForTesting
-    final ConcurrentMap<String, ReserveRequest> futureReservations = new ConcurrentHashMap<>();
+    final ReservationLedger futureReservations;
+
+    @VisibleForTesting
+    final DemandForecaster demandForecaster;
 
     private final SchedulerBackend schedulerBackend;
     private final ECSConfiguration globalConfiguration;
@@ -67,11 +78,44 @@ public class CyclingECSScheduler implements ECSScheduler, DisposableBean {
             ECSConfiguration globalConfiguration,
             ModelLoader modelLoader,
             ModelUpdater modelUpdater) {
+        this(schedulerBackend, globalConfiguration, modelLoader, modelUpdater, new ReservationLedger());
+    }
+
+    public CyclingECSScheduler(
+            SchedulerBackend schedulerBackend,
+            ECSConfiguration globalConfiguration,
+            ModelLoader modelLoader,
+            ModelUpdater modelUpdater,
+            ReservationLedger futureReservations) {
+        this(
+                schedulerBackend,
+                globalConfiguration,
+                modelLoader,
+                modelUpdater,
+                futureReservations,
+                new DemandForecaster());
+        // only the polling scheduler exports its queue, test and simulation instances don't.
+        MetricsRegistry.global().gauge(PENDING_REQUESTS_GAUGE, requests::size);
+        executor.submit(new EndlessPolling());
+    }
+
+    /**
+     * Scheduler without the polling thread, queued requests are only processed by {@link #processQueued()}.
+     */
+    @VisibleForTesting
+    CyclingECSScheduler(
+            SchedulerBackend schedulerBackend,
+            ECSConfiguration globalConfiguration,
+            ModelLoader modelLoader,
+            ModelUpdater modelUpdater,
+            ReservationLedger futureReservations,
+            DemandForecaster demandForecaster) {
+        this.futureReservations = futureReservations;
         this.schedulerBackend = schedulerBackend;
         this.globalConfiguration = globalConfiguration;
         this.modelLoader = modelLoader;
         this.modelUpdater = modelUpdater;
-        executor.submit(new EndlessPolling());
+        this.demandForecaster = demandForecaster;
     }
 
     // Select the best host to run a task with the given required resources out of a list of candidates
@@ -117,12 +161,19 @@ public class CyclingECSScheduler implements ECSScheduler, DisposableBean {
             return;
         }
         boolean someDiscarded = false;
+        long arrivedCpu = 0;
+        long arrivedMemory = 0;
         while (pair != null) {
             try {
                 logger.debug("Processing request for {}", request);
                 Optional<DockerHost> candidate = selectHost(
                         hosts.fresh(), request.getMemory(), request.getCpu(), !consideredRequestIdentifiers.isEmpty());
                 if (candidate.isPresent()) {
+                    if (!arrivedRequestIdentifiers.remove(request.getIdentifier())) {
+                        // not counted as demand yet when it was lacking capacity before
+                        arrivedCpu += request.getCpu();
+                        arrivedMemory += request.getMemory();
+                    }
                     unreserveFutureCapacity(request);
                     DockerHost candidateHost = candidate.get();
                     final SchedulingResult schedulingResult = schedulerBackend.schedule(
@@ -156,6 +207,10 @@ public class CyclingECSScheduler implements ECSScheduler, DisposableBean {
                             lackingCPU += request.getCpu();
                             lackingMemory += request.getMemory();
                         }
+                        if (arrivedRequestIdentifiers.add(request.getIdentifier())) {
+                            arrivedCpu += request.getCpu();
+                            arrivedMemory += request.getMemory();
+                        }
                         // scale up + down and set all other queued requests to null.
                         someDiscarded = true;
                         pair.getRight().handle(new ECSException("Capacity not available"));
@@ -170,9 +225,30 @@ public class CyclingECSScheduler implements ECSScheduler, DisposableBean {
                 request = pair.getLeft();
             }
         }
+        demandForecaster.record(arrivedCpu, arrivedMemory);
         Pair<Long, Long> sum = sumOfFutureReservations();
+        Pair<Long, Long> predicted = predictedDemand();
         modelUpdater.updateModel(
-                hosts, new ModelUpdater.State(lackingCPU, lackingMemory, someDiscarded, sum.getLeft(), sum.getRight()));
+                hosts,
+                new ModelUpdater.State(
+                        lackingCPU,
+                        lackingMemory,
+                        someDiscarded,
+                        sum.getLeft(),
+                        sum.getRight(),
+                        predicted.getLeft(),
+                        predicted.getRight()));
+    }
+
+    /**
+     * demand expected before a newly started instance can take tasks, zero unless predictive scaling is enabled.
+     *
+     * @return pair of memory, cpu
+     */
+    private Pair<Long, Long> predictedDemand() {
+        Pair<Long, Long> forecast = demandForecaster.forecast();
+        logger.debug("Predicted demand memory:{} cpu:{}", forecast.getLeft(), forecast.getRight());
+        return Boolean.getBoolean(Constants.PROPERTY_PREDICTIVE_SCALING) ? forecast : Pair.of(0L, 0L);
     }
 
     private void checkScaleDown() {
@@ -181,7 +257,10 @@ public class CyclingECSScheduler implements ECSScheduler, DisposableBean {
             String cluster = globalConfiguration.getCurrentCluster();
             DockerHosts hosts = modelLoader.load(cluster, asgName);
             Pair<Long, Long> sum = sumOfFutureReservations();
-            modelUpdater.scaleDown(hosts, new ModelUpdater.State(sum.getLeft(), sum.getRight()));
+            Pair<Long, Long> predicted = predictedDemand();
+            modelUpdater.scaleDown(
+                    hosts,
+                    new ModelUpdater.State(sum.getLeft(), sum.getRight(), predicted.getLeft(), predicted.getRight()));
         } catch (ECSException ex) {
             logger.error("Failed to scale down", ex);
         }
@@ -193,6 +272,7 @@ public class CyclingECSScheduler implements ECSScheduler, DisposableBean {
 
     @Override
     public void destroy() throws Exception {
+        MetricsRegistry.global().remove(MetricName.of(PENDING_REQUESTS_GAUGE));
         shutdownExecutor();
     }
 
@@ -217,7 +297,7 @@ public class CyclingECSScheduler implements ECSScheduler, DisposableBean {
                         + newone.getMemoryReservation()
                         + " "
                         + newone.getResultKeys());
-                futureReservations.put(newone.getBuildKey(), newone);
+                futureReservations.put(newone);
             } else {
                 // keep the existing one.
             }
@@ -231,21 +311,13 @@ public class CyclingECSScheduler implements ECSScheduler, DisposableBean {
         if (req.getBuildKey() == null) {
             return; // TODO remove, test path only
         }
-        futureReservations.computeIfPresent(req.getBuildKey(), (String key, ReserveRequest old) -> {
-            final boolean present = old.getResultKeys().contains(req.getResultId());
-            if (present) {
-                logger.info("FutureReservation: Removing for " + key + " because of " + req.getResultId());
-                return null;
-            } else {
-                return old;
-            }
-        });
+        ReserveRequest removed = futureReservations.removeIf(
+                req.getBuildKey(), (ReserveRequest old) -> old.getResultKeys().contains(req.getResultId()));
+        if (removed != null) {
+            logger.info("FutureReservation: Removing for " + req.getBuildKey() + " because of " + req.getResultId());
+        }
     }
 
-    // IMPORTANT: the cleanup constant defines the max time how long the previous stage can take in order to take
-    // advantage of the pre expanded cluster.
-    private static final int MINUTES_TO_KEEP_FUTURE_RES_ALIVE = 40;
-
     /**
      * Calculate the future reservations memory and cpu totals.
      *
@@ -253,24 +325,21 @@ public class CyclingECSScheduler implements ECSScheduler, DisposableBean {
      */
     @VisibleForTesting
     Pair<Long, Long> sumOfFutureReservations() {
-        long currentTime = System.currentTimeMillis();
-        futureReservations.entrySet().removeIf((Map.Entry<String, ReserveRequest> t) -> {
-            boolean remove = Duration.ofMillis(currentTime - t.getValue().getCreationTimestamp())
-                            .toMinutes()
-                    > MINUTES_TO_KEEP_FUTURE_RES_ALIVE;
-            if (remove) {
-                logger.info("FutureReservation: Timeout for " + t.getKey() + " "
-                        + t.getValue().getResultKeys());
-            }
-            return remove;
-        });
-        return Pair.of(
-                futureReservations.values().stream()
-                        .mapToLong((ReserveRequest value) -> value.getMemoryReservation())
-                        .sum(),
-                futureReservations.values().stream()
-                        .mapToLong((ReserveRequest value) -> value.getCpuReservation())
-                        .sum());
+        return futureReservations.totals();
+    }
+
+    /**
+     * One cycle of the polling thread without waiting for requests: process the queued ones or check scale down
+     * when there are none.
+     */
+    @VisibleForTesting
+    void processQueued() {
+        Pair<SchedulingRequest, SchedulingCallback> pair = requests.poll();
+        if (pair != null) {
+            processRequests(pair);
+        } else {
+            checkScaleDown();
+        }
     }
 
     private class EndlessPolling implements Runnable {
@@ -283,7 +352,11 @@ public class CyclingECSScheduler implements ECSScheduler, DisposableBean {
                 Pair<SchedulingRequest, SchedulingCallback> pair =
                         requests.poll(Constants.POLLING_INTERVAL, TimeUnit.MINUTES);
                 if (pair != null) {
-                    processRequests(pair);
+                    try (Timer.Sample sample = MetricsRegistry.global()
+                            .timer("pbc_ecs_scheduling_cycle_seconds")
+                            .start()) {
+                        processRequests(pair);
+                    }
                 } else {
                     checkScaleDown();
                 }
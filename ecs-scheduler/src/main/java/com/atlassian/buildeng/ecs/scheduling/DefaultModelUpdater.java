@@ -39,11 +39,12 @@ public class DefaultModelUpdater implements ModelUpdater {
 
     private final SchedulerBackend schedulerBackend;
     private final EventPublisher eventPublisher;
+    private final ScaleDownPlanner scaleDownPlanner;
 
     // when scaling down make sure this acount of free capacity ratio is not dropped below.
     // it should smooth out waves of scale up and down, increasing caching and effeciency/performance
     // of course somewhat bigger bill ensues
-    private static final double SCALE_DOWN_FREE_CAP_MIN = 0.30;
+    static final double SCALE_DOWN_FREE_CAP_MIN = 0.30;
 
     // under high load there are interminent reports of agents being disconnected
     // but these recover very fast, only want to actively kill instances
@@ -56,15 +57,31 @@ public class DefaultModelUpdater implements ModelUpdater {
     final Map<DockerHost, Date> disconnectedAgentsCache = new HashMap<>();
 
     @Inject
-    public DefaultModelUpdater(SchedulerBackend schedulerBackend, EventPublisher eventPublisher) {
+    public DefaultModelUpdater(
+            SchedulerBackend schedulerBackend, EventPublisher eventPublisher, ECSConfiguration globalConfiguration) {
+        this(schedulerBackend, eventPublisher, new ScaleDownPlanner(globalConfiguration));
+    }
+
+    @VisibleForTesting
+    DefaultModelUpdater(
+            SchedulerBackend schedulerBackend, EventPublisher eventPublisher, ScaleDownPlanner scaleDownPlanner) {
         this.schedulerBackend = schedulerBackend;
         this.eventPublisher = eventPublisher;
+        this.scaleDownPlanner = scaleDownPlanner;
     }
 
     @Override
     public void scaleDown(DockerHosts hosts, State req) {
         terminateDisconnectedInstances(hosts);
-        terminateInstances(selectToTerminate(hosts, req), hosts.getASGName(), true, hosts.getClusterName());
+        List<DockerHost> toTerminate = selectToTerminate(hosts, req);
+        terminateInstances(toTerminate, hosts.getASGName(), true, hosts.getClusterName());
+        if (Boolean.getBoolean(Constants.PROPERTY_CONSOLIDATE_SCALE_DOWN)) {
+            List<DockerHost> toDrain = selectToDrain(hosts, toTerminate, req);
+            if (!toDrain.isEmpty()) {
+                logger.info("Draining partially used hosts to consolidate:" + toDrain);
+                schedulerBackend.drainInstances(toDrain, hosts.getClusterName());
+            }
+        }
     }
 
     @Override
@@ -88,17 +105,20 @@ public class DefaultModelUpdater implements ModelUpdater {
         // many instance, maybe we should ignore pieces that are smaller than SMALL agent size
         long freeMem = computeFreeCapacityMemory(hosts.allUsable());
         long freeCpu = computeFreeCapacityCPU(hosts.allUsable());
-        logger.debug("freeMem:" + freeMem + " reservedMem:" + req.getFutureReservationMemory());
-        logger.debug("freeCpu:" + freeCpu + " reservedCpu:" + req.getFutureReservationCPU());
-        if (freeMem < req.getFutureReservationMemory() || freeCpu < req.getFutureReservationCPU()) {
+        logger.debug("freeMem:" + freeMem + " reservedMem:" + req.getFutureReservationMemory()
+                + " predictedMem:" + req.getPredictedMemory());
+        logger.debug("freeCpu:" + freeCpu + " reservedCpu:" + req.getFutureReservationCPU()
+                + " predictedCpu:" + req.getPredictedCPU());
+        if (freeMem < req.getUpcomingMemory() || freeCpu < req.getUpcomingCPU()) {
             long memoryRequirements =
-                    1 + (req.getFutureReservationMemory() - freeMem) / computeInstanceMemoryLimits(hosts.allUsable());
-            long cpuRequirements =
-                    1 + (req.getFutureReservationCPU() - freeCpu) / computeInstanceCPULimits(hosts.allUsable());
+                    1 + (req.getUpcomingMemory() - freeMem) / computeInstanceMemoryLimits(hosts.allUsable());
+            long cpuRequirements = 1 + (req.getUpcomingCPU() - freeCpu) / computeInstanceCPULimits(hosts.allUsable());
             logger.info(
-                    "Scaling w.r.t. this much future CPU/memory {} {}",
+                    "Scaling w.r.t. this much future CPU/memory {} {} and predicted CPU/memory {} {}",
                     req.getFutureReservationCPU(),
-                    req.getFutureReservationMemory());
+                    req.getFutureReservationMemory(),
+                    req.getPredictedCPU(),
+                    req.getPredictedMemory());
             desiredScaleSize += Math.max(cpuRequirements, memoryRequirements);
             logger.info("desired size: " + desiredScaleSize
                     + " cpuReq:"
@@ -194,9 +214,9 @@ public class DefaultModelUpdater implements ModelUpdater {
         // keep certain overcapacity around
         List<DockerHost> notTerminating = new ArrayList<>(hosts.allUsable());
         notTerminating.removeAll(toTerminate);
-        long freeMem = computeFreeCapacityMemory(notTerminating) - req.getFutureReservationMemory();
+        long freeMem = computeFreeCapacityMemory(notTerminating) - req.getUpcomingMemory();
         long capMem = computeMaxCapacityMemory(notTerminating);
-        long freeCpu = computeFreeCapacityCPU(notTerminating) - req.getFutureReservationCPU();
+        long freeCpu = computeFreeCapacityCPU(notTerminating) - req.getUpcomingCPU();
         long capCpu = computeMaxCapacityCPU(notTerminating);
         logger.info("FREECPU:" + freeCpu + " FREEMEM:" + freeMem);
         double freeRatio = Math.min((double) freeMem / capMem, (double) freeCpu / capCpu);
@@ -211,6 +231,16 @@ public class DefaultModelUpdater implements ModelUpdater {
         return toTerminate;
     }
 
+    /**
+     * partially used hosts that can be drained while the rest of the fresh hosts absorb the upcoming demand.
+     * The drained ones become stale and get terminated by {@link #selectToTerminate} once they run nothing.
+     */
+    List<DockerHost> selectToDrain(DockerHosts hosts, List<DockerHost> toTerminate, State req) {
+        List<DockerHost> active = new ArrayList<>(hosts.fresh());
+        active.removeAll(toTerminate);
+        return scaleDownPlanner.plan(active, req.getUpcomingMemory(), req.getUpcomingCPU());
+    }
+
     // the return value has 2 possible meanings.
     // 1. how many instances we actually killed
     // 2. by how much the ASG size decreaesed
@@ -22,6 +22,8 @@ import com.atlassian.buildeng.ecs.exceptions.ECSException;
 import com.atlassian.buildeng.ecs.exceptions.InstancesSmallerThanAgentException;
 import com.atlassian.buildeng.spi.isolated.docker.IsolatedDockerAgentResult;
 import com.atlassian.buildeng.spi.isolated.docker.IsolatedDockerRequestCallback;
+import com.atlassian.buildeng.spi.isolated.docker.RetryReason;
+import com.atlassian.buildeng.spi.isolated.docker.StartupPhase;
 import java.util.List;
 import java.util.concurrent.TimeoutException;
 import org.slf4j.Logger;
@@ -47,17 +49,21 @@ public class DefaultSchedulingCallback implements SchedulingCallback {
             toRet.withCustomResultData(Constants.RESULT_PART_EC2_INSTANCEID, schedulingResult.getEc2InstanceId());
             toRet.withCustomResultData(Constants.RESULT_PART_ECS_CONTAINERARN, schedulingResult.getContainerArn());
         });
+        if (schedulingResult.getStartTaskMillis() >= 0) {
+            toRet.withPhaseDuration(StartupPhase.BACKEND_CREATE, schedulingResult.getStartTaskMillis());
+        }
         logger.info("ECS Returned: {}", startTaskResult);
         List<Failure> failures = startTaskResult.getFailures();
         if (failures.size() == 1) {
             String err = failures.get(0).getReason();
             if (err.startsWith("RESOURCE")) {
                 logger.info("ECS cluster is overloaded, waiting for auto-scaling and retrying");
-                toRet.withRetryRecoverable("Not enough resources available now.");
+                toRet.withRetryRecoverable("Not enough resources available now.", RetryReason.QUOTA);
             } else if ("AGENT".equals(err)) {
                 logger.info("We've scheduled on AGENT disabled instance, should be just flaky AWS. Retrying.");
                 toRet.withRetryRecoverable(
-                        "AGENT - The container instance that you attempted to launch a task onto has an agent which is currently disconnected.");
+                        "AGENT - The container instance that you attempted to launch a task onto has an agent which is currently disconnected.",
+                        RetryReason.UNREACHABLE);
             } else {
                 toRet.withError(mapRunTaskErrorToDescription(err));
             }
@@ -74,12 +80,13 @@ public class DefaultSchedulingCallback implements SchedulingCallback {
         IsolatedDockerAgentResult toRet = new IsolatedDockerAgentResult();
         logger.warn("Failed to schedule {}, treating as overload: {}", resultId, exception);
         if (exception.getCause() instanceof TimeoutException) {
-            toRet.withRetryRecoverable("Request timed out without completing.");
+            toRet.withRetryRecoverable("Request timed out without completing.", RetryReason.UNREACHABLE);
         } else if (exception.getCause() instanceof InstancesSmallerThanAgentException) {
             toRet.withError(exception.getMessage());
         } else {
             toRet.withRetryRecoverable(
-                    "No Container Instance currently available. Reason: " + exception.getLocalizedMessage());
+                    "No Container Instance currently available. Reason: " + exception.getLocalizedMessage(),
+                    RetryReason.QUOTA);
         }
         callback.handle(toRet);
     }
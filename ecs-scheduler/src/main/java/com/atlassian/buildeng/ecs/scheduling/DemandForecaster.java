@@ -0,0 +1,152 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.ecs.scheduling;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+import org.apache.commons.lang3.tuple.Pair;
+
+/**
+ * Predicts the agent demand arriving within the time it takes a new EC2 instance to join the cluster.
+ * Demand is recorded per minute as the sum of cpu/memory of newly seen scheduling requests. The forecast combines
+ * the linear trend over the last minutes with a per hour of day profile of the demand rate learnt over time,
+ * the profile is only used for hours observed for at least a full hour.
+ */
+public class DemandForecaster {
+
+    // how long it takes from ASG scale up to the instance accepting tasks.
+    static final int LEAD_MINUTES = 6;
+    // minutes of recent demand used to compute the trend.
+    static final int TREND_WINDOW_MINUTES = 15;
+    // weight of a single minute in the hour of day profile, ~ 1 hour of observations dominates the value.
+    static final double PROFILE_ALPHA = 0.02;
+    // weight of the recent trend when the hour of day profile is known.
+    static final double TREND_WEIGHT = 0.6;
+
+    private static final long MINUTE_MILLIS = 60_000L;
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final LongSupplier clock;
+    private final ZoneId zone;
+
+    private final long[] recentCpu = new long[TREND_WINDOW_MINUTES];
+    private final long[] recentMemory = new long[TREND_WINDOW_MINUTES];
+    private final double[] hourlyCpu = new double[24];
+    private final double[] hourlyMemory = new double[24];
+    private final int[] hourlyMinutes = new int[24];
+    private long currentMinute;
+    private long observedMinutes;
+
+    public DemandForecaster() {
+        this(System::currentTimeMillis, ZoneId.systemDefault());
+    }
+
+    @VisibleForTesting
+    DemandForecaster(LongSupplier clock, ZoneId zone) {
+        this.clock = clock;
+        this.zone = zone;
+        this.currentMinute = clock.getAsLong() / MINUTE_MILLIS;
+    }
+
+    /**
+     * Record demand of newly arrived scheduling requests.
+     */
+    public synchronized void record(long cpu, long memory) {
+        advance();
+        int slot = (int) (currentMinute % TREND_WINDOW_MINUTES);
+        recentCpu[slot] += cpu;
+        recentMemory[slot] += memory;
+    }
+
+    /**
+     * Expected demand within the next {@link #LEAD_MINUTES}.
+     *
+     * @return pair of memory, cpu demand
+     */
+    public synchronized Pair<Long, Long> forecast() {
+        advance();
+        int leadHour = hourOf(currentMinute + LEAD_MINUTES);
+        return Pair.of(
+                Math.round(LEAD_MINUTES * rate(recentMemory, hourlyMemory, leadHour)),
+                Math.round(LEAD_MINUTES * rate(recentCpu, hourlyCpu, leadHour)));
+    }
+
+    private double rate(long[] recent, double[] hourly, int leadHour) {
+        // only closed minutes participate, the current one is still filling up.
+        int count = (int) Math.min(observedMinutes, TREND_WINDOW_MINUTES - 1);
+        double trend = 0;
+        if (count > 0) {
+            // least squares fit over the closed minutes, x = 0 being the oldest one.
+            double sumX = 0;
+            double sumY = 0;
+            double sumXY = 0;
+            double sumXX = 0;
+            for (int i = 0; i < count; i++) {
+                long minute = currentMinute - count + i;
+                double y = recent[(int) (minute % TREND_WINDOW_MINUTES)];
+                sumX += i;
+                sumY += y;
+                sumXY += i * y;
+                sumXX += (double) i * i;
+            }
+            double mean = sumY / count;
+            double denominator = count * sumXX - sumX * sumX;
+            double slope = denominator == 0 ? 0 : (count * sumXY - sumX * sumY) / denominator;
+            // project to the middle of the lead time window.
+            double x = count - 1 + LEAD_MINUTES / 2.0;
+            trend = Math.max(0, mean + slope * (x - sumX / count));
+        }
+        if (hourlyMinutes[leadHour] < 60) {
+            return trend;
+        }
+        return TREND_WEIGHT * trend + (1 - TREND_WEIGHT) * hourly[leadHour];
+    }
+
+    private void advance() {
+        long now = clock.getAsLong() / MINUTE_MILLIS;
+        if (now <= currentMinute) {
+            return;
+        }
+        // fold closed minutes into the profile, minutes without any record count as no demand.
+        long from = Math.max(currentMinute, now - MINUTES_PER_DAY);
+        if (from > currentMinute) {
+            Arrays.fill(recentCpu, 0);
+            Arrays.fill(recentMemory, 0);
+        }
+        for (long minute = from; minute < now; minute++) {
+            int slot = (int) (minute % TREND_WINDOW_MINUTES);
+            int hour = hourOf(minute);
+            // plain average until the hour was observed in full, exponential moving average afterwards.
+            hourlyMinutes[hour] = Math.min(hourlyMinutes[hour] + 1, 60);
+            double alpha = Math.max(PROFILE_ALPHA, 1.0 / hourlyMinutes[hour]);
+            hourlyCpu[hour] += alpha * (recentCpu[slot] - hourlyCpu[hour]);
+            hourlyMemory[hour] += alpha * (recentMemory[slot] - hourlyMemory[hour]);
+            int next = (int) ((minute + 1) % TREND_WINDOW_MINUTES);
+            recentCpu[next] = 0;
+            recentMemory[next] = 0;
+        }
+        observedMinutes += now - currentMinute;
+        currentMinute = now;
+    }
+
+    private int hourOf(long minute) {
+        return Instant.ofEpochMilli(minute * MINUTE_MILLIS).atZone(zone).getHour();
+    }
+}
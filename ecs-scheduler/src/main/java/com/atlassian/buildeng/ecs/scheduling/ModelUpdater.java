@@ -29,21 +29,36 @@ public interface ModelUpdater {
         private final boolean someDiscarded;
         private final long futureReservationMemory;
         private final long futureReservationCPU;
+        private final long predictedMemory;
+        private final long predictedCPU;
 
         State(long futureMemory, long futureCPU) {
-            this.futureReservationMemory = futureMemory;
-            this.futureReservationCPU = futureCPU;
-            this.lackingCPU = 0;
-            this.lackingMemory = 0;
-            this.someDiscarded = false;
+            this(futureMemory, futureCPU, 0, 0);
+        }
+
+        State(long futureMemory, long futureCPU, long predictedMemory, long predictedCPU) {
+            this(0, 0, false, futureMemory, futureCPU, predictedMemory, predictedCPU);
         }
 
         State(long lackingCPU, long lackingMemory, boolean someDiscarded, long futureMemory, long futureCPU) {
+            this(lackingCPU, lackingMemory, someDiscarded, futureMemory, futureCPU, 0, 0);
+        }
+
+        State(
+                long lackingCPU,
+                long lackingMemory,
+                boolean someDiscarded,
+                long futureMemory,
+                long futureCPU,
+                long predictedMemory,
+                long predictedCPU) {
             this.lackingCPU = lackingCPU;
             this.lackingMemory = lackingMemory;
             this.someDiscarded = someDiscarded;
             this.futureReservationMemory = futureMemory;
             this.futureReservationCPU = futureCPU;
+            this.predictedMemory = predictedMemory;
+            this.predictedCPU = predictedCPU;
         }
 
         public long getLackingCPU() {
@@ -65,5 +80,33 @@ public interface ModelUpdater {
         public long getFutureReservationCPU() {
             return futureReservationCPU;
         }
+
+        /**
+         * memory of the demand expected to arrive before a newly started instance is usable.
+         */
+        public long getPredictedMemory() {
+            return predictedMemory;
+        }
+
+        /**
+         * cpu of the demand expected to arrive before a newly started instance is usable.
+         */
+        public long getPredictedCPU() {
+            return predictedCPU;
+        }
+
+        /**
+         * @return memory needed on top of current usage, future reservations and predicted demand together.
+         */
+        public long getUpcomingMemory() {
+            return futureReservationMemory + predictedMemory;
+        }
+
+        /**
+         * @return cpu needed on top of current usage, future reservations and predicted demand together.
+         */
+        public long getUpcomingCPU() {
+            return futureReservationCPU + predictedCPU;
+        }
     }
 }
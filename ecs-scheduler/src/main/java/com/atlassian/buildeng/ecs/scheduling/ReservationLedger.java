@@ -0,0 +1,303 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.ecs.scheduling;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Splitter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import org.apache.commons.lang3.tuple.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Book keeping of future capacity reservations, one per build key.
+ * Expiry is driven by a timer wheel with one minute ticks so that only the reservations due in the elapsed ticks
+ * are inspected, and the memory/cpu totals are maintained on every change so reading them does not iterate
+ * the reservations. When created with a {@link Store}, every change is written through so that reservations
+ * survive a restart of the scheduler service.
+ */
+public class ReservationLedger {
+    private static final Logger logger = LoggerFactory.getLogger(ReservationLedger.class);
+
+    // IMPORTANT: the ttl defines the max time how long the previous stage can take in order to take
+    // advantage of the pre expanded cluster.
+    static final Duration DEFAULT_TTL = Duration.ofMinutes(40);
+    static final long TICK_MILLIS = Duration.ofMinutes(1).toMillis();
+    static final int WHEEL_SLOTS = 64;
+
+    private final LongSupplier clock;
+    private final long ttlMillis;
+    private final Store store;
+
+    private final Map<String, ReserveRequest> reservations = new HashMap<>();
+    private final List<Set<String>> wheel = new ArrayList<>(WHEEL_SLOTS);
+    private long lastTick;
+    private long memoryTotal;
+    private long cpuTotal;
+
+    public ReservationLedger() {
+        this(System::currentTimeMillis, DEFAULT_TTL, Store.NONE);
+    }
+
+    public ReservationLedger(Store store) {
+        this(System::currentTimeMillis, DEFAULT_TTL, store);
+    }
+
+    @VisibleForTesting
+    ReservationLedger(LongSupplier clock, Duration ttl, Store store) {
+        this.clock = clock;
+        this.ttlMillis = ttl.toMillis();
+        this.store = store;
+        for (int i = 0; i < WHEEL_SLOTS; i++) {
+            wheel.add(new HashSet<>());
+        }
+        this.lastTick = clock.getAsLong() / TICK_MILLIS;
+        Collection<ReserveRequest> loaded = Collections.emptyList();
+        try {
+            loaded = store.load();
+        } catch (IOException ex) {
+            logger.error("FutureReservation: Failed to load persisted reservations, starting empty", ex);
+        }
+        for (ReserveRequest r : loaded) {
+            insert(r);
+        }
+        if (!loaded.isEmpty()) {
+            advance();
+            logger.info("FutureReservation: Restored " + reservations.size() + " reservations");
+        }
+    }
+
+    public synchronized ReserveRequest get(String buildKey) {
+        return reservations.get(buildKey);
+    }
+
+    public synchronized boolean isEmpty() {
+        advance();
+        return reservations.isEmpty();
+    }
+
+    public synchronized int size() {
+        advance();
+        return reservations.size();
+    }
+
+    /**
+     * Add or replace the reservation for the build key of the request.
+     */
+    public synchronized void put(ReserveRequest request) {
+        insert(request);
+        persist();
+    }
+
+    /**
+     * Remove the reservation for the given build key.
+     *
+     * @return the removed reservation or null if there was none
+     */
+    public synchronized ReserveRequest remove(String buildKey) {
+        ReserveRequest old = delete(buildKey);
+        if (old != null) {
+            persist();
+        }
+        return old;
+    }
+
+    /**
+     * Remove the reservation for the given build key if it matches the condition.
+     *
+     * @return the removed reservation or null if nothing was removed
+     */
+    public synchronized ReserveRequest removeIf(String buildKey, Predicate<ReserveRequest> condition) {
+        ReserveRequest old = reservations.get(buildKey);
+        if (old != null && condition.test(old)) {
+            return remove(buildKey);
+        }
+        return null;
+    }
+
+    /**
+     * Expire timed out reservations and return the current totals.
+     *
+     * @return pair of memory, cpu reservation sums
+     */
+    public synchronized Pair<Long, Long> totals() {
+        advance();
+        return Pair.of(memoryTotal, cpuTotal);
+    }
+
+    private void insert(ReserveRequest request) {
+        delete(request.getBuildKey());
+        reservations.put(request.getBuildKey(), request);
+        wheel.get(slot(request)).add(request.getBuildKey());
+        memoryTotal += request.getMemoryReservation();
+        cpuTotal += request.getCpuReservation();
+    }
+
+    private ReserveRequest delete(String buildKey) {
+        ReserveRequest old = reservations.remove(buildKey);
+        if (old != null) {
+            wheel.get(slot(old)).remove(buildKey);
+            memoryTotal -= old.getMemoryReservation();
+            cpuTotal -= old.getCpuReservation();
+        }
+        return old;
+    }
+
+    private int slot(ReserveRequest request) {
+        // anything already overdue goes into the slot of the current tick to be collected on next advance.
+        long tick = Math.max(expiresAt(request) / TICK_MILLIS, lastTick);
+        return (int) (tick % WHEEL_SLOTS);
+    }
+
+    private long expiresAt(ReserveRequest request) {
+        return request.getCreationTimestamp() + ttlMillis;
+    }
+
+    private void advance() {
+        long now = clock.getAsLong();
+        long currentTick = now / TICK_MILLIS;
+        // the slot of the current tick is revisited on every call as it can hold entries expiring later in the tick.
+        long firstTick = Math.max(lastTick, currentTick - WHEEL_SLOTS + 1);
+        boolean changed = false;
+        for (long tick = firstTick; tick <= currentTick; tick++) {
+            Iterator<String> it = wheel.get((int) (tick % WHEEL_SLOTS)).iterator();
+            while (it.hasNext()) {
+                String key = it.next();
+                ReserveRequest r = reservations.get(key);
+                // entries with expiry further than one wheel turn share the slot and stay.
+                if (now >= expiresAt(r)) {
+                    it.remove();
+                    reservations.remove(key);
+                    memoryTotal -= r.getMemoryReservation();
+                    cpuTotal -= r.getCpuReservation();
+                    changed = true;
+                    logger.info("FutureReservation: Timeout for " + key + " " + r.getResultKeys());
+                }
+            }
+        }
+        lastTick = currentTick;
+        if (changed) {
+            persist();
+        }
+    }
+
+    private void persist() {
+        try {
+            store.save(reservations.values());
+        } catch (IOException ex) {
+            logger.warn("FutureReservation: Failed to persist reservations", ex);
+        }
+    }
+
+    /**
+     * Persistence of the ledger content.
+     */
+    public interface Store {
+        Store NONE = new Store() {
+            @Override
+            public Collection<ReserveRequest> load() {
+                return Collections.emptyList();
+            }
+
+            @Override
+            public void save(Collection<ReserveRequest> reservations) {}
+        };
+
+        Collection<ReserveRequest> load() throws IOException;
+
+        void save(Collection<ReserveRequest> reservations) throws IOException;
+    }
+
+    /**
+     * Store keeping the reservations in a tab separated text file, one reservation per line.
+     * The file is replaced atomically on each save.
+     */
+    public static class FileStore implements Store {
+        private final Path file;
+
+        public FileStore(Path file) {
+            this.file = file;
+        }
+
+        @Override
+        public Collection<ReserveRequest> load() throws IOException {
+            if (!Files.exists(file)) {
+                return Collections.emptyList();
+            }
+            List<ReserveRequest> toRet = new ArrayList<>();
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                List<String> parts = Splitter.on('\t').splitToList(line);
+                if (parts.size() != 5) {
+                    continue;
+                }
+                try {
+                    toRet.add(new ReserveRequest(
+                            parts.get(0),
+                            parts.get(4).isEmpty()
+                                    ? Collections.emptyList()
+                                    : Splitter.on(',').splitToList(parts.get(4)),
+                            Long.parseLong(parts.get(1)),
+                            Long.parseLong(parts.get(2)),
+                            Long.parseLong(parts.get(3))));
+                } catch (NumberFormatException ex) {
+                    logger.warn("FutureReservation: Skipping malformed line '{}'", line);
+                }
+            }
+            return toRet;
+        }
+
+        @Override
+        public void save(Collection<ReserveRequest> reservations) throws IOException {
+            StringBuilder sb = new StringBuilder();
+            for (ReserveRequest r : reservations) {
+                sb.append(r.getBuildKey())
+                        .append('\t')
+                        .append(r.getCpuReservation())
+                        .append('\t')
+                        .append(r.getMemoryReservation())
+                        .append('\t')
+                        .append(r.getCreationTimestamp())
+                        .append('\t')
+                        .append(String.join(",", r.getResultKeys()))
+                        .append('\n');
+            }
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.write(tmp, sb.toString().getBytes(StandardCharsets.UTF_8));
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+}
@@ -16,7 +16,6 @@
 
 package com.atlassian.buildeng.ecs.scheduling;
 
-import com.google.common.annotations.VisibleForTesting;
 import java.util.List;
 import java.util.Objects;
 
@@ -32,7 +31,6 @@ public class ReserveRequest {
         this(groupIdentifier, resultKeys, cpuReservation, memoryReservation, System.currentTimeMillis());
     }
 
-    @VisibleForTesting
     ReserveRequest(
             String groupIdentifier,
             List<String> resultKeys,
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.ecs.scheduling;
+
+import com.atlassian.buildeng.spi.isolated.docker.Configuration;
+import com.atlassian.buildeng.spi.isolated.docker.ContainerSizeDescriptor;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Chooses partially used instances to drain so that the cluster consolidates onto fewer instances.
+ * A drained instance takes no new tasks and gets terminated by the regular scale down once its running tasks
+ * finish. Candidate sets are evaluated against the free capacity left on the remaining instances, counted in
+ * whole agent sized pieces rather than as plain sums, so that upcoming demand (future reservations and predicted
+ * demand) still fits and the next scheduling cycles don't have to scale the cluster up again.
+ */
+public class ScaleDownPlanner {
+
+    // only instances with at most this much of their capacity in use are worth draining,
+    // fuller ones would take too long to empty.
+    static final double MAX_USED_RATIO = 0.5;
+    // the emptiest instances considered, keeps the number of evaluated sets small.
+    static final int MAX_CANDIDATES = 10;
+    // how many instances can be drained in one cycle.
+    static final int MAX_DRAINED = 2;
+
+    private final Supplier<ContainerSizeDescriptor> sizes;
+    private final double minFreeRatio;
+
+    public ScaleDownPlanner(ECSConfiguration globalConfiguration) {
+        this(globalConfiguration::getSizeDescriptor, DefaultModelUpdater.SCALE_DOWN_FREE_CAP_MIN);
+    }
+
+    ScaleDownPlanner(Supplier<ContainerSizeDescriptor> sizes, double minFreeRatio) {
+        this.sizes = sizes;
+        this.minFreeRatio = minFreeRatio;
+    }
+
+    /**
+     * Select instances to drain.
+     *
+     * @param active instances accepting new tasks and not about to be terminated
+     * @param upcomingMemory memory of future reservations and predicted demand
+     * @param upcomingCpu cpu of future reservations and predicted demand
+     * @return instances to drain, empty when nothing can be reclaimed safely
+     */
+    public List<DockerHost> plan(Collection<DockerHost> active, long upcomingMemory, long upcomingCpu) {
+        List<DockerHost> candidates = active.stream()
+                .filter((DockerHost t) -> !t.runningNothing())
+                .filter((DockerHost t) -> usedRatio(t) <= MAX_USED_RATIO)
+                .sorted(Comparator.comparingDouble(ScaleDownPlanner::usedRatio))
+                .limit(MAX_CANDIDATES)
+                .collect(Collectors.toList());
+        Plan best = new Plan(Collections.emptyList());
+        for (List<DockerHost> set : subsets(candidates, MAX_DRAINED)) {
+            Plan plan = new Plan(set);
+            if (plan.isBetterThan(best)) {
+                List<DockerHost> remaining = new ArrayList<>(active);
+                remaining.removeAll(set);
+                if (fits(remaining, upcomingMemory, upcomingCpu)) {
+                    best = plan;
+                }
+            }
+        }
+        return best.hosts;
+    }
+
+    /**
+     * whether the upcoming demand fits on the hosts with the required spare capacity on top.
+     */
+    boolean fits(Collection<DockerHost> hosts, long upcomingMemory, long upcomingCpu) {
+        if (hosts.isEmpty()) {
+            return false;
+        }
+        ContainerSizeDescriptor descriptor = sizes.get();
+        int pieceMemory = descriptor.getMemory(Configuration.ContainerSize.REGULAR);
+        int pieceCpu = descriptor.getCpu(Configuration.ContainerSize.REGULAR);
+        long pieces = 0;
+        long freeMemory = -upcomingMemory;
+        long freeCpu = -upcomingCpu;
+        long capMemory = 0;
+        long capCpu = 0;
+        for (DockerHost host : hosts) {
+            pieces += Math.min(host.getRemainingMemory() / pieceMemory, host.getRemainingCpu() / pieceCpu);
+            freeMemory += host.getRemainingMemory();
+            freeCpu += host.getRemainingCpu();
+            capMemory += host.getRegisteredMemory();
+            capCpu += host.getRegisteredCpu();
+        }
+        long neededPieces = Math.max(ceilDiv(upcomingMemory, pieceMemory), ceilDiv(upcomingCpu, pieceCpu));
+        double freeRatio = Math.min((double) freeMemory / capMemory, (double) freeCpu / capCpu);
+        return pieces >= neededPieces && freeRatio >= minFreeRatio;
+    }
+
+    private static long ceilDiv(long value, long divisor) {
+        return value <= 0 ? 0 : (value + divisor - 1) / divisor;
+    }
+
+    private static double usedRatio(DockerHost host) {
+        return Math.max(
+                1 - (double) host.getRemainingMemory() / host.getRegisteredMemory(),
+                1 - (double) host.getRemainingCpu() / host.getRegisteredCpu());
+    }
+
+    private static List<List<DockerHost>> subsets(List<DockerHost> hosts, int maxSize) {
+        List<List<DockerHost>> toRet = new ArrayList<>();
+        collect(hosts, 0, new ArrayList<>(), maxSize, toRet);
+        return toRet;
+    }
+
+    private static void collect(
+            List<DockerHost> hosts, int from, List<DockerHost> current, int maxSize, List<List<DockerHost>> toRet) {
+        for (int i = from; i < hosts.size(); i++) {
+            current.add(hosts.get(i));
+            toRet.add(new ArrayList<>(current));
+            if (current.size() < maxSize) {
+                collect(hosts, i + 1, current, maxSize, toRet);
+            }
+            current.remove(current.size() - 1);
+        }
+    }
+
+    private static final class Plan {
+        private final List<DockerHost> hosts;
+        private final long reclaimed;
+        private final long stillRunning;
+
+        Plan(List<DockerHost> hosts) {
+            this.hosts = hosts;
+            this.reclaimed = hosts.stream()
+                    .mapToLong((DockerHost t) -> t.getRegisteredMemory())
+                    .sum();
+            this.stillRunning = hosts.stream()
+                    .mapToLong((DockerHost t) -> t.getRegisteredMemory() - t.getRemainingMemory())
+                    .sum();
+        }
+
+        // most capacity reclaimed, with the least running work to wait for when equal.
+        boolean isBetterThan(Plan other) {
+            if (reclaimed != other.reclaimed) {
+                return reclaimed > other.reclaimed;
+            }
+            return stillRunning < other.stillRunning;
+        }
+    }
+}
@@ -22,11 +22,18 @@ public class SchedulingResult {
     private final StartTaskResult startTaskResult;
     private final String containerArn;
     private final String ec2InstanceId;
+    private final long startTaskMillis;
 
     public SchedulingResult(StartTaskResult startTaskResult, String containerArn, String ec2InstanceId) {
+        this(startTaskResult, containerArn, ec2InstanceId, -1);
+    }
+
+    public SchedulingResult(
+            StartTaskResult startTaskResult, String containerArn, String ec2InstanceId, long startTaskMillis) {
         this.startTaskResult = startTaskResult;
         this.containerArn = containerArn;
         this.ec2InstanceId = ec2InstanceId;
+        this.startTaskMillis = startTaskMillis;
     }
 
     public StartTaskResult getStartTaskResult() {
@@ -40,4 +47,13 @@ public class SchedulingResult {
     public String getEc2InstanceId() {
         return ec2InstanceId;
     }
+
+    /**
+     * How long the ECS startTask call took.
+     *
+     * @return duration in milliseconds or -1 when not measured
+     */
+    public long getStartTaskMillis() {
+        return startTaskMillis;
+    }
 }
@@ -99,7 +99,7 @@ public class CyclingECSSchedulerQuickTest {
             @Override
             public void unregisterAll() {}
         };
-        DefaultModelUpdater dmu = new DefaultModelUpdater(awsSchedulerBackend, eventPublisher);
+        DefaultModelUpdater dmu = new DefaultModelUpdater(awsSchedulerBackend, eventPublisher, new TestECSConfigurationImpl());
         DockerHosts hosts = new DockerHosts(allHosts, Duration.ofDays(1), new AutoScalingGroup(), "cn");
         List<DockerHost> selectedHosts = dmu.selectToTerminate(hosts, new ModelUpdater.State(0, 0));
         if (allHosts.isEmpty()) {
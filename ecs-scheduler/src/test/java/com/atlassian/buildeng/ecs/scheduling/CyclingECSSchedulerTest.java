@@ -43,6 +43,7 @@ import com.atlassian.buildeng.spi.isolated.docker.DefaultContainerSizeDescriptor
 import com.atlassian.event.api.EventPublisher;
 import com.google.common.collect.Sets;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -816,10 +817,56 @@ public class CyclingECSSchedulerTest {
                 scheduler.futureReservations.isEmpty(), "future reservation was timedout and entry removed from map");
     }
 
+    @Test
+    public void retriedRequestIsCountedAsArrivedDemandOnce() throws Exception {
+        final EventPublisher eventPublisher = mock(EventPublisher.class);
+        SchedulerBackend schedulerBackend = mockBackend(
+                Collections.singletonList(ci("id1", "arn1", true, 100, 100)),
+                Collections.singletonList(ec2("id1", new Date())));
+        List<Long> recordedCpu = new ArrayList<>();
+        DemandForecaster forecaster = new DemandForecaster() {
+            @Override
+            public synchronized void record(long cpu, long memory) {
+                recordedCpu.add(cpu);
+                super.record(cpu, memory);
+            }
+        };
+        ECSConfiguration globalConfig = mockGlobalConfig();
+        CyclingECSScheduler scheduler = new CyclingECSScheduler(
+                schedulerBackend,
+                globalConfig,
+                new AwsPullModelLoader(schedulerBackend, eventPublisher, globalConfig),
+                new DefaultModelUpdater(schedulerBackend, eventPublisher, globalConfig),
+                new ReservationLedger(),
+                forecaster);
+        SchedulingRequest big = new SchedulingRequest(UUID.randomUUID(), "a1", 1, cpu(20), mem(20), null, -1, null);
+        // smaller than a SMALL agent, once it is the only lacking one the shortfall is considered covered.
+        SchedulingRequest tiny = new SchedulingRequest(UUID.randomUUID(), "a2", 1, cpu(1), mem(1), null, -1, null);
+        SchedulingCallback callback = new SchedulingCallback() {
+            @Override
+            public void handle(SchedulingResult result) {}
+
+            @Override
+            public void handle(ECSException exception) {}
+        };
+        scheduler.schedule(big, callback);
+        scheduler.schedule(tiny, callback);
+        scheduler.processQueued();
+
+        // room for the big one only, the tiny one is retried after the lacking capacity was reset.
+        when(schedulerBackend.getClusterContainerInstances(anyString()))
+                .thenReturn(Collections.singletonList(ci("id1", "arn1", true, 80, 80)));
+        scheduler.schedule(big, callback);
+        scheduler.schedule(tiny, callback);
+        scheduler.processQueued();
+
+        assertEquals(Arrays.asList((long) cpu(20) + cpu(1), 0L), recordedCpu);
+    }
+
     private CyclingECSScheduler create(
             SchedulerBackend backend, ECSConfiguration globalConfig, EventPublisher eventPublisher) {
         AwsPullModelLoader loader = new AwsPullModelLoader(backend, eventPublisher, globalConfig);
-        DefaultModelUpdater updater = new DefaultModelUpdater(backend, eventPublisher);
+        DefaultModelUpdater updater = new DefaultModelUpdater(backend, eventPublisher, globalConfig);
         return new CyclingECSScheduler(backend, mockGlobalConfig(), loader, updater);
     }
 
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.ecs.scheduling;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.jupiter.api.Test;
+
+public class DemandForecasterTest {
+    private static final long MINUTE = Duration.ofMinutes(1).toMillis();
+
+    private final AtomicLong clock = new AtomicLong(0);
+    private final DemandForecaster forecaster = new DemandForecaster(clock::get, ZoneOffset.UTC);
+
+    private void minutes(int count, long cpu, long memory) {
+        for (int i = 0; i < count; i++) {
+            forecaster.record(cpu, memory);
+            clock.addAndGet(MINUTE);
+        }
+    }
+
+    @Test
+    public void noHistoryNoDemand() {
+        assertEquals(Pair.of(0L, 0L), forecaster.forecast());
+    }
+
+    @Test
+    public void steadyDemandProjectedOverLeadTime() {
+        minutes(20, 1000, 4000);
+        assertEquals(Pair.of(4000L * DemandForecaster.LEAD_MINUTES, 1000L * DemandForecaster.LEAD_MINUTES),
+                forecaster.forecast());
+    }
+
+    @Test
+    public void risingDemandProjectedAboveAverage() {
+        for (int i = 1; i <= 15; i++) {
+            minutes(1, 100 * i, 400 * i);
+        }
+        long cpu = forecaster.forecast().getRight();
+        // the last closed minute had 1500, the trend continues beyond it
+        assertTrue(cpu > 1500L * DemandForecaster.LEAD_MINUTES, "forecast " + cpu);
+    }
+
+    @Test
+    public void fallingDemandNeverNegative() {
+        for (int i = 14; i >= 0; i--) {
+            minutes(1, 1000 * i, 4000 * i);
+        }
+        minutes(5, 0, 0);
+        assertEquals(Pair.of(0L, 0L), forecaster.forecast());
+    }
+
+    @Test
+    public void hourOfDayProfileAnticipatesMorningRamp() {
+        // quiet night, busy from 9:00 to 10:00
+        minutes(9 * 60, 0, 0);
+        minutes(60, 2000, 8000);
+        // next day just before 9:00 after a quiet night
+        clock.set(Duration.ofDays(1).plusHours(9).minusMinutes(DemandForecaster.LEAD_MINUTES).toMillis());
+        forecaster.record(0, 0);
+        clock.addAndGet(MINUTE);
+        assertTrue(forecaster.forecast().getRight() > 0, "morning demand expected from yesterday's profile");
+        clock.set(Duration.ofDays(1).plusHours(3).toMillis());
+        forecaster.record(0, 0);
+        clock.set(Duration.ofDays(1).plusHours(20).toMillis());
+        assertEquals(Pair.of(0L, 0L), forecaster.forecast());
+    }
+
+    @Test
+    public void predictiveScalingReducesWaitingOnRecordedTrace() throws IOException {
+        List<ScalingSimulation.Task> trace =
+                ScalingSimulation.load(getClass().getResourceAsStream("/fixture/queue-trace.txt"));
+        ScalingSimulation.Result reactive = ScalingSimulation.run(trace, false);
+        ScalingSimulation.Result predictive = ScalingSimulation.run(trace, true);
+        String report = "reactive: " + reactive + " predictive: " + predictive;
+        assertTrue(predictive.waitMinutes * 2 < reactive.waitMinutes, report);
+        assertTrue(predictive.maxWaitMinutes <= reactive.maxWaitMinutes, report);
+        // paid for with extra idle capacity, but bounded
+        assertTrue(predictive.instanceMinutes < reactive.instanceMinutes * 1.3, report);
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.ecs.scheduling;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.jupiter.api.Test;
+
+public class ReservationLedgerTest {
+    private static final long START = Duration.ofDays(100).toMillis() + 1234;
+
+    private final AtomicLong clock = new AtomicLong(START);
+
+    private ReservationLedger create(ReservationLedger.Store store) {
+        return new ReservationLedger(clock::get, ReservationLedger.DEFAULT_TTL, store);
+    }
+
+    private static ReserveRequest request(String key, long cpu, long memory, long timestamp) {
+        return new ReserveRequest(key, Collections.singletonList(key + "-1"), cpu, memory, timestamp);
+    }
+
+    @Test
+    public void totalsFollowChanges() {
+        ReservationLedger ledger = create(ReservationLedger.Store.NONE);
+        ledger.put(request("A", 100, 1000, START));
+        ledger.put(request("B", 200, 2000, START));
+        assertEquals(Pair.of(3000L, 300L), ledger.totals());
+        ledger.put(request("A", 50, 500, START));
+        assertEquals(Pair.of(2500L, 250L), ledger.totals());
+        ledger.remove("B");
+        assertEquals(Pair.of(500L, 50L), ledger.totals());
+        assertNull(ledger.removeIf("A", (ReserveRequest r) -> r.getResultKeys().contains("other")));
+        ledger.removeIf("A", (ReserveRequest r) -> r.getResultKeys().contains("A-1"));
+        assertTrue(ledger.isEmpty());
+        assertEquals(Pair.of(0L, 0L), ledger.totals());
+    }
+
+    @Test
+    public void reservationsExpireAfterTtl() {
+        ReservationLedger ledger = create(ReservationLedger.Store.NONE);
+        ledger.put(request("A", 100, 1000, START));
+        ledger.put(request("B", 200, 2000, START + Duration.ofMinutes(10).toMillis()));
+        clock.addAndGet(Duration.ofMinutes(40).toMillis() - 1);
+        assertEquals(2, ledger.size());
+        clock.addAndGet(1);
+        assertEquals(Pair.of(2000L, 200L), ledger.totals());
+        // jump over more than one full turn of the wheel
+        clock.addAndGet(Duration.ofHours(3).toMillis());
+        assertTrue(ledger.isEmpty());
+        assertEquals(Pair.of(0L, 0L), ledger.totals());
+    }
+
+    @Test
+    public void overdueReservationExpiresImmediately() {
+        ReservationLedger ledger = create(ReservationLedger.Store.NONE);
+        ledger.put(request("A", 100, 1000, START - Duration.ofHours(1).toMillis()));
+        assertTrue(ledger.isEmpty());
+    }
+
+    @Test
+    public void replacedReservationDoesNotExpireWithOldSlot() {
+        ReservationLedger ledger = create(ReservationLedger.Store.NONE);
+        ledger.put(request("A", 100, 1000, START));
+        ledger.put(request("A", 100, 1000, START + Duration.ofMinutes(20).toMillis()));
+        clock.addAndGet(Duration.ofMinutes(45).toMillis());
+        assertEquals(Pair.of(1000L, 100L), ledger.totals());
+    }
+
+    @Test
+    public void reservationsSurviveRestart() throws IOException {
+        Path dir = Files.createTempDirectory("ledger");
+        Path file = dir.resolve("reservations.tsv");
+        try {
+            ReservationLedger ledger = create(new ReservationLedger.FileStore(file));
+            ledger.put(new ReserveRequest("A", Arrays.asList("A-1", "A-2"), 100, 1000, START));
+            ledger.put(request("B", 200, 2000, START - Duration.ofMinutes(39).toMillis()));
+
+            clock.addAndGet(Duration.ofMinutes(2).toMillis());
+            ReservationLedger restored = create(new ReservationLedger.FileStore(file));
+            assertEquals(Pair.of(1000L, 100L), restored.totals());
+            assertEquals(Arrays.asList("A-1", "A-2"), restored.get("A").getResultKeys());
+            assertEquals(START, restored.get("A").getCreationTimestamp());
+            assertFalse(new String(Files.readAllBytes(file)).contains("B\t"));
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(dir);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.ecs.scheduling;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.atlassian.buildeng.spi.isolated.docker.DefaultContainerSizeDescriptor;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+public class ScaleDownPlannerTest {
+    private static final int MEMORY = 32000;
+    private static final int CPU = 8192;
+
+    private final ScaleDownPlanner planner =
+            new ScaleDownPlanner(new CyclingECSSchedulerQuickTest.TestECSConfigurationImpl());
+
+    private static DockerHost host(String id, int runningAgents) {
+        return new DockerHost(
+                MEMORY - runningAgents * 8000,
+                CPU - runningAgents * 2048,
+                MEMORY,
+                CPU,
+                "arn:" + id,
+                id,
+                "ACTIVE",
+                new Date(0),
+                true,
+                "m4.2xlarge");
+    }
+
+    private static List<String> ids(List<DockerHost> hosts) {
+        return hosts.stream().map(DockerHost::getInstanceId).sorted().collect(Collectors.toList());
+    }
+
+    @Test
+    public void drainsEmptiestHostsWhenCapacityAllows() {
+        List<DockerHost> hosts = Arrays.asList(
+                host("a", 1), host("b", 2), host("c", 1), host("d", 0), host("e", 0), host("f", 0), host("g", 3));
+        assertEquals(Arrays.asList("a", "c"), ids(planner.plan(hosts, 0, 0)));
+    }
+
+    @Test
+    public void nothingDrainedWhenUpcomingDemandNeedsTheCapacity() {
+        List<DockerHost> hosts = Arrays.asList(host("a", 1), host("b", 2), host("c", 1), host("d", 2));
+        assertTrue(planner.plan(hosts, 5 * 8000, 5 * 2048).isEmpty());
+    }
+
+    @Test
+    public void fullOrEmptyHostsAreNotDrained() {
+        List<DockerHost> hosts = Arrays.asList(host("a", 4), host("b", 3), host("c", 0), host("d", 0));
+        assertTrue(planner.plan(hosts, 0, 0).isEmpty());
+    }
+
+    @Test
+    public void freeCapacityCountedInAgentSizedPieces() {
+        // the same free sums, but only the whole host can take a regular agent
+        DockerHost fragmented = new DockerHost(7000, 8192, MEMORY, CPU, "arn:x", "x", "ACTIVE", new Date(0), true, "");
+        DockerHost whole = new DockerHost(8000, 2048, MEMORY, CPU, "arn:y", "y", "ACTIVE", new Date(0), true, "");
+        ScaleDownPlanner lenient = new ScaleDownPlanner(DefaultContainerSizeDescriptor::new, 0);
+        assertTrue(lenient.fits(Arrays.asList(whole), 8000, 2048));
+        assertFalse(lenient.fits(Arrays.asList(fragmented), 7000, 2048));
+    }
+
+    @Test
+    public void avoidsScaleUpsOnRecordedSnapshots() throws IOException {
+        List<ScaleDownSimulation.Snapshot> snapshots =
+                ScaleDownSimulation.load(getClass().getResourceAsStream("/fixture/cluster-snapshots.txt"));
+        ScaleDownPlanner neverDrains = new ScaleDownPlanner(DefaultContainerSizeDescriptor::new, 0) {
+            @Override
+            public List<DockerHost> plan(Collection<DockerHost> active, long upcomingMemory, long upcomingCpu) {
+                return Collections.emptyList();
+            }
+        };
+        // drain everything at most half used, regardless of what is coming
+        ScaleDownPlanner naiveDrains = new ScaleDownPlanner(DefaultContainerSizeDescriptor::new, 0) {
+            @Override
+            public List<DockerHost> plan(Collection<DockerHost> active, long upcomingMemory, long upcomingCpu) {
+                return active.stream()
+                        .filter((DockerHost t) -> !t.runningNothing())
+                        .filter((DockerHost t) -> t.getRemainingMemory() >= t.getRegisteredMemory() / 2)
+                        .collect(Collectors.toList());
+            }
+        };
+        ScaleDownSimulation.Result none = ScaleDownSimulation.run(snapshots, neverDrains);
+        ScaleDownSimulation.Result naive = ScaleDownSimulation.run(snapshots, naiveDrains);
+        ScaleDownSimulation.Result planned = ScaleDownSimulation.run(snapshots, planner);
+        String report = "none: " + none + " naive: " + naive + " planned: " + planned;
+        assertEquals(0, none.scaleUps, report);
+        assertTrue(naive.scaleUps > 0, report);
+        assertEquals(0, planned.scaleUps, report);
+        assertTrue(planned.reclaimedMemory > 0, report);
+    }
+}
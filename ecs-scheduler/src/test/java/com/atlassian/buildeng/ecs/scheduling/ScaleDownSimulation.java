@@ -0,0 +1,274 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.ecs.scheduling;
+
+import static org.mockito.Mockito.mock;
+
+import com.amazonaws.services.autoscaling.model.AutoScalingGroup;
+import com.amazonaws.services.ec2.model.Instance;
+import com.amazonaws.services.ecs.model.ContainerInstance;
+import com.amazonaws.services.ecs.model.ContainerInstanceStatus;
+import com.amazonaws.services.ecs.model.StartTaskResult;
+import com.atlassian.buildeng.ecs.exceptions.ECSException;
+import com.atlassian.buildeng.spi.isolated.docker.Configuration;
+import com.atlassian.buildeng.spi.isolated.docker.ContainerSizeDescriptor;
+import com.atlassian.event.api.EventPublisher;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Replays recorded cluster snapshots, one per scheduler polling cycle, through the production scale down.
+ * Every cycle {@link DefaultModelUpdater#scaleDown} with consolidation enabled decides which instances to drain.
+ * The decision is judged against the recorded following cycles: the upcoming demand of each of the next
+ * {@link #LOOKAHEAD_CYCLES} snapshots is submitted to a {@link CyclingECSScheduler} as regular sized agents while
+ * the drained instances take no tasks, a scale up means the cluster would have to grow again right away.
+ * The recorded usage is replayed as is, the simulation does not move tasks away from drained instances.
+ */
+class ScaleDownSimulation {
+    static final int LOOKAHEAD_CYCLES = 2;
+
+    static final class Snapshot {
+        final long upcomingMemory;
+        final long upcomingCpu;
+        final List<RecordedHost> hosts = new ArrayList<>();
+
+        Snapshot(long upcomingMemory, long upcomingCpu) {
+            this.upcomingMemory = upcomingMemory;
+            this.upcomingCpu = upcomingCpu;
+        }
+    }
+
+    static final class RecordedHost {
+        final String id;
+        final int registeredMemory;
+        final int registeredCpu;
+        final int remainingMemory;
+        final int remainingCpu;
+
+        RecordedHost(String id, int registeredMemory, int registeredCpu, int remainingMemory, int remainingCpu) {
+            this.id = id;
+            this.registeredMemory = registeredMemory;
+            this.registeredCpu = registeredCpu;
+            this.remainingMemory = remainingMemory;
+            this.remainingCpu = remainingCpu;
+        }
+    }
+
+    static final class Result {
+        // drain decisions followed by a scale up within the lookahead.
+        final int scaleUps;
+        // memory of all drained instances summed over the cycles.
+        final long reclaimedMemory;
+
+        Result(int scaleUps, long reclaimedMemory) {
+            this.scaleUps = scaleUps;
+            this.reclaimedMemory = reclaimedMemory;
+        }
+
+        @Override
+        public String toString() {
+            return "scaleUps=" + scaleUps + " reclaimedMemory=" + reclaimedMemory;
+        }
+    }
+
+    static List<Snapshot> load(InputStream snapshots) throws IOException {
+        List<Snapshot> toRet = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(snapshots, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(" ");
+                if (line.startsWith("snapshot ")) {
+                    toRet.add(new Snapshot(Long.parseLong(parts[1]), Long.parseLong(parts[2])));
+                } else if (line.startsWith("host ")) {
+                    toRet.get(toRet.size() - 1)
+                            .hosts
+                            .add(new RecordedHost(
+                                    parts[1],
+                                    Integer.parseInt(parts[2]),
+                                    Integer.parseInt(parts[3]),
+                                    Integer.parseInt(parts[4]),
+                                    Integer.parseInt(parts[5])));
+                }
+            }
+        }
+        return toRet;
+    }
+
+    static Result run(List<Snapshot> snapshots, ScaleDownPlanner planner) {
+        String previous = System.getProperty(Constants.PROPERTY_CONSOLIDATE_SCALE_DOWN);
+        System.setProperty(Constants.PROPERTY_CONSOLIDATE_SCALE_DOWN, "true");
+        try {
+            return replay(snapshots, planner);
+        } finally {
+            if (previous == null) {
+                System.clearProperty(Constants.PROPERTY_CONSOLIDATE_SCALE_DOWN);
+            } else {
+                System.setProperty(Constants.PROPERTY_CONSOLIDATE_SCALE_DOWN, previous);
+            }
+        }
+    }
+
+    private static Result replay(List<Snapshot> snapshots, ScaleDownPlanner planner) {
+        int scaleUps = 0;
+        long reclaimedMemory = 0;
+        for (int cycle = 0; cycle < snapshots.size(); cycle++) {
+            Snapshot snapshot = snapshots.get(cycle);
+            RecordingBackend backend = new RecordingBackend();
+            new DefaultModelUpdater(backend, mock(EventPublisher.class), planner)
+                    .scaleDown(
+                            hosts(snapshot, Collections.emptySet()),
+                            new ModelUpdater.State(snapshot.upcomingMemory, snapshot.upcomingCpu));
+            if (backend.drained.isEmpty()) {
+                continue;
+            }
+            reclaimedMemory += backend.drained.stream()
+                    .mapToLong((DockerHost t) -> t.getRegisteredMemory())
+                    .sum();
+            Set<String> drained =
+                    backend.drained.stream().map(DockerHost::getInstanceId).collect(Collectors.toSet());
+            for (int next = cycle + 1; next <= cycle + LOOKAHEAD_CYCLES && next < snapshots.size(); next++) {
+                if (scalesUp(snapshots.get(next), drained)) {
+                    scaleUps++;
+                    break;
+                }
+            }
+        }
+        return new Result(scaleUps, reclaimedMemory);
+    }
+
+    private static boolean scalesUp(Snapshot snapshot, Set<String> drained) {
+        RecordingBackend backend = new RecordingBackend();
+        ECSConfiguration configuration = new CyclingECSSchedulerQuickTest.TestECSConfigurationImpl();
+        CyclingECSScheduler scheduler = new CyclingECSScheduler(
+                backend,
+                configuration,
+                (String cluster, String asg) -> hosts(snapshot, drained),
+                new DefaultModelUpdater(backend, mock(EventPublisher.class), configuration),
+                new ReservationLedger(),
+                new DemandForecaster());
+        ContainerSizeDescriptor sizes = configuration.getSizeDescriptor();
+        int memory = sizes.getMemory(Configuration.ContainerSize.REGULAR);
+        int cpu = sizes.getCpu(Configuration.ContainerSize.REGULAR);
+        long agents = Math.max(
+                (snapshot.upcomingMemory + memory - 1) / memory, (snapshot.upcomingCpu + cpu - 1) / cpu);
+        if (agents == 0) {
+            return false;
+        }
+        for (int i = 0; i < agents; i++) {
+            scheduler.schedule(
+                    new SchedulingRequest(UUID.randomUUID(), "PROJ-PLAN-JOB-" + i, 1, cpu, memory, null, 0, null),
+                    new SchedulingCallback() {
+                        @Override
+                        public void handle(SchedulingResult result) {}
+
+                        @Override
+                        public void handle(ECSException exception) {}
+                    });
+        }
+        scheduler.processQueued();
+        return backend.scaledUp;
+    }
+
+    private static DockerHosts hosts(Snapshot snapshot, Set<String> drained) {
+        // mid billing cycle, the regular scale down leaves empty instances alone.
+        Date launchTime = new Date(System.currentTimeMillis() - Duration.ofMinutes(30).toMillis());
+        List<DockerHost> hosts = new ArrayList<>();
+        for (RecordedHost host : snapshot.hosts) {
+            hosts.add(new DockerHost(
+                    host.remainingMemory,
+                    host.remainingCpu,
+                    host.registeredMemory,
+                    host.registeredCpu,
+                    "arn:" + host.id,
+                    host.id,
+                    (drained.contains(host.id) ? ContainerInstanceStatus.DRAINING : ContainerInstanceStatus.ACTIVE)
+                            .toString(),
+                    launchTime,
+                    true,
+                    "m4.2xlarge"));
+        }
+        AutoScalingGroup asg = new AutoScalingGroup()
+                .withAutoScalingGroupName("asg")
+                .withMaxSize(50)
+                .withDesiredCapacity(hosts.size());
+        return new DockerHosts(hosts, AwsPullModelLoader.DEFAULT_STALE_PERIOD, asg, "cluster");
+    }
+
+    private static final class RecordingBackend implements SchedulerBackend {
+        private final List<DockerHost> drained = new ArrayList<>();
+        private boolean scaledUp;
+
+        @Override
+        public List<ContainerInstance> getClusterContainerInstances(String cluster) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public List<Instance> getInstances(Collection<String> instanceIds) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public void scaleTo(int desiredCapacity, String autoScalingGroup) {
+            scaledUp = true;
+        }
+
+        @Override
+        public void terminateAndDetachInstances(
+                List<DockerHost> dockerHosts, String autoScalingGroup, boolean decrementSize, String ecsClusterName) {}
+
+        @Override
+        public void terminateInstances(List<String> instanceIds) {}
+
+        @Override
+        public void drainInstances(List<DockerHost> hosts, String clusterName) {
+            drained.addAll(hosts);
+        }
+
+        @Override
+        public SchedulingResult schedule(
+                DockerHost dockerHost, String cluster, SchedulingRequest req, String taskDefinition) {
+            return new SchedulingResult(
+                    new StartTaskResult(), dockerHost.getContainerInstanceArn(), dockerHost.getInstanceId());
+        }
+
+        @Override
+        public AutoScalingGroup describeAutoScalingGroup(String autoScalingGroup) {
+            return null;
+        }
+
+        @Override
+        public Collection<ArnStoppedState> checkStoppedTasks(String cluster, List<String> taskArns) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public void suspendProcess(String autoScalingGroupName, String azRebalance) {}
+    }
+}
@@ -0,0 +1,368 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.ecs.scheduling;
+
+import static org.mockito.Mockito.mock;
+
+import com.amazonaws.services.autoscaling.model.AutoScalingGroup;
+import com.amazonaws.services.ec2.model.Instance;
+import com.amazonaws.services.ecs.model.ContainerInstance;
+import com.amazonaws.services.ecs.model.ContainerInstanceStatus;
+import com.amazonaws.services.ecs.model.StartTaskResult;
+import com.atlassian.buildeng.ecs.exceptions.ECSException;
+import com.atlassian.event.api.EventPublisher;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Replays a recorded build queue trace against a simulated cluster to compare scaling policies.
+ * All decisions are made by the production {@link CyclingECSScheduler} and {@link DefaultModelUpdater}, the
+ * simulation only plays ECS and the ASG. Every simulated minute finished tasks free capacity, arrived tasks join
+ * the queue and all queued tasks are submitted for one scheduling cycle, tasks that found no capacity are
+ * resubmitted with the same identifier the next minute like {@link DefaultSchedulingCallback} retries them.
+ * New instances take {@link DemandForecaster#LEAD_MINUTES} to register with the cluster.
+ */
+class ScalingSimulation {
+    static final int INSTANCE_CPU = 8192;
+    static final int INSTANCE_MEMORY = 32000;
+    static final int MAX_SIZE = 50;
+    private static final String ASG = "asg";
+    private static final long MINUTE_MILLIS = 60_000L;
+
+    static final class Task {
+        final int arrival;
+        final int cpu;
+        final int memory;
+        final int duration;
+
+        Task(int arrival, int cpu, int memory, int duration) {
+            this.arrival = arrival;
+            this.cpu = cpu;
+            this.memory = memory;
+            this.duration = duration;
+        }
+    }
+
+    static final class Result {
+        final long waitMinutes;
+        final int maxWaitMinutes;
+        final long instanceMinutes;
+        final long idleInstanceMinutes;
+
+        Result(long waitMinutes, int maxWaitMinutes, long instanceMinutes, long idleInstanceMinutes) {
+            this.waitMinutes = waitMinutes;
+            this.maxWaitMinutes = maxWaitMinutes;
+            this.instanceMinutes = instanceMinutes;
+            this.idleInstanceMinutes = idleInstanceMinutes;
+        }
+
+        @Override
+        public String toString() {
+            return "wait=" + waitMinutes + "min maxWait=" + maxWaitMinutes + "min instances=" + instanceMinutes
+                    + "min idle=" + idleInstanceMinutes + "min";
+        }
+    }
+
+    static List<Task> load(InputStream trace) throws IOException {
+        List<Task> tasks = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(trace, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.split(" ");
+                tasks.add(new Task(
+                        Integer.parseInt(parts[0]),
+                        Integer.parseInt(parts[1]),
+                        Integer.parseInt(parts[2]),
+                        Integer.parseInt(parts[3])));
+            }
+        }
+        return tasks;
+    }
+
+    static Result run(List<Task> tasks, boolean predictive) {
+        String previous = System.getProperty(Constants.PROPERTY_PREDICTIVE_SCALING);
+        System.setProperty(Constants.PROPERTY_PREDICTIVE_SCALING, Boolean.toString(predictive));
+        try {
+            return new SimulatedCluster().replay(tasks);
+        } finally {
+            if (previous == null) {
+                System.clearProperty(Constants.PROPERTY_PREDICTIVE_SCALING);
+            } else {
+                System.setProperty(Constants.PROPERTY_PREDICTIVE_SCALING, previous);
+            }
+        }
+    }
+
+    private static final class SimulatedInstance {
+        final String id;
+        final int launchedAt;
+        int freeCpu = INSTANCE_CPU;
+        int freeMemory = INSTANCE_MEMORY;
+        boolean draining;
+        final List<int[]> running = new ArrayList<>();
+
+        SimulatedInstance(String id, int launchedAt) {
+            this.id = id;
+            this.launchedAt = launchedAt;
+        }
+
+        boolean registered(int minute) {
+            return launchedAt + DemandForecaster.LEAD_MINUTES <= minute;
+        }
+    }
+
+    private static final class QueuedTask {
+        final Task task;
+        final UUID identifier = UUID.randomUUID();
+        boolean scheduled;
+
+        QueuedTask(Task task) {
+            this.task = task;
+        }
+    }
+
+    /**
+     * ECS cluster and its ASG, launched instances register after the lead time, terminated ones disappear at once.
+     */
+    private static final class SimulatedCluster implements SchedulerBackend, ModelLoader {
+        private final AtomicLong clock = new AtomicLong();
+        private final List<SimulatedInstance> instances = new ArrayList<>();
+        private final Map<UUID, QueuedTask> submitted = new HashMap<>();
+        private int desiredCapacity = 1;
+        private int launched;
+        private int minute;
+        private int maxWait;
+
+        Result replay(List<Task> tasks) {
+            ECSConfiguration configuration = new CyclingECSSchedulerQuickTest.TestECSConfigurationImpl();
+            CyclingECSScheduler scheduler = new CyclingECSScheduler(
+                    this,
+                    configuration,
+                    this,
+                    new DefaultModelUpdater(this, mock(EventPublisher.class), configuration),
+                    new ReservationLedger(),
+                    new DemandForecaster(clock::get, ZoneOffset.UTC));
+            // start with one registered instance.
+            instances.add(new SimulatedInstance("i-" + launched++, -DemandForecaster.LEAD_MINUTES));
+            List<QueuedTask> queue = new ArrayList<>();
+            int next = 0;
+            int end = tasks.get(tasks.size() - 1).arrival + 60;
+            int lastCycle = 0;
+            long waitMinutes = 0;
+            long instanceMinutes = 0;
+            long idleMinutes = 0;
+            for (minute = 0; minute < end; minute++) {
+                clock.set(minute * MINUTE_MILLIS);
+                finishTasks();
+                while (next < tasks.size() && tasks.get(next).arrival == minute) {
+                    queue.add(new QueuedTask(tasks.get(next++)));
+                }
+                if (!queue.isEmpty()) {
+                    for (QueuedTask queued : queue) {
+                        submitted.put(queued.identifier, queued);
+                        scheduler.schedule(request(queued), callback(queued));
+                    }
+                    scheduler.processQueued();
+                    queue.removeIf((QueuedTask t) -> t.scheduled);
+                    lastCycle = minute;
+                } else if (minute - lastCycle >= Constants.POLLING_INTERVAL) {
+                    // the polling thread checks scale down when no request arrives within the interval.
+                    scheduler.processQueued();
+                    lastCycle = minute;
+                }
+                waitMinutes += queue.size();
+                for (SimulatedInstance instance : instances) {
+                    instanceMinutes++;
+                    if (!instance.registered(minute) || instance.running.isEmpty()) {
+                        idleMinutes++;
+                    }
+                }
+            }
+            return new Result(waitMinutes, maxWait, instanceMinutes, idleMinutes);
+        }
+
+        private void finishTasks() {
+            for (SimulatedInstance instance : instances) {
+                Iterator<int[]> it = instance.running.iterator();
+                while (it.hasNext()) {
+                    int[] task = it.next();
+                    if (task[0] <= minute) {
+                        instance.freeCpu += task[1];
+                        instance.freeMemory += task[2];
+                        it.remove();
+                    }
+                }
+            }
+        }
+
+        private SchedulingRequest request(QueuedTask queued) {
+            return new SchedulingRequest(
+                    queued.identifier,
+                    "PROJ-PLAN-JOB-" + queued.task.arrival,
+                    1,
+                    queued.task.cpu,
+                    queued.task.memory,
+                    null,
+                    queued.task.arrival * MINUTE_MILLIS,
+                    null);
+        }
+
+        private SchedulingCallback callback(QueuedTask queued) {
+            return new SchedulingCallback() {
+                @Override
+                public void handle(SchedulingResult result) {
+                    queued.scheduled = true;
+                    maxWait = Math.max(maxWait, minute - queued.task.arrival);
+                }
+
+                @Override
+                public void handle(ECSException exception) {
+                    // stays queued and is retried the next minute.
+                }
+            };
+        }
+
+        private SimulatedInstance find(String instanceId) {
+            return instances.stream()
+                    .filter((SimulatedInstance t) -> t.id.equals(instanceId))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException("Unknown instance " + instanceId));
+        }
+
+        // the ASG launches instances until it reaches the desired capacity.
+        private void reconcile() {
+            while (instances.size() < desiredCapacity) {
+                instances.add(new SimulatedInstance("i-" + launched++, minute));
+            }
+        }
+
+        private AutoScalingGroup asg() {
+            return new AutoScalingGroup()
+                    .withAutoScalingGroupName(ASG)
+                    .withMaxSize(MAX_SIZE)
+                    .withDesiredCapacity(desiredCapacity);
+        }
+
+        @Override
+        public DockerHosts load(String clusterName, String asgName) {
+            long now = System.currentTimeMillis();
+            List<DockerHost> hosts = new ArrayList<>();
+            for (SimulatedInstance instance : instances) {
+                if (instance.registered(minute)) {
+                    hosts.add(new DockerHost(
+                            instance.freeMemory,
+                            instance.freeCpu,
+                            INSTANCE_MEMORY,
+                            INSTANCE_CPU,
+                            "arn:" + instance.id,
+                            instance.id,
+                            (instance.draining ? ContainerInstanceStatus.DRAINING : ContainerInstanceStatus.ACTIVE)
+                                    .toString(),
+                            // billing cycles are derived from the wall clock age.
+                            new Date(now - (minute - instance.launchedAt) * MINUTE_MILLIS),
+                            true,
+                            "m4.2xlarge"));
+                }
+            }
+            return new DockerHosts(hosts, AwsPullModelLoader.DEFAULT_STALE_PERIOD, asg(), clusterName);
+        }
+
+        @Override
+        public List<ContainerInstance> getClusterContainerInstances(String cluster) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public List<Instance> getInstances(Collection<String> instanceIds) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public void scaleTo(int desiredCapacity, String autoScalingGroup) {
+            this.desiredCapacity = desiredCapacity;
+            reconcile();
+        }
+
+        @Override
+        public void terminateAndDetachInstances(
+                List<DockerHost> dockerHosts, String autoScalingGroup, boolean decrementSize, String ecsClusterName) {
+            for (DockerHost host : dockerHosts) {
+                instances.remove(find(host.getInstanceId()));
+                if (decrementSize) {
+                    desiredCapacity--;
+                }
+            }
+            reconcile();
+        }
+
+        @Override
+        public void terminateInstances(List<String> instanceIds) {
+            for (String instanceId : instanceIds) {
+                instances.remove(find(instanceId));
+            }
+            reconcile();
+        }
+
+        @Override
+        public void drainInstances(List<DockerHost> hosts, String clusterName) {
+            for (DockerHost host : hosts) {
+                find(host.getInstanceId()).draining = true;
+            }
+        }
+
+        @Override
+        public SchedulingResult schedule(
+                DockerHost dockerHost, String cluster, SchedulingRequest req, String taskDefinition) {
+            SimulatedInstance instance = find(dockerHost.getInstanceId());
+            Task task = submitted.remove(req.getIdentifier()).task;
+            instance.freeCpu -= req.getCpu();
+            instance.freeMemory -= req.getMemory();
+            instance.running.add(new int[] {minute + task.duration, req.getCpu(), req.getMemory()});
+            return new SchedulingResult(new StartTaskResult(), "task:" + req.getIdentifier(), instance.id);
+        }
+
+        @Override
+        public AutoScalingGroup describeAutoScalingGroup(String autoScalingGroup) {
+            return asg();
+        }
+
+        @Override
+        public Collection<ArnStoppedState> checkStoppedTasks(String cluster, List<String> taskArns) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public void suspendProcess(String autoScalingGroupName, String azRebalance) {}
+    }
+}
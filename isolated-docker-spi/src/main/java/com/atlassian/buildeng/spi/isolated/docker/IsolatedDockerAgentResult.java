@@ -17,6 +17,7 @@
 package com.atlassian.buildeng.spi.isolated.docker;
 
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -26,6 +27,9 @@ public class IsolatedDockerAgentResult {
     private List<String> errors = new ArrayList<>();
     private Map<String, String> customData = new HashMap<>();
     private boolean retryRecoverable = false;
+    private RetryReason retryReason = RetryReason.UNKNOWN;
+    private int retryAfterSeconds = 0;
+    private Map<StartupPhase, Long> phaseDurations = new EnumMap<>(StartupPhase.class);
 
     public IsolatedDockerAgentResult() {}
 
@@ -39,12 +43,40 @@ public class IsolatedDockerAgentResult {
         return this;
     }
 
+    /**
+     * Report how long a startup phase handled by the backend took.
+     *
+     * @param phase phase of agent startup
+     * @param millis duration in milliseconds
+     * @return this
+     */
+    public IsolatedDockerAgentResult withPhaseDuration(StartupPhase phase, long millis) {
+        phaseDurations.put(phase, millis);
+        return this;
+    }
+
     public IsolatedDockerAgentResult withRetryRecoverable(String errorMessage) {
+        return withRetryRecoverable(errorMessage, RetryReason.UNKNOWN);
+    }
+
+    public IsolatedDockerAgentResult withRetryRecoverable(String errorMessage, RetryReason reason) {
         retryRecoverable = true;
+        retryReason = reason;
         withError(errorMessage);
         return this;
     }
 
+    /**
+     * Report how long the backend asked us to wait before retrying, eg. the Retry-After of a throttled request.
+     *
+     * @param seconds minimal delay before the retry
+     * @return this
+     */
+    public IsolatedDockerAgentResult withRetryAfter(int seconds) {
+        retryAfterSeconds = seconds;
+        return this;
+    }
+
     public boolean hasErrors() {
         return !errors.isEmpty();
     }
@@ -57,6 +89,10 @@ public class IsolatedDockerAgentResult {
         return customData;
     }
 
+    public Map<StartupPhase, Long> getPhaseDurations() {
+        return phaseDurations;
+    }
+
     /**
      * when the request fails, but the state of the docker cloud suggests that
      * later retry might succeed. Eg. when the docker containers are in process
@@ -67,4 +103,23 @@ public class IsolatedDockerAgentResult {
     public boolean isRetryRecoverable() {
         return retryRecoverable;
     }
+
+    /**
+     * classification of the recoverable failure, only meaningful when {@link #isRetryRecoverable()} is true.
+     *
+     * @return reason for the retry
+     */
+    public RetryReason getRetryReason() {
+        return retryReason;
+    }
+
+    /**
+     * minimal delay before retrying requested by the backend, only meaningful when {@link #isRetryRecoverable()}
+     * is true.
+     *
+     * @return delay in seconds, 0 when the backend did not ask for any
+     */
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
 }
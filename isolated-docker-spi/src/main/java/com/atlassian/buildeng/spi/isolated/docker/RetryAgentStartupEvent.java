@@ -32,13 +32,36 @@ public final class RetryAgentStartupEvent {
     private final CommonContext context;
     private final Configuration configuration;
     private final UUID uniqueIdentifier;
+    private final RetryReason retryReason;
+    private final int retryAfterSeconds;
 
-    public RetryAgentStartupEvent(
-            Configuration configuration, CommonContext context, int retryCount, UUID existingUuid) {
+    private RetryAgentStartupEvent(
+            Configuration configuration,
+            CommonContext context,
+            int retryCount,
+            UUID existingUuid,
+            RetryReason retryReason,
+            int retryAfterSeconds) {
         this.configuration = configuration;
         this.context = context;
         this.retryCount = retryCount;
         this.uniqueIdentifier = existingUuid;
+        this.retryReason = retryReason;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public RetryAgentStartupEvent(
+            Configuration configuration,
+            CommonContext context,
+            int retryCount,
+            UUID existingUuid,
+            RetryReason retryReason) {
+        this(configuration, context, retryCount, existingUuid, retryReason, 0);
+    }
+
+    public RetryAgentStartupEvent(
+            Configuration configuration, CommonContext context, int retryCount, UUID existingUuid) {
+        this(configuration, context, retryCount, existingUuid, RetryReason.UNKNOWN);
     }
 
     public RetryAgentStartupEvent(Configuration configuration, CommonContext context) {
@@ -46,11 +69,37 @@ public final class RetryAgentStartupEvent {
     }
 
     public RetryAgentStartupEvent(RetryAgentStartupEvent previousEvent) {
+        this(previousEvent, RetryReason.UNKNOWN);
+    }
+
+    public RetryAgentStartupEvent(RetryAgentStartupEvent previousEvent, RetryReason retryReason) {
         this(
                 previousEvent.getConfiguration(),
                 previousEvent.getContext(),
                 previousEvent.getRetryCount() + 1,
-                previousEvent.uniqueIdentifier);
+                previousEvent.uniqueIdentifier,
+                retryReason);
+    }
+
+    /**
+     * Copy of this event with the same retry count and identifier but different retry reason.
+     * Used when the startup is postponed for reasons that should not count against the retry limit.
+     *
+     * @param reason why the startup is postponed
+     * @return new event instance
+     */
+    public RetryAgentStartupEvent withRetryReason(RetryReason reason) {
+        return new RetryAgentStartupEvent(configuration, context, retryCount, uniqueIdentifier, reason);
+    }
+
+    /**
+     * Copy of this event that should not be retried sooner than the backend asked for.
+     *
+     * @param seconds minimal delay requested by the backend, 0 if none
+     * @return new event instance
+     */
+    public RetryAgentStartupEvent withRetryAfter(int seconds) {
+        return new RetryAgentStartupEvent(configuration, context, retryCount, uniqueIdentifier, retryReason, seconds);
     }
 
     public int getRetryCount() {
@@ -68,4 +117,17 @@ public final class RetryAgentStartupEvent {
     public UUID getUniqueIdentifier() {
         return uniqueIdentifier;
     }
+
+    public RetryReason getRetryReason() {
+        return retryReason;
+    }
+
+    /**
+     * minimal delay before the retry requested by the backend.
+     *
+     * @return delay in seconds, 0 when the backend did not ask for any
+     */
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
 }
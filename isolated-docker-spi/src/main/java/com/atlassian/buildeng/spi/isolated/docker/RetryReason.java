@@ -0,0 +1,50 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.spi.isolated.docker;
+
+/**
+ * Coarse classification of why an agent startup attempt has to be retried.
+ * Backends report it with recoverable results so that the rescheduler can pick
+ * a retry delay that fits the kind of failure.
+ */
+public enum RetryReason {
+    /**
+     * cluster is out of capacity, eg. pod-limit quota exceeded or no ECS instance with enough resources.
+     */
+    QUOTA,
+    /**
+     * concurrent modification of a shared resource, typically clears up within seconds.
+     */
+    CONFLICT,
+    /**
+     * backend API could not be reached or timed out.
+     */
+    UNREACHABLE,
+    /**
+     * request was rate limited, either by the backend API or by PBC's own agent creation limits.
+     */
+    THROTTLED,
+    /**
+     * Bamboo remote agent license limit was reached.
+     */
+    LICENSE_LIMIT,
+    /**
+     * the agent was started but failed before registering and needs to be recreated.
+     */
+    POD_FAILED,
+    UNKNOWN
+}
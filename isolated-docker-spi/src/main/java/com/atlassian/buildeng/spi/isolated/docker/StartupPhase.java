@@ -0,0 +1,65 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.spi.isolated.docker;
+
+/**
+ * Phases of PBC agent startup, from the job being queued to the agent registering with Bamboo server.
+ */
+public enum StartupPhase {
+    /**
+     * waiting on PBC agent creation limits.
+     */
+    THROTTLED("throttled"),
+    /**
+     * waiting in the rescheduler for another attempt.
+     */
+    WAITING("waiting"),
+    /**
+     * backend generating the agent definition, eg. pod spec.
+     */
+    SPEC_GENERATION("specGeneration"),
+    /**
+     * backend call creating the agent, eg. kubectl create or ECS startTask.
+     */
+    BACKEND_CREATE("backendCreate"),
+    /**
+     * from the backend accepting the request to the agent container starting, mostly image pulls.
+     */
+    IMAGE_PULL("imagePull"),
+    /**
+     * agent container waiting for extra containers to start.
+     */
+    SIDECAR_WAIT("sidecarWait"),
+    /**
+     * agent JVM starting and registering with the server.
+     */
+    REGISTRATION("registration"),
+    /**
+     * the whole startup, from being queued to agent registration.
+     */
+    TOTAL("total");
+
+    private final String key;
+
+    StartupPhase(String key) {
+        this.key = key;
+    }
+
+    public String getKey() {
+        return key;
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.spi.isolated.docker;
+
+import java.util.Map;
+
+/**
+ * Stamps agent startup phases on the custom build data of a job or deployment result.
+ * A phase that is in progress has its start timestamp stored, the accumulated duration
+ * of all finished occurrences of the phase is stored separately, in milliseconds.
+ */
+public final class StartupTrace {
+    public static final String PREFIX = "custom.isolated.docker.trace.";
+    private static final String START_SUFFIX = ".start";
+
+    private StartupTrace() {}
+
+    /**
+     * Mark the start of the phase unless it's already in progress.
+     *
+     * @param data custom build data of the result
+     * @param phase phase to start
+     * @param now current time in milliseconds
+     */
+    public static void begin(Map<String, String> data, StartupPhase phase, long now) {
+        data.putIfAbsent(startKey(phase), Long.toString(now));
+    }
+
+    /**
+     * Mark the end of the phase and add its duration to the accumulated one.
+     *
+     * @param data custom build data of the result
+     * @param phase phase to end
+     * @param now current time in milliseconds
+     * @return duration of the phase or -1 when the phase was not in progress
+     */
+    public static long end(Map<String, String> data, StartupPhase phase, long now) {
+        String start = data.remove(startKey(phase));
+        if (start == null) {
+            return -1;
+        }
+        long elapsed = Math.max(0, now - Long.parseLong(start));
+        add(data, phase, elapsed);
+        return elapsed;
+    }
+
+    /**
+     * Forget the start of the phase in progress without accounting its duration.
+     *
+     * @param data custom build data of the result
+     * @param phase phase in progress
+     */
+    public static void discard(Map<String, String> data, StartupPhase phase) {
+        data.remove(startKey(phase));
+    }
+
+    /**
+     * Add duration measured elsewhere, eg. by the backend, to the phase.
+     *
+     * @param data custom build data of the result
+     * @param phase phase to add to
+     * @param millis duration of the phase
+     */
+    public static void add(Map<String, String> data, StartupPhase phase, long millis) {
+        long current = getDuration(data, phase);
+        data.put(PREFIX + phase.getKey(), Long.toString(Math.max(current, 0) + millis));
+    }
+
+    /**
+     * Start time of phase in progress.
+     *
+     * @param data custom build data of the result
+     * @param phase phase
+     * @return start timestamp or -1 when the phase is not in progress
+     */
+    public static long getStart(Map<String, String> data, StartupPhase phase) {
+        String start = data.get(startKey(phase));
+        return start != null ? Long.parseLong(start) : -1;
+    }
+
+    /**
+     * Accumulated duration of the phase.
+     *
+     * @param data custom build data of the result
+     * @param phase phase
+     * @return duration in milliseconds or -1 when the phase never finished
+     */
+    public static long getDuration(Map<String, String> data, StartupPhase phase) {
+        String value = data.get(PREFIX + phase.getKey());
+        return value != null ? Long.parseLong(value) : -1;
+    }
+
+    /**
+     * Remove all trace data, eg. when a job is rerun.
+     *
+     * @param data custom build data of the result
+     */
+    public static void clear(Map<String, String> data) {
+        data.keySet().removeIf((String key) -> key.startsWith(PREFIX));
+    }
+
+    private static String startKey(StartupPhase phase) {
+        return PREFIX + phase.getKey() + START_SUFFIX;
+    }
+}
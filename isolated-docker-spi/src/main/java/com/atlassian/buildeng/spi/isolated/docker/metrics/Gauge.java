@@ -0,0 +1,39 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.spi.isolated.docker.metrics;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Value sampled on every read. Registering the same gauge again replaces the supplier, so a component that is
+ * recreated, eg. on plugin restart, does not keep the old instance alive.
+ */
+public final class Gauge {
+    private volatile LongSupplier supplier;
+
+    Gauge(LongSupplier supplier) {
+        this.supplier = supplier;
+    }
+
+    void setSupplier(LongSupplier supplier) {
+        this.supplier = supplier;
+    }
+
+    public long getValue() {
+        return supplier.getAsLong();
+    }
+}
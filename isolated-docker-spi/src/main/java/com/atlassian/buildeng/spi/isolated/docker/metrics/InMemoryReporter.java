@@ -0,0 +1,70 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.spi.isolated.docker.metrics;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the latest reported value of every metric in memory, meant for tests and diagnostics.
+ */
+public final class InMemoryReporter implements MetricsReporter {
+    private final Map<MetricName, MetricSnapshot> latest = new ConcurrentHashMap<>();
+    private final AtomicLong reports = new AtomicLong();
+
+    @Override
+    public void report(List<MetricSnapshot> snapshots) {
+        for (MetricSnapshot snapshot : snapshots) {
+            latest.put(snapshot.getName(), snapshot);
+        }
+        reports.incrementAndGet();
+    }
+
+    /**
+     * Latest reported value of the metric.
+     *
+     * @param name name of the metric
+     * @param tags alternating tag keys and values
+     * @return snapshot or null if the metric was never reported
+     */
+    public MetricSnapshot get(String name, String... tags) {
+        return latest.get(MetricName.of(name, tags));
+    }
+
+    /**
+     * Latest reported counter or gauge value, number of recorded values of histograms and timers.
+     *
+     * @param name name of the metric
+     * @param tags alternating tag keys and values
+     * @return value or 0 if the metric was never reported
+     */
+    public long getValue(String name, String... tags) {
+        MetricSnapshot snapshot = get(name, tags);
+        return snapshot != null ? snapshot.getValue() : 0;
+    }
+
+    public Map<MetricName, MetricSnapshot> getLatest() {
+        return Collections.unmodifiableMap(latest);
+    }
+
+    public long getReportCount() {
+        return reports.get();
+    }
+}
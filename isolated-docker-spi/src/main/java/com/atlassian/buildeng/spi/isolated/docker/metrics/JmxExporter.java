@@ -0,0 +1,268 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.spi.isolated.docker.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.MBeanRegistrationException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.NotCompliantMBeanException;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registers every metric of a registry as an MBean named [domain]:type=[type],name=[name],[tag]=[value]...
+ * Metrics added after {@link #start()} are registered as they appear.
+ */
+public final class JmxExporter implements MetricsRegistry.Listener {
+    private static final Logger logger = LoggerFactory.getLogger(JmxExporter.class);
+    private static final double NANOS_PER_MILLI = 1_000_000d;
+
+    private final MetricsRegistry registry;
+    private final String domain;
+    private final MBeanServer server;
+    private final Map<MetricName, ObjectName> registered = new ConcurrentHashMap<>();
+
+    public JmxExporter(MetricsRegistry registry, String domain) {
+        this(registry, domain, ManagementFactory.getPlatformMBeanServer());
+    }
+
+    JmxExporter(MetricsRegistry registry, String domain, MBeanServer server) {
+        this.registry = registry;
+        this.domain = domain;
+        this.server = server;
+    }
+
+    public void start() {
+        registry.addListener(this);
+    }
+
+    /**
+     * Stop listening to the registry and unregister all MBeans.
+     */
+    public void stop() {
+        registry.removeListener(this);
+        registered.keySet().forEach(this::removed);
+    }
+
+    @Override
+    public void added(MetricName name, Object metric) {
+        if (registered.containsKey(name)) {
+            return;
+        }
+        try {
+            ObjectName objectName = objectName(name, metric);
+            server.registerMBean(mbean(metric), objectName);
+            registered.put(name, objectName);
+        } catch (MalformedObjectNameException
+                | InstanceAlreadyExistsException
+                | MBeanRegistrationException
+                | NotCompliantMBeanException e) {
+            logger.error("Failed to register mbean for {}: {}", name, e.getMessage());
+        }
+    }
+
+    @Override
+    public void removed(MetricName name) {
+        ObjectName objectName = registered.remove(name);
+        if (objectName != null) {
+            try {
+                server.unregisterMBean(objectName);
+            } catch (InstanceNotFoundException | MBeanRegistrationException e) {
+                logger.error("Failed to unregister mbean {}: {}", objectName, e.getMessage());
+            }
+        }
+    }
+
+    ObjectName objectName(MetricName name, Object metric) throws MalformedObjectNameException {
+        StringBuilder sb = new StringBuilder(domain)
+                .append(":type=")
+                .append(metric.getClass().getSimpleName())
+                .append(",name=")
+                .append(name.getName());
+        name.getTags().forEach((String key, String value) -> sb.append(',')
+                .append(key)
+                .append('=')
+                .append(ObjectName.quote(value)));
+        return new ObjectName(sb.toString());
+    }
+
+    private static StandardMBean mbean(Object metric) throws NotCompliantMBeanException {
+        if (metric instanceof Counter) {
+            Counter counter = (Counter) metric;
+            return new StandardMBean((CounterMBean) counter::getCount, CounterMBean.class);
+        }
+        if (metric instanceof Gauge) {
+            Gauge gauge = (Gauge) metric;
+            return new StandardMBean((GaugeMBean) gauge::getValue, GaugeMBean.class);
+        }
+        if (metric instanceof Timer) {
+            Timer timer = (Timer) metric;
+            return new StandardMBean(new TimerView(timer), TimerMBean.class);
+        }
+        return new StandardMBean(new HistogramView((Histogram) metric), HistogramMBean.class);
+    }
+
+    public interface CounterMBean {
+        long getCount();
+    }
+
+    public interface GaugeMBean {
+        long getValue();
+    }
+
+    public interface HistogramMBean {
+        long getCount();
+
+        long getMin();
+
+        long getMax();
+
+        double getMean();
+
+        long get50thPercentile();
+
+        long get90thPercentile();
+
+        long get99thPercentile();
+
+        long get999thPercentile();
+    }
+
+    /**
+     * Timer durations in milliseconds.
+     */
+    public interface TimerMBean {
+        long getCount();
+
+        double getMinMillis();
+
+        double getMaxMillis();
+
+        double getMeanMillis();
+
+        double get50thPercentileMillis();
+
+        double get90thPercentileMillis();
+
+        double get99thPercentileMillis();
+
+        double get999thPercentileMillis();
+    }
+
+    private static final class HistogramView implements HistogramMBean {
+        private final Histogram histogram;
+
+        HistogramView(Histogram histogram) {
+            this.histogram = histogram;
+        }
+
+        @Override
+        public long getCount() {
+            return histogram.getCount();
+        }
+
+        @Override
+        public long getMin() {
+            return histogram.snapshot().getMin();
+        }
+
+        @Override
+        public long getMax() {
+            return histogram.snapshot().getMax();
+        }
+
+        @Override
+        public double getMean() {
+            return histogram.snapshot().getMean();
+        }
+
+        @Override
+        public long get50thPercentile() {
+            return histogram.snapshot().getValueAtQuantile(0.5);
+        }
+
+        @Override
+        public long get90thPercentile() {
+            return histogram.snapshot().getValueAtQuantile(0.9);
+        }
+
+        @Override
+        public long get99thPercentile() {
+            return histogram.snapshot().getValueAtQuantile(0.99);
+        }
+
+        @Override
+        public long get999thPercentile() {
+            return histogram.snapshot().getValueAtQuantile(0.999);
+        }
+    }
+
+    private static final class TimerView implements TimerMBean {
+        private final Timer timer;
+
+        TimerView(Timer timer) {
+            this.timer = timer;
+        }
+
+        @Override
+        public long getCount() {
+            return timer.getCount();
+        }
+
+        @Override
+        public double getMinMillis() {
+            return timer.snapshot().getMin() / NANOS_PER_MILLI;
+        }
+
+        @Override
+        public double getMaxMillis() {
+            return timer.snapshot().getMax() / NANOS_PER_MILLI;
+        }
+
+        @Override
+        public double getMeanMillis() {
+            return timer.snapshot().getMean() / NANOS_PER_MILLI;
+        }
+
+        @Override
+        public double get50thPercentileMillis() {
+            return timer.snapshot().getValueAtQuantile(0.5) / NANOS_PER_MILLI;
+        }
+
+        @Override
+        public double get90thPercentileMillis() {
+            return timer.snapshot().getValueAtQuantile(0.9) / NANOS_PER_MILLI;
+        }
+
+        @Override
+        public double get99thPercentileMillis() {
+            return timer.snapshot().getValueAtQuantile(0.99) / NANOS_PER_MILLI;
+        }
+
+        @Override
+        public double get999thPercentileMillis() {
+            return timer.snapshot().getValueAtQuantile(0.999) / NANOS_PER_MILLI;
+        }
+    }
+}
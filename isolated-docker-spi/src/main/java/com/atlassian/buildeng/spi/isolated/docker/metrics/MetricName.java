@@ -0,0 +1,113 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.spi.isolated.docker.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Name of a metric together with its tags. Names and tag keys follow the Prometheus naming rules so that
+ * every metric can be exported without mangling.
+ */
+public final class MetricName implements Comparable<MetricName> {
+    private static final Pattern NAME = Pattern.compile("[a-zA-Z_:][a-zA-Z0-9_:]*");
+    private static final Pattern TAG_KEY = Pattern.compile("[a-zA-Z_][a-zA-Z0-9_]*");
+    // used as ObjectName keys by the JMX exporter or as labels by the Prometheus exporter.
+    private static final String[] RESERVED_TAGS = {"name", "type", "quantile", "le"};
+
+    private final String name;
+    private final SortedMap<String, String> tags;
+
+    private MetricName(String name, SortedMap<String, String> tags) {
+        this.name = name;
+        this.tags = Collections.unmodifiableSortedMap(tags);
+    }
+
+    /**
+     * Create metric name.
+     *
+     * @param name name of the metric
+     * @param tags alternating tag keys and values
+     * @return the metric name
+     * @throws IllegalArgumentException when the name or a tag key is not valid or a tag has no value
+     */
+    public static MetricName of(String name, String... tags) {
+        if (name == null || !NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("Invalid metric name: " + name);
+        }
+        if (tags.length % 2 != 0) {
+            throw new IllegalArgumentException("Tags of " + name + " must be key value pairs");
+        }
+        SortedMap<String, String> map = new TreeMap<>();
+        for (int i = 0; i < tags.length; i += 2) {
+            String key = tags[i];
+            if (key == null || !TAG_KEY.matcher(key).matches()) {
+                throw new IllegalArgumentException("Invalid tag key of " + name + ": " + key);
+            }
+            for (String reserved : RESERVED_TAGS) {
+                if (reserved.equals(key)) {
+                    throw new IllegalArgumentException("Tag key " + key + " of " + name + " is reserved");
+                }
+            }
+            map.put(key, Objects.toString(tags[i + 1], ""));
+        }
+        return new MetricName(name, map);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Map<String, String> getTags() {
+        return tags;
+    }
+
+    @Override
+    public int compareTo(MetricName o) {
+        int result = name.compareTo(o.name);
+        if (result != 0) {
+            return result;
+        }
+        return tags.toString().compareTo(o.tags.toString());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        MetricName that = (MetricName) o;
+        return name.equals(that.name) && tags.equals(that.tags);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, tags);
+    }
+
+    @Override
+    public String toString() {
+        return tags.isEmpty() ? name : name + tags;
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.spi.isolated.docker.metrics;
+
+/**
+ * Value of a single metric at the time the registry was reported.
+ */
+public final class MetricSnapshot {
+
+    public enum Type {
+        COUNTER,
+        GAUGE,
+        HISTOGRAM,
+        /**
+         * Histogram of durations in nanoseconds.
+         */
+        TIMER
+    }
+
+    private final MetricName name;
+    private final Type type;
+    private final long value;
+    private final Histogram.Snapshot histogram;
+
+    MetricSnapshot(MetricName name, Type type, long value, Histogram.Snapshot histogram) {
+        this.name = name;
+        this.type = type;
+        this.value = value;
+        this.histogram = histogram;
+    }
+
+    public MetricName getName() {
+        return name;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Value of a counter or gauge, number of recorded values of a histogram or timer.
+     */
+    public long getValue() {
+        return value;
+    }
+
+    /**
+     * Recorded values of a histogram or timer.
+     *
+     * @return histogram snapshot or null for counters and gauges
+     */
+    public Histogram.Snapshot getHistogram() {
+        return histogram;
+    }
+}
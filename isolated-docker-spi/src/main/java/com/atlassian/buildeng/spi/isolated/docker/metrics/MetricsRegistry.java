@@ -0,0 +1,165 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.spi.isolated.docker.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Registry of counters, gauges, histograms and timers shared by all PBC modules. Plugins and the ECS scheduler
+ * service use {@link #global()}, tests create their own instance and read it through {@link InMemoryReporter}.
+ * Metrics are created on first use and live as long as the registry, exporters are attached via
+ * {@link #report(MetricsReporter)} for pull style exports or a {@link Listener} for per metric registration.
+ */
+public final class MetricsRegistry {
+    private static final MetricsRegistry GLOBAL = new MetricsRegistry();
+
+    private final ConcurrentMap<MetricName, Object> metrics = new ConcurrentHashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    public MetricsRegistry() {}
+
+    /**
+     * Registry shared by all components of the JVM.
+     */
+    public static MetricsRegistry global() {
+        return GLOBAL;
+    }
+
+    public Counter counter(String name, String... tags) {
+        return getOrCreate(MetricName.of(name, tags), Counter.class, Counter::new);
+    }
+
+    public Histogram histogram(String name, String... tags) {
+        return getOrCreate(MetricName.of(name, tags), Histogram.class, Histogram::new);
+    }
+
+    public Timer timer(String name, String... tags) {
+        return getOrCreate(MetricName.of(name, tags), Timer.class, Timer::new);
+    }
+
+    /**
+     * Register gauge or replace the value supplier of an existing one.
+     *
+     * @param name name of the gauge
+     * @param value supplier called on every read
+     * @param tags alternating tag keys and values
+     * @return the gauge
+     */
+    public Gauge gauge(String name, LongSupplier value, String... tags) {
+        Gauge gauge = getOrCreate(MetricName.of(name, tags), Gauge.class, () -> new Gauge(value));
+        gauge.setSupplier(value);
+        return gauge;
+    }
+
+    /**
+     * Remove metric, eg. a gauge whose source went away.
+     *
+     * @param name name of the metric
+     */
+    public void remove(MetricName name) {
+        if (metrics.remove(name) != null) {
+            listeners.forEach((Listener l) -> l.removed(name));
+        }
+    }
+
+    /**
+     * Snapshot all metrics.
+     *
+     * @return snapshots ordered by name and tags
+     */
+    public List<MetricSnapshot> snapshot() {
+        List<MetricSnapshot> toRet = new ArrayList<>(metrics.size());
+        for (Map.Entry<MetricName, Object> entry : metrics.entrySet()) {
+            toRet.add(snapshot(entry.getKey(), entry.getValue()));
+        }
+        toRet.sort((MetricSnapshot a, MetricSnapshot b) -> a.getName().compareTo(b.getName()));
+        return toRet;
+    }
+
+    public void report(MetricsReporter reporter) {
+        reporter.report(snapshot());
+    }
+
+    /**
+     * Listen to metrics being added and removed, the listener is called for all existing metrics first.
+     *
+     * @param listener listener
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+        metrics.forEach(listener::added);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    private <T> T getOrCreate(MetricName name, Class<T> type, Supplier<T> factory) {
+        Object existing = metrics.get(name);
+        if (existing == null) {
+            Object created = factory.get();
+            existing = metrics.putIfAbsent(name, created);
+            if (existing == null) {
+                listeners.forEach((Listener l) -> l.added(name, created));
+                return type.cast(created);
+            }
+        }
+        if (!type.isInstance(existing)) {
+            throw new IllegalArgumentException(name + " is already registered as "
+                    + existing.getClass().getSimpleName() + ", not as " + type.getSimpleName());
+        }
+        return type.cast(existing);
+    }
+
+    static MetricSnapshot snapshot(MetricName name, Object metric) {
+        if (metric instanceof Counter) {
+            return new MetricSnapshot(name, MetricSnapshot.Type.COUNTER, ((Counter) metric).getCount(), null);
+        }
+        if (metric instanceof Gauge) {
+            return new MetricSnapshot(name, MetricSnapshot.Type.GAUGE, ((Gauge) metric).getValue(), null);
+        }
+        if (metric instanceof Timer) {
+            Histogram.Snapshot snapshot = ((Timer) metric).snapshot();
+            return new MetricSnapshot(name, MetricSnapshot.Type.TIMER, snapshot.getCount(), snapshot);
+        }
+        Histogram.Snapshot snapshot = ((Histogram) metric).snapshot();
+        return new MetricSnapshot(name, MetricSnapshot.Type.HISTOGRAM, snapshot.getCount(), snapshot);
+    }
+
+    /**
+     * Notified when metrics are added to or removed from the registry.
+     */
+    public interface Listener {
+
+        /**
+         * Metric was added.
+         *
+         * @param name name of the metric
+         * @param metric one of {@link Counter}, {@link Gauge}, {@link Histogram} or {@link Timer}
+         */
+        void added(MetricName name, Object metric);
+
+        void removed(MetricName name);
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.spi.isolated.docker.metrics;
+
+import java.util.List;
+
+/**
+ * Receives snapshots of all metrics of a registry, see {@link MetricsRegistry#report(MetricsReporter)}.
+ */
+public interface MetricsReporter {
+
+    /**
+     * Report metric values.
+     *
+     * @param snapshots all metrics of the registry ordered by name
+     */
+    void report(List<MetricSnapshot> snapshots);
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.spi.isolated.docker.metrics;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes metrics in the Prometheus text exposition format, version 0.0.4.
+ * Histograms and timers are exposed as summaries with fixed quantiles, timers in seconds.
+ */
+public final class PrometheusTextExporter implements MetricsReporter {
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final double NANOS_PER_SECOND = 1_000_000_000d;
+
+    private final Writer writer;
+
+    /**
+     * Create exporter that writes every report to the writer.
+     *
+     * @param writer target of the reports
+     */
+    public PrometheusTextExporter(Writer writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Export the registry.
+     *
+     * @param registry registry to export
+     * @return metrics in Prometheus text format
+     */
+    public static String export(MetricsRegistry registry) {
+        StringWriter writer = new StringWriter();
+        registry.report(new PrometheusTextExporter(writer));
+        return writer.toString();
+    }
+
+    @Override
+    public void report(List<MetricSnapshot> snapshots) {
+        try {
+            write(snapshots);
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void write(List<MetricSnapshot> snapshots) throws IOException {
+        String lastName = null;
+        for (MetricSnapshot snapshot : snapshots) {
+            String name = snapshot.getName().getName();
+            if (!name.equals(lastName)) {
+                writer.write("# TYPE " + name + " " + typeOf(snapshot.getType()) + "\n");
+                lastName = name;
+            }
+            Map<String, String> tags = snapshot.getName().getTags();
+            switch (snapshot.getType()) {
+                case COUNTER:
+                case GAUGE:
+                    sample(name, tags, null, Long.toString(snapshot.getValue()));
+                    break;
+                case HISTOGRAM:
+                case TIMER:
+                default:
+                    boolean timer = snapshot.getType() == MetricSnapshot.Type.TIMER;
+                    Histogram.Snapshot histogram = snapshot.getHistogram();
+                    for (double quantile : QUANTILES) {
+                        long value = histogram.getValueAtQuantile(quantile);
+                        sample(name, tags, Double.toString(quantile), format(value, timer));
+                    }
+                    sample(name + "_sum", tags, null, format(histogram.getSum(), timer));
+                    sample(name + "_count", tags, null, Long.toString(histogram.getCount()));
+                    break;
+            }
+        }
+    }
+
+    private void sample(String name, Map<String, String> tags, String quantile, String value) throws IOException {
+        writer.write(name);
+        if (!tags.isEmpty() || quantile != null) {
+            writer.write('{');
+            boolean first = true;
+            for (Map.Entry<String, String> tag : tags.entrySet()) {
+                if (!first) {
+                    writer.write(',');
+                }
+                writer.write(tag.getKey() + "=\"" + escape(tag.getValue()) + "\"");
+                first = false;
+            }
+            if (quantile != null) {
+                writer.write((first ? "" : ",") + "quantile=\"" + quantile + "\"");
+            }
+            writer.write('}');
+        }
+        writer.write(' ');
+        writer.write(value);
+        writer.write('\n');
+    }
+
+    private static String format(long value, boolean nanos) {
+        return nanos ? Double.toString(value / NANOS_PER_SECOND) : Long.toString(value);
+    }
+
+    private static String typeOf(MetricSnapshot.Type type) {
+        switch (type) {
+            case COUNTER:
+                return "counter";
+            case GAUGE:
+                return "gauge";
+            default:
+                return "summary";
+        }
+    }
+
+    static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
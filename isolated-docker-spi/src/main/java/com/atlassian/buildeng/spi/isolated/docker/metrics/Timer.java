@@ -0,0 +1,87 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.spi.isolated.docker.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency histogram recorded in nanoseconds.
+ */
+public final class Timer {
+    private final Histogram histogram = new Histogram();
+
+    Timer() {}
+
+    public void record(long amount, TimeUnit unit) {
+        histogram.record(unit.toNanos(amount));
+    }
+
+    /**
+     * Start measuring, the returned sample records its duration when stopped or closed.
+     *
+     * @return running sample
+     */
+    public Sample start() {
+        return new Sample(this, System.nanoTime());
+    }
+
+    public long getCount() {
+        return histogram.getCount();
+    }
+
+    /**
+     * Snapshot of recorded durations in nanoseconds.
+     *
+     * @return snapshot
+     */
+    public Histogram.Snapshot snapshot() {
+        return histogram.snapshot();
+    }
+
+    /**
+     * Single running measurement, meant for try-with-resources.
+     */
+    public static final class Sample implements AutoCloseable {
+        private final Timer timer;
+        private final long start;
+        private boolean stopped;
+
+        private Sample(Timer timer, long start) {
+            this.timer = timer;
+            this.start = start;
+        }
+
+        /**
+         * Record the time elapsed since start, only the first call records.
+         *
+         * @return elapsed time in nanoseconds
+         */
+        public long stop() {
+            long elapsed = System.nanoTime() - start;
+            if (!stopped) {
+                stopped = true;
+                timer.record(elapsed, TimeUnit.NANOSECONDS);
+            }
+            return elapsed;
+        }
+
+        @Override
+        public void close() {
+            stop();
+        }
+    }
+}
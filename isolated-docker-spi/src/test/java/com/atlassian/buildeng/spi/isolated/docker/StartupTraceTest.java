@@ -0,0 +1,59 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.spi.isolated.docker;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class StartupTraceTest {
+
+    @Test
+    public void phaseDurationsAccumulate() {
+        Map<String, String> data = new HashMap<>();
+        StartupTrace.begin(data, StartupPhase.WAITING, 1000);
+        assertEquals(500, StartupTrace.end(data, StartupPhase.WAITING, 1500));
+        StartupTrace.begin(data, StartupPhase.WAITING, 2000);
+        // second begin while in progress keeps the original start
+        StartupTrace.begin(data, StartupPhase.WAITING, 2500);
+        assertEquals(1000, StartupTrace.end(data, StartupPhase.WAITING, 3000));
+        assertEquals(1500, StartupTrace.getDuration(data, StartupPhase.WAITING));
+        assertEquals(-1, StartupTrace.getStart(data, StartupPhase.WAITING));
+    }
+
+    @Test
+    public void endWithoutBeginIsIgnored() {
+        Map<String, String> data = new HashMap<>();
+        assertEquals(-1, StartupTrace.end(data, StartupPhase.THROTTLED, 1000));
+        assertEquals(-1, StartupTrace.getDuration(data, StartupPhase.THROTTLED));
+        assertTrue(data.isEmpty());
+    }
+
+    @Test
+    public void clearOnlyRemovesTraceData() {
+        Map<String, String> data = new HashMap<>();
+        data.put("custom.isolated.docker.image", "image");
+        StartupTrace.begin(data, StartupPhase.TOTAL, 1000);
+        StartupTrace.add(data, StartupPhase.BACKEND_CREATE, 300);
+        StartupTrace.clear(data);
+        assertEquals(1, data.size());
+        assertEquals("image", data.get("custom.isolated.docker.image"));
+    }
+}
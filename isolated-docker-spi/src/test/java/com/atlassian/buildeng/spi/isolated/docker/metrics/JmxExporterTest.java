@@ -0,0 +1,51 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.spi.isolated.docker.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.concurrent.TimeUnit;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import org.junit.jupiter.api.Test;
+
+public class JmxExporterTest {
+
+    private final MetricsRegistry registry = new MetricsRegistry();
+    private final MBeanServer server = MBeanServerFactory.newMBeanServer();
+
+    @Test
+    public void metricsAreRegisteredUntilStopped() throws Exception {
+        registry.counter("pbc_agents_total", "state", "queued").increment(2);
+        JmxExporter exporter = new JmxExporter(registry, "com.atlassian.buildeng.test", server);
+        exporter.start();
+        registry.timer("pbc_kubectl_seconds", "command", "get").record(3, TimeUnit.MILLISECONDS);
+
+        ObjectName counter =
+                new ObjectName("com.atlassian.buildeng.test:type=Counter,name=pbc_agents_total,state=\"queued\"");
+        ObjectName timer =
+                new ObjectName("com.atlassian.buildeng.test:type=Timer,name=pbc_kubectl_seconds,command=\"get\"");
+        assertEquals(2L, server.getAttribute(counter, "Count"));
+        assertEquals(3.0, (Double) server.getAttribute(timer, "MaxMillis"), 0.05);
+
+        exporter.stop();
+        assertFalse(server.isRegistered(counter));
+        assertFalse(server.isRegistered(timer));
+    }
+}
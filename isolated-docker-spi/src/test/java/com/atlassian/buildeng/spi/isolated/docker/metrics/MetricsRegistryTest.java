@@ -0,0 +1,136 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.spi.isolated.docker.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+public class MetricsRegistryTest {
+
+    private final MetricsRegistry registry = new MetricsRegistry();
+    private final InMemoryReporter reporter = new InMemoryReporter();
+
+    @Test
+    public void countersAreSharedByNameAndTags() {
+        registry.counter("pbc_events_total", "kind", "plan").increment();
+        registry.counter("pbc_events_total", "kind", "plan").increment(2);
+        registry.counter("pbc_events_total", "kind", "deployment").increment();
+
+        registry.report(reporter);
+
+        assertEquals(3, reporter.getValue("pbc_events_total", "kind", "plan"));
+        assertEquals(1, reporter.getValue("pbc_events_total", "kind", "deployment"));
+        assertNull(reporter.get("pbc_events_total"));
+        assertEquals(1, reporter.getReportCount());
+    }
+
+    @Test
+    public void metricNameIsRegisteredWithOneTypeOnly() {
+        registry.counter("pbc_metric");
+        assertThrows(IllegalArgumentException.class, () -> registry.timer("pbc_metric"));
+        assertThrows(IllegalArgumentException.class, () -> registry.counter("pbc-metric"));
+        assertThrows(IllegalArgumentException.class, () -> registry.counter("pbc_metric", "quantile", "1"));
+        assertThrows(IllegalArgumentException.class, () -> registry.counter("pbc_metric", "kind"));
+    }
+
+    @Test
+    public void gaugeSupplierIsReplaced() {
+        Gauge first = registry.gauge("pbc_queued", () -> 1);
+        Gauge second = registry.gauge("pbc_queued", () -> 2);
+
+        assertSame(first, second);
+        registry.report(reporter);
+        assertEquals(2, reporter.getValue("pbc_queued"));
+    }
+
+    @Test
+    public void histogramSmallValuesAreExact() {
+        Histogram histogram = registry.histogram("pbc_sizes");
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        Histogram.Snapshot snapshot = histogram.snapshot();
+
+        assertEquals(100, snapshot.getCount());
+        assertEquals(5050, snapshot.getSum());
+        assertEquals(1, snapshot.getMin());
+        assertEquals(100, snapshot.getMax());
+        assertEquals(50, snapshot.getValueAtQuantile(0.5));
+        assertEquals(99, snapshot.getValueAtQuantile(0.99));
+        assertEquals(100, snapshot.getValueAtQuantile(1));
+    }
+
+    @Test
+    public void histogramLargeValuesWithinRelativeError() {
+        Timer timer = registry.timer("pbc_latency_seconds");
+        long[] values = {1_234, 98_765, 5_000_000, 123_456_789_012L, Long.MAX_VALUE / 3};
+        for (long value : values) {
+            Histogram histogram = new Histogram();
+            histogram.record(value);
+            histogram.record(value / 2);
+            long reported = histogram.snapshot().getValueAtQuantile(0.5);
+            assertTrue(
+                    Math.abs(reported - value / 2) <= (value / 2) / Histogram.SUB_BUCKETS,
+                    value / 2 + " reported as " + reported);
+            timer.record(value, TimeUnit.NANOSECONDS);
+        }
+        assertEquals(Long.MAX_VALUE / 3, timer.snapshot().getMax());
+        assertEquals(Long.MAX_VALUE / 3, timer.snapshot().getValueAtQuantile(1));
+    }
+
+    @Test
+    public void bucketBoundsCoverWholeRange() {
+        for (int i = 1; i < Histogram.BUCKET_COUNT; i++) {
+            assertEquals(Histogram.upperBound(i - 1) + 1, Histogram.lowerBound(i), "bucket " + i);
+            assertEquals(i, Histogram.indexOf(Histogram.lowerBound(i)));
+            assertEquals(i, Histogram.indexOf(Histogram.upperBound(i)));
+        }
+        assertEquals(Long.MAX_VALUE, Histogram.upperBound(Histogram.BUCKET_COUNT - 1));
+    }
+
+    @Test
+    public void listenerSeesExistingAndNewMetrics() {
+        registry.counter("pbc_first");
+        List<String> added = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+        registry.addListener(new MetricsRegistry.Listener() {
+            @Override
+            public void added(MetricName name, Object metric) {
+                added.add(name.toString());
+            }
+
+            @Override
+            public void removed(MetricName name) {
+                removed.add(name.toString());
+            }
+        });
+        registry.timer("pbc_second", "command", "get");
+        registry.counter("pbc_first");
+        registry.remove(MetricName.of("pbc_first"));
+
+        assertEquals(List.of("pbc_first", "pbc_second{command=get}"), added);
+        assertEquals(List.of("pbc_first"), removed);
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.spi.isolated.docker.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+public class PrometheusTextExporterTest {
+
+    private final MetricsRegistry registry = new MetricsRegistry();
+
+    @Test
+    public void countersAndGauges() {
+        registry.counter("pbc_agents_total", "state", "queued").increment(3);
+        registry.counter("pbc_agents_total", "state", "failed").increment();
+        registry.gauge("pbc_throttled", () -> 7);
+
+        assertEquals(
+                "# TYPE pbc_agents_total counter\n"
+                        + "pbc_agents_total{state=\"failed\"} 1\n"
+                        + "pbc_agents_total{state=\"queued\"} 3\n"
+                        + "# TYPE pbc_throttled gauge\n"
+                        + "pbc_throttled 7\n",
+                PrometheusTextExporter.export(registry));
+    }
+
+    @Test
+    public void timersAreSummariesInSeconds() {
+        Timer timer = registry.timer("pbc_kubectl_seconds", "command", "get");
+        timer.record(100, TimeUnit.MILLISECONDS);
+        timer.record(2, TimeUnit.SECONDS);
+
+        long median = timer.snapshot().getValueAtQuantile(0.5);
+        assertTrue(Math.abs(median - 100_000_000L) <= 100_000_000L / Histogram.SUB_BUCKETS);
+
+        assertEquals(
+                "# TYPE pbc_kubectl_seconds summary\n"
+                        + "pbc_kubectl_seconds{command=\"get\",quantile=\"0.5\"} " + median / 1e9 + "\n"
+                        + "pbc_kubectl_seconds{command=\"get\",quantile=\"0.9\"} 2.0\n"
+                        + "pbc_kubectl_seconds{command=\"get\",quantile=\"0.99\"} 2.0\n"
+                        + "pbc_kubectl_seconds{command=\"get\",quantile=\"0.999\"} 2.0\n"
+                        + "pbc_kubectl_seconds_sum{command=\"get\"} 2.1\n"
+                        + "pbc_kubectl_seconds_count{command=\"get\"} 2\n",
+                PrometheusTextExporter.export(registry));
+    }
+
+    @Test
+    public void labelValuesAreEscaped() {
+        registry.counter("pbc_errors_total", "message", "say \"hi\"\\\n").increment();
+
+        assertEquals(
+                "# TYPE pbc_errors_total counter\n" + "pbc_errors_total{message=\"say \\\"hi\\\"\\\\\\n\"} 1\n",
+                PrometheusTextExporter.export(registry));
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.metrics.shared;
+
+import java.io.IOException;
+
+/**
+ * Reader of the format written by {@link CompactSeriesWriter}. Only the header is parsed on construction,
+ * points are decoded on every {@link #forEach(PointConsumer)} call without materializing the series.
+ */
+public final class CompactSeriesReader {
+
+    @FunctionalInterface
+    public interface PointConsumer {
+        void accept(long timestamp, double value);
+    }
+
+    private final byte[] data;
+    private final int count;
+    private final int timestampsStart;
+    private final int valuesStart;
+
+    public CompactSeriesReader(byte[] data) throws IOException {
+        if (!isCompact(data)) {
+            throw new IOException("Not a compact series artifact");
+        }
+        if (data[CompactSeriesWriter.MAGIC.length] != CompactSeriesWriter.VERSION) {
+            throw new IOException("Unsupported compact series version " + data[CompactSeriesWriter.MAGIC.length]);
+        }
+        this.data = data;
+        int[] position = {CompactSeriesWriter.MAGIC.length + 1};
+        long size = readVarLong(data, position);
+        long timestampsLength = readVarLong(data, position);
+        if (size < 0 || size > Integer.MAX_VALUE || timestampsLength < 0
+                || position[0] + timestampsLength > data.length) {
+            throw new IOException("Corrupted compact series header");
+        }
+        this.count = (int) size;
+        this.timestampsStart = position[0];
+        this.valuesStart = position[0] + (int) timestampsLength;
+    }
+
+    /**
+     * True if data starts with the compact series magic bytes. Older artifacts are plain JSON.
+     */
+    public static boolean isCompact(byte[] data) {
+        if (data == null || data.length <= CompactSeriesWriter.MAGIC.length) {
+            return false;
+        }
+        for (int i = 0; i < CompactSeriesWriter.MAGIC.length; i++) {
+            if (data[i] != CompactSeriesWriter.MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public void forEach(PointConsumer consumer) throws IOException {
+        int[] timestampPosition = {timestampsStart};
+        int[] valuePosition = {valuesStart};
+        long timestamp = 0;
+        long delta = 0;
+        long bits = 0;
+        try {
+            for (int i = 0; i < count; i++) {
+                long encoded = unzigzag(readVarLong(data, timestampPosition));
+                if (i == 0) {
+                    timestamp = encoded;
+                } else {
+                    delta += encoded;
+                    timestamp += delta;
+                }
+                int trailing = data[valuePosition[0]++];
+                if (trailing != CompactSeriesWriter.REPEATED_VALUE) {
+                    bits ^= readVarLong(data, valuePosition) << trailing;
+                }
+                consumer.accept(timestamp, Double.longBitsToDouble(bits));
+            }
+        } catch (ArrayIndexOutOfBoundsException ex) {
+            throw new IOException("Truncated compact series", ex);
+        }
+        if (timestampPosition[0] != valuesStart) {
+            throw new IOException("Corrupted compact series, timestamp column length mismatch");
+        }
+    }
+
+    /**
+     * Writes the series as the json array of {"x": timestamp, "y": value} objects consumed by the Rickshaw graphs.
+     * Points that are not finite numbers have no json representation and are skipped.
+     */
+    public String toJson() throws IOException {
+        StringBuilder json = new StringBuilder(count * 24 + 2).append('[');
+        forEach((long timestamp, double value) -> {
+            if (Double.isFinite(value)) {
+                if (json.length() > 1) {
+                    json.append(',');
+                }
+                json.append("{\"x\":").append(timestamp).append(",\"y\":").append(numberToString(value)).append('}');
+            }
+        });
+        return json.append(']').toString();
+    }
+
+    // same formatting as org.json, 2.0 is written as 2
+    private static String numberToString(double value) {
+        String string = Double.toString(value);
+        if (string.indexOf('.') > 0 && string.indexOf('e') < 0 && string.indexOf('E') < 0) {
+            int end = string.length();
+            while (string.charAt(end - 1) == '0') {
+                end--;
+            }
+            if (string.charAt(end - 1) == '.') {
+                end--;
+            }
+            string = string.substring(0, end);
+        }
+        return string;
+    }
+
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static long readVarLong(byte[] data, int[] position) {
+        long result = 0;
+        int shift = 0;
+        byte current;
+        do {
+            current = data[position[0]++];
+            result |= (long) (current & 0x7F) << shift;
+            shift += 7;
+        } while ((current & 0x80) != 0 && shift < 64);
+        return result;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.metrics.shared;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Streaming writer of the compact columnar time series artifact format.
+ *
+ * <p>Layout: magic "PBCS", version byte, varint point count, varint length of the timestamp column,
+ * the timestamp column and the value column. Timestamps are stored as zigzag varints of the
+ * delta of deltas, so a series sampled at a fixed step takes one byte per point. Values are stored
+ * as the xor of their IEEE 754 bits with the previous value, one byte with the number of trailing
+ * zero bits of the xor followed by the remaining bits as a varint. A repeated value takes a single byte.
+ *
+ * <p>Points are encoded as they are appended, the header is written on {@link #close()}.
+ */
+public final class CompactSeriesWriter implements Closeable {
+    public static final String FILE_EXTENSION = ".pbcs";
+    static final byte[] MAGIC = {'P', 'B', 'C', 'S'};
+    static final int VERSION = 1;
+    static final int REPEATED_VALUE = 64;
+
+    private final OutputStream out;
+    private final ByteArrayOutputStream timestamps = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream values = new ByteArrayOutputStream();
+    private int count;
+    private long lastTimestamp;
+    private long lastDelta;
+    private long lastBits;
+    private boolean closed;
+
+    public CompactSeriesWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    public void append(long timestamp, double value) {
+        if (closed) {
+            throw new IllegalStateException("Writer already closed");
+        }
+        if (count == 0) {
+            writeVarLong(timestamps, zigzag(timestamp));
+        } else {
+            long delta = timestamp - lastTimestamp;
+            writeVarLong(timestamps, zigzag(delta - lastDelta));
+            lastDelta = delta;
+        }
+        lastTimestamp = timestamp;
+
+        long bits = Double.doubleToRawLongBits(value);
+        long xor = bits ^ lastBits;
+        if (xor == 0) {
+            values.write(REPEATED_VALUE);
+        } else {
+            int trailing = Long.numberOfTrailingZeros(xor);
+            values.write(trailing);
+            writeVarLong(values, xor >>> trailing);
+        }
+        lastBits = bits;
+        count++;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        header.write(MAGIC, 0, MAGIC.length);
+        header.write(VERSION);
+        writeVarLong(header, count);
+        writeVarLong(header, timestamps.size());
+        try (OutputStream stream = out) {
+            header.writeTo(stream);
+            timestamps.writeTo(stream);
+            values.writeTo(stream);
+        }
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static void writeVarLong(ByteArrayOutputStream stream, long value) {
+        while ((value & ~0x7FL) != 0) {
+            stream.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        stream.write((int) value);
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.metrics.shared;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A downloaded metrics series artifact, either in the compact format or the legacy json one.
+ * The json consumed by the view is only produced when first requested.
+ */
+public final class SeriesArtifact {
+    private final byte[] content;
+    private String json;
+
+    public SeriesArtifact(byte[] content) {
+        this.content = content;
+    }
+
+    public boolean isCompact() {
+        return CompactSeriesReader.isCompact(content);
+    }
+
+    public synchronized String toJson() throws IOException {
+        if (json == null) {
+            json = isCompact()
+                    ? new CompactSeriesReader(content).toJson()
+                    : new String(content, StandardCharsets.UTF_8);
+        }
+        return json;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.metrics.shared;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class CompactSeriesTest {
+
+    @Test
+    public void roundTripsTimestampsAndValues() throws IOException {
+        long[] timestamps = {1_700_000_000L, 1_700_000_015L, 1_700_000_030L, 1_700_000_046L, 1_700_000_040L};
+        double[] values = {0.0, 1.5, 1.5, -3.25e-9, Double.NaN};
+
+        CompactSeriesReader reader = new CompactSeriesReader(encode(timestamps, values));
+
+        assertEquals(5, reader.size());
+        List<Long> readTimestamps = new ArrayList<>();
+        List<Double> readValues = new ArrayList<>();
+        reader.forEach((long timestamp, double value) -> {
+            readTimestamps.add(timestamp);
+            readValues.add(value);
+        });
+        assertArrayEquals(timestamps, readTimestamps.stream().mapToLong(Long::longValue).toArray());
+        assertArrayEquals(values, readValues.stream().mapToDouble(Double::doubleValue).toArray());
+    }
+
+    @Test
+    public void jsonMatchesLegacyArtifact() throws IOException {
+        byte[] data = encode(new long[] {100, 115, 130, 145}, new double[] {2.0, 0.125, Double.NaN, 3.0e10});
+
+        assertEquals(
+                "[{\"x\":100,\"y\":2},{\"x\":115,\"y\":0.125},{\"x\":145,\"y\":3.0E10}]",
+                new SeriesArtifact(data).toJson());
+    }
+
+    @Test
+    public void legacyJsonArtifactIsPassedThrough() throws IOException {
+        String legacy = "[{\"x\":100,\"y\":2}]";
+        SeriesArtifact artifact = new SeriesArtifact(legacy.getBytes(StandardCharsets.UTF_8));
+
+        assertFalse(artifact.isCompact());
+        assertEquals(legacy, artifact.toJson());
+    }
+
+    @Test
+    public void emptySeries() throws IOException {
+        byte[] data = encode(new long[0], new double[0]);
+
+        assertTrue(CompactSeriesReader.isCompact(data));
+        assertEquals("[]", new CompactSeriesReader(data).toJson());
+    }
+
+    @Test
+    public void truncatedArtifactIsRejected() throws IOException {
+        byte[] data = encode(new long[] {100, 115, 130}, new double[] {1.1, 2.2, 3.3});
+        byte[] truncated = Arrays.copyOf(data, data.length - 3);
+
+        assertThrows(IOException.class, () -> new CompactSeriesReader(truncated).toJson());
+    }
+
+    @Test
+    public void muchSmallerThanJson() throws IOException {
+        // two hours of memory usage sampled every 15s, the way the build processor queries Prometheus.
+        Random random = new Random(42);
+        int points = 480;
+        long[] timestamps = new long[points];
+        double[] values = new double[points];
+        double memory = 512_000_000;
+        for (int i = 0; i < points; i++) {
+            timestamps[i] = 1_700_000_000L + i * 15L;
+            memory += random.nextInt(4) == 0 ? 0 : random.nextInt(2_000_000) - 900_000;
+            values[i] = Math.floor(memory / 4096) * 4096;
+        }
+        byte[] compact = encode(timestamps, values);
+        String json = new CompactSeriesReader(compact).toJson();
+
+        assertTrue(
+                compact.length * 3 < json.getBytes(StandardCharsets.UTF_8).length,
+                compact.length + " vs " + json.length());
+    }
+
+    private static byte[] encode(long[] timestamps, double[] values) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (CompactSeriesWriter writer = new CompactSeriesWriter(out)) {
+            for (int i = 0; i < timestamps.length; i++) {
+                writer.append(timestamps[i], values[i]);
+            }
+        }
+        return out.toByteArray();
+    }
+}
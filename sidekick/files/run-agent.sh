@@ -4,27 +4,62 @@
 # That can be found at https://stash.atlassian.com/projects/BUILDENG/repos/sidekick/browse/files/run-agent.sh
 set -x
 
+# epoch millis; busybox date has no %N and prints it literally, so fall back to second precision there.
+now_ms() {
+    local ms
+    ms=$(date +%s%3N 2>/dev/null)
+    case "$ms" in
+        ''|*[!0-9]*) echo $(( $(date +%s) * 1000 )) ;;
+        *) echo "$ms" ;;
+    esac
+}
+
+# container start in epoch millis, reported to the server to split image pull from agent registration time.
+start_ms=$(now_ms)
+sidecar_wait_ms=0
+wait_method=none
+containers_directory=/pbc/kube
+report_file=/buildeng/pbc-startup-report.properties
+
+# side containers touch a file each in $containers_directory from their postStart hook, the last one to start
+# also creates $PBC_READY_FILE. Counting files keeps working with hooks that don't create the ready file.
+sidecars_ready() {
+    if [ -n "$PBC_READY_FILE" ] && [ -f "$PBC_READY_FILE" ]; then
+        return 0
+    fi
+    [ "$(find $containers_directory -type f 2>/dev/null | wc -l)" -ge "${KUBE_NUM_EXTRA_CONTAINERS:-0}" ]
+}
+
 if [ -f '/var/run/secrets/kubernetes.io/serviceaccount/namespace' ]; then
-    retries=0
-    # 30 retries per minute times 20 minutes = loop 600 times
-    # it's so high because of docker downloads of side containers.
-    container_start_retry_count=600
+    # wait up to 20 minutes, it's so long because of docker downloads of side containers.
+    deadline=$(( $(date +%s) + 1200 ))
     echo "Waiting for $KUBE_NUM_EXTRA_CONTAINERS side containers to start"
-    containers_directory=/pbc/kube
-    while true; do
-        if [ $retries -eq $container_start_retry_count ]; then
+    if command -v inotifywait > /dev/null; then
+        wait_method=inotify
+    else
+        wait_method=poll
+    fi
+    until sidecars_ready; do
+        if [ "$(date +%s)" -ge $deadline ]; then
             echo "Side containers failed to create file(s) in $containers_directory"
             ls -la $containers_directory
             break
-        elif [ "$(find $containers_directory -type f| wc -l)" != "$KUBE_NUM_EXTRA_CONTAINERS" ]; then
-            echo "No match, waiting some more"
-            sleep 2
-            let retries=retries+1
+        fi
+        if [ $wait_method = inotify ]; then
+            # returns as soon as a side container writes its file, the timeout covers events missed
+            # between the check and the watch being set up. Exit code 1 means /pbc can't be watched (yet).
+            inotifywait -qq -r -t 2 -e create -e attrib -e moved_to /pbc
+            if [ $? -eq 1 ]; then
+                sleep 1
+            fi
         else
-            echo "all sidecontainers have started"
-            break
+            sleep 0.5 2>/dev/null || sleep 1
         fi
     done
+    if sidecars_ready; then
+        echo "all sidecontainers have started"
+    fi
+    sidecar_wait_ms=$(( $(now_ms) - start_ms ))
 fi
 
 
@@ -33,8 +68,11 @@ if [ -f '/buildeng-custom/setup.sh' ]; then
 fi
 
 # Register as a docker builder
-./bamboo-update-capability "system.isolated.docker" $IMAGE_ID
-./bamboo-update-capability "system.isolated.docker.for" $RESULT_ID
+./bamboo-update-capability \
+    "system.isolated.docker" $IMAGE_ID \
+    "system.isolated.docker.for" $RESULT_ID \
+    "system.isolated.docker.trace.start" $start_ms \
+    "system.isolated.docker.trace.sidecars" $sidecar_wait_ms
 
 # create a dockery name for the agent.
 cat > bamboo-agent-home/bamboo-agent.cfg.xml <<EOF
@@ -48,6 +86,23 @@ cat > bamboo-agent-home/bamboo-agent.cfg.xml <<EOF
 </configuration>
 EOF
 
+# startup timing report, all timestamps in epoch millis unless stated otherwise.
+{
+    echo "queue.timestamp=${QUEUE_TIMESTAMP:-}"
+    echo "submit.timestamp=${SUBMIT_TIMESTAMP:-}"
+    echo "container.start=$start_ms"
+    echo "sidecars.expected=${KUBE_NUM_EXTRA_CONTAINERS:-0}"
+    echo "sidecars.wait.method=$wait_method"
+    echo "sidecars.wait.millis=$sidecar_wait_ms"
+    for f in $containers_directory/*; do
+        if [ -f "$f" ]; then
+            echo "sidecar.$(basename "$f").start.seconds=$(stat -c %Y "$f")"
+        fi
+    done
+    echo "agent.launch=$(now_ms)"
+} > $report_file
+cat $report_file
+
 # kill the agent after running the given timeout, we don't expect jobs to run longer than this
 TIMEOUT=6h
 